@@ -28,7 +28,9 @@ CREATE TABLE `categoria` (
   `nome` varchar(45) DEFAULT NULL,
   `tamanho` varchar(45) DEFAULT NULL,
   `embalagem` varchar(45) DEFAULT NULL,
-  PRIMARY KEY (`idcategoria`)
+  `ultima_alteracao` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  PRIMARY KEY (`idcategoria`),
+  KEY `ultima_alteracao` (`ultima_alteracao`)
 ) ENGINE=InnoDB AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -38,7 +40,7 @@ CREATE TABLE `categoria` (
 
 LOCK TABLES `categoria` WRITE;
 /*!40000 ALTER TABLE `categoria` DISABLE KEYS */;
-INSERT INTO `categoria` VALUES (3,'Alimenticios','Médio','Plástico'),(4,'Refrigerante','Pequeno','Lata'),(5,'higiene','Pequeno','Vidro');
+INSERT INTO `categoria` VALUES (3,'Alimenticios','Médio','Plástico','2025-06-10 15:53:43.000'),(4,'Refrigerante','Pequeno','Lata','2025-06-10 15:53:43.000'),(5,'higiene','Pequeno','Vidro','2025-06-10 15:53:43.000');
 /*!40000 ALTER TABLE `categoria` ENABLE KEYS */;
 UNLOCK TABLES;
 /*!40103 SET TIME_ZONE=@OLD_TIME_ZONE */;
@@ -89,7 +91,10 @@ CREATE TABLE `produto` (
   `min` int NOT NULL,
   `max` int NOT NULL,
   `categoria` varchar(100) NOT NULL,
-  PRIMARY KEY (`id`)
+  `ultima_alteracao` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  `versao` int NOT NULL DEFAULT '0',
+  PRIMARY KEY (`id`),
+  KEY `ultima_alteracao` (`ultima_alteracao`)
 ) ENGINE=InnoDB AUTO_INCREMENT=6 DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -99,7 +104,7 @@ CREATE TABLE `produto` (
 
 LOCK TABLES `produto` WRITE;
 /*!40000 ALTER TABLE `produto` DISABLE KEYS */;
-INSERT INTO `produto` VALUES (3,'Coca-Cola','uni',3.50,20,10,50,'Refrigerante'),(4,'Macarrao','uni',10.00,10,10,50,'Alimenticios'),(5,'Papel-higienico','pacote',20.00,50,10,100,'higiene');
+INSERT INTO `produto` VALUES (3,'Coca-Cola','uni',3.50,20,10,50,'Refrigerante','2025-06-10 15:53:43.000',0),(4,'Macarrao','uni',10.00,10,10,50,'Alimenticios','2025-06-10 15:53:43.000',0),(5,'Papel-higienico','pacote',20.00,50,10,100,'higiene','2025-06-10 15:53:43.000',0);
 /*!40000 ALTER TABLE `produto` ENABLE KEYS */;
 UNLOCK TABLES;
 /*!40103 SET TIME_ZONE=@OLD_TIME_ZONE */;
@@ -148,8 +153,12 @@ CREATE TABLE `registro_movimentacao` (
   `quantidade` int NOT NULL,
   `observacao` varchar(255) DEFAULT NULL,
   `data_movimentacao` date DEFAULT NULL,
+  `request_id` varchar(64) DEFAULT NULL,
+  `altera_estoque` tinyint(1) NOT NULL DEFAULT '0',
   PRIMARY KEY (`id`),
-  KEY `produto_id` (`produto_id`),
+  UNIQUE KEY `request_id` (`request_id`),
+  KEY `produto_data` (`produto_id`,`data_movimentacao`),
+  KEY `data_movimentacao` (`data_movimentacao`),
   CONSTRAINT `registro_movimentacao_ibfk_1` FOREIGN KEY (`produto_id`) REFERENCES `produto` (`id`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 /*!40101 SET character_set_client = @saved_cs_client */;
@@ -176,3 +185,106 @@ UNLOCK TABLES;
 
 -- Fim de db_produto_registro_movimentacao.sql
 
+
+-- Início de db_produto_reserva_estoque.sql
+
+--
+-- Table structure for table `reserva_estoque`
+--
+
+DROP TABLE IF EXISTS `reserva_estoque`;
+CREATE TABLE `reserva_estoque` (
+  `id` int NOT NULL AUTO_INCREMENT,
+  `produto_id` int NOT NULL,
+  `quantidade` int NOT NULL,
+  `expira_em` datetime(3) NOT NULL,
+  PRIMARY KEY (`id`),
+  KEY `produto_id` (`produto_id`),
+  CONSTRAINT `reserva_estoque_ibfk_1` FOREIGN KEY (`produto_id`) REFERENCES `produto` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- Fim de db_produto_reserva_estoque.sql
+
+
+-- Início de db_produto_registro_excluido.sql
+
+--
+-- Table structure for table `registro_excluido`
+--
+-- Exclusões de produtos e categorias, usadas para atualizar um snapshot do
+-- catálogo com as alterações feitas depois dele.
+--
+
+DROP TABLE IF EXISTS `registro_excluido`;
+CREATE TABLE `registro_excluido` (
+  `tabela` varchar(32) NOT NULL,
+  `registro_id` int NOT NULL,
+  `excluido_em` timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+  KEY `excluido_em` (`excluido_em`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+DROP TRIGGER IF EXISTS `produto_excluido`;
+CREATE TRIGGER `produto_excluido` AFTER DELETE ON `produto`
+  FOR EACH ROW INSERT INTO `registro_excluido` (`tabela`, `registro_id`) VALUES ('produto', OLD.`id`);
+
+DROP TRIGGER IF EXISTS `categoria_excluida`;
+CREATE TRIGGER `categoria_excluida` AFTER DELETE ON `categoria`
+  FOR EACH ROW INSERT INTO `registro_excluido` (`tabela`, `registro_id`) VALUES ('categoria', OLD.`idcategoria`);
+
+-- Fim de db_produto_registro_excluido.sql
+
+
+-- Início de db_produto_checkpoint_estoque.sql
+
+--
+-- Table structure for table `checkpoint_estoque`
+--
+-- Quantidade real de cada produto no fim de um dia, gerada para os dias
+-- encerrados em que o produto teve movimentações de estoque
+-- (`altera_estoque` = 1). Usada para consultar o estoque em uma data sem somar
+-- o histórico inteiro.
+--
+
+DROP TABLE IF EXISTS `checkpoint_estoque`;
+CREATE TABLE `checkpoint_estoque` (
+  `produto_id` int NOT NULL,
+  `data` date NOT NULL,
+  `saldo` int NOT NULL,
+  PRIMARY KEY (`produto_id`,`data`),
+  KEY `data` (`data`),
+  CONSTRAINT `checkpoint_estoque_ibfk_1` FOREIGN KEY (`produto_id`) REFERENCES `produto` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- Movimentações de estoque com data retroativa corrigem os checkpoints já
+-- gerados
+DROP TRIGGER IF EXISTS `movimentacao_checkpoint`;
+CREATE TRIGGER `movimentacao_checkpoint` AFTER INSERT ON `registro_movimentacao`
+  FOR EACH ROW UPDATE `checkpoint_estoque`
+    SET `saldo` = `saldo` + IF(NEW.`tipo_movimentacao` = 'Entrada', NEW.`quantidade`, -NEW.`quantidade`)
+    WHERE NEW.`altera_estoque` = 1 AND `produto_id` = NEW.`produto_id` AND `data` >= NEW.`data_movimentacao`;
+
+-- Fim de db_produto_checkpoint_estoque.sql
+
+
+-- Início de db_produto_estoque_fracao.sql
+
+--
+-- Table structure for table `estoque_fracao`
+--
+-- Frações do estoque dos produtos de altíssima demanda (estoque fracionado).
+-- `saldo` é a parte da quantidade que a fração ainda pode entregar e
+-- `consumido` o que ela já entregou e ainda não foi descontado de
+-- `produto`.`quantidade`.
+--
+
+DROP TABLE IF EXISTS `estoque_fracao`;
+CREATE TABLE `estoque_fracao` (
+  `produto_id` int NOT NULL,
+  `fracao` int NOT NULL,
+  `saldo` int NOT NULL,
+  `consumido` int NOT NULL DEFAULT '0',
+  PRIMARY KEY (`produto_id`,`fracao`),
+  CONSTRAINT `estoque_fracao_ibfk_1` FOREIGN KEY (`produto_id`) REFERENCES `produto` (`id`) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- Fim de db_produto_estoque_fracao.sql
@@ -0,0 +1,408 @@
+package config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuração do servidor de estoque.
+ *
+ * Os valores são obtidos, em ordem crescente de prioridade, dos valores
+ * padrão definidos nesta classe, do arquivo de propriedades, das variáveis de
+ * ambiente e das propriedades de sistema ({@code -Dchave=valor}). O arquivo
+ * padrão é {@code estoque.properties} no diretório de execução; outro caminho
+ * pode ser informado pela propriedade {@code estoque.config} ou pela variável
+ * {@code ESTOQUE_CONFIG}. Cada chave corresponde a uma variável de ambiente em
+ * maiúsculas com os pontos trocados por sublinhados (por exemplo,
+ * {@code estoque.db.host} e {@code ESTOQUE_DB_HOST}).
+ *
+ * O arquivo é verificado periodicamente; quando muda, os valores são
+ * recarregados e os ouvintes registrados são avisados. Apenas as chaves de
+ * {@link #RECARREGAVEIS} mudam com o servidor em execução; as demais (banco de
+ * dados, portas RMI etc.) só têm efeito na próxima inicialização.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public final class Configuracao {
+
+    /**
+     * Nome da propriedade/variável com o caminho do arquivo de configuração.
+     */
+    public static final String CHAVE_ARQUIVO = "estoque.config";
+
+    /**
+     * Chaves que podem ser alteradas com o servidor em execução.
+     */
+    public static final Set<String> RECARREGAVEIS = Set.of(
+            "estoque.db.pool.tamanho",
+            "estoque.db.pool.espera.ms",
+            "estoque.db.pool.validacao.ociosa.ms",
+            "estoque.db.fetch.tamanho",
+            "estoque.db.consulta.timeout.s",
+            "estoque.db.replica.atraso.maximo.s",
+            "estoque.db.leitura.propria.ms",
+            "estoque.cache.produtos.maximo",
+            "estoque.cache.categorias.validade.ms",
+            "estoque.aquecimento.iteracoes",
+            "estoque.movimentacao.lote.janela.ms",
+            "estoque.movimentacao.lote.maximo",
+            "estoque.diario.retencao.h",
+            "estoque.relatorio.particao",
+            "estoque.importacao.lote",
+            "estoque.importacao.erros.maximo",
+            "estoque.exportacao.validade.s",
+            "estoque.exportacao.bloco.maximo",
+            "estoque.exportacao.compressao.nivel",
+            "estoque.admissao.consulta.espera.ms",
+            "estoque.admissao.escrita.espera.ms",
+            "estoque.admissao.pesada.espera.ms",
+            "estoque.admissao.pesada.custo",
+            "estoque.admissao.cliente.taxa",
+            "estoque.admissao.cliente.rajada",
+            "estoque.prazo.consulta.ms",
+            "estoque.prazo.escrita.ms",
+            "estoque.prazo.pesada.ms",
+            "estoque.sql.monitor.ativo",
+            "estoque.sql.janela.s",
+            "estoque.sql.lenta.ms",
+            "estoque.sql.lenta.arquivo",
+            "estoque.demanda.alfa",
+            "estoque.demanda.prazo.dias",
+            "estoque.demanda.fator.seguranca",
+            "estoque.fracionado.produtos",
+            "estoque.fracionado.fracoes"
+    );
+
+    /**
+     * Valores padrão de todas as chaves conhecidas.
+     */
+    private static final Map<String, String> PADROES = padroes();
+
+    /**
+     * Instância única da configuração.
+     */
+    private static final Configuracao INSTANCIA = new Configuracao();
+
+    /**
+     * Valores atuais, substituídos por completo a cada recarga.
+     */
+    private volatile Map<String, String> valores;
+    /**
+     * Ouvintes avisados após cada recarga.
+     */
+    private final List<Runnable> ouvintes = new CopyOnWriteArrayList<>();
+    /**
+     * Caminho do arquivo de configuração.
+     */
+    private final Path arquivo;
+    /**
+     * Data de modificação do arquivo na última leitura.
+     */
+    private FileTime ultimaModificacao;
+    /**
+     * Thread que verifica alterações no arquivo.
+     */
+    private ScheduledExecutorService monitor;
+
+    private Configuracao() {
+        String caminho = System.getProperty(CHAVE_ARQUIVO, System.getenv("ESTOQUE_CONFIG"));
+        this.arquivo = Paths.get(caminho != null ? caminho : "estoque.properties");
+        this.valores = carregar(null);
+    }
+
+    /**
+     * @return a configuração do servidor
+     */
+    public static Configuracao obter() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Retorna o valor textual de uma chave.
+     *
+     * @param chave nome da chave
+     * @return o valor configurado, ou o padrão da chave
+     */
+    public String getString(String chave) {
+        return valores.get(chave);
+    }
+
+    /**
+     * Retorna o valor inteiro de uma chave.
+     *
+     * @param chave nome da chave
+     * @return o valor configurado, ou o padrão se o valor for inválido
+     */
+    public int getInt(String chave) {
+        return (int) getLong(chave);
+    }
+
+    /**
+     * Retorna o valor inteiro longo de uma chave.
+     *
+     * @param chave nome da chave
+     * @return o valor configurado, ou o padrão se o valor for inválido
+     */
+    public long getLong(String chave) {
+        String valor = valores.get(chave);
+        try {
+            return Long.parseLong(valor.trim());
+        } catch (RuntimeException e) {
+            System.err.println("Valor inválido para " + chave + ": " + valor + ". Usando o padrão.");
+            return Long.parseLong(PADROES.get(chave));
+        }
+    }
+
+    /**
+     * Retorna o valor decimal de uma chave.
+     *
+     * @param chave nome da chave
+     * @return o valor configurado, ou o padrão se o valor for inválido
+     */
+    public double getDouble(String chave) {
+        String valor = valores.get(chave);
+        try {
+            return Double.parseDouble(valor.trim());
+        } catch (RuntimeException e) {
+            System.err.println("Valor inválido para " + chave + ": " + valor + ". Usando o padrão.");
+            return Double.parseDouble(PADROES.get(chave));
+        }
+    }
+
+    /**
+     * Retorna o valor lógico de uma chave.
+     *
+     * @param chave nome da chave
+     * @return {@code true} se o valor configurado for "true" (sem diferenciar
+     * maiúsculas)
+     */
+    public boolean getBoolean(String chave) {
+        return Boolean.parseBoolean(valores.get(chave));
+    }
+
+    /**
+     * Registra uma ação executada sempre que a configuração for recarregada.
+     *
+     * @param ouvinte ação a ser executada
+     */
+    public void aoRecarregar(Runnable ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    /**
+     * Inicia a verificação periódica do arquivo de configuração. Chamadas
+     * repetidas não criam novas verificações.
+     */
+    public synchronized void iniciarMonitoramento() {
+        if (monitor != null) {
+            return;
+        }
+        long intervalo = getLong("estoque.config.intervalo.s");
+        monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "monitor-configuracao");
+            t.setDaemon(true);
+            return t;
+        });
+        monitor.scheduleWithFixedDelay(this::verificarArquivo, intervalo, intervalo, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Aplica os tempos limite de socket do RMI como propriedades de sistema.
+     * Deve ser chamado antes de exportar qualquer objeto remoto.
+     */
+    public void aplicarPropriedadesRmi() {
+        System.setProperty("sun.rmi.transport.connectionTimeout", getString("estoque.rmi.timeout.conexao.ms"));
+        System.setProperty("sun.rmi.transport.tcp.readTimeout", getString("estoque.rmi.timeout.leitura.ms"));
+        System.setProperty("sun.rmi.transport.tcp.responseTimeout", getString("estoque.rmi.timeout.resposta.ms"));
+    }
+
+    /**
+     * Recarrega o arquivo se ele tiver sido alterado desde a última leitura.
+     */
+    private void verificarArquivo() {
+        try {
+            FileTime modificacao = Files.exists(arquivo) ? Files.getLastModifiedTime(arquivo) : null;
+            synchronized (this) {
+                if (modificacao == null || modificacao.equals(ultimaModificacao)) {
+                    return;
+                }
+            }
+            valores = carregar(valores);
+            System.out.println("Configuração recarregada de " + arquivo.toAbsolutePath());
+            for (Runnable ouvinte : ouvintes) {
+                ouvinte.run();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Erro ao recarregar configuração: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Monta o mapa de valores a partir de todas as fontes. Em uma recarga, as
+     * chaves que não são recarregáveis mantêm o valor anterior.
+     */
+    private Map<String, String> carregar(Map<String, String> anteriores) {
+        Properties doArquivo = new Properties();
+        if (Files.exists(arquivo)) {
+            try (InputStream entrada = Files.newInputStream(arquivo)) {
+                doArquivo.load(entrada);
+                synchronized (this) {
+                    ultimaModificacao = Files.getLastModifiedTime(arquivo);
+                }
+            } catch (IOException e) {
+                System.err.println("Erro ao ler configuração " + arquivo + ": " + e.getMessage());
+            }
+        }
+
+        Map<String, String> novos = new HashMap<>(PADROES);
+        List<String> ignoradas = new ArrayList<>();
+        for (String chave : PADROES.keySet()) {
+            String valor = doArquivo.getProperty(chave);
+            String ambiente = System.getenv(chave.toUpperCase().replace('.', '_'));
+            if (ambiente != null) {
+                valor = ambiente;
+            }
+            valor = System.getProperty(chave, valor);
+            if (valor != null) {
+                novos.put(chave, valor.trim());
+            }
+
+            if (anteriores != null && !RECARREGAVEIS.contains(chave)
+                    && !novos.get(chave).equals(anteriores.get(chave))) {
+                novos.put(chave, anteriores.get(chave));
+                ignoradas.add(chave);
+            }
+        }
+        if (!ignoradas.isEmpty()) {
+            System.out.println("Alterações que só valem após reiniciar o servidor: " + ignoradas);
+        }
+        return Collections.unmodifiableMap(novos);
+    }
+
+    /**
+     * Define os valores padrão, equivalentes à configuração fixa usada antes
+     * da existência desta classe.
+     */
+    private static Map<String, String> padroes() {
+        Map<String, String> p = new HashMap<>();
+        // Banco de dados
+        p.put("estoque.db.driver", "com.mysql.cj.jdbc.Driver");
+        p.put("estoque.db.host", "localhost");
+        p.put("estoque.db.porta", "3306");
+        p.put("estoque.db.nome", "estoque");
+        p.put("estoque.db.usuario", "root");
+        p.put("estoque.db.senha", "TrabalhoA3");
+        p.put("estoque.db.url", "");
+        p.put("estoque.db.parametros", "useTimezone=true&serverTimezone=UTC&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048&rewriteBatchedStatements=true");
+        p.put("estoque.db.replicas", "");
+        // Pool e comandos
+        p.put("estoque.db.pool.tamanho", "10");
+        p.put("estoque.db.pool.espera.ms", "5000");
+        p.put("estoque.db.pool.validacao.ociosa.ms", "30000");
+        p.put("estoque.db.fetch.tamanho", "0");
+        p.put("estoque.db.consulta.timeout.s", "0");
+        p.put("estoque.db.replica.atraso.maximo.s", "5");
+        p.put("estoque.db.replica.intervalo.s", "2");
+        p.put("estoque.db.leitura.propria.ms", "5000");
+        // Caches e deduplicação
+        p.put("estoque.cache.produtos.maximo", "100000");
+        p.put("estoque.cache.categorias.validade.ms", "30000");
+        p.put("estoque.cache.foraHeap.capacidade", "0");
+        p.put("estoque.dedup.validade.ms", "600000");
+        p.put("estoque.dedup.capacidade", "100000");
+        // Reservas
+        p.put("estoque.reserva.tick.ms", "1000");
+        p.put("estoque.reserva.posicoes", "512");
+        // Gravação agrupada de movimentações
+        p.put("estoque.movimentacao.lote.janela.ms", "2");
+        p.put("estoque.movimentacao.lote.maximo", "128");
+        // Diário local de movimentações
+        p.put("estoque.diario.ativo", "true");
+        p.put("estoque.diario.diretorio", "estoque-diario");
+        p.put("estoque.diario.segmento.bytes", "16777216");
+        p.put("estoque.diario.retencao.h", "720");
+        p.put("estoque.diario.sincronizacao.ms", "1000");
+        // Relatórios
+        p.put("estoque.relatorio.paralelismo", "0");
+        p.put("estoque.relatorio.particao", "16384");
+        // Importação de produtos em massa
+        p.put("estoque.importacao.lote", "5000");
+        p.put("estoque.importacao.fila.blocos", "64");
+        p.put("estoque.importacao.inatividade.s", "300");
+        p.put("estoque.importacao.erros.maximo", "1000");
+        // Exportação de produtos e movimentações
+        p.put("estoque.exportacao.diretorio", "estoque-exportacao");
+        p.put("estoque.exportacao.validade.s", "3600");
+        p.put("estoque.exportacao.bloco.maximo", "4194304");
+        p.put("estoque.exportacao.compressao.nivel", "1");
+        // Controle de admissão
+        p.put("estoque.admissao.ativo", "true");
+        p.put("estoque.admissao.consulta.concorrencia", "64");
+        p.put("estoque.admissao.consulta.espera.ms", "100");
+        p.put("estoque.admissao.escrita.concorrencia", "32");
+        p.put("estoque.admissao.escrita.espera.ms", "1000");
+        p.put("estoque.admissao.pesada.concorrencia", "2");
+        p.put("estoque.admissao.pesada.espera.ms", "5000");
+        p.put("estoque.admissao.pesada.custo", "20");
+        p.put("estoque.admissao.cliente.taxa", "200");
+        p.put("estoque.admissao.cliente.rajada", "400");
+        // Prazos das chamadas remotas
+        p.put("estoque.prazo.consulta.ms", "5000");
+        p.put("estoque.prazo.escrita.ms", "10000");
+        p.put("estoque.prazo.pesada.ms", "600000");
+        p.put("estoque.prazo.relatorio.s", "60");
+        // Monitor de comandos SQL e log de consultas lentas
+        p.put("estoque.sql.monitor.ativo", "true");
+        p.put("estoque.sql.janela.s", "300");
+        p.put("estoque.sql.lenta.ms", "500");
+        p.put("estoque.sql.lenta.arquivo", "estoque-sql-lenta.log");
+        p.put("estoque.sql.lenta.memoria", "200");
+        // Checkpoints diários de estoque
+        p.put("estoque.checkpoint.intervalo.min", "60");
+        // Estatísticas de demanda e sugestões de reposição
+        p.put("estoque.demanda.alfa", "0.1");
+        p.put("estoque.demanda.historico.dias", "90");
+        p.put("estoque.demanda.prazo.dias", "7");
+        p.put("estoque.demanda.fator.seguranca", "1.65");
+        // Estoque fracionado dos produtos de altíssima demanda
+        p.put("estoque.fracionado.produtos", "");
+        p.put("estoque.fracionado.fracoes", "8");
+        p.put("estoque.fracionado.reconciliacao.ms", "1000");
+        // RMI
+        p.put("estoque.rmi.porta.registro", "1099");
+        p.put("estoque.rmi.porta.servico", "0");
+        p.put("estoque.rmi.timeout.conexao.ms", "15000");
+        p.put("estoque.rmi.timeout.leitura.ms", "7200000");
+        p.put("estoque.rmi.timeout.resposta.ms", "0");
+        p.put("estoque.rmi.tcp.semAtraso", "true");
+        p.put("estoque.rmi.tcp.buffer.envio", "0");
+        p.put("estoque.rmi.tcp.buffer.recepcao", "0");
+        p.put("estoque.rmi.compressao.limite", "16384");
+        p.put("estoque.rmi.compressao.nivel", "1");
+        // Snapshot do catálogo
+        p.put("estoque.snapshot.arquivo", "estoque-catalogo.snap");
+        p.put("estoque.snapshot.intervalo.s", "600");
+        p.put("estoque.snapshot.retencao.h", "168");
+        // Aquecimento antes de publicar o serviço
+        p.put("estoque.aquecimento.ativo", "true");
+        p.put("estoque.aquecimento.iteracoes", "2000");
+        // Própria configuração
+        p.put("estoque.config.intervalo.s", "5");
+        return Collections.unmodifiableMap(p);
+    }
+}
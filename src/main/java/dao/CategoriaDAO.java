@@ -1,5 +1,6 @@
 package dao;
 
+import config.Configuracao;
 import modelo.Categoria;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -16,29 +17,44 @@ import java.util.List;
  * Esta classe implementa os métodos CRUD (Create, Read, Update e Delete) para
  * manipular registros da tabela {@code categoria}.
  *
+ * A lista de categorias fica em cache, compartilhado por todas as instâncias,
+ * durante o tempo da chave {@code estoque.cache.categorias.validade.ms}. O
+ * cache é descartado a cada alteração feita por esta JVM; alterações feitas
+ * por outros servidores aparecem quando a validade expira.
+ *
  * @author Hector
  * @version 1.0
  */
 public class CategoriaDAO {
 
     /**
-     * Estabelece conexão com o banco de dados.
+     * Categorias lidas por último, ou {@code null} se o cache foi descartado.
+     */
+    private static volatile List<Categoria> emCache;
+    /**
+     * Instante em que o cache deixa de ser válido.
      */
-    private Connection connection;
+    private static volatile long validoAte;
 
     /**
-     * Construtor da classe. Estabelece a conexão com o banco de dados por meio
-     * da classe {@link Conexao}.
+     * Construtor da classe. Verifica a conexão com o banco de dados por meio
+     * da classe {@link Conexao}. Cada operação obtém sua própria conexão do
+     * pool e a devolve ao terminar.
      *
      * @throws RuntimeException se não for possível conectar ao banco de dados
      */
     public CategoriaDAO() {
         Conexao conexao = new Conexao();
-        this.connection = conexao.conectar();
+        Connection connection = conexao.conectar();
 
-        if (this.connection == null) {
+        if (connection == null) {
             throw new RuntimeException("Erro ao conectar com o banco de dados");
         }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.out.println("Erro ao liberar conexão: " + e.getMessage());
+        }
     }
 
     /**
@@ -57,6 +73,7 @@ public class CategoriaDAO {
 
             stmt.executeUpdate();
         }
+        emCache = null;
     }
 
     /**
@@ -66,11 +83,25 @@ public class CategoriaDAO {
      * @throws SQLException se ocorrer um erro durante a consulta
      */
     public List<Categoria> listarCategorias() throws SQLException {
+        List<Categoria> armazenadas = emCache;
+        if (armazenadas != null && System.currentTimeMillis() < validoAte) {
+            return new ArrayList<>(armazenadas);
+        }
+        return new ArrayList<>(carregarCache());
+    }
+
+    /**
+     * Lê todas as categorias do banco e as armazena no cache.
+     *
+     * @return as categorias lidas
+     * @throws SQLException se ocorrer um erro durante a consulta
+     */
+    public List<Categoria> carregarCache() throws SQLException {
         List<Categoria> categorias = new ArrayList<>();
         String sql = "SELECT * FROM categoria";
 
         try (
-                Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+                Connection connection = new Conexao().conectarLeitura(); Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
                 Categoria c = new Categoria(
                         rs.getInt("idcategoria"),
@@ -82,9 +113,20 @@ public class CategoriaDAO {
             }
         }
 
+        armazenarCache(categorias);
         return categorias;
     }
 
+    /**
+     * Substitui o conteúdo do cache de categorias.
+     *
+     * @param categorias categorias a serem armazenadas
+     */
+    static void armazenarCache(List<Categoria> categorias) {
+        emCache = categorias;
+        validoAte = System.currentTimeMillis() + Configuracao.obter().getLong("estoque.cache.categorias.validade.ms");
+    }
+
     /**
      * Atualiza os dados de uma categoria existente no banco de dados.
      *
@@ -95,13 +137,14 @@ public class CategoriaDAO {
         String sql = "UPDATE categoria SET nome = ?, tamanho = ?, embalagem = ? WHERE idcategoria = ?";
 
         try (
-                PreparedStatement stmt = connection.prepareStatement(sql)) {
+                Connection connection = new Conexao().conectar(); PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setString(1, categoria.getNomeCategoria());
             stmt.setString(2, categoria.getTamanho());
             stmt.setString(3, categoria.getEmbalagem());
             stmt.setInt(4, categoria.getId());
             stmt.executeUpdate();
         }
+        emCache = null;
     }
 
     /**
@@ -114,9 +157,10 @@ public class CategoriaDAO {
         String sql = "DELETE FROM categoria WHERE idcategoria = ?";
 
         try (
-                PreparedStatement stmt = connection.prepareStatement(sql)) {
+                Connection connection = new Conexao().conectar(); PreparedStatement stmt = connection.prepareStatement(sql)) {
             stmt.setInt(1, id);
             stmt.executeUpdate();
         }
+        emCache = null;
     }
 }
@@ -0,0 +1,168 @@
+package dao;
+
+import config.Configuracao;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Geração dos checkpoints diários de estoque (tabela
+ * {@code checkpoint_estoque}), usados para consultar o saldo de um produto em
+ * uma data passada sem somar o histórico inteiro de movimentações
+ * ({@link RegistroMovimentacaoDAO#consultarEstoqueEm(int, LocalDate)}).
+ *
+ * O checkpoint de um produto em um dia guarda a quantidade real do produto
+ * no fim daquele dia: a quantidade atual do produto (descontado o consumo das
+ * frações ainda não reconciliado, ver {@link EstoqueFracionado}) menos as
+ * movimentações de estoque com data posterior ao dia. Assim o checkpoint
+ * inclui a quantidade inicial do cadastro ou da importação, que não gera
+ * movimentação. Só contam as movimentações que alteraram a quantidade
+ * ({@code altera_estoque}); as avulsas não mudam o saldo. Essa conta de trás
+ * para frente só é feita no primeiro checkpoint de cada produto; os
+ * seguintes partem do anterior.
+ *
+ * Para cada dia encerrado, a geração cria um checkpoint para os produtos que
+ * tiveram movimentações de estoque com aquela data. Produtos sem movimentação
+ * no dia continuam com o checkpoint anterior, que já tem o saldo correto. A
+ * geração é idempotente: repetir um dia não cria linhas, e vários servidores
+ * podem executá-la sobre o mesmo banco.
+ *
+ * Movimentações de estoque gravadas com data retroativa são aplicadas aos
+ * checkpoints já existentes pelo gatilho {@code movimentacao_checkpoint}, na
+ * mesma transação do {@code INSERT}.
+ *
+ * Na primeira execução, os checkpoints são gerados desde a data da
+ * movimentação mais antiga; depois, a cada {@code estoque.checkpoint.intervalo.min}
+ * minutos são gerados os dias encerrados que faltarem.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class CheckpointEstoque {
+
+    /**
+     * Cria os checkpoints de um dia para os produtos com movimentações de
+     * estoque nele. O saldo parte do checkpoint anterior do produto e soma as
+     * movimentações entre ele e o dia, que normalmente são só as do próprio
+     * dia; apenas o primeiro checkpoint de cada produto é calculado a partir
+     * da quantidade atual. Assim, gerar o histórico inteiro lê cada
+     * movimentação poucas vezes, em vez de somar, para cada dia, todas as
+     * posteriores. O {@code INSERT ... SELECT} lê o produto, os checkpoints e
+     * as movimentações com bloqueio compartilhado, de modo que uma entrada ou
+     * saída ainda não confirmada (quantidade e movimentação na mesma
+     * transação) entra inteira no checkpoint ou fica inteira de fora.
+     */
+    private static final String SQL_GERAR = "INSERT INTO checkpoint_estoque (produto_id, data, saldo)"
+            + " SELECT p.id, ?, CASE WHEN c.data IS NULL THEN COALESCE(p.quantidade, 0)"
+            + " - COALESCE((SELECT SUM(f.consumido) FROM estoque_fracao f WHERE f.produto_id = p.id), 0)"
+            + " - COALESCE((SELECT SUM(CASE WHEN m.tipo_movimentacao = 'Entrada' THEN m.quantidade ELSE -m.quantidade END)"
+            + " FROM registro_movimentacao m WHERE m.produto_id = p.id AND m.altera_estoque = 1 AND m.data_movimentacao > ?), 0)"
+            + " ELSE c.saldo + COALESCE((SELECT SUM(CASE WHEN m.tipo_movimentacao = 'Entrada' THEN m.quantidade ELSE -m.quantidade END)"
+            + " FROM registro_movimentacao m WHERE m.produto_id = p.id AND m.altera_estoque = 1 AND m.data_movimentacao > c.data AND m.data_movimentacao <= ?), 0) END"
+            + " FROM produto p LEFT JOIN checkpoint_estoque c ON c.produto_id = p.id"
+            + " AND c.data = (SELECT MAX(u.data) FROM checkpoint_estoque u WHERE u.produto_id = p.id AND u.data < ?)"
+            + " WHERE p.id IN (SELECT n.produto_id FROM registro_movimentacao n WHERE n.data_movimentacao = ? AND n.altera_estoque = 1)"
+            + " AND NOT EXISTS (SELECT 1 FROM checkpoint_estoque e WHERE e.produto_id = p.id AND e.data = ?)";
+
+    /**
+     * Último dia já gerado por este servidor.
+     */
+    private LocalDate ultimoDia;
+    /**
+     * Thread que gera os checkpoints periodicamente.
+     */
+    private ScheduledExecutorService gerador;
+
+    /**
+     * Gera os checkpoints dos dias ainda não gerados, do dia seguinte ao
+     * último checkpoint (ou da data da movimentação mais antiga) até o dia
+     * informado, um dia por transação.
+     *
+     * @param ate último dia a gerar
+     * @return quantidade de checkpoints criados
+     * @throws SQLException se ocorrer erro no banco
+     */
+    public synchronized long gerarAte(LocalDate ate) throws SQLException {
+        long criados = 0;
+        try (Connection conn = new Conexao().conectar()) {
+            if (conn == null) {
+                throw new SQLException("Não foi possível conectar ao banco de dados.");
+            }
+            LocalDate dia = proximoDia(conn);
+            if (dia == null) {
+                return 0;
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_GERAR)) {
+                for (; !dia.isAfter(ate); dia = dia.plusDays(1)) {
+                    java.sql.Date data = java.sql.Date.valueOf(dia);
+                    for (int parametro = 1; parametro <= 6; parametro++) {
+                        stmt.setDate(parametro, data);
+                    }
+                    criados += stmt.executeUpdate();
+                    ultimoDia = dia;
+                }
+            }
+        }
+        return criados;
+    }
+
+    /**
+     * Inicia a geração periódica dos checkpoints dos dias encerrados. Não faz
+     * nada se {@code estoque.checkpoint.intervalo.min} for zero ou se a
+     * geração já tiver sido iniciada.
+     */
+    public synchronized void iniciarGeracaoPeriodica() {
+        long intervalo = Configuracao.obter().getLong("estoque.checkpoint.intervalo.min");
+        if (gerador != null || intervalo <= 0) {
+            return;
+        }
+        gerador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "checkpoint-estoque");
+            t.setDaemon(true);
+            return t;
+        });
+        gerador.scheduleWithFixedDelay(() -> {
+            try {
+                long inicio = System.nanoTime();
+                long criados = gerarAte(LocalDate.now().minusDays(1));
+                if (criados > 0) {
+                    System.out.println(criados + " checkpoints de estoque gerados em "
+                            + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+                }
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Erro ao gerar checkpoints de estoque: " + e.getMessage());
+            }
+        }, 0, intervalo, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Retorna o primeiro dia a gerar: o seguinte ao último checkpoint gravado
+     * ou gerado, ou o da movimentação mais antiga se ainda não houver
+     * checkpoints.
+     *
+     * @return o dia, ou {@code null} se não houver movimentações
+     */
+    private LocalDate proximoDia(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT (SELECT MAX(data) FROM checkpoint_estoque),"
+                        + " (SELECT MIN(data_movimentacao) FROM registro_movimentacao)")) {
+            rs.next();
+            java.sql.Date ultimoCheckpoint = rs.getDate(1);
+            java.sql.Date primeiraMovimentacao = rs.getDate(2);
+            LocalDate ultimo = ultimoCheckpoint != null ? ultimoCheckpoint.toLocalDate() : null;
+            if (ultimoDia != null && (ultimo == null || ultimoDia.isAfter(ultimo))) {
+                ultimo = ultimoDia;
+            }
+            if (ultimo != null) {
+                return ultimo.plusDays(1);
+            }
+            return primeiraMovimentacao != null ? primeiraMovimentacao.toLocalDate() : null;
+        }
+    }
+}
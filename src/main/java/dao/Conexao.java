@@ -1,8 +1,20 @@
 package dao;
 
+import config.Configuracao;
+import java.rmi.server.RemoteServer;
+import java.rmi.server.ServerNotActiveException;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Classe responsável por gerenciar a conexão com o banco de dados MySQL. Esta
@@ -11,11 +23,52 @@ import java.sql.SQLException;
  * principal {@link #conectar()} retorna um objeto {@link Connection} ativo, que
  * pode ser utilizado pelas classes DAO para executar comandos SQL.
  *
+ * Os parâmetros de conexão, do pool e das réplicas vêm da
+ * {@link Configuracao} (chaves {@code estoque.db.*}).
+ *
+ * As conexões vêm de pools compartilhados ({@link FonteDados}): um para o
+ * banco primário e, opcionalmente, um para cada réplica de leitura informada
+ * em {@code estoque.db.replicas} (lista de {@code host:porta} separados por
+ * vírgula). A URL JDBC completa da primária pode ser informada em
+ * {@code estoque.db.url}, e a de cada réplica no lugar do
+ * {@code host:porta}; assim outros drivers, como bancos embutidos usados nos
+ * testes, podem fazer o papel da primária e das réplicas. Operações somente de leitura
+ * usam {@link #conectarLeitura()}, que escolhe a réplica menos ocupada entre
+ * as que estão saudáveis e com atraso de replicação aceitável. Escritas usam
+ * {@link #conectar()}, sempre na primária; depois que uma escrita é
+ * confirmada, as leituras do mesmo cliente RMI continuam na primária por
+ * alguns segundos, para que ele enxergue as próprias alterações. Leituras que
+ * precisam dos dados mais recentes, mas não gravam nada, usam
+ * {@link #conectarPrimario()}, que não desvia as leituras seguintes do cliente
+ * para a primária.
+ *
  * @author Hector
  * @version 1.0
  */
 public class Conexao {
 
+    /**
+     * Configuração do servidor, consultada a cada uso para refletir recargas.
+     */
+    private static final Configuracao config = Configuracao.obter();
+
+    /**
+     * Pool de conexões do banco primário.
+     */
+    private static volatile FonteDados primaria;
+    /**
+     * Pools de conexões das réplicas de leitura.
+     */
+    private static final List<FonteDados> replicas = new CopyOnWriteArrayList<>();
+    /**
+     * Instante até o qual as leituras de cada cliente ficam na primária.
+     */
+    private static final ConcurrentHashMap<String, Long> leiturasNaPrimaria = new ConcurrentHashMap<>();
+    /**
+     * Thread que mede periodicamente o atraso das réplicas.
+     */
+    private static ScheduledExecutorService monitor;
+
     /**
      * Nome do driver JDBC utilizado para conectar ao MySQL.
      */
@@ -44,32 +97,36 @@ public class Conexao {
 
     /**
      * Construtor que inicializa os parâmetros necessários para a conexão com o
-     * banco de dados MySQL.
+     * banco de dados MySQL a partir da configuração.
      */
     public Conexao() {
-        this.DRIVER = "com.mysql.cj.jdbc.Driver";
-        this.SERVER = "localhost";
-        this.DATABASE = "estoque";
-        this.URL = "jdbc:mysql://" + SERVER + ":3306/" + DATABASE + "?useTimezone=true&serverTimezone=UTC";
-        this.USER = "root";
-        this.PASSWORD = "TrabalhoA3";
+        this.DRIVER = config.getString("estoque.db.driver");
+        this.SERVER = config.getString("estoque.db.host");
+        this.DATABASE = config.getString("estoque.db.nome");
+        String url = config.getString("estoque.db.url");
+        this.URL = !url.isEmpty() ? url
+                : "jdbc:mysql://" + SERVER + ":" + config.getString("estoque.db.porta") + "/" + DATABASE + "?" + config.getString("estoque.db.parametros");
+        this.USER = config.getString("estoque.db.usuario");
+        this.PASSWORD = config.getString("estoque.db.senha");
     }
 
     /**
-     * Estabelece a conexão com o banco de dados MySQL. Caso a conexão seja
-     * bem-sucedida, é exibida uma mensagem no console indicando que o status é
-     * "Conectado!".
+     * Obtém uma conexão com o banco de dados primário para escritas. A cada
+     * escrita confirmada nela, as leituras do cliente RMI atual passam a usar
+     * a primária durante alguns segundos.
      *
      * @return um objeto {@link Connection} ativo, ou {@code null} se ocorrer um
      * erro
      */
     public Connection conectar() {
         try {
-            Class.forName(DRIVER);
-
-            Connection connection = DriverManager.getConnection(URL, USER, PASSWORD);
-            System.out.println("Status: Conectado!");
-            return connection;
+            inicializar();
+            String cliente = clienteAtual();
+            if (cliente == null) {
+                return primaria.obterConexao();
+            }
+            return primaria.obterConexao(() -> leiturasNaPrimaria.put(cliente,
+                    System.currentTimeMillis() + config.getLong("estoque.db.leitura.propria.ms")));
 
         } catch (ClassNotFoundException e) {
             System.err.println("Erro: Driver JDBC não encontrado: " + e.getMessage());
@@ -81,4 +138,205 @@ public class Conexao {
         }
         return null;
     }
+
+    /**
+     * Obtém uma conexão com o banco de dados primário para leituras que
+     * precisam dos dados mais recentes, como as que preenchem o cache de
+     * produtos. Não altera a escolha das leituras seguintes do cliente.
+     *
+     * @return um objeto {@link Connection} ativo, ou {@code null} se ocorrer um
+     * erro
+     */
+    public Connection conectarPrimario() {
+        try {
+            inicializar();
+            return primaria.obterConexao();
+
+        } catch (ClassNotFoundException e) {
+            System.err.println("Erro: Driver JDBC não encontrado: " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Erro ao conectar ao banco de dados: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Obtém uma conexão para operações somente de leitura. Usa a réplica
+     * saudável menos ocupada, ou a primária se não houver réplica elegível ou
+     * se o cliente RMI atual fez uma escrita recente.
+     *
+     * @return um objeto {@link Connection} ativo, ou {@code null} se ocorrer um
+     * erro
+     */
+    public Connection conectarLeitura() {
+        try {
+            inicializar();
+            FonteDados fonte = escolherFonteLeitura();
+            if (fonte != primaria) {
+                try {
+                    return fonte.obterConexao();
+                } catch (SQLException e) {
+                    fonte.atualizarEstado(false, fonte.getAtrasoSegundos());
+                    System.err.println("Réplica indisponível (" + fonte.getNome() + "), usando a primária: " + e.getMessage());
+                }
+            }
+            return primaria.obterConexao();
+
+        } catch (ClassNotFoundException e) {
+            System.err.println("Erro: Driver JDBC não encontrado: " + e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("Erro ao conectar ao banco de dados: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Cria os pools, abre todas as conexões e prepara os comandos informados:
+     * os de escrita e de leitura na primária e os de leitura nas réplicas.
+     *
+     * @param escrita comandos executados apenas na primária
+     * @param leitura comandos que também podem ser executados nas réplicas
+     * @return quantidade total de conexões abertas
+     * @throws SQLException se não for possível conectar à primária
+     */
+    public int aquecer(List<String> escrita, List<String> leitura) throws SQLException {
+        try {
+            inicializar();
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("Driver JDBC não encontrado: " + e.getMessage(), e);
+        }
+        List<String> todos = new ArrayList<>(escrita);
+        todos.addAll(leitura);
+        int abertas = primaria.aquecer(todos);
+        for (FonteDados replica : replicas) {
+            try {
+                abertas += replica.aquecer(leitura);
+            } catch (SQLException e) {
+                System.err.println("Não foi possível aquecer " + replica.getNome() + ": " + e.getMessage());
+            }
+        }
+        return abertas;
+    }
+
+    /**
+     * @return os pools das réplicas de leitura, na ordem da configuração
+     */
+    static List<FonteDados> replicas() {
+        return Collections.unmodifiableList(replicas);
+    }
+
+    /**
+     * Escolhe a fonte para uma leitura.
+     */
+    private static FonteDados escolherFonteLeitura() {
+        String cliente = clienteAtual();
+        if (cliente != null) {
+            Long ate = leiturasNaPrimaria.get(cliente);
+            if (ate != null) {
+                if (ate > System.currentTimeMillis()) {
+                    return primaria;
+                }
+                leiturasNaPrimaria.remove(cliente, ate);
+            }
+        }
+
+        long atrasoMaximo = config.getLong("estoque.db.replica.atraso.maximo.s");
+        FonteDados escolhida = primaria;
+        for (FonteDados replica : replicas) {
+            if (!replica.isSaudavel() || replica.getAtrasoSegundos() > atrasoMaximo) {
+                continue;
+            }
+            if (escolhida == primaria
+                    || replica.getEmUso() < escolhida.getEmUso()
+                    || (replica.getEmUso() == escolhida.getEmUso() && replica.getAtrasoSegundos() < escolhida.getAtrasoSegundos())) {
+                escolhida = replica;
+            }
+        }
+        return escolhida;
+    }
+
+    /**
+     * Cria os pools na primeira utilização e inicia o monitor de réplicas.
+     */
+    private void inicializar() throws ClassNotFoundException {
+        if (primaria != null) {
+            return;
+        }
+        synchronized (Conexao.class) {
+            if (primaria != null) {
+                return;
+            }
+            Class.forName(DRIVER);
+
+            String configuradas = config.getString("estoque.db.replicas");
+            if (!configuradas.isEmpty()) {
+                int numero = 1;
+                for (String endereco : configuradas.split(",")) {
+                    endereco = endereco.trim();
+                    String url = endereco.startsWith("jdbc:") ? endereco
+                            : "jdbc:mysql://" + endereco + "/" + DATABASE + "?" + config.getString("estoque.db.parametros");
+                    replicas.add(new FonteDados("replica-" + numero++, url, USER, PASSWORD));
+                }
+
+                // A primeira medição é feita antes de qualquer leitura: uma
+                // réplica atrasada ou parada não recebe leituras enquanto o
+                // monitor não roda
+                verificarReplicas();
+                long intervalo = config.getLong("estoque.db.replica.intervalo.s");
+                monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "monitor-replicas");
+                    t.setDaemon(true);
+                    return t;
+                });
+                monitor.scheduleWithFixedDelay(Conexao::verificarReplicas, intervalo, intervalo, TimeUnit.SECONDS);
+            }
+
+            // Publicada por último: outras threads só usam os pools depois de prontos
+            primaria = new FonteDados("primaria", URL, USER, PASSWORD);
+            config.aoRecarregar(Conexao::aplicarConfiguracao);
+        }
+    }
+
+    /**
+     * Repassa aos pools os parâmetros recarregados da configuração.
+     */
+    private static void aplicarConfiguracao() {
+        primaria.configurar();
+        for (FonteDados replica : replicas) {
+            replica.configurar();
+        }
+    }
+
+    /**
+     * Mede o atraso de replicação de cada réplica. Uma réplica com a
+     * replicação parada ou inacessível deixa de receber leituras até a próxima
+     * verificação bem-sucedida.
+     */
+    private static void verificarReplicas() {
+        for (FonteDados replica : replicas) {
+            try (Connection conn = replica.obterConexao(); Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery("SHOW REPLICA STATUS")) {
+                if (rs.next()) {
+                    long atraso = rs.getLong("Seconds_Behind_Source");
+                    replica.atualizarEstado(!rs.wasNull(), atraso);
+                } else {
+                    replica.atualizarEstado(false, 0);
+                }
+            } catch (SQLException e) {
+                replica.atualizarEstado(false, replica.getAtrasoSegundos());
+            }
+        }
+    }
+
+    /**
+     * Retorna o endereço do cliente RMI da chamada atual, ou {@code null} se
+     * a thread não estiver atendendo uma chamada remota.
+     */
+    private static String clienteAtual() {
+        try {
+            return RemoteServer.getClientHost();
+        } catch (ServerNotActiveException e) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,658 @@
+package dao;
+
+import config.Configuracao;
+import modelo.RegistroMovimentacao;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import util.ContadorIntLong;
+
+/**
+ * Diário local, somente de acréscimo, das movimentações aplicadas pelo
+ * servidor, usado para auditoria e recuperação.
+ *
+ * Cada movimentação confirmada no banco (pelo {@link ProdutoDAO} ou pelo
+ * {@link GravadorMovimentacoes}) é acrescentada ao segmento atual, um arquivo
+ * de tamanho fixo ({@code estoque.diario.segmento.bytes}) mapeado em memória
+ * no diretório {@code estoque.diario.diretorio}. Quando o registro não cabe, o
+ * segmento é sincronizado com o disco e um novo é criado; segmentos mais
+ * antigos que {@code estoque.diario.retencao.h} são removidos nesse momento.
+ * O segmento atual é sincronizado a cada
+ * {@code estoque.diario.sincronizacao.ms} milissegundos (ou a cada registro, se
+ * zero). Como os dados ficam no cache de páginas do sistema operacional, uma
+ * falha do processo não perde registros; uma falha do sistema pode perder os
+ * do último intervalo.
+ *
+ * Formato do segmento: cabeçalho de {@value #CABECALHO} bytes
+ * ({@code "ESTQDIAR"}, versão do formato, sequência do primeiro registro,
+ * horário de criação) seguido dos registros. Cada registro é o tamanho dos
+ * dados, o CRC32C dos dados e os dados (sequência, horário, origem, produto,
+ * quantidade, data, tipo, observação e {@code requestId}). O tamanho é gravado
+ * por último, de modo que um tamanho zero marca o fim do segmento; um registro
+ * com CRC inválido também encerra a leitura e, ao abrir o diário, o que vier
+ * depois dele é apagado.
+ *
+ * O diário permite reproduzir um intervalo de tempo
+ * ({@link #reproduzir(long, long, Leitor)}) lendo só os segmentos que o
+ * cobrem, somar as variações de quantidade por produto
+ * ({@link #somarQuantidades(long, long)}) e reenviar ao banco as movimentações
+ * que faltarem depois de uma perda de dados ({@link #reenviar(long, long)}).
+ * Apenas um processo por diretório pode gravar; os demais desativam o diário.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public final class DiarioMovimentacoes {
+
+    /**
+     * Movimentação avulsa, registrada sem alterar a quantidade do produto.
+     */
+    public static final byte ORIGEM_AVULSA = 0;
+    /**
+     * Entrada ou saída que alterou a quantidade do produto.
+     */
+    public static final byte ORIGEM_ESTOQUE = 1;
+
+    private static final byte[] ASSINATURA = "ESTQDIAR".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMATO = 1;
+    private static final int CABECALHO = 32;
+    private static final String PREFIXO = "movimentacoes-";
+    private static final String EXTENSAO = ".diario";
+
+    private static DiarioMovimentacoes instancia;
+
+    /**
+     * Leitor das movimentações reproduzidas.
+     */
+    public interface Leitor {
+
+        void aceitar(Lancamento lancamento);
+    }
+
+    /**
+     * Uma movimentação lida do diário.
+     */
+    public static final class Lancamento {
+
+        private final long sequencia;
+        private final long instante;
+        private final byte origem;
+        private final RegistroMovimentacao registro;
+
+        Lancamento(long sequencia, long instante, byte origem, RegistroMovimentacao registro) {
+            this.sequencia = sequencia;
+            this.instante = instante;
+            this.origem = origem;
+            this.registro = registro;
+        }
+
+        /**
+         * @return número sequencial do registro no diário
+         */
+        public long getSequencia() {
+            return sequencia;
+        }
+
+        /**
+         * @return horário, em milissegundos, em que a movimentação foi aplicada
+         */
+        public long getInstante() {
+            return instante;
+        }
+
+        /**
+         * @return {@link #ORIGEM_ESTOQUE} ou {@link #ORIGEM_AVULSA}
+         */
+        public byte getOrigem() {
+            return origem;
+        }
+
+        /**
+         * @return a movimentação (sem o ID do banco)
+         */
+        public RegistroMovimentacao getRegistro() {
+            return registro;
+        }
+    }
+
+    /**
+     * Diretório dos segmentos.
+     */
+    private final Path diretorio;
+    private final int tamanhoSegmento;
+    /**
+     * Se o diário está gravando; falso se desativado ou se não pôde ser aberto.
+     */
+    private boolean ativo;
+    private FileChannel canalTrava;
+    private FileLock trava;
+    private FileChannel canalAtual;
+    private MappedByteBuffer atual;
+    private long proximaSequencia = 1;
+    /**
+     * Se há registros ainda não sincronizados com o disco.
+     */
+    private boolean pendente;
+    private ScheduledExecutorService sincronizador;
+
+    /**
+     * @return o diário do servidor, aberto na primeira chamada
+     */
+    public static synchronized DiarioMovimentacoes obter() {
+        if (instancia == null) {
+            Configuracao config = Configuracao.obter();
+            instancia = new DiarioMovimentacoes(Paths.get(config.getString("estoque.diario.diretorio")),
+                    config.getInt("estoque.diario.segmento.bytes"));
+            if (config.getBoolean("estoque.diario.ativo")) {
+                instancia.abrir();
+            }
+        }
+        return instancia;
+    }
+
+    /**
+     * Cria um diário no diretório informado, inicialmente fechado: só leitura
+     * até {@link #abrir()}.
+     *
+     * @param diretorio diretório dos segmentos
+     * @param tamanhoSegmento tamanho de cada segmento, em bytes
+     */
+    public DiarioMovimentacoes(Path diretorio, int tamanhoSegmento) {
+        this.diretorio = diretorio;
+        this.tamanhoSegmento = Math.max(64 * 1024, tamanhoSegmento);
+    }
+
+    /**
+     * Abre o diário para gravação: obtém a trava do diretório, localiza o fim
+     * do último segmento e inicia a sincronização periódica. Falhas são
+     * exibidas e deixam o diário desativado.
+     */
+    public synchronized void abrir() {
+        if (ativo) {
+            return;
+        }
+        try {
+            Files.createDirectories(diretorio);
+            canalTrava = FileChannel.open(diretorio.resolve(".trava"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            trava = canalTrava.tryLock();
+            if (trava == null) {
+                System.err.println("Diário de movimentações em uso por outro processo; gravação desativada: " + diretorio);
+                canalTrava.close();
+                return;
+            }
+            List<Path> segmentos = listarSegmentos();
+            if (segmentos.isEmpty()) {
+                criarSegmento(1);
+            } else {
+                recuperar(segmentos.get(segmentos.size() - 1));
+            }
+            ativo = true;
+            iniciarSincronizacao();
+            System.out.println("Diário de movimentações aberto em " + diretorio + ", próxima sequência " + proximaSequencia);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Erro ao abrir o diário de movimentações; gravação desativada: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Acrescenta uma movimentação já confirmada no banco. Falhas são exibidas
+     * e não afetam a operação, que já foi confirmada.
+     *
+     * @param origem {@link #ORIGEM_ESTOQUE} ou {@link #ORIGEM_AVULSA}
+     * @param produtoId ID do produto
+     * @param tipo tipo da movimentação
+     * @param quantidade quantidade movimentada
+     * @param observacao observação
+     * @param data data da movimentação
+     * @param requestId identificador da requisição, ou {@code null}
+     */
+    public synchronized void registrar(byte origem, int produtoId, String tipo, int quantidade,
+            String observacao, LocalDate data, String requestId) {
+        if (!ativo) {
+            return;
+        }
+        byte[] bytesTipo = bytes(tipo);
+        byte[] bytesObservacao = bytes(observacao);
+        byte[] bytesRequisicao = bytes(requestId);
+        int tamanho = 8 + 8 + 1 + 4 + 4 + 4
+                + tamanhoTexto(bytesTipo) + tamanhoTexto(bytesObservacao) + tamanhoTexto(bytesRequisicao);
+        try {
+            if (8 + tamanho > tamanhoSegmento - CABECALHO) {
+                throw new IOException("registro de " + tamanho + " bytes maior que o segmento");
+            }
+            if (atual.remaining() < 8 + tamanho + 4) {
+                rolar();
+            }
+            int posicao = atual.position();
+            ByteBuffer dados = atual.duplicate().position(posicao + 8);
+            dados.putLong(proximaSequencia);
+            dados.putLong(System.currentTimeMillis());
+            dados.put(origem);
+            dados.putInt(produtoId);
+            dados.putInt(quantidade);
+            dados.putInt((int) data.toEpochDay());
+            escreverTexto(dados, bytesTipo);
+            escreverTexto(dados, bytesObservacao);
+            escreverTexto(dados, bytesRequisicao);
+
+            CRC32C crc = new CRC32C();
+            crc.update(atual.duplicate().position(posicao + 8).limit(posicao + 8 + tamanho));
+            atual.putInt(posicao + 4, (int) crc.getValue());
+            // O tamanho por último: até aqui, quem lê vê o fim do segmento
+            atual.putInt(posicao, tamanho);
+            atual.position(posicao + 8 + tamanho);
+            proximaSequencia++;
+            pendente = true;
+            if (Configuracao.obter().getLong("estoque.diario.sincronizacao.ms") <= 0) {
+                sincronizar();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Erro ao gravar movimentação no diário: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Grava no disco os registros ainda não sincronizados do segmento atual.
+     */
+    public synchronized void sincronizar() {
+        if (ativo && pendente) {
+            atual.force();
+            pendente = false;
+        }
+    }
+
+    /**
+     * Lê, em ordem, as movimentações aplicadas no intervalo informado. Só os
+     * segmentos que podem conter o intervalo são mapeados.
+     *
+     * @param desde início do intervalo, em milissegundos (inclusive)
+     * @param ate fim do intervalo, em milissegundos (exclusive)
+     * @param leitor leitor de cada movimentação
+     * @return quantidade de movimentações lidas
+     * @throws IOException se ocorrer erro na leitura dos segmentos
+     */
+    public long reproduzir(long desde, long ate, Leitor leitor) throws IOException {
+        List<Path> segmentos = listarSegmentos();
+        long lidos = 0;
+        long[] criacoes = new long[segmentos.size()];
+        for (int i = 0; i < segmentos.size(); i++) {
+            criacoes[i] = lerCriacao(segmentos.get(i));
+        }
+        for (int i = 0; i < segmentos.size(); i++) {
+            if (i + 1 < segmentos.size() && criacoes[i + 1] <= desde) {
+                continue; // o segmento seguinte já começou antes do intervalo
+            }
+            if (criacoes[i] >= ate) {
+                break;
+            }
+            ByteBuffer dados = mapearLeitura(segmentos.get(i));
+            if (dados == null) {
+                continue;
+            }
+            while (true) {
+                Lancamento lancamento = lerRegistro(dados);
+                if (lancamento == null) {
+                    break;
+                }
+                if (lancamento.instante >= desde && lancamento.instante < ate) {
+                    leitor.aceitar(lancamento);
+                    lidos++;
+                }
+            }
+        }
+        return lidos;
+    }
+
+    /**
+     * Soma, por produto, as variações de quantidade (entradas menos saídas)
+     * das movimentações de estoque do intervalo. Somadas às quantidades de
+     * um ponto conhecido (um snapshot ou backup feito no início do intervalo),
+     * reconstroem as quantidades do fim do intervalo.
+     *
+     * @param desde início do intervalo, em milissegundos (inclusive)
+     * @param ate fim do intervalo, em milissegundos (exclusive)
+     * @return variação de quantidade por ID de produto
+     * @throws IOException se ocorrer erro na leitura dos segmentos
+     */
+    public ContadorIntLong somarQuantidades(long desde, long ate) throws IOException {
+        ContadorIntLong variacoes = new ContadorIntLong();
+        reproduzir(desde, ate, lancamento -> {
+            if (lancamento.origem == ORIGEM_ESTOQUE) {
+                RegistroMovimentacao registro = lancamento.registro;
+                variacoes.somar(registro.getProdutoId(), sinal(registro.getTipoMovimentacao()) * (long) registro.getQuantidade());
+            }
+        });
+        return variacoes;
+    }
+
+    /**
+     * Reenvia ao banco as movimentações do intervalo que não estiverem
+     * gravadas nele, por exemplo depois de restaurar um backup. Cada
+     * movimentação é identificada pelo {@code requestId}: as de estoque
+     * ausentes voltam a alterar a quantidade do produto, na mesma transação
+     * da inserção, e as avulsas são apenas inseridas, com a data original.
+     * Uma saída só é reaplicada se o produto ainda tiver a quantidade, como
+     * em {@link ProdutoDAO#RegistrarSaidaProduto}; as rejeitadas, junto com
+     * as de produtos inexistentes, são informadas uma a uma e no resumo, para
+     * conferência manual. Movimentações sem {@code requestId} não podem ser
+     * identificadas no banco e são ignoradas.
+     *
+     * @param desde início do intervalo, em milissegundos (inclusive)
+     * @param ate fim do intervalo, em milissegundos (exclusive)
+     * @return quantidade de movimentações reenviadas
+     * @throws IOException se ocorrer erro na leitura dos segmentos
+     * @throws SQLException se ocorrer erro no banco de dados
+     */
+    public long reenviar(long desde, long ate) throws IOException, SQLException {
+        List<Lancamento> lancamentos = new ArrayList<>();
+        reproduzir(desde, ate, lancamentos::add);
+        long reenviados = 0;
+        long rejeitados = 0;
+        long semIdentificador = 0;
+        try (Connection conn = new Conexao().conectar();
+                PreparedStatement existe = conn.prepareStatement("SELECT 1 FROM registro_movimentacao WHERE request_id = ?");
+                PreparedStatement somar = conn.prepareStatement("UPDATE produto SET quantidade = quantidade + ? WHERE id = ?");
+                PreparedStatement subtrair = conn.prepareStatement(ProdutoDAO.SQL_SUBTRAIR_QUANTIDADE);
+                PreparedStatement inserir = conn.prepareStatement("INSERT INTO registro_movimentacao (produto_id, tipo_movimentacao, quantidade, observacao, data_movimentacao, request_id, altera_estoque) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            for (Lancamento lancamento : lancamentos) {
+                RegistroMovimentacao registro = lancamento.registro;
+                if (registro.getRequestId() == null) {
+                    semIdentificador++;
+                    continue;
+                }
+                existe.setString(1, registro.getRequestId());
+                try (ResultSet rs = existe.executeQuery()) {
+                    if (rs.next()) {
+                        conn.commit();
+                        continue;
+                    }
+                }
+                try {
+                    if (lancamento.origem == ORIGEM_ESTOQUE && !ajustarQuantidade(somar, subtrair, registro)) {
+                        conn.rollback();
+                        rejeitados++;
+                        System.err.printf("Movimentação da requisição %s não reenviada: produto %d inexistente ou sem quantidade (%s de %d)%n",
+                                registro.getRequestId(), registro.getProdutoId(), registro.getTipoMovimentacao(), registro.getQuantidade());
+                        continue;
+                    }
+                    inserir.setInt(1, registro.getProdutoId());
+                    inserir.setString(2, registro.getTipoMovimentacao());
+                    inserir.setInt(3, registro.getQuantidade());
+                    inserir.setString(4, registro.getObservacao());
+                    inserir.setDate(5, java.sql.Date.valueOf(registro.getDataMovimentacao()));
+                    inserir.setString(6, registro.getRequestId());
+                    inserir.setBoolean(7, lancamento.origem == ORIGEM_ESTOQUE);
+                    inserir.executeUpdate();
+                    conn.commit();
+                    reenviados++;
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    conn.rollback();
+                    rejeitados++;
+                    System.err.println("Movimentação da requisição " + registro.getRequestId() + " não reenviada: " + e.getMessage());
+                }
+            }
+        }
+        System.out.printf("Diário reenviado: %d de %d movimentações (%d rejeitadas, %d sem requestId ignoradas)%n",
+                reenviados, lancamentos.size(), rejeitados, semIdentificador);
+        return reenviados;
+    }
+
+    /**
+     * Reaplica a variação de quantidade de uma movimentação de estoque.
+     *
+     * @return {@code false} se o produto não existe ou, em uma saída, não tem
+     * a quantidade
+     */
+    private static boolean ajustarQuantidade(PreparedStatement somar, PreparedStatement subtrair, RegistroMovimentacao registro) throws SQLException {
+        if (sinal(registro.getTipoMovimentacao()) > 0) {
+            somar.setInt(1, registro.getQuantidade());
+            somar.setInt(2, registro.getProdutoId());
+            return somar.executeUpdate() > 0;
+        }
+        subtrair.setInt(1, registro.getQuantidade());
+        subtrair.setInt(2, registro.getProdutoId());
+        subtrair.setInt(3, registro.getQuantidade());
+        return subtrair.executeUpdate() > 0;
+    }
+
+    /**
+     * @return o diretório dos segmentos
+     */
+    public Path getDiretorio() {
+        return diretorio;
+    }
+
+    /**
+     * Sincroniza o segmento atual, cria o próximo e remove os antigos.
+     */
+    private void rolar() throws IOException {
+        atual.force();
+        pendente = false;
+        canalAtual.close();
+        criarSegmento(proximaSequencia);
+        removerAntigos();
+    }
+
+    private void criarSegmento(long sequenciaInicial) throws IOException {
+        Path arquivo = diretorio.resolve(String.format("%s%020d%s", PREFIXO, sequenciaInicial, EXTENSAO));
+        canalAtual = FileChannel.open(arquivo, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        atual = canalAtual.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoSegmento);
+        atual.put(ASSINATURA);
+        atual.putInt(FORMATO);
+        atual.putInt(0);
+        atual.putLong(sequenciaInicial);
+        atual.putLong(System.currentTimeMillis());
+        atual.position(CABECALHO);
+        atual.force();
+        proximaSequencia = sequenciaInicial;
+    }
+
+    /**
+     * Reabre o último segmento e posiciona a gravação depois do último
+     * registro válido, apagando o que houver depois dele.
+     */
+    private void recuperar(Path arquivo) throws IOException {
+        canalAtual = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long tamanho = canalAtual.size();
+        if (tamanho < CABECALHO || tamanho > Integer.MAX_VALUE) {
+            throw new IOException("segmento com tamanho inválido: " + arquivo);
+        }
+        atual = canalAtual.map(FileChannel.MapMode.READ_WRITE, 0, tamanho);
+        if (!cabecalhoValido(atual)) {
+            throw new IOException("segmento em formato desconhecido: " + arquivo);
+        }
+        proximaSequencia = atual.getLong(16);
+        ByteBuffer leitura = atual.duplicate().position(CABECALHO);
+        while (true) {
+            Lancamento lancamento = lerRegistro(leitura);
+            if (lancamento == null) {
+                break;
+            }
+            proximaSequencia = lancamento.sequencia + 1;
+        }
+        int fim = leitura.position();
+        if (fim + 4 <= atual.limit() && atual.getInt(fim) != 0) {
+            System.out.println("Diário de movimentações: registro incompleto descartado em " + arquivo.getFileName());
+            for (int i = fim; i < atual.limit(); i++) {
+                atual.put(i, (byte) 0);
+            }
+            atual.force();
+        }
+        atual.position(fim);
+    }
+
+    /**
+     * Remove os segmentos cujos registros são todos mais antigos que a
+     * retenção, isto é, cujo segmento seguinte foi criado antes dela.
+     */
+    private void removerAntigos() throws IOException {
+        long limite = System.currentTimeMillis() - Configuracao.obter().getLong("estoque.diario.retencao.h") * 3_600_000L;
+        List<Path> segmentos = listarSegmentos();
+        for (int i = 0; i + 1 < segmentos.size(); i++) {
+            if (lerCriacao(segmentos.get(i + 1)) >= limite) {
+                break;
+            }
+            Files.deleteIfExists(segmentos.get(i));
+            System.out.println("Segmento do diário removido pela retenção: " + segmentos.get(i).getFileName());
+        }
+    }
+
+    private void iniciarSincronizacao() {
+        long intervalo = Configuracao.obter().getLong("estoque.diario.sincronizacao.ms");
+        if (intervalo <= 0) {
+            return;
+        }
+        sincronizador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "diario-movimentacoes");
+            t.setDaemon(true);
+            return t;
+        });
+        sincronizador.scheduleWithFixedDelay(() -> {
+            try {
+                sincronizar();
+            } catch (RuntimeException e) {
+                System.err.println("Erro ao sincronizar o diário de movimentações: " + e.getMessage());
+            }
+        }, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return os segmentos do diretório, do mais antigo para o mais novo
+     */
+    private List<Path> listarSegmentos() throws IOException {
+        if (!Files.isDirectory(diretorio)) {
+            return Collections.emptyList();
+        }
+        List<Path> segmentos = new ArrayList<>();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, PREFIXO + "*" + EXTENSAO)) {
+            for (Path arquivo : arquivos) {
+                segmentos.add(arquivo);
+            }
+        }
+        // A sequência inicial tem largura fixa, então a ordem dos nomes é a das sequências
+        Collections.sort(segmentos);
+        return segmentos;
+    }
+
+    private static ByteBuffer mapearLeitura(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho < CABECALHO || tamanho > Integer.MAX_VALUE) {
+                return null;
+            }
+            MappedByteBuffer dados = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+            if (!cabecalhoValido(dados)) {
+                return null;
+            }
+            return dados.position(CABECALHO);
+        }
+    }
+
+    private static long lerCriacao(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(CABECALHO);
+            while (cabecalho.hasRemaining() && canal.read(cabecalho) >= 0) {
+                // lê o cabeçalho inteiro
+            }
+            return cabecalho.hasRemaining() ? Long.MAX_VALUE : cabecalho.getLong(24);
+        }
+    }
+
+    private static boolean cabecalhoValido(ByteBuffer dados) {
+        byte[] assinatura = new byte[ASSINATURA.length];
+        dados.get(0, assinatura);
+        return Arrays.equals(assinatura, ASSINATURA) && dados.getInt(8) == FORMATO;
+    }
+
+    /**
+     * Lê o registro da posição atual e avança.
+     *
+     * @return o registro, ou {@code null} no fim do segmento ou em um registro
+     * inválido (sem avançar)
+     */
+    private static Lancamento lerRegistro(ByteBuffer dados) {
+        int posicao = dados.position();
+        if (dados.remaining() < 8) {
+            return null;
+        }
+        int tamanho = dados.getInt(posicao);
+        if (tamanho <= 0 || tamanho > dados.remaining() - 8) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(dados.duplicate().position(posicao + 8).limit(posicao + 8 + tamanho));
+        if ((int) crc.getValue() != dados.getInt(posicao + 4)) {
+            return null;
+        }
+        ByteBuffer registro = dados.duplicate().position(posicao + 8).limit(posicao + 8 + tamanho);
+        long sequencia = registro.getLong();
+        long instante = registro.getLong();
+        byte origem = registro.get();
+        RegistroMovimentacao movimentacao = new RegistroMovimentacao();
+        movimentacao.setProdutoId(registro.getInt());
+        movimentacao.setQuantidade(registro.getInt());
+        movimentacao.setDataMovimentacao(LocalDate.ofEpochDay(registro.getInt()).toString());
+        movimentacao.setTipoMovimentacao(lerTexto(registro));
+        movimentacao.setObservacao(lerTexto(registro));
+        movimentacao.setRequestId(lerTexto(registro));
+        dados.position(posicao + 8 + tamanho);
+        return new Lancamento(sequencia, instante, origem, movimentacao);
+    }
+
+    /**
+     * @return {@code -1} para saídas e {@code 1} para os demais tipos
+     */
+    private static int sinal(String tipo) {
+        return tipo != null && (tipo.startsWith("Sa") || tipo.startsWith("sa")) ? -1 : 1;
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto == null ? null : texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int tamanhoTexto(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void escreverTexto(ByteBuffer dados, byte[] bytes) {
+        if (bytes == null) {
+            dados.putInt(-1);
+            return;
+        }
+        dados.putInt(bytes.length);
+        dados.put(bytes);
+    }
+
+    private static String lerTexto(ByteBuffer dados) {
+        int tamanho = dados.getInt();
+        if (tamanho < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[tamanho];
+        dados.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
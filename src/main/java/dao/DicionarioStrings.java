@@ -0,0 +1,53 @@
+package dao;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Codificador de textos repetidos em códigos inteiros, usado na montagem dos
+ * resultados colunares.
+ *
+ * Cada texto distinto recebe um código sequencial a partir de zero, na ordem
+ * em que aparece. O valor {@code null} é representado pelo código {@code -1}.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+class DicionarioStrings {
+
+    /**
+     * Código atribuído a cada texto já encontrado.
+     */
+    private final HashMap<String, Integer> codigos = new HashMap<>();
+    /**
+     * Textos distintos, na ordem de seus códigos.
+     */
+    private final List<String> valores = new ArrayList<>();
+
+    /**
+     * Retorna o código do texto informado, cadastrando-o se for novo.
+     *
+     * @param valor texto a ser codificado
+     * @return código do texto, ou {@code -1} para {@code null}
+     */
+    int codificar(String valor) {
+        if (valor == null) {
+            return -1;
+        }
+        Integer codigo = codigos.get(valor);
+        if (codigo == null) {
+            codigo = valores.size();
+            codigos.put(valor, codigo);
+            valores.add(valor);
+        }
+        return codigo;
+    }
+
+    /**
+     * @return vetor com os textos distintos, indexado pelo código
+     */
+    String[] paraVetor() {
+        return valores.toArray(new String[0]);
+    }
+}
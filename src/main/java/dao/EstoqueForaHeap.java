@@ -0,0 +1,404 @@
+package dao;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Armazenamento fora do heap dos dados numéricos dos produtos (quantidade,
+ * mínimo, máximo, preço e categoria), indexado pelo ID.
+ *
+ * Os registros têm tamanho fixo e ficam em um {@link ByteBuffer} direto, de
+ * modo que catálogos com milhões de produtos não geram milhões de objetos para
+ * o coletor de lixo percorrer. O índice é uma tabela de endereçamento aberto
+ * (sondagem linear), também fora do heap, que associa o ID à posição do
+ * registro. As leituras não usam bloqueio; inclusões e remoções são
+ * sincronizadas. A quantidade é alterada atomicamente com
+ * {@link #ajustarQuantidade(int, int)}.
+ *
+ * Layout de cada registro ({@value #TAMANHO_REGISTRO} bytes): ID, quantidade,
+ * mínimo, máximo (int), preço (double) e código da categoria (int). Os nomes
+ * das categorias ficam em um dicionário no heap, pequeno por natureza.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class EstoqueForaHeap {
+
+    /**
+     * Valor retornado pelas consultas quando o produto não está armazenado.
+     */
+    public static final int AUSENTE = Integer.MIN_VALUE;
+
+    private static final int TAMANHO_REGISTRO = 32;
+    private static final int ID = 0;
+    private static final int QUANTIDADE = 4;
+    private static final int MINIMO = 8;
+    private static final int MAXIMO = 12;
+    private static final int PRECO = 16;
+    private static final int CATEGORIA = 24;
+
+    /**
+     * Posição livre no índice.
+     */
+    private static final int VAZIO = 0;
+    /**
+     * Posição de um registro removido; a sondagem continua após ela.
+     */
+    private static final int REMOVIDO = -1;
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    /**
+     * Registros de tamanho fixo.
+     */
+    private final ByteBuffer registros;
+    /**
+     * Quantidade máxima de registros.
+     */
+    private final int capacidade;
+    /**
+     * Índice de endereçamento aberto; cada posição guarda o número do
+     * registro mais um, {@link #VAZIO} ou {@link #REMOVIDO}. É substituído por
+     * inteiro quando reconstruído.
+     */
+    private volatile ByteBuffer indice;
+    /**
+     * Máscara para as posições do índice (quantidade de posições menos um).
+     */
+    private final int mascara;
+    /**
+     * Registros liberados por remoções, reutilizados antes dos novos.
+     */
+    private final int[] livres;
+    private int quantidadeLivres;
+    /**
+     * Próximo registro nunca utilizado.
+     */
+    private int proximoRegistro;
+    /**
+     * Quantidade de produtos armazenados.
+     */
+    private volatile int tamanho;
+    /**
+     * Quantidade de posições {@link #REMOVIDO} no índice.
+     */
+    private int removidos;
+    /**
+     * Nomes das categorias e seus códigos.
+     */
+    private final DicionarioStrings categorias = new DicionarioStrings();
+    private volatile String[] nomesCategorias = new String[0];
+
+    /**
+     * Cria o armazenamento com capacidade para a quantidade informada de
+     * produtos.
+     *
+     * @param capacidade quantidade máxima de produtos
+     */
+    public EstoqueForaHeap(int capacidade) {
+        if (capacidade <= 0 || capacidade > Integer.MAX_VALUE / TAMANHO_REGISTRO) {
+            throw new IllegalArgumentException("Capacidade inválida: " + capacidade);
+        }
+        this.capacidade = capacidade;
+        this.registros = ByteBuffer.allocateDirect(capacidade * TAMANHO_REGISTRO).order(ByteOrder.nativeOrder());
+        int posicoes = Integer.highestOneBit(Math.max(2, capacidade * 2 - 1)) << 1;
+        this.mascara = posicoes - 1;
+        this.indice = novoIndice();
+        this.livres = new int[capacidade];
+    }
+
+    /**
+     * Armazena ou substitui os dados de um produto.
+     *
+     * @param id ID do produto (diferente de 0)
+     * @param quantidade quantidade em estoque
+     * @param minimo estoque mínimo
+     * @param maximo estoque máximo
+     * @param preco preço unitário
+     * @param categoria nome da categoria
+     * @return {@code false} se o armazenamento estiver cheio
+     */
+    public synchronized boolean armazenar(int id, int quantidade, int minimo, int maximo, double preco, String categoria) {
+        int codigo = codificarCategoria(categoria);
+        int registro = buscarRegistro(id);
+        boolean novo = registro < 0;
+        if (novo) {
+            if (quantidadeLivres > 0) {
+                registro = livres[--quantidadeLivres];
+            } else if (proximoRegistro < capacidade) {
+                registro = proximoRegistro++;
+            } else {
+                return false;
+            }
+        }
+
+        int base = registro * TAMANHO_REGISTRO;
+        INT.set(registros, base + MINIMO, minimo);
+        INT.set(registros, base + MAXIMO, maximo);
+        LONG.set(registros, base + PRECO, Double.doubleToRawLongBits(preco));
+        INT.set(registros, base + CATEGORIA, codigo);
+        INT.setVolatile(registros, base + QUANTIDADE, quantidade);
+
+        if (novo) {
+            INT.setRelease(registros, base + ID, id);
+            ByteBuffer atual = indice;
+            int posicao = espalhar(id) & mascara;
+            while (true) {
+                int valor = (int) INT.get(atual, posicao * 4);
+                if (valor == VAZIO || valor == REMOVIDO) {
+                    if (valor == REMOVIDO) {
+                        removidos--;
+                    }
+                    // Publicado por último: leitores só enxergam registros completos
+                    INT.setRelease(atual, posicao * 4, registro + 1);
+                    break;
+                }
+                posicao = (posicao + 1) & mascara;
+            }
+            tamanho++;
+        }
+        return true;
+    }
+
+    /**
+     * Remove um produto.
+     *
+     * @param id ID do produto
+     */
+    public synchronized void remover(int id) {
+        ByteBuffer atual = indice;
+        int posicao = localizar(atual, id);
+        if (posicao < 0) {
+            return;
+        }
+        int registro = (int) INT.get(atual, posicao * 4) - 1;
+        INT.setRelease(atual, posicao * 4, REMOVIDO);
+        INT.setRelease(registros, registro * TAMANHO_REGISTRO + ID, 0);
+        livres[quantidadeLivres++] = registro;
+        tamanho--;
+        if (++removidos > (mascara + 1) / 4) {
+            reconstruirIndice();
+        }
+    }
+
+    /**
+     * Remove os produtos cujo ID satisfaz o critério informado.
+     *
+     * @param criterio critério aplicado ao ID de cada produto
+     */
+    public synchronized void removerSe(IntPredicate criterio) {
+        // Coletados antes porque uma remoção pode reconstruir o índice
+        int[] ids = new int[16];
+        int total = 0;
+        ByteBuffer atual = indice;
+        for (int posicao = 0; posicao <= mascara; posicao++) {
+            int valor = (int) INT.get(atual, posicao * 4);
+            if (valor != VAZIO && valor != REMOVIDO) {
+                int id = (int) INT.get(registros, (valor - 1) * TAMANHO_REGISTRO + ID);
+                if (criterio.test(id)) {
+                    if (total == ids.length) {
+                        ids = Arrays.copyOf(ids, total * 2);
+                    }
+                    ids[total++] = id;
+                }
+            }
+        }
+        for (int i = 0; i < total; i++) {
+            remover(ids[i]);
+        }
+    }
+
+    /**
+     * Remove todos os produtos.
+     */
+    public synchronized void limpar() {
+        indice = novoIndice();
+        quantidadeLivres = 0;
+        proximoRegistro = 0;
+        removidos = 0;
+        tamanho = 0;
+    }
+
+    /**
+     * Soma atomicamente um valor à quantidade de um produto armazenado.
+     *
+     * @param id ID do produto
+     * @param delta valor somado (negativo para saídas)
+     * @return {@code false} se o produto não estiver armazenado
+     */
+    public boolean ajustarQuantidade(int id, int delta) {
+        int registro = buscarRegistro(id);
+        if (registro < 0) {
+            return false;
+        }
+        INT.getAndAdd(registros, registro * TAMANHO_REGISTRO + QUANTIDADE, delta);
+        return true;
+    }
+
+    /**
+     * Substitui a quantidade de um produto somente se ela for igual à
+     * esperada.
+     *
+     * @param id ID do produto
+     * @param esperada quantidade esperada
+     * @param nova nova quantidade
+     * @return {@code true} se a quantidade foi substituída
+     */
+    public boolean compararEAtualizarQuantidade(int id, int esperada, int nova) {
+        int registro = buscarRegistro(id);
+        return registro >= 0
+                && INT.compareAndSet(registros, registro * TAMANHO_REGISTRO + QUANTIDADE, esperada, nova);
+    }
+
+    /**
+     * @param id ID do produto
+     * @return a quantidade em estoque, ou {@link #AUSENTE}
+     */
+    public int quantidade(int id) {
+        int registro = buscarRegistro(id);
+        return registro < 0 ? AUSENTE : (int) INT.getVolatile(registros, registro * TAMANHO_REGISTRO + QUANTIDADE);
+    }
+
+    /**
+     * @param id ID do produto
+     * @return o estoque mínimo, ou {@link #AUSENTE}
+     */
+    public int minimo(int id) {
+        int registro = buscarRegistro(id);
+        return registro < 0 ? AUSENTE : (int) INT.getAcquire(registros, registro * TAMANHO_REGISTRO + MINIMO);
+    }
+
+    /**
+     * @param id ID do produto
+     * @return o estoque máximo, ou {@link #AUSENTE}
+     */
+    public int maximo(int id) {
+        int registro = buscarRegistro(id);
+        return registro < 0 ? AUSENTE : (int) INT.getAcquire(registros, registro * TAMANHO_REGISTRO + MAXIMO);
+    }
+
+    /**
+     * @param id ID do produto
+     * @return o preço unitário, ou {@link Double#NaN} se o produto não estiver
+     * armazenado
+     */
+    public double preco(int id) {
+        int registro = buscarRegistro(id);
+        return registro < 0 ? Double.NaN
+                : Double.longBitsToDouble((long) LONG.getAcquire(registros, registro * TAMANHO_REGISTRO + PRECO));
+    }
+
+    /**
+     * @param id ID do produto
+     * @return o nome da categoria, ou {@code null} se o produto não estiver
+     * armazenado
+     */
+    public String categoria(int id) {
+        int registro = buscarRegistro(id);
+        if (registro < 0) {
+            return null;
+        }
+        int codigo = (int) INT.getAcquire(registros, registro * TAMANHO_REGISTRO + CATEGORIA);
+        return codigo < 0 ? null : nomesCategorias[codigo];
+    }
+
+    /**
+     * @return quantidade de produtos armazenados
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * @return quantidade máxima de produtos
+     */
+    public int getCapacidade() {
+        return capacidade;
+    }
+
+    /**
+     * Localiza o registro de um produto sem bloqueio.
+     *
+     * @return o número do registro, ou {@code -1}
+     */
+    private int buscarRegistro(int id) {
+        ByteBuffer atual = indice;
+        int posicao = localizar(atual, id);
+        return posicao < 0 ? -1 : (int) INT.getAcquire(atual, posicao * 4) - 1;
+    }
+
+    /**
+     * @return a posição do índice que aponta para o produto, ou {@code -1}
+     */
+    private int localizar(ByteBuffer atual, int id) {
+        if (id == 0) {
+            return -1;
+        }
+        int posicao = espalhar(id) & mascara;
+        for (int tentativas = 0; tentativas <= mascara; tentativas++) {
+            int valor = (int) INT.getAcquire(atual, posicao * 4);
+            if (valor == VAZIO) {
+                return -1;
+            }
+            if (valor != REMOVIDO && (int) INT.getAcquire(registros, (valor - 1) * TAMANHO_REGISTRO + ID) == id) {
+                return posicao;
+            }
+            posicao = (posicao + 1) & mascara;
+        }
+        return -1;
+    }
+
+    /**
+     * Recria o índice sem as posições removidas. O novo índice é preenchido
+     * à parte e publicado de uma vez, sem interromper as leituras.
+     */
+    private void reconstruirIndice() {
+        ByteBuffer antigo = indice;
+        ByteBuffer novo = novoIndice();
+        for (int posicao = 0; posicao <= mascara; posicao++) {
+            int valor = (int) INT.get(antigo, posicao * 4);
+            if (valor == VAZIO || valor == REMOVIDO) {
+                continue;
+            }
+            int id = (int) INT.get(registros, (valor - 1) * TAMANHO_REGISTRO + ID);
+            int destino = espalhar(id) & mascara;
+            while ((int) INT.get(novo, destino * 4) != VAZIO) {
+                destino = (destino + 1) & mascara;
+            }
+            INT.set(novo, destino * 4, valor);
+        }
+        removidos = 0;
+        indice = novo;
+    }
+
+    private ByteBuffer novoIndice() {
+        return ByteBuffer.allocateDirect((mascara + 1) * 4).order(ByteOrder.nativeOrder());
+    }
+
+    private int codificarCategoria(String categoria) {
+        int codigo = categorias.codificar(categoria);
+        if (codigo >= nomesCategorias.length) {
+            nomesCategorias = categorias.paraVetor();
+        }
+        return codigo;
+    }
+
+    /**
+     * Espalha os bits do ID (finalizador do MurmurHash3) para que IDs
+     * sequenciais não formem sequências longas no índice.
+     */
+    private static int espalhar(int id) {
+        int h = id;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,464 @@
+package dao;
+
+import config.Configuracao;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import util.ConjuntoInt;
+
+/**
+ * Estoque fracionado dos produtos de altíssima demanda (promoções), que
+ * recebem saídas demais para todas passarem pelo bloqueio da mesma linha de
+ * {@code produto}.
+ *
+ * A quantidade de cada produto listado em {@code estoque.fracionado.produtos}
+ * é repartida em {@code estoque.fracionado.fracoes} linhas da tabela
+ * {@code estoque_fracao}. Cada saída escolhe uma fração ao acaso e retira dela
+ * a quantidade, na mesma transação que grava a movimentação; saídas
+ * simultâneas bloqueiam frações diferentes e não esperam umas pelas outras. A
+ * fração só entrega o que tem de saldo, então a soma das saídas nunca passa
+ * da quantidade repartida.
+ *
+ * A cada {@code estoque.fracionado.reconciliacao.ms} milissegundos, o total
+ * consumido das frações é descontado de {@code produto.quantidade} e a
+ * quantidade resultante (incluindo as entradas registradas nesse meio tempo)
+ * é repartida de novo em partes iguais. Até a reconciliação,
+ * {@code produto.quantidade} inclui o que as frações já entregaram; as
+ * leituras do {@link ProdutoDAO} descontam o consumido das frações.
+ * Produtos retirados da lista são reconciliados e têm as frações apagadas.
+ * Depois de cada reconciliação confirmada, os ouvintes registrados em
+ * {@link #aoReconciliar(IntConsumer)} são avisados, para que os caches
+ * descartem a quantidade lida antes dela.
+ *
+ * As saídas comuns (as do produto antes de entrar na lista e as reenviadas
+ * do diário) só baixam a quantidade que não está repartida entre as frações.
+ * Se ainda assim a quantidade tiver sido reduzida por fora, para menos do que
+ * as frações já entregaram, a reconciliação grava zero em vez de uma
+ * quantidade negativa, registra o erro no log e soma o excedente às
+ * {@link #estatisticas()}.
+ *
+ * Uma saída que não cabe em nenhuma fração (frações esgotadas ou quantidade
+ * maior que a parte de cada uma) é feita com a reconciliação do produto, com
+ * as frações e a linha do produto bloqueadas, e só falha se a quantidade
+ * total não bastar; se perder um impasse para outras saídas, é refeita até
+ * {@value #TENTATIVAS_CONSOLIDADA} vezes. As frações são sempre bloqueadas
+ * antes da linha do produto, na mesma ordem das saídas, que bloqueiam a
+ * fração e depois leem o produto pela chave estrangeira da movimentação.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public final class EstoqueFracionado {
+
+    /**
+     * Resultado de uma saída.
+     */
+    public enum Resultado {
+        /**
+         * Saída gravada.
+         */
+        REGISTRADA,
+        /**
+         * Já havia uma movimentação com o mesmo identificador de requisição.
+         */
+        REPETIDA,
+        /**
+         * Quantidade insuficiente, ou produto inexistente.
+         */
+        INSUFICIENTE
+    }
+
+    private static final String SQL_RETIRAR = "UPDATE estoque_fracao SET saldo = saldo - ?, consumido = consumido + ?"
+            + " WHERE produto_id = ? AND fracao = ? AND saldo >= ?";
+    private static final String SQL_CONSUMIDO = "SELECT consumido FROM estoque_fracao WHERE produto_id = ? FOR UPDATE";
+    private static final String SQL_QUANTIDADE = "SELECT quantidade FROM produto WHERE id = ? FOR UPDATE";
+    private static final String SQL_ATUALIZAR_QUANTIDADE = "UPDATE produto SET quantidade = ? WHERE id = ?";
+    private static final String SQL_APAGAR_EXCEDENTES = "DELETE FROM estoque_fracao WHERE produto_id = ? AND fracao >= ?";
+    private static final String SQL_REPARTIR = "INSERT INTO estoque_fracao (produto_id, fracao, saldo, consumido) VALUES ";
+    /**
+     * Vezes que uma saída consolidada é tentada antes de desistir por
+     * impasse.
+     */
+    private static final int TENTATIVAS_CONSOLIDADA = 3;
+
+    private static final EstoqueFracionado INSTANCIA = new EstoqueFracionado();
+
+    /**
+     * Valor de {@code estoque.fracionado.produtos} de onde {@link #ativos}
+     * foi lido.
+     */
+    private volatile String listaAtivos = "";
+    private volatile ConjuntoInt ativos = new ConjuntoInt();
+
+    private final LongAdder saidasFracoes = new LongAdder();
+    private final LongAdder saidasConsolidadas = new LongAdder();
+    private final LongAdder reconciliacoes = new LongAdder();
+    /**
+     * Unidades entregues pelas frações além da quantidade do produto.
+     */
+    private final LongAdder excedentes = new LongAdder();
+    /**
+     * Se a última reconciliação encontrou frações no banco.
+     */
+    private volatile boolean comFracoes = true;
+    private ScheduledExecutorService reconciliador;
+    /**
+     * Ações avisadas com o ID de cada produto reconciliado.
+     */
+    private final List<IntConsumer> ouvintes = new CopyOnWriteArrayList<>();
+
+    private EstoqueFracionado() {
+    }
+
+    /**
+     * @return o estoque fracionado do servidor
+     */
+    public static EstoqueFracionado obter() {
+        return INSTANCIA;
+    }
+
+    /**
+     * @param produtoId ID do produto
+     * @return {@code true} se as saídas do produto usam o estoque fracionado
+     */
+    public boolean ativo(int produtoId) {
+        return produtosAtivos().contem(produtoId);
+    }
+
+    /**
+     * Registra uma ação executada com o ID do produto sempre que uma
+     * reconciliação alterar a quantidade gravada do produto.
+     *
+     * @param ouvinte ação a ser executada
+     */
+    public void aoReconciliar(IntConsumer ouvinte) {
+        ouvintes.add(ouvinte);
+    }
+
+    /**
+     * Registra uma saída, retirando a quantidade de uma das frações do
+     * produto ou, se nenhuma tiver saldo, reconciliando o produto.
+     *
+     * @param produtoId ID do produto
+     * @param quantidade quantidade que sai
+     * @param observacao observação da movimentação
+     * @param requestId identificador da requisição, ou {@code null}
+     * @return o resultado da saída
+     * @throws SQLException se ocorrer erro no banco
+     */
+    public Resultado registrarSaida(int produtoId, int quantidade, String observacao, String requestId) throws SQLException {
+        int fracoes = fracoes();
+        int inicio = ThreadLocalRandom.current().nextInt(fracoes);
+        try (Connection conn = new Conexao().conectar()) {
+            if (conn == null) {
+                throw new SQLException("Não foi possível conectar ao banco de dados.");
+            }
+            conn.setAutoCommit(false);
+            try {
+                boolean retirada = false;
+                try (PreparedStatement stmt = conn.prepareStatement(SQL_RETIRAR)) {
+                    for (int i = 0; i < fracoes && !retirada; i++) {
+                        stmt.setInt(1, quantidade);
+                        stmt.setInt(2, quantidade);
+                        stmt.setInt(3, produtoId);
+                        stmt.setInt(4, (inicio + i) % fracoes);
+                        stmt.setInt(5, quantidade);
+                        retirada = stmt.executeUpdate() > 0;
+                    }
+                } catch (SQLTransactionRollbackException impasse) {
+                    // Impasse com uma reconciliação que bloqueava as frações: a
+                    // saída é refeita junto com a reconciliação do produto
+                    retirada = false;
+                }
+                if (!retirada) {
+                    conn.rollback();
+                    saidasConsolidadas.increment();
+                    for (int tentativa = 1; ; tentativa++) {
+                        try {
+                            return reconciliar(conn, produtoId, quantidade, observacao, requestId);
+                        } catch (SQLTransactionRollbackException impasse) {
+                            // Impasse com saídas que bloqueavam frações fora
+                            // de ordem: a transação já foi desfeita pelo banco
+                            if (tentativa == TENTATIVAS_CONSOLIDADA) {
+                                throw impasse;
+                            }
+                            conn.rollback();
+                        }
+                    }
+                }
+                if (!gravarSaida(conn, produtoId, quantidade, observacao, requestId)) {
+                    conn.rollback();
+                    return Resultado.REPETIDA;
+                }
+                conn.commit();
+                saidasFracoes.increment();
+                return Resultado.REGISTRADA;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Reconcilia os produtos com estoque fracionado: os da lista atual e os
+     * que ainda têm frações no banco, cada um em sua própria transação.
+     *
+     * @return quantidade de produtos reconciliados
+     * @throws SQLException se não for possível conectar ao banco
+     */
+    public int reconciliarTodos() throws SQLException {
+        int reconciliados = 0;
+        try (Connection conn = new Conexao().conectar()) {
+            if (conn == null) {
+                throw new SQLException("Não foi possível conectar ao banco de dados.");
+            }
+            ConjuntoInt produtos = new ConjuntoInt();
+            for (int produtoId : produtosAtivos().paraVetor()) {
+                produtos.adicionar(produtoId);
+            }
+            if (produtos.isEmpty() && !comFracoes) {
+                return 0;
+            }
+            boolean encontradas = false;
+            try (Statement stmt = conn.createStatement();
+                    ResultSet rs = stmt.executeQuery("SELECT DISTINCT produto_id FROM estoque_fracao")) {
+                while (rs.next()) {
+                    produtos.adicionar(rs.getInt(1));
+                    encontradas = true;
+                }
+            }
+            comFracoes = encontradas;
+            conn.setAutoCommit(false);
+            for (int produtoId : produtos.paraVetor()) {
+                try {
+                    reconciliar(conn, produtoId, 0, null, null);
+                    reconciliados++;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    System.err.println("Erro ao reconciliar o estoque fracionado do produto ID " + produtoId + ": " + e.getMessage());
+                }
+            }
+        }
+        return reconciliados;
+    }
+
+    /**
+     * Inicia a reconciliação periódica. Não faz nada se
+     * {@code estoque.fracionado.reconciliacao.ms} for zero ou se a
+     * reconciliação já tiver sido iniciada.
+     */
+    public synchronized void iniciarReconciliacaoPeriodica() {
+        long intervalo = Configuracao.obter().getLong("estoque.fracionado.reconciliacao.ms");
+        if (reconciliador != null || intervalo <= 0) {
+            return;
+        }
+        reconciliador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reconciliacao-estoque-fracionado");
+            t.setDaemon(true);
+            return t;
+        });
+        String[] ultimo = {estatisticas()};
+        reconciliador.scheduleWithFixedDelay(() -> {
+            try {
+                reconciliarTodos();
+                String atual = estatisticas();
+                if (!atual.equals(ultimo[0])) {
+                    ultimo[0] = atual;
+                    System.out.println("Estoque fracionado: " + atual);
+                }
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Erro ao reconciliar o estoque fracionado: " + e.getMessage());
+            }
+        }, 0, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return resumo das saídas e reconciliações desde o início do servidor
+     */
+    public String estatisticas() {
+        return String.format("%d saídas em frações, %d saídas consolidadas, %d reconciliações, %d unidades entregues além do estoque",
+                saidasFracoes.sum(), saidasConsolidadas.sum(), reconciliacoes.sum(), excedentes.sum());
+    }
+
+    /**
+     * @return unidades entregues pelas frações além da quantidade do produto
+     * desde o início do servidor
+     */
+    long excedentes() {
+        return excedentes.sum();
+    }
+
+    /**
+     * Desconta de {@code produto.quantidade} o que as frações entregaram,
+     * registra a saída informada se houver quantidade e reparte o restante
+     * entre as frações (ou as apaga, se o produto não estiver mais na lista).
+     * A conexão deve estar com {@code autoCommit} desligado; a transação é
+     * confirmada ou desfeita aqui.
+     */
+    private Resultado reconciliar(Connection conn, int produtoId, int retirada, String observacao, String requestId)
+            throws SQLException {
+        long consumido = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_CONSUMIDO)) {
+            stmt.setInt(1, produtoId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                // Soma feita aqui: a leitura bloqueia cada fração do produto
+                while (rs.next()) {
+                    consumido += rs.getLong(1);
+                }
+            }
+        }
+        long quantidade;
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_QUANTIDADE)) {
+            stmt.setInt(1, produtoId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    conn.rollback();
+                    return Resultado.INSUFICIENTE;
+                }
+                quantidade = rs.getLong(1);
+            }
+        }
+
+        long disponivel = quantidade - consumido;
+        long excedente = Math.max(0, -disponivel);
+        if (excedente > 0) {
+            System.err.println("Frações do produto ID " + produtoId + " entregaram " + excedente
+                    + " unidades além da quantidade atual; quantidade ajustada para 0.");
+            disponivel = 0;
+        }
+        Resultado resultado = Resultado.INSUFICIENTE;
+        if (retirada > 0 && retirada <= disponivel) {
+            if (!gravarSaida(conn, produtoId, retirada, observacao, requestId)) {
+                conn.rollback();
+                return Resultado.REPETIDA;
+            }
+            disponivel -= retirada;
+            resultado = Resultado.REGISTRADA;
+        }
+        if (disponivel != quantidade) {
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_ATUALIZAR_QUANTIDADE)) {
+                stmt.setLong(1, disponivel);
+                stmt.setInt(2, produtoId);
+                stmt.executeUpdate();
+            }
+        }
+        repartir(conn, produtoId, ativo(produtoId) ? fracoes() : 0, disponivel);
+        conn.commit();
+        reconciliacoes.increment();
+        excedentes.add(excedente);
+        if (disponivel != quantidade) {
+            for (IntConsumer ouvinte : ouvintes) {
+                ouvinte.accept(produtoId);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Reparte o total em partes iguais entre as frações {@code 0} a
+     * {@code fracoes - 1}, zerando o consumido, e apaga as demais.
+     */
+    private static void repartir(Connection conn, int produtoId, int fracoes, long total) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_APAGAR_EXCEDENTES)) {
+            stmt.setInt(1, produtoId);
+            stmt.setInt(2, fracoes);
+            stmt.executeUpdate();
+        }
+        if (fracoes == 0) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(SQL_REPARTIR);
+        for (int i = 0; i < fracoes; i++) {
+            sql.append(i == 0 ? "(?, ?, ?, 0)" : ", (?, ?, ?, 0)");
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE saldo = VALUES(saldo), consumido = 0");
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int parametro = 1;
+            for (int i = 0; i < fracoes; i++) {
+                stmt.setInt(parametro++, produtoId);
+                stmt.setInt(parametro++, i);
+                stmt.setLong(parametro++, total / fracoes + (i < total % fracoes ? 1 : 0));
+            }
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Grava a movimentação de saída na transação da conexão.
+     *
+     * @return {@code false} se já houver uma movimentação com o mesmo
+     * identificador de requisição
+     */
+    private static boolean gravarSaida(Connection conn, int produtoId, int quantidade, String observacao, String requestId)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(ProdutoDAO.SQL_REGISTRAR_SAIDA)) {
+            stmt.setInt(1, produtoId);
+            stmt.setInt(2, quantidade);
+            stmt.setString(3, observacao);
+            stmt.setString(4, requestId);
+            stmt.executeUpdate();
+            return true;
+        } catch (SQLIntegrityConstraintViolationException duplicada) {
+            return false;
+        }
+    }
+
+    private static int fracoes() {
+        return Math.max(1, Math.min(256, Configuracao.obter().getInt("estoque.fracionado.fracoes")));
+    }
+
+    /**
+     * @return os produtos de {@code estoque.fracionado.produtos}, relidos se
+     * a lista tiver mudado
+     */
+    private ConjuntoInt produtosAtivos() {
+        String lista = Configuracao.obter().getString("estoque.fracionado.produtos");
+        if (!lista.equals(listaAtivos)) {
+            lerAtivos(lista);
+        }
+        return ativos;
+    }
+
+    private synchronized void lerAtivos(String lista) {
+        if (lista.equals(listaAtivos)) {
+            return;
+        }
+        ativos = lerLista(lista);
+        listaAtivos = lista;
+    }
+
+    /**
+     * Lê a lista de IDs de {@code estoque.fracionado.produtos}, separados por
+     * vírgula, ponto e vírgula ou espaços. IDs inválidos são ignorados.
+     *
+     * @param lista valor da configuração
+     * @return os IDs da lista
+     */
+    static ConjuntoInt lerLista(String lista) {
+        ConjuntoInt ids = new ConjuntoInt();
+        for (String item : lista.split("[,;\\s]+")) {
+            if (item.isEmpty()) {
+                continue;
+            }
+            try {
+                ids.adicionar(Integer.parseInt(item));
+            } catch (NumberFormatException e) {
+                System.err.println("ID de produto inválido em estoque.fracionado.produtos: " + item);
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,699 @@
+package dao;
+
+import config.Configuracao;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fonte de dados JDBC com um conjunto (pool) limitado de conexões
+ * reutilizáveis.
+ *
+ * As conexões entregues por {@link #obterConexao()} são envelopadas: ao
+ * chamar {@code close()}, os comandos abertos nela são fechados, uma
+ * transação pendente é desfeita e a conexão física volta ao pool em vez de
+ * ser encerrada. Uma conexão livre só é validada no banco antes de ser
+ * emprestada se ficou parada no pool por mais de
+ * {@code estoque.db.pool.validacao.ociosa.ms}; as reutilizadas logo em seguida
+ * são entregues sem a ida extra ao servidor. A fonte também guarda a quantidade de conexões em uso e o
+ * atraso de replicação informado pelo monitor de réplicas, usados pela
+ * {@link Conexao} para escolher entre primária e réplicas.
+ *
+ * Quem empresta a conexão pode informar uma ação executada sempre que uma
+ * escrita for confirmada nela: logo após o comando, em modo
+ * {@code autoCommit}, ou no {@code commit()} da transação que alterou
+ * linhas. Uma transação desfeita não dispara a ação.
+ *
+ * O tamanho do pool, o tempo de espera por uma conexão e os valores de
+ * {@code fetchSize} e {@code queryTimeout} aplicados a cada comando criado
+ * vêm da {@link Configuracao} e podem ser alterados em execução por meio de
+ * {@link #configurar()}.
+ *
+ * Quando a thread tem um {@link Prazo}, a espera por uma conexão e o
+ * {@code queryTimeout} de cada comando são limitados ao tempo restante, e os
+ * comandos que estouram o tempo limite são contados nas estatísticas do
+ * prazo.
+ *
+ * Com {@code estoque.sql.monitor.ativo}, cada execução de comando é medida e
+ * registrada no {@link MonitorSql}, com a quantidade de linhas alteradas ou
+ * lidas do resultado.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public final class FonteDados {
+
+    /**
+     * Nome usado nas mensagens de log (ex: "primaria", "replica-1").
+     */
+    private final String nome;
+    /**
+     * URL de conexão JDBC.
+     */
+    private final String url;
+    /**
+     * Nome de usuário do banco de dados.
+     */
+    private final String usuario;
+    /**
+     * Senha do banco de dados.
+     */
+    private final String senha;
+    /**
+     * Conexões físicas livres para reutilização.
+     */
+    private final LinkedBlockingQueue<Ociosa> ociosas = new LinkedBlockingQueue<>();
+    /**
+     * Limita a quantidade de conexões abertas ao mesmo tempo.
+     */
+    private final Permissoes permissoes = new Permissoes();
+    /**
+     * Quantidade máxima de conexões simultâneas.
+     */
+    private int tamanhoPool;
+    /**
+     * Tempo máximo de espera por uma conexão livre, em milissegundos.
+     */
+    private volatile long esperaMaximaMillis;
+    /**
+     * Tempo parada no pool a partir do qual uma conexão é validada antes de
+     * ser emprestada, em milissegundos.
+     */
+    private volatile long validacaoOciosaMillis;
+    /**
+     * Quantidade de linhas buscadas por vez nos comandos; {@code 0} usa o
+     * padrão do driver.
+     */
+    private volatile int tamanhoFetch;
+    /**
+     * Tempo limite das consultas em segundos; {@code 0} desativa.
+     */
+    private volatile int timeoutConsultaSegundos;
+    /**
+     * Indica se as execuções dos comandos são medidas no {@link MonitorSql}.
+     */
+    private volatile boolean monitorar;
+    /**
+     * Quantidade de conexões emprestadas no momento.
+     */
+    private final AtomicInteger emUso = new AtomicInteger();
+    /**
+     * Atraso de replicação em segundos; {@code 0} para a primária.
+     */
+    private volatile long atrasoSegundos;
+    /**
+     * Indica se a última verificação de saúde foi bem-sucedida.
+     */
+    private volatile boolean saudavel = true;
+
+    /**
+     * Cria uma fonte de dados.
+     *
+     * @param nome nome usado nas mensagens de log
+     * @param url URL de conexão JDBC
+     * @param usuario nome de usuário
+     * @param senha senha
+     */
+    public FonteDados(String nome, String url, String usuario, String senha) {
+        this.nome = nome;
+        this.url = url;
+        this.usuario = usuario;
+        this.senha = senha;
+        configurar();
+    }
+
+    /**
+     * Lê da configuração o tamanho do pool, o tempo de espera e os parâmetros
+     * dos comandos. Reduzir o pool não fecha conexões emprestadas: elas são
+     * descartadas ao serem devolvidas até a quantidade se ajustar.
+     */
+    public synchronized void configurar() {
+        Configuracao config = Configuracao.obter();
+        int novoTamanho = Math.max(1, config.getInt("estoque.db.pool.tamanho"));
+        if (novoTamanho > tamanhoPool) {
+            permissoes.release(novoTamanho - tamanhoPool);
+        } else if (novoTamanho < tamanhoPool) {
+            permissoes.reduzir(tamanhoPool - novoTamanho);
+        }
+        if (tamanhoPool != 0 && novoTamanho != tamanhoPool) {
+            System.out.println("Pool " + nome + " redimensionado de " + tamanhoPool + " para " + novoTamanho + " conexões.");
+        }
+        tamanhoPool = novoTamanho;
+        esperaMaximaMillis = config.getLong("estoque.db.pool.espera.ms");
+        validacaoOciosaMillis = config.getLong("estoque.db.pool.validacao.ociosa.ms");
+        tamanhoFetch = config.getInt("estoque.db.fetch.tamanho");
+        timeoutConsultaSegundos = config.getInt("estoque.db.consulta.timeout.s");
+        monitorar = config.getBoolean("estoque.sql.monitor.ativo");
+    }
+
+    /**
+     * Empresta uma conexão do pool, abrindo uma nova conexão física se não
+     * houver nenhuma livre.
+     *
+     * @return conexão que deve ser fechada após o uso para voltar ao pool
+     * @throws SQLException se não houver conexão livre dentro do tempo máximo
+     * de espera ou se não for possível conectar
+     */
+    public Connection obterConexao() throws SQLException {
+        return obterConexao(null);
+    }
+
+    /**
+     * Empresta uma conexão do pool que executa {@code aoGravar} a cada
+     * escrita confirmada nela.
+     *
+     * @param aoGravar ação executada após cada escrita confirmada, ou
+     * {@code null}
+     * @return conexão que deve ser fechada após o uso para voltar ao pool
+     * @throws SQLException se não houver conexão livre dentro do tempo máximo
+     * de espera ou se não for possível conectar
+     */
+    public Connection obterConexao(Runnable aoGravar) throws SQLException {
+        long espera = esperaMaximaMillis;
+        long restante = Prazo.restanteMillis();
+        boolean limitadaPeloPrazo = restante < espera;
+        if (limitadaPeloPrazo) {
+            espera = Math.max(0, restante);
+        }
+        try {
+            if (!permissoes.tryAcquire(espera, TimeUnit.MILLISECONDS)) {
+                if (limitadaPeloPrazo) {
+                    Prazo.registrarPoolEsgotado();
+                    throw new SQLTimeoutException("Prazo da requisição esgotado aguardando conexão livre em " + nome);
+                }
+                throw new SQLException("Tempo esgotado aguardando conexão livre em " + nome);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrompido aguardando conexão em " + nome, e);
+        }
+
+        try {
+            Connection fisica = null;
+            Ociosa ociosa;
+            while (fisica == null && (ociosa = ociosas.poll()) != null) {
+                if (System.currentTimeMillis() - ociosa.devolvidaEm < validacaoOciosaMillis || ociosa.fisica.isValid(1)) {
+                    fisica = ociosa.fisica;
+                } else {
+                    fecharSilenciosamente(ociosa.fisica);
+                }
+            }
+            if (fisica == null) {
+                fisica = DriverManager.getConnection(url, usuario, senha);
+                System.out.println("Status: Conectado! (" + nome + ")");
+            }
+            emUso.incrementAndGet();
+            return envelopar(fisica, aoGravar);
+        } catch (SQLException | RuntimeException e) {
+            permissoes.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Abre todas as conexões do pool e prepara nelas os comandos informados,
+     * para que o driver já tenha as consultas em seu cache de comandos
+     * preparados quando as primeiras requisições chegarem.
+     *
+     * @param comandos comandos SQL a serem preparados em cada conexão
+     * @return quantidade de conexões abertas
+     * @throws SQLException se não for possível abrir uma conexão
+     */
+    public int aquecer(List<String> comandos) throws SQLException {
+        List<Connection> abertas = new ArrayList<>();
+        try {
+            for (int i = tamanhoAtual(); i > 0; i--) {
+                Connection conexao = obterConexao();
+                abertas.add(conexao);
+                for (String sql : comandos) {
+                    conexao.prepareStatement(sql).close();
+                }
+            }
+            return abertas.size();
+        } finally {
+            for (Connection conexao : abertas) {
+                conexao.close();
+            }
+        }
+    }
+
+    /**
+     * @return o nome da fonte de dados
+     */
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * @return a URL de conexão JDBC
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return quantidade de conexões emprestadas no momento
+     */
+    public int getEmUso() {
+        return emUso.get();
+    }
+
+    /**
+     * @return o atraso de replicação em segundos
+     */
+    public long getAtrasoSegundos() {
+        return atrasoSegundos;
+    }
+
+    /**
+     * @return {@code true} se a fonte estava acessível na última verificação
+     */
+    public boolean isSaudavel() {
+        return saudavel;
+    }
+
+    /**
+     * Atualiza o estado da fonte após uma verificação de saúde.
+     *
+     * @param saudavel se a fonte está acessível e replicando
+     * @param atrasoSegundos atraso de replicação em segundos
+     */
+    void atualizarEstado(boolean saudavel, long atrasoSegundos) {
+        this.saudavel = saudavel;
+        this.atrasoSegundos = atrasoSegundos;
+    }
+
+    /**
+     * Fecha as conexões físicas livres do pool.
+     */
+    public void encerrar() {
+        Ociosa ociosa;
+        while ((ociosa = ociosas.poll()) != null) {
+            fecharSilenciosamente(ociosa.fisica);
+        }
+    }
+
+    /**
+     * Devolve uma conexão física ao pool após o uso.
+     */
+    private void devolver(Connection fisica, List<Statement> comandos) {
+        for (Statement comando : comandos) {
+            try {
+                comando.close();
+            } catch (SQLException ignorada) {
+                // o comando já pode ter sido fechado pela conexão
+            }
+        }
+        try {
+            if (!fisica.isClosed()) {
+                if (!fisica.getAutoCommit()) {
+                    fisica.rollback();
+                    fisica.setAutoCommit(true);
+                }
+                if (ociosas.size() >= tamanhoAtual()) {
+                    fisica.close();
+                } else {
+                    ociosas.offer(new Ociosa(fisica, System.currentTimeMillis()));
+                }
+            }
+        } catch (SQLException e) {
+            fecharSilenciosamente(fisica);
+        } finally {
+            emUso.decrementAndGet();
+            permissoes.release();
+        }
+    }
+
+    private synchronized int tamanhoAtual() {
+        return tamanhoPool;
+    }
+
+    /**
+     * Aplica a um comando recém-criado os parâmetros configurados, com o
+     * tempo limite reduzido ao prazo restante da thread.
+     *
+     * @throws SQLTimeoutException se o prazo da thread já tiver passado
+     */
+    private void configurarComando(Statement comando) throws SQLException {
+        if (tamanhoFetch > 0) {
+            comando.setFetchSize(tamanhoFetch);
+        }
+        int timeout = timeoutConsultaSegundos;
+        long restante = Prazo.restanteMillis();
+        if (restante != Long.MAX_VALUE) {
+            Prazo.verificar("executar o comando");
+            int segundos = (int) Math.min(Integer.MAX_VALUE, (restante + 999) / 1000);
+            timeout = timeout > 0 ? Math.min(timeout, segundos) : segundos;
+        }
+        if (timeout > 0) {
+            comando.setQueryTimeout(timeout);
+        }
+    }
+
+    /**
+     * Cria o envelope de um comando, que conta as execuções interrompidas
+     * pelo tempo limite e, se o monitor estiver ativo, mede as execuções.
+     *
+     * @param sqlPreparado SQL do comando preparado, ou {@code null} para
+     * comandos simples, que recebem o SQL em cada execução
+     * @param escritas escritas da conexão, avisadas das linhas alteradas
+     */
+    private Statement enveloparComando(Statement fisico, Class<?> tipo, String sqlPreparado, Escritas escritas) {
+        boolean medir = monitorar;
+        InvocationHandler tratador = new InvocationHandler() {
+            /**
+             * Primeiro SQL do lote de um comando simples.
+             */
+            private String sqlLote;
+            /**
+             * Medição do último resultado ainda não lido até o fim.
+             */
+            private Medicao aberta;
+
+            @Override
+            public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+                String nomeMetodo = metodo.getName();
+                boolean execucao = nomeMetodo.startsWith("execute");
+                if (!medir) {
+                    Object resultado = invocar(metodo, args, execucao);
+                    if (execucao && escritas != null && !(resultado instanceof ResultSet)) {
+                        escritas.alteradas(linhasAlteradas(fisico, resultado));
+                    }
+                    return resultado;
+                }
+                if (aberta != null && (execucao || nomeMetodo.equals("close"))) {
+                    aberta.concluir();
+                    aberta = null;
+                }
+                if (nomeMetodo.equals("addBatch") && args != null && sqlLote == null) {
+                    sqlLote = (String) args[0];
+                }
+                if (!execucao) {
+                    return invocar(metodo, args, false);
+                }
+                String sql = args != null && args.length > 0 && args[0] instanceof String
+                        ? (String) args[0] : sqlPreparado != null ? sqlPreparado : sqlLote;
+                if (nomeMetodo.startsWith("executeLargeBatch") || nomeMetodo.startsWith("executeBatch")) {
+                    sqlLote = null;
+                }
+                long inicio = System.nanoTime();
+                Object resultado;
+                try {
+                    resultado = invocar(metodo, args, true);
+                } catch (Throwable e) {
+                    MonitorSql.registrar(nome, sql, System.nanoTime() - inicio, 0);
+                    throw e;
+                }
+                long duracao = System.nanoTime() - inicio;
+                if (resultado instanceof ResultSet) {
+                    aberta = new Medicao(sql, duracao);
+                    return enveloparResultado((ResultSet) resultado, aberta);
+                }
+                long linhas = linhasAlteradas(fisico, resultado);
+                MonitorSql.registrar(nome, sql, duracao, linhas);
+                if (escritas != null) {
+                    escritas.alteradas(linhas);
+                }
+                return resultado;
+            }
+
+            private Object invocar(Method metodo, Object[] args, boolean execucao) throws Throwable {
+                try {
+                    return metodo.invoke(fisico, args);
+                } catch (InvocationTargetException e) {
+                    if (e.getCause() instanceof SQLTimeoutException && execucao) {
+                        Prazo.registrarConsultaEsgotada();
+                    }
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{tipo}, tratador);
+    }
+
+    /**
+     * Retorna a quantidade de linhas alteradas informada pelo resultado de
+     * uma execução que não devolveu um {@link ResultSet}.
+     */
+    private static long linhasAlteradas(Statement fisico, Object resultado) throws SQLException {
+        if (resultado instanceof Number) {
+            return Math.max(0, ((Number) resultado).longValue());
+        }
+        if (resultado instanceof Boolean) {
+            return Math.max(0, fisico.getUpdateCount());
+        }
+        long linhas = 0;
+        if (resultado instanceof int[]) {
+            for (int quantidade : (int[]) resultado) {
+                // SUCCESS_NO_INFO (-2) também indica uma linha gravada
+                linhas += quantidade == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, quantidade);
+            }
+        } else if (resultado instanceof long[]) {
+            for (long quantidade : (long[]) resultado) {
+                linhas += quantidade == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, quantidade);
+            }
+        }
+        return linhas;
+    }
+
+    /**
+     * Cria o envelope de um resultado, que conta as linhas lidas e soma à
+     * medição o tempo gasto em {@code next()}. A medição é registrada ao ler
+     * a última linha ou ao fechar o resultado.
+     */
+    private static ResultSet enveloparResultado(ResultSet fisico, Medicao medicao) {
+        InvocationHandler tratador = (proxy, metodo, args) -> {
+            String nomeMetodo = metodo.getName();
+            if (nomeMetodo.equals("close")) {
+                medicao.concluir();
+            }
+            long inicio = System.nanoTime();
+            try {
+                Object resultado = metodo.invoke(fisico, args);
+                if (nomeMetodo.equals("next")) {
+                    medicao.nanos += System.nanoTime() - inicio;
+                    if ((Boolean) resultado) {
+                        medicao.linhas++;
+                    } else {
+                        medicao.concluir();
+                    }
+                }
+                return resultado;
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, tratador);
+    }
+
+    /**
+     * Cria o envelope que devolve a conexão ao pool quando fechada, registra
+     * os comandos abertos nela e avisa {@code aoGravar} das escritas
+     * confirmadas.
+     */
+    private Connection envelopar(Connection fisica, Runnable aoGravar) {
+        List<Statement> comandos = new ArrayList<>();
+        Escritas escritas = aoGravar != null ? new Escritas(fisica, aoGravar) : null;
+        InvocationHandler tratador = new InvocationHandler() {
+            private boolean fechada;
+
+            @Override
+            public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+                switch (metodo.getName()) {
+                    case "close":
+                        if (!fechada) {
+                            fechada = true;
+                            devolver(fisica, comandos);
+                        }
+                        return null;
+                    case "isClosed":
+                        return fechada || fisica.isClosed();
+                    case "commit":
+                        if (fechada) {
+                            throw new SQLException("Conexão já devolvida ao pool.");
+                        }
+                        try {
+                            fisica.commit();
+                        } catch (SQLException e) {
+                            if (escritas != null) {
+                                escritas.descartar();
+                            }
+                            throw e;
+                        }
+                        if (escritas != null) {
+                            escritas.confirmar();
+                        }
+                        return null;
+                    case "rollback":
+                        if (escritas != null && (args == null || args.length == 0)) {
+                            escritas.descartar();
+                        }
+                        if (fechada) {
+                            throw new SQLException("Conexão já devolvida ao pool.");
+                        }
+                        break;
+                    case "setAutoCommit":
+                        if (fechada) {
+                            throw new SQLException("Conexão já devolvida ao pool.");
+                        }
+                        // Voltar ao autoCommit confirma a transação aberta
+                        boolean confirmava = fisica.getAutoCommit();
+                        fisica.setAutoCommit((Boolean) args[0]);
+                        if (escritas != null && !confirmava && (Boolean) args[0]) {
+                            escritas.confirmar();
+                        }
+                        return null;
+                    case "unwrap":
+                    case "isWrapperFor":
+                        break;
+                    default:
+                        if (fechada) {
+                            throw new SQLException("Conexão já devolvida ao pool.");
+                        }
+                }
+                try {
+                    Object resultado = metodo.invoke(fisica, args);
+                    if (resultado instanceof Statement) {
+                        try {
+                            configurarComando((Statement) resultado);
+                        } catch (SQLException e) {
+                            ((Statement) resultado).close();
+                            throw e;
+                        }
+                        String sql = metodo.getName().startsWith("prepare") ? (String) args[0] : null;
+                        Statement comando = enveloparComando((Statement) resultado, metodo.getReturnType(), sql, escritas);
+                        comandos.add(comando);
+                        return comando;
+                    }
+                    return resultado;
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, tratador);
+    }
+
+    /**
+     * Medição de uma consulta cujo resultado ainda está sendo lido.
+     */
+    private final class Medicao {
+
+        private final String sql;
+        private long nanos;
+        private long linhas;
+        private boolean concluida;
+
+        Medicao(String sql, long nanos) {
+            this.sql = sql;
+            this.nanos = nanos;
+        }
+
+        /**
+         * Registra a medição no monitor, uma única vez.
+         */
+        void concluir() {
+            if (!concluida) {
+                concluida = true;
+                MonitorSql.registrar(nome, sql, nanos, linhas);
+            }
+        }
+    }
+
+    /**
+     * Conexão física livre no pool e o instante em que foi devolvida.
+     */
+    private static final class Ociosa {
+
+        private final Connection fisica;
+        private final long devolvidaEm;
+
+        Ociosa(Connection fisica, long devolvidaEm) {
+            this.fisica = fisica;
+            this.devolvidaEm = devolvidaEm;
+        }
+    }
+
+    /**
+     * Acompanha as linhas alteradas em uma conexão emprestada e executa a
+     * ação informada quando elas são confirmadas no banco.
+     */
+    private static final class Escritas {
+
+        private final Connection fisica;
+        private final Runnable aoGravar;
+        /**
+         * Indica se a transação aberta alterou alguma linha.
+         */
+        private boolean pendentes;
+
+        Escritas(Connection fisica, Runnable aoGravar) {
+            this.fisica = fisica;
+            this.aoGravar = aoGravar;
+        }
+
+        /**
+         * Registra o resultado de um comando de escrita. Em modo
+         * {@code autoCommit} a escrita já está confirmada.
+         */
+        void alteradas(long linhas) throws SQLException {
+            if (linhas <= 0) {
+                return;
+            }
+            if (fisica.getAutoCommit()) {
+                aoGravar.run();
+            } else {
+                pendentes = true;
+            }
+        }
+
+        void confirmar() {
+            if (pendentes) {
+                pendentes = false;
+                aoGravar.run();
+            }
+        }
+
+        void descartar() {
+            pendentes = false;
+        }
+    }
+
+    /**
+     * Semáforo que permite reduzir a quantidade de permissões, usado para
+     * redimensionar o pool.
+     */
+    private static final class Permissoes extends Semaphore {
+
+        private static final long serialVersionUID = 1L;
+
+        Permissoes() {
+            super(0, true);
+        }
+
+        void reduzir(int quantidade) {
+            reducePermits(quantidade);
+        }
+    }
+
+    private static void fecharSilenciosamente(Connection fisica) {
+        try {
+            fisica.close();
+        } catch (SQLException ignorada) {
+            // conexão já inválida
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package dao;
+
+import config.Configuracao;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Grava as movimentações avulsas em lotes (<i>group commit</i>).
+ *
+ * Cada chamada a {@link #gravar} entra em uma fila e espera. Uma única thread
+ * retira da fila o primeiro pedido e os que chegarem em seguida, até a janela
+ * {@code estoque.movimentacao.lote.janela.ms} se esgotar ou o lote atingir
+ * {@code estoque.movimentacao.lote.maximo} linhas, e grava todos com um único
+ * {@code INSERT} de várias linhas em uma transação. Cada chamador só recebe a
+ * resposta depois do {@code commit}, de modo que a durabilidade é a mesma da
+ * gravação individual, mas a sincronização do log do banco é paga uma vez por
+ * lote. Enquanto um lote é gravado, os pedidos seguintes se acumulam e formam
+ * o próximo.
+ *
+ * Pedidos cujo {@link Prazo} termina antes de entrarem em um lote não são
+ * gravados: o chamador recebe {@code false}, como em qualquer falha de
+ * gravação, em vez de um resultado que chegaria depois da desistência.
+ *
+ * Se o lote violar alguma restrição (um {@code requestId} já gravado, ou um
+ * produto inexistente), a transação é desfeita e as linhas são inseridas uma a
+ * uma na mesma conexão, para que cada chamador receba o seu próprio resultado.
+ *
+ * O tempo dos lotes aparece no {@link MonitorSql}, que agrupa os
+ * {@code INSERT} de qualquer tamanho sob a mesma impressão digital.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+final class GravadorMovimentacoes {
+
+    private static final String SQL_INSERIR = "INSERT INTO registro_movimentacao (produto_id, tipo_movimentacao, quantidade, observacao, data_movimentacao, request_id) VALUES ";
+    private static final String VALORES = "(?, ?, ?, ?, ?, ?)";
+
+    private static final GravadorMovimentacoes INSTANCIA = new GravadorMovimentacoes();
+
+    /**
+     * Pedidos aguardando gravação.
+     */
+    private final LinkedBlockingQueue<Pedido> fila = new LinkedBlockingQueue<>();
+
+    private GravadorMovimentacoes() {
+        Thread thread = new Thread(this::executar, "gravador-movimentacoes");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return o gravador compartilhado pelo servidor
+     */
+    static GravadorMovimentacoes obter() {
+        return INSTANCIA;
+    }
+
+    /**
+     * Grava uma movimentação junto com as demais que chegarem na mesma janela
+     * e espera o {@code commit} do lote.
+     *
+     * @param produtoId ID do produto
+     * @param tipo tipo da movimentação
+     * @param quantidade quantidade movimentada
+     * @param observacao observação
+     * @param data data da movimentação
+     * @param requestId identificador da requisição, ou {@code null}
+     * @return {@code true} se a linha foi inserida ou o {@code requestId} já
+     * estava gravado, {@code false} se a gravação falhou
+     */
+    boolean gravar(int produtoId, String tipo, int quantidade, String observacao, LocalDate data, String requestId) {
+        Pedido pedido = new Pedido(produtoId, tipo, quantidade, observacao, data, requestId);
+        fila.add(pedido);
+        try {
+            return pedido.resultado.get();
+        } catch (InterruptedException e) {
+            // O lote ainda pode ser confirmado; o chamador só deixa de esperar
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            System.err.println("Erro ao registrar movimentação no banco de dados: " + e.getCause().getMessage());
+            return false;
+        }
+    }
+
+    private void executar() {
+        List<Pedido> lote = new ArrayList<>();
+        while (true) {
+            try {
+                lote.add(fila.take());
+                Configuracao config = Configuracao.obter();
+                int maximo = Math.max(1, config.getInt("estoque.movimentacao.lote.maximo"));
+                long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getLong("estoque.movimentacao.lote.janela.ms"));
+                fila.drainTo(lote, maximo - lote.size());
+                while (lote.size() < maximo) {
+                    long restante = prazo - System.nanoTime();
+                    Pedido pedido = restante > 0 ? fila.poll(restante, TimeUnit.NANOSECONDS) : fila.poll();
+                    if (pedido == null) {
+                        break;
+                    }
+                    lote.add(pedido);
+                    fila.drainTo(lote, maximo - lote.size());
+                }
+                descartarExpirados(lote);
+                if (!lote.isEmpty()) {
+                    gravarLote(lote);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                for (Pedido pedido : lote) {
+                    pedido.resultado.completeExceptionally(e);
+                }
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    /**
+     * Retira do lote os pedidos cujo prazo já terminou.
+     */
+    private static void descartarExpirados(List<Pedido> lote) {
+        long agora = System.nanoTime();
+        lote.removeIf(pedido -> {
+            if (pedido.prazo != Prazo.SEM_LIMITE && pedido.prazo - agora <= 0) {
+                System.err.println("Movimentação descartada por prazo esgotado: produto ID " + pedido.produtoId);
+                Prazo.registrarDescartado();
+                pedido.resultado.complete(false);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Grava um lote em uma transação e completa o resultado de cada pedido.
+     */
+    private void gravarLote(List<Pedido> lote) {
+        try (Connection conn = new Conexao().conectar()) {
+            conn.setAutoCommit(false);
+            try {
+                StringBuilder sql = new StringBuilder(SQL_INSERIR.length() + lote.size() * (VALORES.length() + 1)).append(SQL_INSERIR);
+                for (int i = 0; i < lote.size(); i++) {
+                    sql.append(i == 0 ? "" : ",").append(VALORES);
+                }
+                try (PreparedStatement st = conn.prepareStatement(sql.toString())) {
+                    int parametro = 1;
+                    for (Pedido pedido : lote) {
+                        parametro = pedido.preencher(st, parametro);
+                    }
+                    st.executeUpdate();
+                }
+                conn.commit();
+                for (Pedido pedido : lote) {
+                    pedido.registrarNoDiario();
+                    pedido.resultado.complete(true);
+                }
+            } catch (SQLIntegrityConstraintViolationException e) {
+                conn.rollback();
+                gravarIndividualmente(conn, lote);
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao gravar lote de movimentações: " + e.getMessage());
+            for (Pedido pedido : lote) {
+                pedido.resultado.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Insere as linhas uma a uma, ainda em uma única transação, depois que o
+     * lote inteiro violou alguma restrição.
+     */
+    private static void gravarIndividualmente(Connection conn, List<Pedido> lote) throws SQLException {
+        boolean[] inseridos = new boolean[lote.size()];
+        boolean[] novos = new boolean[lote.size()];
+        try (PreparedStatement st = conn.prepareStatement(SQL_INSERIR + VALORES)) {
+            for (int i = 0; i < lote.size(); i++) {
+                Pedido pedido = lote.get(i);
+                pedido.preencher(st, 1);
+                try {
+                    inseridos[i] = novos[i] = st.executeUpdate() > 0;
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    if (pedido.requestId != null) {
+                        // Reenvio de uma movimentação já gravada com o mesmo requestId
+                        System.out.println("Movimentação já registrada para a requisição: " + pedido.requestId);
+                        inseridos[i] = true;
+                    } else {
+                        System.err.println("Erro ao registrar movimentação no banco de dados: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        conn.commit();
+        for (int i = 0; i < lote.size(); i++) {
+            if (novos[i]) {
+                lote.get(i).registrarNoDiario();
+            }
+            lote.get(i).resultado.complete(inseridos[i]);
+        }
+    }
+
+    /**
+     * Movimentação aguardando gravação e o resultado esperado pelo chamador.
+     */
+    private static final class Pedido {
+
+        final int produtoId;
+        final String tipo;
+        final int quantidade;
+        final String observacao;
+        final LocalDate data;
+        final String requestId;
+        /**
+         * Prazo do chamador, em {@link System#nanoTime()}.
+         */
+        final long prazo = Prazo.limite();
+        final CompletableFuture<Boolean> resultado = new CompletableFuture<>();
+
+        Pedido(int produtoId, String tipo, int quantidade, String observacao, LocalDate data, String requestId) {
+            this.produtoId = produtoId;
+            this.tipo = tipo;
+            this.quantidade = quantidade;
+            this.observacao = observacao;
+            this.data = data;
+            this.requestId = requestId;
+        }
+
+        /**
+         * Acrescenta a movimentação, já confirmada, ao diário local.
+         */
+        void registrarNoDiario() {
+            DiarioMovimentacoes.obter().registrar(DiarioMovimentacoes.ORIGEM_AVULSA, produtoId, tipo,
+                    quantidade, observacao, data, requestId);
+        }
+
+        /**
+         * Preenche os parâmetros desta linha a partir da posição informada.
+         *
+         * @return a posição seguinte
+         */
+        int preencher(PreparedStatement st, int parametro) throws SQLException {
+            st.setInt(parametro, produtoId);
+            st.setString(parametro + 1, tipo);
+            st.setInt(parametro + 2, quantidade);
+            st.setString(parametro + 3, observacao);
+            st.setDate(parametro + 4, java.sql.Date.valueOf(data));
+            st.setString(parametro + 5, requestId);
+            return parametro + 6;
+        }
+    }
+}
@@ -0,0 +1,414 @@
+package dao;
+
+import config.Configuracao;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import modelo.ConsultaLenta;
+import modelo.EstatisticaSql;
+
+/**
+ * Tempos de execução dos comandos SQL, agrupados por impressão digital.
+ *
+ * A {@link FonteDados} mede cada execução (do início do {@code execute} até a
+ * leitura da última linha, sem contar o processamento entre uma linha e
+ * outra) e a registra aqui. A impressão digital é o SQL com os valores
+ * literais trocados por {@code ?}, os espaços e comentários removidos e as
+ * listas {@code IN (...)} e {@code VALUES (...), (...)} resumidas, de modo que
+ * comandos que só diferem nos valores somem juntos.
+ *
+ * As estatísticas de cada impressão (execuções, linhas, tempo total, máximo e
+ * um histograma para os percentis) são contadores atômicos, sem bloqueio no
+ * registro. Elas valem para uma janela móvel: a cada
+ * {@code estoque.sql.janela.s} segundos a janela atual passa a ser a anterior
+ * e a mais antiga é descartada, e as consultas somam as duas.
+ *
+ * Execuções acima de {@code estoque.sql.lenta.ms} milissegundos vão para o
+ * log de consultas lentas, gravado em {@code estoque.sql.lenta.arquivo} e
+ * mantido em memória nas últimas {@code estoque.sql.lenta.memoria} entradas.
+ * Os valores dos parâmetros dos comandos preparados não são registrados.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public final class MonitorSql {
+
+    /**
+     * Quantidade de impressões por janela acima da qual as novas são somadas
+     * em uma só.
+     */
+    private static final int MAXIMO_IMPRESSOES = 5_000;
+    /**
+     * Quantidade de SQLs normalizados guardados para não repetir o trabalho.
+     */
+    private static final int MAXIMO_CACHE = 10_000;
+    /**
+     * Tamanho máximo do SQL guardado no log de consultas lentas.
+     */
+    private static final int MAXIMO_SQL = 2_000;
+    private static final String OUTRAS = "(outras impressões)";
+
+    /**
+     * Faixas do histograma: 4 por potência de 2 de microssegundos.
+     */
+    private static final int FAIXAS = 160;
+
+    private static final Pattern LISTA_IN = Pattern.compile("(?i)\\bIN \\(\\?(?:, ?\\?)*\\)");
+    private static final Pattern LISTA_VALUES = Pattern.compile("(\\(\\?(?:, ?\\?)*\\))(?:, ?\\(\\?(?:, ?\\?)*\\))+");
+
+    private static final Map<String, String> impressoes = new ConcurrentHashMap<>();
+    private static volatile Janela atual = new Janela();
+    private static volatile Janela anterior = new Janela();
+
+    private static final AtomicReferenceArray<ConsultaLenta> lentas;
+    private static final AtomicLong proximaLenta = new AtomicLong();
+    private static BufferedWriter arquivoLentas;
+    private static String caminhoLentas;
+
+    private static volatile long janelaNanos;
+    private static volatile long lentaNanos;
+
+    static {
+        Configuracao config = Configuracao.obter();
+        lentas = new AtomicReferenceArray<>(Math.max(1, config.getInt("estoque.sql.lenta.memoria")));
+        configurar();
+        config.aoRecarregar(MonitorSql::configurar);
+    }
+
+    /**
+     * Estatísticas de uma impressão em uma janela.
+     */
+    private static final class Estatistica {
+
+        final LongAdder execucoes = new LongAdder();
+        final LongAdder linhas = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final AtomicLong maximo = new AtomicLong();
+        final AtomicLongArray faixas = new AtomicLongArray(FAIXAS);
+
+        void registrar(long duracao, long quantidade) {
+            execucoes.increment();
+            linhas.add(quantidade);
+            nanos.add(duracao);
+            maximo.accumulateAndGet(duracao, Math::max);
+            faixas.incrementAndGet(faixa(duracao));
+        }
+    }
+
+    /**
+     * Estatísticas de todas as impressões em um intervalo de tempo.
+     */
+    private static final class Janela {
+
+        final long inicio = System.nanoTime();
+        final Map<String, Estatistica> estatisticas = new ConcurrentHashMap<>();
+
+        Estatistica obter(String impressao) {
+            Estatistica estatistica = estatisticas.get(impressao);
+            if (estatistica != null) {
+                return estatistica;
+            }
+            if (estatisticas.size() >= MAXIMO_IMPRESSOES) {
+                impressao = OUTRAS;
+            }
+            return estatisticas.computeIfAbsent(impressao, i -> new Estatistica());
+        }
+    }
+
+    private MonitorSql() {
+    }
+
+    /**
+     * Registra uma execução.
+     *
+     * @param fonte nome da fonte de dados
+     * @param sql SQL executado
+     * @param nanos duração em nanossegundos
+     * @param linhas linhas lidas ou alteradas
+     */
+    static void registrar(String fonte, String sql, long nanos, long linhas) {
+        if (sql == null) {
+            sql = "(desconhecido)";
+        }
+        String impressao = impressao(sql);
+        janelaAtual().obter(impressao).registrar(nanos, linhas);
+        if (nanos >= lentaNanos) {
+            registrarLenta(new ConsultaLenta(System.currentTimeMillis(), nanos / 1e6, linhas, fonte, impressao,
+                    sql.length() > MAXIMO_SQL ? sql.substring(0, MAXIMO_SQL) + "..." : sql));
+        }
+    }
+
+    /**
+     * Normaliza um comando SQL para agrupar as execuções que só diferem nos
+     * valores.
+     *
+     * @param sql comando SQL
+     * @return a impressão digital do comando
+     */
+    public static String impressao(String sql) {
+        String impressao = impressoes.get(sql);
+        if (impressao == null) {
+            impressao = normalizar(sql);
+            if (impressoes.size() >= MAXIMO_CACHE) {
+                impressoes.clear();
+            }
+            impressoes.put(sql, impressao);
+        }
+        return impressao;
+    }
+
+    /**
+     * Retorna as estatísticas das duas últimas janelas, das impressões com
+     * maior tempo total para as de menor.
+     *
+     * @param limite quantidade máxima de impressões; zero ou negativo para
+     * todas
+     * @return as estatísticas por impressão
+     */
+    public static List<EstatisticaSql> estatisticas(int limite) {
+        janelaAtual();
+        Map<String, long[]> somas = new HashMap<>();
+        for (Janela janela : new Janela[]{anterior, atual}) {
+            janela.estatisticas.forEach((impressao, e) -> {
+                long[] soma = somas.computeIfAbsent(impressao, i -> new long[4 + FAIXAS]);
+                soma[0] += e.execucoes.sum();
+                soma[1] += e.linhas.sum();
+                soma[2] += e.nanos.sum();
+                soma[3] = Math.max(soma[3], e.maximo.get());
+                for (int i = 0; i < FAIXAS; i++) {
+                    soma[4 + i] += e.faixas.get(i);
+                }
+            });
+        }
+        List<EstatisticaSql> resultado = new ArrayList<>(somas.size());
+        somas.forEach((impressao, soma) -> {
+            if (soma[0] > 0) {
+                resultado.add(new EstatisticaSql(impressao, soma[0], soma[1], soma[2] / 1e6,
+                        percentil(soma, 0.50), percentil(soma, 0.95), percentil(soma, 0.99), soma[3] / 1e6));
+            }
+        });
+        resultado.sort(Comparator.comparingDouble(EstatisticaSql::getTotalMillis).reversed());
+        return limite > 0 && resultado.size() > limite ? new ArrayList<>(resultado.subList(0, limite)) : resultado;
+    }
+
+    /**
+     * Retorna as últimas consultas lentas guardadas em memória, da mais
+     * recente para a mais antiga.
+     *
+     * @param limite quantidade máxima; zero ou negativo para todas
+     * @return as consultas lentas
+     */
+    public static List<ConsultaLenta> consultasLentas(int limite) {
+        int capacidade = lentas.length();
+        long fim = proximaLenta.get();
+        int quantidade = (int) Math.min(fim, limite > 0 ? Math.min(limite, capacidade) : capacidade);
+        List<ConsultaLenta> resultado = new ArrayList<>(quantidade);
+        for (long i = fim - 1; i >= fim - quantidade; i--) {
+            ConsultaLenta lenta = lentas.get((int) (i % capacidade));
+            if (lenta != null) {
+                resultado.add(lenta);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Lê da configuração a janela e o limite das consultas lentas.
+     */
+    private static void configurar() {
+        Configuracao config = Configuracao.obter();
+        janelaNanos = TimeUnit.SECONDS.toNanos(Math.max(1, config.getLong("estoque.sql.janela.s")));
+        lentaNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, config.getLong("estoque.sql.lenta.ms")));
+    }
+
+    /**
+     * Retorna a janela atual, passando para a próxima se o tempo dela acabou.
+     */
+    private static Janela janelaAtual() {
+        Janela janela = atual;
+        if (System.nanoTime() - janela.inicio < janelaNanos) {
+            return janela;
+        }
+        synchronized (MonitorSql.class) {
+            if (atual == janela) {
+                // Sem execuções por mais de uma janela, a atual já não é recente
+                anterior = System.nanoTime() - janela.inicio < 2 * janelaNanos ? janela : new Janela();
+                atual = new Janela();
+            }
+            return atual;
+        }
+    }
+
+    private static void registrarLenta(ConsultaLenta lenta) {
+        long posicao = proximaLenta.getAndIncrement();
+        lentas.set((int) (posicao % lentas.length()), lenta);
+        System.out.println(String.format("Consulta lenta (%.1f ms, %d linhas, %s): %s",
+                lenta.getDuracaoMillis(), lenta.getLinhas(), lenta.getFonte(), lenta.getImpressao()));
+        gravarLenta(lenta);
+    }
+
+    /**
+     * Acrescenta a consulta lenta ao arquivo de log, uma por linha, com os
+     * campos separados por tabulação.
+     */
+    private static synchronized void gravarLenta(ConsultaLenta lenta) {
+        String caminho = Configuracao.obter().getString("estoque.sql.lenta.arquivo");
+        try {
+            if (arquivoLentas != null && !caminho.equals(caminhoLentas)) {
+                arquivoLentas.close();
+                arquivoLentas = null;
+            }
+            if (caminho.isEmpty()) {
+                return;
+            }
+            if (arquivoLentas == null) {
+                arquivoLentas = Files.newBufferedWriter(Paths.get(caminho), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                caminhoLentas = caminho;
+            }
+            arquivoLentas.write(String.format("%s\t%.3f\t%d\t%s\t%s%n", Instant.ofEpochMilli(lenta.getInstante()),
+                    lenta.getDuracaoMillis(), lenta.getLinhas(), lenta.getFonte(), lenta.getSql().replaceAll("\\s+", " ")));
+            arquivoLentas.flush();
+        } catch (IOException e) {
+            System.err.println("Erro ao gravar o log de consultas lentas em " + caminho + ": " + e.getMessage());
+            arquivoLentas = null;
+        }
+    }
+
+    /**
+     * Troca os literais por {@code ?}, remove comentários, reduz os espaços e
+     * resume as listas de valores.
+     */
+    private static String normalizar(String sql) {
+        StringBuilder saida = new StringBuilder(sql.length());
+        int n = sql.length();
+        int i = 0;
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = fimTexto(sql, i, c);
+                saida.append('?');
+            } else if (c == '-' && i + 1 < n && sql.charAt(i + 1) == '-' || c == '#') {
+                while (i < n && sql.charAt(i) != '\n') {
+                    i++;
+                }
+                espaco(saida);
+            } else if (c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {
+                int fim = sql.indexOf("*/", i + 2);
+                i = fim < 0 ? n : fim + 2;
+                espaco(saida);
+            } else if (Character.isWhitespace(c)) {
+                i++;
+                espaco(saida);
+            } else if (Character.isDigit(c) && !parteDeNome(saida)) {
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                saida.append('?');
+            } else if (Character.isLetterOrDigit(c) || c == '_' || c == '`') {
+                while (i < n && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_'
+                        || sql.charAt(i) == '`' || sql.charAt(i) == '$')) {
+                    saida.append(sql.charAt(i++));
+                }
+            } else {
+                if (c != '(' && saida.length() > 0 && saida.charAt(saida.length() - 1) == ' '
+                        && (c == ',' || c == ')')) {
+                    saida.setLength(saida.length() - 1);
+                }
+                saida.append(c);
+                i++;
+            }
+        }
+        String impressao = saida.toString().trim();
+        impressao = LISTA_IN.matcher(impressao).replaceAll("IN (...)");
+        return LISTA_VALUES.matcher(impressao).replaceAll("$1, ...");
+    }
+
+    private static int fimTexto(String sql, int inicio, char aspas) {
+        int i = inicio + 1;
+        while (i < sql.length()) {
+            char c = sql.charAt(i++);
+            if (c == '\\') {
+                i++;
+            } else if (c == aspas) {
+                if (i < sql.length() && sql.charAt(i) == aspas) {
+                    i++;
+                } else {
+                    return i;
+                }
+            }
+        }
+        return i;
+    }
+
+    private static void espaco(StringBuilder saida) {
+        if (saida.length() > 0 && saida.charAt(saida.length() - 1) != ' ' && saida.charAt(saida.length() - 1) != '(') {
+            saida.append(' ');
+        }
+    }
+
+    private static boolean parteDeNome(StringBuilder saida) {
+        if (saida.length() == 0) {
+            return false;
+        }
+        char anterior = saida.charAt(saida.length() - 1);
+        return Character.isLetterOrDigit(anterior) || anterior == '_' || anterior == '`';
+    }
+
+    /**
+     * Faixa do histograma de uma duração: valores abaixo de 4 µs têm uma
+     * faixa cada, e cada potência de 2 acima disso é dividida em 4.
+     */
+    private static int faixa(long nanos) {
+        long micros = nanos / 1000;
+        if (micros < 4) {
+            return (int) Math.max(0, micros);
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (expoente - 2)) & 3;
+        return Math.min(FAIXAS - 1, 4 * (expoente - 1) + sub);
+    }
+
+    /**
+     * Limite superior da faixa, em microssegundos.
+     */
+    private static long limiteFaixa(int faixa) {
+        if (faixa < 4) {
+            return faixa + 1;
+        }
+        int expoente = faixa / 4 + 1;
+        return (long) (5 + faixa % 4) << (expoente - 2);
+    }
+
+    /**
+     * Percentil aproximado pelo limite superior da faixa, sem passar do
+     * máximo medido.
+     */
+    private static double percentil(long[] soma, double fracao) {
+        long alvo = (long) Math.ceil(soma[0] * fracao);
+        long acumulado = 0;
+        for (int i = 0; i < FAIXAS; i++) {
+            acumulado += soma[4 + i];
+            if (acumulado >= alvo) {
+                return Math.min(limiteFaixa(i) / 1e3, soma[3] / 1e6);
+            }
+        }
+        return soma[3] / 1e6;
+    }
+}
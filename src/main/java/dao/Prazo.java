@@ -0,0 +1,195 @@
+package dao;
+
+import config.Configuracao;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prazo da chamada remota em execução na thread atual.
+ *
+ * O serviço define o prazo ao receber a chamada ({@link #definir(long)}) e o
+ * acesso ao banco o respeita sem que ele seja passado de método em método: a
+ * espera por uma conexão do pool ({@link FonteDados#obterConexao()}) não
+ * passa do prazo, o {@code queryTimeout} de cada comando é limitado ao tempo
+ * restante e nenhum comando novo é criado depois que o prazo se esgota. Sem
+ * prazo definido (tarefas internas do servidor), nada muda.
+ *
+ * Trabalho executado em outras threads em nome da chamada deve levar o prazo
+ * com {@link #limite()} e {@link #definirLimite(long)}.
+ *
+ * Os prazos esgotados são contados por etapa e resumidos no log a cada
+ * {@code estoque.prazo.relatorio.s} segundos em que houver algum.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public final class Prazo implements AutoCloseable {
+
+    /**
+     * Valor de {@link #limite()} quando não há prazo.
+     */
+    public static final long SEM_LIMITE = Long.MAX_VALUE;
+
+    /**
+     * Instante limite da thread, em {@link System#nanoTime()}.
+     */
+    private static final ThreadLocal<long[]> LIMITE = ThreadLocal.withInitial(() -> new long[]{SEM_LIMITE});
+
+    private static final AtomicLong esgotadosAdmissao = new AtomicLong();
+    private static final AtomicLong esgotadosPool = new AtomicLong();
+    private static final AtomicLong esgotadosConsulta = new AtomicLong();
+    private static final AtomicLong descartados = new AtomicLong();
+    private static ScheduledExecutorService relatorio;
+
+    /**
+     * Limite que estava valendo antes deste escopo.
+     */
+    private final long anterior;
+
+    private Prazo(long anterior) {
+        this.anterior = anterior;
+    }
+
+    /**
+     * Define o prazo da thread atual até o fechamento do objeto devolvido. Se
+     * já houver um prazo menor, ele continua valendo.
+     *
+     * @param millis tempo disponível a partir de agora, em milissegundos;
+     * zero ou negativo não define prazo
+     * @return o escopo, que restaura o prazo anterior ao ser fechado
+     */
+    public static Prazo definir(long millis) {
+        return definirLimite(millis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis) : SEM_LIMITE);
+    }
+
+    /**
+     * Define o instante limite da thread atual, em geral recebido de
+     * {@link #limite()} em outra thread.
+     *
+     * @param limite instante limite em {@link System#nanoTime()}, ou
+     * {@link #SEM_LIMITE}
+     * @return o escopo, que restaura o prazo anterior ao ser fechado
+     */
+    public static Prazo definirLimite(long limite) {
+        long[] atual = LIMITE.get();
+        Prazo escopo = new Prazo(atual[0]);
+        if (atual[0] == SEM_LIMITE || limite != SEM_LIMITE && limite - atual[0] < 0) {
+            atual[0] = limite;
+        }
+        return escopo;
+    }
+
+    /**
+     * @return o instante limite da thread atual em {@link System#nanoTime()},
+     * ou {@link #SEM_LIMITE}
+     */
+    public static long limite() {
+        return LIMITE.get()[0];
+    }
+
+    /**
+     * @return o tempo restante em milissegundos (zero ou negativo se
+     * esgotado), ou {@link Long#MAX_VALUE} se não houver prazo
+     */
+    public static long restanteMillis() {
+        long limite = limite();
+        return limite == SEM_LIMITE ? Long.MAX_VALUE : TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime());
+    }
+
+    /**
+     * @return {@code true} se a thread tem prazo e ele já passou
+     */
+    public static boolean esgotado() {
+        long limite = limite();
+        return limite != SEM_LIMITE && limite - System.nanoTime() <= 0;
+    }
+
+    /**
+     * Interrompe o trabalho se o prazo da thread já passou.
+     *
+     * @param etapa descrição do que seria feito, para a mensagem
+     * @throws SQLTimeoutException se o prazo estiver esgotado
+     */
+    static void verificar(String etapa) throws SQLTimeoutException {
+        if (esgotado()) {
+            registrarConsultaEsgotada();
+            throw new SQLTimeoutException("Prazo da requisição esgotado antes de " + etapa + ".");
+        }
+    }
+
+    /**
+     * Conta uma chamada recusada porque o prazo acabou na fila de admissão.
+     */
+    public static void registrarAdmissaoEsgotada() {
+        contar(esgotadosAdmissao);
+    }
+
+    /**
+     * Conta uma espera por conexão interrompida pelo prazo.
+     */
+    static void registrarPoolEsgotado() {
+        contar(esgotadosPool);
+    }
+
+    /**
+     * Conta um comando cancelado pelo {@code queryTimeout} ou não iniciado
+     * por falta de prazo.
+     */
+    static void registrarConsultaEsgotada() {
+        contar(esgotadosConsulta);
+    }
+
+    /**
+     * Conta um trabalho descartado porque o chamador já tinha desistido.
+     */
+    static void registrarDescartado() {
+        contar(descartados);
+    }
+
+    /**
+     * @return resumo dos prazos esgotados desde o início do servidor
+     */
+    public static String estatisticas() {
+        return String.format("prazos esgotados: %d na admissão, %d aguardando conexão, %d em comandos; %d trabalhos descartados",
+                esgotadosAdmissao.get(), esgotadosPool.get(), esgotadosConsulta.get(), descartados.get());
+    }
+
+    /**
+     * Restaura o prazo que valia antes deste escopo.
+     */
+    @Override
+    public void close() {
+        LIMITE.get()[0] = anterior;
+    }
+
+    private static void contar(AtomicLong contador) {
+        contador.incrementAndGet();
+        iniciarRelatorio();
+    }
+
+    /**
+     * Inicia, no primeiro prazo esgotado, o resumo periódico no log.
+     */
+    private static synchronized void iniciarRelatorio() {
+        if (relatorio != null) {
+            return;
+        }
+        long intervalo = Math.max(1, Configuracao.obter().getLong("estoque.prazo.relatorio.s"));
+        relatorio = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "relatorio-prazos");
+            t.setDaemon(true);
+            return t;
+        });
+        long[] ultimo = {-1};
+        relatorio.scheduleWithFixedDelay(() -> {
+            long total = esgotadosAdmissao.get() + esgotadosPool.get() + esgotadosConsulta.get() + descartados.get();
+            if (total != ultimo[0]) {
+                ultimo[0] = total;
+                System.out.println("Resumo de " + estatisticas());
+            }
+        }, 0, intervalo, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,335 @@
+package dao;
+
+import config.Configuracao;
+import modelo.Produto;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntPredicate;
+import util.MapaIntObjeto;
+
+/**
+ * Cache em memória de produtos indexado pelo ID.
+ *
+ * Evita consultas repetidas ao banco de dados para produtos que já foram
+ * carregados. As entradas são removidas sempre que o produto é alterado por
+ * meio do {@link ProdutoDAO}, de modo que a próxima leitura busque os dados
+ * atualizados.
+ *
+ * A quantidade de produtos é limitada pela chave
+ * {@code estoque.cache.produtos.maximo} da {@link Configuracao}, lida a cada
+ * inserção e dividida entre os segmentos; ao atingir o limite de um segmento,
+ * entradas arbitrárias dele são descartadas.
+ *
+ * Os produtos ficam em {@link MapaIntObjeto}s, sem um {@link Integer} e um nó
+ * por entrada, divididos em segmentos pelo ID. Cada segmento é protegido por
+ * um {@link StampedLock}: as buscas, muito mais frequentes que as alterações,
+ * usam leitura otimista e só bloqueiam se houver alteração concorrente no
+ * mesmo segmento.
+ *
+ * Se a chave {@code estoque.cache.foraHeap.capacidade} for maior que zero, os
+ * dados numéricos dos produtos também são guardados em um
+ * {@link EstoqueForaHeap}. Assim o limite de objetos pode ser mantido baixo
+ * enquanto as consultas de quantidade ({@link #quantidade(int)}) continuam
+ * atendidas em memória para o catálogo inteiro, sem pressionar o coletor de
+ * lixo.
+ *
+ * O cache guarda cópias dos produtos armazenados e devolve cópias nas
+ * buscas. Quem recebe um produto pode alterá-lo (para montar uma alteração,
+ * por exemplo) sem mudar o que as próximas buscas enxergam; o conteúdo do
+ * cache só muda pelos métodos desta classe, depois de gravado no banco.
+ *
+ * Cada segmento tem uma geração, incrementada a cada alteração de quantidade
+ * ou remoção de um produto dele. Quem lê um produto do banco para guardá-lo
+ * obtém a geração antes da leitura ({@link #geracao(int)}) e a informa em
+ * {@link #armazenar(Produto, long)}: se o segmento mudou nesse meio tempo, a
+ * linha lida pode ser anterior à alteração e não é guardada. Sem isso, uma
+ * leitura que chegasse depois de uma saída recolocaria no cache a quantidade
+ * antiga, e as verificações de estoque passariam a usar quantidade que já
+ * saiu.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class ProdutoCache {
+
+    /**
+     * Quantidade de segmentos (potência de dois).
+     */
+    private static final int SEGMENTOS = 32;
+    /**
+     * Geração que dispensa a verificação em {@link #armazenar(Produto, long)}.
+     */
+    private static final long QUALQUER_GERACAO = -1;
+
+    /**
+     * Produtos armazenados, indexados pelo ID e divididos em segmentos.
+     */
+    private final Segmento[] segmentos = new Segmento[SEGMENTOS];
+    /**
+     * Dados numéricos fora do heap, ou {@code null} se desativado.
+     */
+    private final EstoqueForaHeap foraHeap;
+
+    /**
+     * Cria o cache, com o armazenamento fora do heap se configurado.
+     */
+    public ProdutoCache() {
+        int capacidade = Configuracao.obter().getInt("estoque.cache.foraHeap.capacidade");
+        this.foraHeap = capacidade > 0 ? new EstoqueForaHeap(capacidade) : null;
+        for (int i = 0; i < SEGMENTOS; i++) {
+            segmentos[i] = new Segmento();
+        }
+    }
+
+    /**
+     * Retorna uma cópia do produto armazenado para o ID informado.
+     *
+     * @param id identificador do produto
+     * @return cópia do produto em cache, ou {@code null} se não estiver
+     * presente
+     */
+    public Produto buscar(int id) {
+        Produto produto = segmento(id).buscar(id);
+        return produto != null ? new Produto(produto) : null;
+    }
+
+    /**
+     * Retorna a geração atual do segmento do produto, a ser obtida antes de
+     * ler o produto do banco e informada em {@link #armazenar(Produto, long)}.
+     *
+     * @param id identificador do produto
+     * @return a geração
+     */
+    public long geracao(int id) {
+        return segmento(id).geracao();
+    }
+
+    /**
+     * Armazena um produto no cache sem verificar a geração. Usado apenas no
+     * preenchimento inicial, antes de o serviço receber chamadas.
+     *
+     * @param produto produto a ser armazenado
+     */
+    public void armazenar(Produto produto) {
+        armazenar(produto, QUALQUER_GERACAO);
+    }
+
+    /**
+     * Armazena uma cópia de um produto lido do banco, descartando outras
+     * entradas se o limite configurado tiver sido atingido. O produto não é
+     * armazenado se o seu segmento foi alterado depois da geração informada.
+     * Produtos sem ID (ID 0) são ignorados.
+     *
+     * @param produto produto a ser armazenado
+     * @param geracao geração obtida por {@link #geracao(int)} antes da leitura
+     * @return {@code true} se o produto foi armazenado
+     */
+    public boolean armazenar(Produto produto, long geracao) {
+        if (produto == null || produto.getId() == 0) {
+            return false;
+        }
+        int maximo = Configuracao.obter().getInt("estoque.cache.produtos.maximo");
+        return segmento(produto.getId()).armazenar(produto, maximo > 0 ? (maximo + SEGMENTOS - 1) / SEGMENTOS : 0,
+                geracao, foraHeap);
+    }
+
+    /**
+     * Retorna a quantidade em estoque de um produto armazenado.
+     *
+     * @param id identificador do produto
+     * @return a quantidade, ou {@link EstoqueForaHeap#AUSENTE} se o produto
+     * não estiver no cache
+     */
+    public int quantidade(int id) {
+        if (foraHeap != null) {
+            int quantidade = foraHeap.quantidade(id);
+            if (quantidade != EstoqueForaHeap.AUSENTE) {
+                return quantidade;
+            }
+        }
+        Produto produto = segmento(id).buscar(id);
+        return produto != null ? produto.getQuantidade() : EstoqueForaHeap.AUSENTE;
+    }
+
+    /**
+     * Registra no cache uma alteração de quantidade já confirmada no banco. O
+     * objeto do produto é descartado; a quantidade fora do heap é ajustada
+     * atomicamente.
+     *
+     * @param id identificador do produto
+     * @param delta valor somado à quantidade (negativo para saídas)
+     */
+    public void ajustarQuantidade(int id, int delta) {
+        segmento(id).ajustar(id, delta, foraHeap);
+    }
+
+    /**
+     * Remove o produto do cache, forçando nova leitura no banco.
+     *
+     * @param id identificador do produto
+     */
+    public void invalidar(int id) {
+        segmento(id).remover(id, foraHeap);
+    }
+
+    /**
+     * Remove do cache os produtos cujo ID satisfaz o critério informado.
+     *
+     * @param criterio critério aplicado ao ID de cada produto
+     */
+    public void invalidarSe(IntPredicate criterio) {
+        for (Segmento segmento : segmentos) {
+            segmento.removerSe(criterio);
+        }
+        if (foraHeap != null) {
+            foraHeap.removerSe(criterio);
+        }
+    }
+
+    /**
+     * Remove todos os produtos do cache.
+     */
+    public void limpar() {
+        for (Segmento segmento : segmentos) {
+            segmento.limpar();
+        }
+        if (foraHeap != null) {
+            foraHeap.limpar();
+        }
+    }
+
+    /**
+     * @return quantidade de produtos armazenados no cache (objetos ou dados
+     * fora do heap, o que for maior)
+     */
+    public int tamanho() {
+        int objetos = 0;
+        for (Segmento segmento : segmentos) {
+            objetos += segmento.tamanho();
+        }
+        return foraHeap != null ? Math.max(objetos, foraHeap.tamanho()) : objetos;
+    }
+
+    private Segmento segmento(int id) {
+        return segmentos[(id ^ (id >>> 16)) & (SEGMENTOS - 1)];
+    }
+
+    /**
+     * Parte do cache com seu próprio bloqueio.
+     */
+    private static final class Segmento {
+
+        private final StampedLock trava = new StampedLock();
+        private final MapaIntObjeto<Produto> produtos = new MapaIntObjeto<>();
+        /**
+         * Alterações e remoções feitas no segmento, protegida pela trava.
+         */
+        private long geracao;
+
+        long geracao() {
+            long carimbo = trava.tryOptimisticRead();
+            long atual = geracao;
+            if (trava.validate(carimbo)) {
+                return atual;
+            }
+            carimbo = trava.readLock();
+            try {
+                return geracao;
+            } finally {
+                trava.unlockRead(carimbo);
+            }
+        }
+
+        Produto buscar(int id) {
+            long carimbo = trava.tryOptimisticRead();
+            Produto produto = produtos.get(id);
+            if (trava.validate(carimbo)) {
+                return produto;
+            }
+            carimbo = trava.readLock();
+            try {
+                return produtos.get(id);
+            } finally {
+                trava.unlockRead(carimbo);
+            }
+        }
+
+        boolean armazenar(Produto produto, int maximo, long geracaoLida, EstoqueForaHeap foraHeap) {
+            long carimbo = trava.writeLock();
+            try {
+                if (geracaoLida != QUALQUER_GERACAO && geracaoLida != geracao) {
+                    return false;
+                }
+                if (maximo > 0) {
+                    if (!produtos.containsKey(produto.getId())) {
+                        while (produtos.size() >= maximo && produtos.removerQualquer()) {
+                            // descarta entradas arbitrárias até abrir espaço
+                        }
+                    }
+                    produtos.put(produto.getId(), new Produto(produto));
+                }
+                if (foraHeap != null) {
+                    foraHeap.armazenar(produto.getId(), produto.getQuantidade(), produto.getMin(),
+                            produto.getMax(), produto.getPreco(), produto.getCategoria());
+                }
+                return true;
+            } finally {
+                trava.unlockWrite(carimbo);
+            }
+        }
+
+        void ajustar(int id, int delta, EstoqueForaHeap foraHeap) {
+            long carimbo = trava.writeLock();
+            try {
+                geracao++;
+                produtos.remove(id);
+                if (foraHeap != null) {
+                    foraHeap.ajustarQuantidade(id, delta);
+                }
+            } finally {
+                trava.unlockWrite(carimbo);
+            }
+        }
+
+        void remover(int id, EstoqueForaHeap foraHeap) {
+            long carimbo = trava.writeLock();
+            try {
+                geracao++;
+                produtos.remove(id);
+                if (foraHeap != null) {
+                    foraHeap.remover(id);
+                }
+            } finally {
+                trava.unlockWrite(carimbo);
+            }
+        }
+
+        void removerSe(IntPredicate criterio) {
+            long carimbo = trava.writeLock();
+            try {
+                geracao++;
+                produtos.removerSe(criterio);
+            } finally {
+                trava.unlockWrite(carimbo);
+            }
+        }
+
+        void limpar() {
+            long carimbo = trava.writeLock();
+            try {
+                geracao++;
+                produtos.clear();
+            } finally {
+                trava.unlockWrite(carimbo);
+            }
+        }
+
+        int tamanho() {
+            long carimbo = trava.readLock();
+            try {
+                return produtos.size();
+            } finally {
+                trava.unlockRead(carimbo);
+            }
+        }
+    }
+}
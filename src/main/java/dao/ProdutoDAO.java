@@ -1,14 +1,29 @@
 package dao;
 
+import config.Configuracao;
+import modelo.AlteracaoProduto;
+import modelo.NiveisEstoque;
+import modelo.NomesProdutos;
 import modelo.Produto;
+import modelo.ProdutosColunar;
 import modelo.RegistroMovimentacao;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.Statement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Types;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import util.ConjuntoInt;
+import util.ContadorIntLong;
 
 /**
  * Classe responsável por realizar operações de acesso ao banco de dados
@@ -27,6 +42,116 @@ public class ProdutoDAO {
      */
     ArrayList<Produto> minhaLista = new ArrayList();
 
+    /**
+     * Quantidade máxima de IDs enviados em uma única cláusula {@code IN} na
+     * busca em lote.
+     */
+    private static final int TAMANHO_LOTE_IDS = 500;
+
+    /**
+     * Quantidade em estoque do produto {@code p}: a gravada menos o que as
+     * frações do {@link EstoqueFracionado} já entregaram e a reconciliação
+     * ainda não descontou.
+     */
+    static final String SQL_QUANTIDADE_REAL = "p.quantidade - COALESCE((SELECT SUM(f.consumido) FROM estoque_fracao f WHERE f.produto_id = p.id), 0)";
+    /**
+     * Colunas do produto {@code p} com a quantidade real. Falta a condição.
+     */
+    static final String SQL_PRODUTO = "SELECT p.id, p.nome, p.unidade, " + SQL_QUANTIDADE_REAL
+            + " AS quantidade, p.preco, p.min, p.max, p.categoria, p.versao FROM produto p";
+
+    // Comandos executados com mais frequência, preparados no aquecimento do
+    // servidor (ver comandosFrequentes())
+    private static final String SQL_POR_ID = SQL_PRODUTO + " WHERE p.id = ?";
+    private static final String SQL_SOMAR_QUANTIDADE = "UPDATE produto SET quantidade = quantidade + ? WHERE id = ?";
+    /**
+     * Saída comum: só baixa a quantidade que não está repartida entre as
+     * frações do {@link EstoqueFracionado} (saldo e consumido), para que a
+     * reconciliação nunca encontre menos do que as frações entregaram.
+     */
+    static final String SQL_SUBTRAIR_QUANTIDADE = "UPDATE produto SET quantidade = quantidade - ? WHERE id = ?"
+            + " AND quantidade - COALESCE((SELECT SUM(f.saldo + f.consumido) FROM estoque_fracao f WHERE f.produto_id = produto.id), 0) >= ?";
+    private static final String SQL_REGISTRAR_ENTRADA = "INSERT INTO registro_movimentacao (produto_id, tipo_movimentacao, quantidade, observacao, data_movimentacao, request_id, altera_estoque) VALUES (?, 'Entrada', ?, ?, CURDATE(), ?, 1)";
+    static final String SQL_REGISTRAR_SAIDA = "INSERT INTO registro_movimentacao (produto_id, tipo_movimentacao, quantidade, observacao, data_movimentacao, request_id, altera_estoque) VALUES (?, 'Saída', ?, ?, CURDATE(), ?, 1)";
+    private static final String SQL_REQUISICAO_REGISTRADA = "SELECT 1 FROM registro_movimentacao WHERE request_id = ?";
+    private static final String SQL_GRAVAR_LOTE = "INSERT INTO produto (id, nome, unidade, quantidade, preco, min, max, categoria) VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE nome = VALUES(nome), unidade = VALUES(unidade),"
+            + " preco = VALUES(preco), min = VALUES(min), max = VALUES(max), categoria = VALUES(categoria), versao = versao + 1";
+
+    /**
+     * Cache de produtos compartilhado pelas buscas por ID.
+     */
+    private final ProdutoCache cache = new ProdutoCache();
+
+    /**
+     * @return o cache de produtos utilizado por este DAO
+     */
+    public ProdutoCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return os comandos SQL mais usados por este DAO, na forma exata em que
+     * são preparados
+     */
+    public static List<String> comandosFrequentes() {
+        return List.of(SQL_POR_ID, SQL_SOMAR_QUANTIDADE, SQL_SUBTRAIR_QUANTIDADE,
+                SQL_REGISTRAR_ENTRADA, SQL_REGISTRAR_SAIDA, SQL_REQUISICAO_REGISTRADA);
+    }
+
+    /**
+     * Preenche o cache com os produtos do banco primário em uma única
+     * leitura em streaming, até o limite de tamanho do cache.
+     *
+     * @return quantidade de produtos carregados
+     */
+    public int carregarCache() {
+        int maximo = Configuracao.obter().getInt("estoque.cache.produtos.maximo");
+        int carregados = 0;
+        String sql = SQL_PRODUTO + " ORDER BY p.id LIMIT ?";
+        try (Connection conn = new Conexao().conectar();
+                PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE); // streaming de linhas no driver MySQL
+            stmt.setInt(1, maximo);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Produto produto = new Produto();
+                    produto.setId(rs.getInt(1));
+                    produto.setNome(rs.getString(2));
+                    produto.setUnidade(rs.getString(3));
+                    produto.setQuantidade(rs.getInt(4));
+                    produto.setPreco(rs.getDouble(5));
+                    produto.setMin(rs.getInt(6));
+                    produto.setMax(rs.getInt(7));
+                    produto.setCategoria(rs.getString(8));
+                    produto.setVersao(rs.getInt(9));
+                    cache.armazenar(produto);
+                    carregados++;
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Erro ao carregar cache de produtos: " + e.getMessage());
+        }
+        return carregados;
+    }
+
+    /**
+     * Retorna a quantidade em estoque de um produto, a partir do cache quando
+     * possível.
+     *
+     * @param id identificador do produto
+     * @return a quantidade, ou {@link EstoqueForaHeap#AUSENTE} se o produto
+     * não existir
+     */
+    public int consultarQuantidade(int id) {
+        int quantidade = cache.quantidade(id);
+        if (quantidade != EstoqueForaHeap.AUSENTE) {
+            return quantidade;
+        }
+        Produto produto = ProcurarProdutoID(id);
+        return produto.getId() == 0 ? EstoqueForaHeap.AUSENTE : produto.getQuantidade();
+    }
+
     /**
      * Cadastra um novo produto no banco de dados.
      *
@@ -59,6 +184,81 @@ public class ProdutoDAO {
         }
     }
 
+    /**
+     * Grava um lote de produtos em uma transação, inserindo os que não têm ID
+     * e inserindo ou atualizando (pelo ID) os demais. A quantidade informada
+     * só é usada nos produtos inseridos: a de um produto existente só muda
+     * por movimentações, para que a importação não desfaça entradas e saídas
+     * registradas desde que o arquivo foi gerado. O lote é enviado como
+     * um único {@code executeBatch}, que o driver reescreve em
+     * {@code INSERT}s de várias linhas ({@code rewriteBatchedStatements}).
+     *
+     * Se o lote falhar, a transação é desfeita e os produtos são gravados um
+     * a um, ainda em uma única transação, para que cada linha inválida seja
+     * informada e as demais gravadas.
+     *
+     * @param produtos produtos a gravar ({@code id} 0 para novos)
+     * @param falha recebe a mensagem e a posição no lote de cada produto
+     * rejeitado pelo banco
+     * @return quantidade de produtos gravados
+     * @throws SQLException se não for possível conectar ou confirmar a
+     * transação
+     */
+    public int gravarLote(List<Produto> produtos, ObjIntConsumer<String> falha) throws SQLException {
+        int gravados = 0;
+        try (Connection conn = new Conexao().conectar()) {
+            if (conn == null) {
+                throw new SQLException("Não foi possível conectar ao banco de dados.");
+            }
+            conn.setAutoCommit(false);
+            try (PreparedStatement st = conn.prepareStatement(SQL_GRAVAR_LOTE)) {
+                try {
+                    for (Produto produto : produtos) {
+                        preencherGravacao(st, produto);
+                        st.addBatch();
+                    }
+                    st.executeBatch();
+                    conn.commit();
+                    gravados = produtos.size();
+                } catch (SQLException loteInvalido) {
+                    conn.rollback();
+                    st.clearBatch();
+                    for (int i = 0; i < produtos.size(); i++) {
+                        try {
+                            preencherGravacao(st, produtos.get(i));
+                            st.executeUpdate();
+                            gravados++;
+                        } catch (SQLException e) {
+                            falha.accept(e.getMessage(), i);
+                        }
+                    }
+                    conn.commit();
+                }
+            }
+        }
+        for (Produto produto : produtos) {
+            if (produto.getId() != 0) {
+                cache.invalidar(produto.getId());
+            }
+        }
+        return gravados;
+    }
+
+    private static void preencherGravacao(PreparedStatement st, Produto produto) throws SQLException {
+        if (produto.getId() != 0) {
+            st.setInt(1, produto.getId());
+        } else {
+            st.setNull(1, Types.INTEGER);
+        }
+        st.setString(2, produto.getNome());
+        st.setString(3, produto.getUnidade());
+        st.setInt(4, produto.getQuantidade());
+        st.setDouble(5, produto.getPreco());
+        st.setInt(6, produto.getMin());
+        st.setInt(7, produto.getMax());
+        st.setString(8, produto.getCategoria());
+    }
+
     /**
      * Busca um produto pelo seu ID.
      *
@@ -67,11 +267,18 @@ public class ProdutoDAO {
      * existir
      */
     public Produto ProcurarProdutoID(int id) {
+        Produto emCache = cache.buscar(id);
+        if (emCache != null) {
+            return emCache;
+        }
+
+        long geracao = cache.geracao(id);
         Conexao conexao = new Conexao();
         Produto produto = new Produto();
-        try (Connection conn = conexao.conectar()) {
-            Statement stmt = conn.createStatement();
-            ResultSet res = stmt.executeQuery("SELECT * FROM produto WHERE id = " + id);
+        try (Connection conn = conexao.conectarPrimario()) {
+            PreparedStatement stmt = conn.prepareStatement(SQL_POR_ID);
+            stmt.setInt(1, id);
+            ResultSet res = stmt.executeQuery();
 
             if (res.next()) {
                 produto.setId(res.getInt("id"));
@@ -82,6 +289,8 @@ public class ProdutoDAO {
                 produto.setMin(res.getInt("min"));
                 produto.setMax(res.getInt("max"));
                 produto.setCategoria(res.getString("categoria"));
+                produto.setVersao(res.getInt("versao"));
+                cache.armazenar(produto, geracao);
             }
 
             res.close();
@@ -93,6 +302,82 @@ public class ProdutoDAO {
         return produto;
     }
 
+    /**
+     * Busca vários produtos de uma só vez a partir de seus IDs.
+     *
+     * Os produtos presentes no cache são devolvidos sem acesso ao banco; os
+     * demais são carregados com consultas {@code IN (...)} divididas em lotes
+     * de até {@value #TAMANHO_LOTE_IDS} IDs. IDs inexistentes não aparecem no
+     * resultado e IDs repetidos são consultados apenas uma vez.
+     *
+     * @param ids identificadores dos produtos
+     * @return mapa de produtos encontrados, indexado pelo ID
+     */
+    public Map<Integer, Produto> ProcurarProdutosIDs(int[] ids) {
+        Map<Integer, Produto> resultado = new HashMap<>(Math.max(16, ids.length * 4 / 3 + 1));
+        int[] pendentes = new int[ids.length];
+        int totalPendentes = 0;
+        ContadorIntLong geracoes = new ContadorIntLong();
+        ConjuntoInt vistos = new ConjuntoInt(ids.length);
+
+        for (int id : ids) {
+            // Ignora IDs repetidos antes de consultar o cache e montar as consultas
+            if (!vistos.adicionar(id)) {
+                continue;
+            }
+            Produto emCache = cache.buscar(id);
+            if (emCache != null) {
+                resultado.put(id, emCache);
+            } else {
+                pendentes[totalPendentes++] = id;
+                geracoes.somar(id, cache.geracao(id));
+            }
+        }
+
+        if (totalPendentes == 0) {
+            return resultado;
+        }
+
+        Conexao conexao = new Conexao();
+        try (Connection conn = conexao.conectarPrimario()) {
+            for (int inicio = 0; inicio < totalPendentes; inicio += TAMANHO_LOTE_IDS) {
+                int fim = Math.min(inicio + TAMANHO_LOTE_IDS, totalPendentes);
+                StringBuilder sql = new StringBuilder(SQL_PRODUTO + " WHERE p.id IN (");
+                for (int i = inicio; i < fim; i++) {
+                    sql.append(i == inicio ? "?" : ",?");
+                }
+                sql.append(')');
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                    for (int i = inicio; i < fim; i++) {
+                        stmt.setInt(i - inicio + 1, pendentes[i]);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Produto p = new Produto(
+                                    rs.getInt("id"),
+                                    rs.getString("nome"),
+                                    rs.getString("unidade"),
+                                    rs.getDouble("preco"),
+                                    rs.getInt("quantidade"),
+                                    rs.getInt("min"),
+                                    rs.getInt("max"),
+                                    rs.getString("categoria")
+                            );
+                            p.setVersao(rs.getInt("versao"));
+                            cache.armazenar(p, geracoes.get(p.getId()));
+                            resultado.put(p.getId(), p);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException erro) {
+            System.out.println("Erro ao buscar produtos por IDs: " + erro.getMessage());
+        }
+
+        return resultado;
+    }
+
     /**
      * Busca um produto pelo nome.
      *
@@ -103,8 +388,8 @@ public class ProdutoDAO {
     public Produto ProcurarProdutoNome(String nome) {
         Conexao conexao = new Conexao();
         Produto produto = new Produto();
-        try (Connection conn = conexao.conectar()) {
-            String sql = "SELECT * FROM produto WHERE nome = ?";
+        try (Connection conn = conexao.conectarLeitura()) {
+            String sql = SQL_PRODUTO + " WHERE p.nome = ?";
             PreparedStatement stmt = conn.prepareStatement(sql);
             stmt.setString(1, nome);
 
@@ -119,6 +404,7 @@ public class ProdutoDAO {
                 produto.setMin(res.getInt("min"));
                 produto.setMax(res.getInt("max"));
                 produto.setCategoria(res.getString("categoria"));
+                produto.setVersao(res.getInt("versao"));
             }
 
             res.close();
@@ -131,28 +417,32 @@ public class ProdutoDAO {
     }
 
     /**
-     * Atualiza os dados de um produto existente.
+     * Atualiza os dados cadastrais de um produto existente, sem verificar a
+     * versão. A quantidade em estoque não é alterada: ela só muda por
+     * movimentações, e sobrescrevê-la aqui desfaria as entradas e saídas
+     * registradas desde a leitura do produto.
      *
      * @param produto objeto {@link Produto} com os dados atualizados
      * @return {@code true} se a atualização foi bem-sucedida, {@code false}
      * caso contrário
+     * @see #atualizarCampos(AlteracaoProduto)
      */
     public boolean AtualizarProduto(Produto produto) {
-        String sql = "UPDATE produto SET nome=?, unidade=?, quantidade=?, preco=?, min=?, max=?, categoria=? WHERE id=?";
+        String sql = "UPDATE produto SET nome=?, unidade=?, preco=?, min=?, max=?, categoria=?, versao = versao + 1 WHERE id=?";
         Conexao conexao = new Conexao();
 
         try (Connection conn = conexao.conectar()) {
             PreparedStatement stmt = conn.prepareStatement(sql);
             stmt.setString(1, produto.getNome());
             stmt.setString(2, produto.getUnidade());
-            stmt.setInt(3, produto.getQuantidade());
-            stmt.setDouble(4, produto.getPreco());
-            stmt.setInt(5, produto.getMin());
-            stmt.setInt(6, produto.getMax());
-            stmt.setString(7, produto.getCategoria());
-            stmt.setInt(8, produto.getId());
+            stmt.setDouble(3, produto.getPreco());
+            stmt.setInt(4, produto.getMin());
+            stmt.setInt(5, produto.getMax());
+            stmt.setString(6, produto.getCategoria());
+            stmt.setInt(7, produto.getId());
             stmt.executeUpdate();
             stmt.close();
+            cache.invalidar(produto.getId());
 
             System.out.println("Produto atualizado com sucesso!");
             return true;
@@ -162,6 +452,78 @@ public class ProdutoDAO {
         }
     }
 
+    /**
+     * Altera os campos preenchidos de um produto se ele ainda estiver na
+     * versão informada, incrementando a versão. A comparação e a gravação são
+     * um único {@code UPDATE ... WHERE id = ? AND versao = ?}: nenhuma linha
+     * fica bloqueada entre a leitura do cliente e a alteração, e uma alteração
+     * concorrente faz esta falhar na hora em vez de esperar ou sobrescrever.
+     *
+     * @param alteracao campos alterados, com o ID e a versão esperada
+     * @return {@code true} se o produto foi alterado; {@code false} se ele
+     * não existir ou estiver em outra versão
+     * @throws SQLException se ocorrer erro no banco
+     * @see #consultarVersao(int)
+     */
+    public boolean atualizarCampos(AlteracaoProduto alteracao) throws SQLException {
+        StringBuilder sql = new StringBuilder("UPDATE produto SET ");
+        List<Object> valores = new ArrayList<>();
+        adicionarCampo(sql, valores, "nome", alteracao.getNome());
+        adicionarCampo(sql, valores, "unidade", alteracao.getUnidade());
+        adicionarCampo(sql, valores, "preco", alteracao.getPreco());
+        adicionarCampo(sql, valores, "min", alteracao.getMin());
+        adicionarCampo(sql, valores, "max", alteracao.getMax());
+        adicionarCampo(sql, valores, "categoria", alteracao.getCategoria());
+        sql.append("versao = versao + 1 WHERE id = ? AND versao = ?");
+
+        int alteradas;
+        try (Connection conn = new Conexao().conectar()) {
+            if (conn == null) {
+                throw new SQLException("Não foi possível conectar ao banco de dados.");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+                int i = 1;
+                for (Object valor : valores) {
+                    stmt.setObject(i++, valor);
+                }
+                stmt.setInt(i++, alteracao.getId());
+                stmt.setInt(i, alteracao.getVersao());
+                alteradas = stmt.executeUpdate();
+            }
+        }
+        cache.invalidar(alteracao.getId());
+        return alteradas > 0;
+    }
+
+    private static void adicionarCampo(StringBuilder sql, List<Object> valores, String coluna, Object valor) {
+        if (valor != null) {
+            sql.append(coluna).append(" = ?, ");
+            valores.add(valor);
+        }
+    }
+
+    /**
+     * Lê a versão atual de um produto no banco primário, sem passar pelo
+     * cache.
+     *
+     * @param id identificador do produto
+     * @return a versão, ou {@code -1} se o produto não existir
+     * @throws SQLException se ocorrer erro no banco
+     */
+    public int consultarVersao(int id) throws SQLException {
+        try (Connection conn = new Conexao().conectarPrimario()) {
+            if (conn == null) {
+                throw new SQLException("Não foi possível conectar ao banco de dados.");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT versao FROM produto WHERE id = ?")) {
+                stmt.setInt(1, id);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : -1;
+                }
+            }
+        }
+    }
+
     /**
      * Exclui um produto com base em seu ID.
      *
@@ -176,6 +538,7 @@ public class ProdutoDAO {
             Statement stmt = conn.createStatement();
             stmt.executeUpdate("DELETE FROM produto WHERE id = " + id);
             stmt.close();
+            cache.invalidar(id);
 
             System.out.println("Produto deletado com sucesso!");
             return true;
@@ -194,9 +557,9 @@ public class ProdutoDAO {
         minhaLista.clear();
         Conexao conexao = new Conexao();
 
-        try (Connection conn = conexao.conectar()) {
+        try (Connection conn = conexao.conectarLeitura()) {
             Statement stmt = conn.createStatement();
-            ResultSet res = stmt.executeQuery("SELECT * FROM produto");
+            ResultSet res = stmt.executeQuery(SQL_PRODUTO);
 
             while (res.next()) {
                 int id = res.getInt("id");
@@ -209,6 +572,7 @@ public class ProdutoDAO {
                 String categoria = res.getString("categoria");
 
                 Produto produto = new Produto(id, nome, unidade, preco, quantidade, min, max, categoria);
+                produto.setVersao(res.getInt("versao"));
                 minhaLista.add(produto);
             }
 
@@ -221,6 +585,104 @@ public class ProdutoDAO {
         return minhaLista;
     }
 
+    /**
+     * Retorna todos os produtos cadastrados em formato colunar.
+     *
+     * As linhas são lidas em modo de streaming (sem carregar o resultado
+     * inteiro na memória do driver) e gravadas diretamente nos vetores do
+     * {@link ProdutosColunar}, sem criar um objeto {@link Produto} por linha.
+     *
+     * @return lista colunar de produtos, ordenada pelo ID
+     */
+    public ProdutosColunar listarProdutosColunar() {
+        int capacidade = 1024;
+        int total = 0;
+        int[] ids = new int[capacidade];
+        String[] nomes = new String[capacidade];
+        int[] quantidades = new int[capacidade];
+        double[] precos = new double[capacidade];
+        int[] minimos = new int[capacidade];
+        int[] maximos = new int[capacidade];
+        int[] unidades = new int[capacidade];
+        int[] categorias = new int[capacidade];
+        DicionarioStrings dicionarioUnidades = new DicionarioStrings();
+        DicionarioStrings dicionarioCategorias = new DicionarioStrings();
+
+        String sql = SQL_PRODUTO + " ORDER BY p.id";
+        try (Connection conn = new Conexao().conectarLeitura();
+                PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE); // streaming de linhas no driver MySQL
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (total == capacidade) {
+                        capacidade += capacidade >> 1;
+                        ids = Arrays.copyOf(ids, capacidade);
+                        nomes = Arrays.copyOf(nomes, capacidade);
+                        quantidades = Arrays.copyOf(quantidades, capacidade);
+                        precos = Arrays.copyOf(precos, capacidade);
+                        minimos = Arrays.copyOf(minimos, capacidade);
+                        maximos = Arrays.copyOf(maximos, capacidade);
+                        unidades = Arrays.copyOf(unidades, capacidade);
+                        categorias = Arrays.copyOf(categorias, capacidade);
+                    }
+                    ids[total] = rs.getInt(1);
+                    nomes[total] = rs.getString(2);
+                    unidades[total] = dicionarioUnidades.codificar(rs.getString(3));
+                    quantidades[total] = rs.getInt(4);
+                    precos[total] = rs.getDouble(5);
+                    minimos[total] = rs.getInt(6);
+                    maximos[total] = rs.getInt(7);
+                    categorias[total] = dicionarioCategorias.codificar(rs.getString(8));
+                    total++;
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Erro ao listar produtos em formato colunar: " + e.getMessage());
+        }
+
+        return new ProdutosColunar(Arrays.copyOf(ids, total), Arrays.copyOf(nomes, total),
+                Arrays.copyOf(quantidades, total), Arrays.copyOf(precos, total),
+                Arrays.copyOf(minimos, total), Arrays.copyOf(maximos, total),
+                dicionarioUnidades.paraVetor(), Arrays.copyOf(unidades, total),
+                dicionarioCategorias.paraVetor(), Arrays.copyOf(categorias, total));
+    }
+
+    /**
+     * Percorre todos os produtos em modo de streaming, na ordem do ID, sem
+     * manter a lista na memória.
+     *
+     * O mesmo objeto {@link Produto} é reaproveitado em todas as linhas; o
+     * consumidor deve copiar os valores que quiser guardar.
+     *
+     * @param consumidor chamado uma vez por produto
+     * @return a quantidade de produtos percorridos
+     * @throws SQLException se ocorrer erro na leitura do banco
+     */
+    public long percorrerProdutos(Consumer<Produto> consumidor) throws SQLException {
+        String sql = SQL_PRODUTO + " ORDER BY p.id";
+        Produto produto = new Produto();
+        long total = 0;
+        try (Connection conn = new Conexao().conectarLeitura();
+                PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE); // streaming de linhas no driver MySQL
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    produto.setId(rs.getInt(1));
+                    produto.setNome(rs.getString(2));
+                    produto.setUnidade(rs.getString(3));
+                    produto.setQuantidade(rs.getInt(4));
+                    produto.setPreco(rs.getDouble(5));
+                    produto.setMin(rs.getInt(6));
+                    produto.setMax(rs.getInt(7));
+                    produto.setCategoria(rs.getString(8));
+                    consumidor.accept(produto);
+                    total++;
+                }
+            }
+        }
+        return total;
+    }
+
     /**
      * Retorna o maior ID de produto registrado no banco de dados.
      *
@@ -230,7 +692,7 @@ public class ProdutoDAO {
         Conexao conexao = new Conexao();
         int MaiorID = 0;
 
-        try (Connection conn = conexao.conectar()) {
+        try (Connection conn = conexao.conectarPrimario()) {
             Statement stmt = conn.createStatement();
             ResultSet res = stmt.executeQuery("SELECT MAX(id) id from produto");
             res.next();
@@ -254,7 +716,7 @@ public class ProdutoDAO {
 
         String sql = "SELECT DISTINCT categoria FROM produto ORDER BY categoria";
 
-        try (Connection conn = conexao.conectar(); PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
+        try (Connection conn = conexao.conectarLeitura(); PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
                 lista.add(rs.getString("categoria"));
@@ -267,6 +729,88 @@ public class ProdutoDAO {
         return lista;
     }
 
+    /**
+     * Retorna os níveis de estoque de todos os produtos, lendo apenas as
+     * colunas de ID, nome, quantidade, mínimo e máximo.
+     *
+     * @return projeção {@link NiveisEstoque} ordenada pelo nome do produto
+     */
+    public NiveisEstoque listarNiveisEstoque() {
+        int capacidade = 64;
+        int total = 0;
+        int[] ids = new int[capacidade];
+        String[] nomes = new String[capacidade];
+        int[] quantidades = new int[capacidade];
+        int[] minimos = new int[capacidade];
+        int[] maximos = new int[capacidade];
+
+        String sql = "SELECT p.id, p.nome, " + SQL_QUANTIDADE_REAL + ", p.min, p.max FROM produto p ORDER BY p.nome";
+        try (Connection conn = new Conexao().conectarLeitura(); PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                if (total == capacidade) {
+                    capacidade *= 2;
+                    ids = Arrays.copyOf(ids, capacidade);
+                    nomes = Arrays.copyOf(nomes, capacidade);
+                    quantidades = Arrays.copyOf(quantidades, capacidade);
+                    minimos = Arrays.copyOf(minimos, capacidade);
+                    maximos = Arrays.copyOf(maximos, capacidade);
+                }
+                ids[total] = rs.getInt(1);
+                nomes[total] = rs.getString(2);
+                quantidades[total] = rs.getInt(3);
+                minimos[total] = rs.getInt(4);
+                maximos[total] = rs.getInt(5);
+                total++;
+            }
+        } catch (SQLException e) {
+            System.out.println("Erro ao listar níveis de estoque: " + e.getMessage());
+        }
+
+        return new NiveisEstoque(Arrays.copyOf(ids, total), Arrays.copyOf(nomes, total),
+                Arrays.copyOf(quantidades, total), Arrays.copyOf(minimos, total), Arrays.copyOf(maximos, total));
+    }
+
+    /**
+     * Retorna apenas o ID e o nome dos produtos, opcionalmente filtrando por
+     * parte do nome.
+     *
+     * @param filtro parte do nome a ser pesquisada, ou {@code null}/vazio para
+     * listar todos os produtos
+     * @return projeção {@link NomesProdutos} ordenada pelo nome do produto
+     */
+    public NomesProdutos listarNomesProdutos(String filtro) {
+        boolean filtrar = filtro != null && !filtro.isEmpty();
+        int capacidade = 64;
+        int total = 0;
+        int[] ids = new int[capacidade];
+        String[] nomes = new String[capacidade];
+
+        String sql = filtrar
+                ? "SELECT id, nome FROM produto WHERE nome LIKE ? ORDER BY nome"
+                : "SELECT id, nome FROM produto ORDER BY nome";
+        try (Connection conn = new Conexao().conectarLeitura(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (filtrar) {
+                stmt.setString(1, "%" + filtro + "%");
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (total == capacidade) {
+                        capacidade *= 2;
+                        ids = Arrays.copyOf(ids, capacidade);
+                        nomes = Arrays.copyOf(nomes, capacidade);
+                    }
+                    ids[total] = rs.getInt(1);
+                    nomes[total] = rs.getString(2);
+                    total++;
+                }
+            }
+        } catch (SQLException e) {
+            System.out.println("Erro ao listar nomes de produtos: " + e.getMessage());
+        }
+
+        return new NomesProdutos(Arrays.copyOf(ids, total), Arrays.copyOf(nomes, total));
+    }
+
     /**
      * Busca produtos pertencentes a uma categoria específica.
      *
@@ -276,9 +820,9 @@ public class ProdutoDAO {
      */
     public List<Produto> buscarPorCategoria(String categoria) throws SQLException {
         List<Produto> lista = new ArrayList<>();
-        String sql = "SELECT * FROM produto WHERE categoria = ?";
+        String sql = SQL_PRODUTO + " WHERE p.categoria = ?";
 
-        try (Connection conn = new Conexao().conectar(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = new Conexao().conectarLeitura(); PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, categoria);
             ResultSet rs = stmt.executeQuery();
 
@@ -293,6 +837,7 @@ public class ProdutoDAO {
                         rs.getInt("max"),
                         rs.getString("categoria")
                 );
+                p.setVersao(rs.getInt("versao"));
                 lista.add(p);
             }
         }
@@ -308,8 +853,8 @@ public class ProdutoDAO {
      */
     public List<Produto> buscarPorNome(String nome) throws SQLException {
         List<Produto> lista = new ArrayList<>();
-        String sql = "SELECT * FROM produto WHERE nome LIKE ?";
-        try (Connection conn = new Conexao().conectar(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+        String sql = SQL_PRODUTO + " WHERE p.nome LIKE ?";
+        try (Connection conn = new Conexao().conectarLeitura(); PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, "%" + nome + "%");
             ResultSet rs = stmt.executeQuery();
             while (rs.next()) {
@@ -323,6 +868,7 @@ public class ProdutoDAO {
                         rs.getInt("max"),
                         rs.getString("categoria")
                 );
+                p.setVersao(rs.getInt("versao"));
                 lista.add(p);
             }
         }
@@ -339,8 +885,8 @@ public class ProdutoDAO {
      */
     public List<Produto> buscarPorNomeECategoria(String nome, String categoria) throws SQLException {
         List<Produto> lista = new ArrayList<>();
-        String sql = "SELECT * FROM produto WHERE nome LIKE ? AND categoria = ?";
-        try (Connection conn = new Conexao().conectar(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+        String sql = SQL_PRODUTO + " WHERE p.nome LIKE ? AND p.categoria = ?";
+        try (Connection conn = new Conexao().conectarLeitura(); PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, "%" + nome + "%");
             stmt.setString(2, categoria);
             ResultSet rs = stmt.executeQuery();
@@ -355,6 +901,7 @@ public class ProdutoDAO {
                         rs.getInt("max"),
                         rs.getString("categoria")
                 );
+                p.setVersao(rs.getInt("versao"));
                 lista.add(p);
             }
         }
@@ -372,14 +919,37 @@ public class ProdutoDAO {
      * contrário
      */
     public boolean RegistrarEntradaProduto(int produtoId, int quantidadeEntrada, String observacao) {
+        return RegistrarEntradaProduto(produtoId, quantidadeEntrada, observacao, null);
+    }
+
+    /**
+     * Registra a entrada de um produto no estoque de forma idempotente.
+     *
+     * Se já existir uma movimentação gravada com o mesmo {@code requestId}, a
+     * operação não é repetida e o resultado original ({@code true}) é
+     * devolvido.
+     *
+     * @param produtoId ID do produto
+     * @param quantidadeEntrada quantidade adicionada
+     * @param observacao observação opcional da movimentação
+     * @param requestId identificador da requisição gerado pelo cliente, ou
+     * {@code null} para não verificar duplicidade
+     * @return {@code true} se a operação foi bem-sucedida (ou já havia sido
+     * registrada), {@code false} caso contrário
+     */
+    public boolean RegistrarEntradaProduto(int produtoId, int quantidadeEntrada, String observacao, String requestId) {
+        if (requestId != null && MovimentacaoJaRegistrada(requestId)) {
+            System.out.println("Entrada já registrada para a requisição: " + requestId);
+            return true;
+        }
+
         Conexao conexao = new Conexao();
 
         try (Connection conn = conexao.conectar()) {
             conn.setAutoCommit(false); // Iniciar transação
 
             // 1. Atualizar quantidade do produto
-            String sqlUpdateProduto = "UPDATE produto SET quantidade = quantidade + ? WHERE id = ?";
-            try (PreparedStatement stmtUpdate = conn.prepareStatement(sqlUpdateProduto)) {
+            try (PreparedStatement stmtUpdate = conn.prepareStatement(SQL_SOMAR_QUANTIDADE)) {
                 stmtUpdate.setInt(1, quantidadeEntrada);
                 stmtUpdate.setInt(2, produtoId);
                 int linhasAfetadas = stmtUpdate.executeUpdate();
@@ -391,15 +961,23 @@ public class ProdutoDAO {
             }
 
             // 2. Registrar na tabela de movimentação
-            String sqlInsertMovimentacao = "INSERT INTO registro_movimentacao (produto_id, tipo_movimentacao, quantidade, observacao, data_movimentacao) VALUES (?, 'Entrada', ?, ?, CURDATE())";
-            try (PreparedStatement stmtMovimentacao = conn.prepareStatement(sqlInsertMovimentacao)) {
+            try (PreparedStatement stmtMovimentacao = conn.prepareStatement(SQL_REGISTRAR_ENTRADA)) {
                 stmtMovimentacao.setInt(1, produtoId);
                 stmtMovimentacao.setInt(2, quantidadeEntrada);
                 stmtMovimentacao.setString(3, observacao);
+                stmtMovimentacao.setString(4, requestId);
                 stmtMovimentacao.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException duplicada) {
+                // Outra tentativa com o mesmo requestId já foi gravada
+                conn.rollback();
+                System.out.println("Entrada já registrada para a requisição: " + requestId);
+                return true;
             }
 
             conn.commit(); // Confirmar transação
+            cache.ajustarQuantidade(produtoId, quantidadeEntrada);
+            DiarioMovimentacoes.obter().registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, produtoId, "Entrada",
+                    quantidadeEntrada, observacao, LocalDate.now(), requestId);
             System.out.println("Entrada registrada com sucesso para produto ID: " + produtoId);
             return true;
 
@@ -420,6 +998,35 @@ public class ProdutoDAO {
      * contrário
      */
     public boolean RegistrarSaidaProduto(int produtoId, int quantidadeSaida, String observacao) {
+        return RegistrarSaidaProduto(produtoId, quantidadeSaida, observacao, null);
+    }
+
+    /**
+     * Registra a saída de um produto do estoque de forma idempotente.
+     *
+     * Se já existir uma movimentação gravada com o mesmo {@code requestId}, a
+     * operação não é repetida e o resultado original ({@code true}) é
+     * devolvido, mesmo que o estoque atual já não seja suficiente.
+     *
+     * @param produtoId ID do produto
+     * @param quantidadeSaida quantidade removida
+     * @param observacao observação opcional da movimentação
+     * @param requestId identificador da requisição gerado pelo cliente, ou
+     * {@code null} para não verificar duplicidade
+     * @return {@code true} se a operação foi bem-sucedida (ou já havia sido
+     * registrada), {@code false} caso contrário
+     */
+    public boolean RegistrarSaidaProduto(int produtoId, int quantidadeSaida, String observacao, String requestId) {
+        if (requestId != null && MovimentacaoJaRegistrada(requestId)) {
+            System.out.println("Saída já registrada para a requisição: " + requestId);
+            return true;
+        }
+
+        EstoqueFracionado fracionado = EstoqueFracionado.obter();
+        if (fracionado.ativo(produtoId)) {
+            return registrarSaidaFracionada(fracionado, produtoId, quantidadeSaida, observacao, requestId);
+        }
+
         Conexao conexao = new Conexao();
         Produto produto = ProcurarProdutoID(produtoId);
 
@@ -436,29 +1043,39 @@ public class ProdutoDAO {
         try (Connection conn = conexao.conectar()) {
             conn.setAutoCommit(false); // Iniciar transação
 
-            // 1. Atualizar quantidade do produto
-            String sqlUpdateProduto = "UPDATE produto SET quantidade = quantidade - ? WHERE id = ?";
-            try (PreparedStatement stmtUpdate = conn.prepareStatement(sqlUpdateProduto)) {
+            // 1. Atualizar quantidade do produto. O UPDATE só baixa se houver
+            // estoque; a verificação acima usa o cache e só recusa mais cedo
+            try (PreparedStatement stmtUpdate = conn.prepareStatement(SQL_SUBTRAIR_QUANTIDADE)) {
                 stmtUpdate.setInt(1, quantidadeSaida);
                 stmtUpdate.setInt(2, produtoId);
+                stmtUpdate.setInt(3, quantidadeSaida);
                 int linhasAfetadas = stmtUpdate.executeUpdate();
 
                 if (linhasAfetadas == 0) {
                     conn.rollback();
+                    System.out.println("Quantidade insuficiente para produto ID: " + produtoId);
                     return false;
                 }
             }
 
             // 2. Registrar na tabela de movimentação
-            String sqlInsertMovimentacao = "INSERT INTO registro_movimentacao (produto_id, tipo_movimentacao, quantidade, observacao, data_movimentacao) VALUES (?, 'Saída', ?, ?, CURDATE())";
-            try (PreparedStatement stmtMovimentacao = conn.prepareStatement(sqlInsertMovimentacao)) {
+            try (PreparedStatement stmtMovimentacao = conn.prepareStatement(SQL_REGISTRAR_SAIDA)) {
                 stmtMovimentacao.setInt(1, produtoId);
                 stmtMovimentacao.setInt(2, quantidadeSaida);
                 stmtMovimentacao.setString(3, observacao);
+                stmtMovimentacao.setString(4, requestId);
                 stmtMovimentacao.executeUpdate();
+            } catch (SQLIntegrityConstraintViolationException duplicada) {
+                // Outra tentativa com o mesmo requestId já foi gravada
+                conn.rollback();
+                System.out.println("Saída já registrada para a requisição: " + requestId);
+                return true;
             }
 
             conn.commit(); // Confirmar transação
+            cache.ajustarQuantidade(produtoId, -quantidadeSaida);
+            DiarioMovimentacoes.obter().registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, produtoId, "Saída",
+                    quantidadeSaida, observacao, LocalDate.now(), requestId);
             System.out.println("Saída registrada com sucesso para produto ID: " + produtoId);
             return true;
 
@@ -467,4 +1084,52 @@ public class ProdutoDAO {
             return false;
         }
     }
+
+    /**
+     * Registra a saída de um produto com estoque fracionado, sem bloquear a
+     * linha do produto.
+     *
+     * @see EstoqueFracionado
+     */
+    private boolean registrarSaidaFracionada(EstoqueFracionado fracionado, int produtoId, int quantidadeSaida,
+            String observacao, String requestId) {
+        try {
+            switch (fracionado.registrarSaida(produtoId, quantidadeSaida, observacao, requestId)) {
+                case REGISTRADA:
+                    cache.ajustarQuantidade(produtoId, -quantidadeSaida);
+                    DiarioMovimentacoes.obter().registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, produtoId, "Saída",
+                            quantidadeSaida, observacao, LocalDate.now(), requestId);
+                    System.out.println("Saída registrada com sucesso para produto ID: " + produtoId);
+                    return true;
+                case REPETIDA:
+                    System.out.println("Saída já registrada para a requisição: " + requestId);
+                    return true;
+                default:
+                    System.out.println("Quantidade insuficiente para produto ID: " + produtoId);
+                    return false;
+            }
+        } catch (SQLException e) {
+            System.out.println("Erro ao registrar saída: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Verifica se já existe uma movimentação gravada com o identificador de
+     * requisição informado.
+     *
+     * @param requestId identificador da requisição gerado pelo cliente
+     * @return {@code true} se a movimentação já foi registrada
+     */
+    public boolean MovimentacaoJaRegistrada(String requestId) {
+        try (Connection conn = new Conexao().conectarPrimario(); PreparedStatement stmt = conn.prepareStatement(SQL_REQUISICAO_REGISTRADA)) {
+            stmt.setString(1, requestId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            System.out.println("Erro ao verificar requisição: " + e.getMessage());
+            return false;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package dao;
 
+import modelo.MovimentacoesColunar;
 import modelo.RegistroMovimentacao;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -9,7 +10,11 @@ import java.sql.Statement;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Classe responsável por gerenciar as operações de banco de dados relacionadas
@@ -20,47 +25,89 @@ import java.util.List;
  */
 public class RegistroMovimentacaoDAO {
 
+    /**
+     * Consulta do histórico de um produto, preparada no aquecimento do
+     * servidor.
+     */
+    private static final String SQL_POR_PRODUTO = "SELECT id, produto_id, tipo_movimentacao, quantidade, observacao, data_movimentacao FROM registro_movimentacao WHERE produto_id = ? ORDER BY data_movimentacao DESC, id DESC";
+
+    /**
+     * Saldo dos produtos em uma data: o checkpoint mais recente até a data
+     * mais as movimentações de estoque entre ele e a data ou, sem checkpoint,
+     * a quantidade atual menos as movimentações de estoque posteriores à
+     * data. Falta a condição sobre {@code p}.
+     */
+    private static final String SQL_ESTOQUE_EM = "SELECT p.id, CASE WHEN c.data IS NULL THEN"
+            + " COALESCE(p.quantidade, 0) - COALESCE((SELECT SUM(f.consumido) FROM estoque_fracao f WHERE f.produto_id = p.id), 0)"
+            + " - COALESCE((SELECT SUM(CASE WHEN m.tipo_movimentacao = 'Entrada' THEN m.quantidade ELSE -m.quantidade END)"
+            + " FROM registro_movimentacao m WHERE m.produto_id = p.id AND m.altera_estoque = 1 AND m.data_movimentacao > ?), 0)"
+            + " ELSE c.saldo + COALESCE((SELECT SUM(CASE WHEN m.tipo_movimentacao = 'Entrada' THEN m.quantidade ELSE -m.quantidade END)"
+            + " FROM registro_movimentacao m WHERE m.produto_id = p.id AND m.altera_estoque = 1 AND m.data_movimentacao > c.data AND m.data_movimentacao <= ?), 0) END"
+            + " FROM produto p LEFT JOIN checkpoint_estoque c ON c.produto_id = p.id"
+            + " AND c.data = (SELECT MAX(u.data) FROM checkpoint_estoque u WHERE u.produto_id = p.id AND u.data <= ?)"
+            + " WHERE ";
+
+    /**
+     * Recebe o total de saídas de um produto em um dia.
+     */
+    public interface ConsumidorSaidas {
+
+        /**
+         * @param produtoId o identificador do produto
+         * @param dia o dia das saídas
+         * @param quantidade a quantidade total de saída no dia
+         */
+        void aceitar(int produtoId, LocalDate dia, long quantidade);
+    }
+
+    /**
+     * Recebe o total de entradas e de saídas de estoque de um produto.
+     */
+    public interface ConsumidorVariacoes {
+
+        /**
+         * @param produtoId o identificador do produto
+         * @param entradas a quantidade total de entrada no período
+         * @param saidas a quantidade total de saída no período
+         */
+        void aceitar(int produtoId, long entradas, long saidas);
+    }
+
+    /**
+     * @return os comandos SQL de leitura mais usados por este DAO
+     */
+    public static List<String> comandosFrequentes() {
+        return List.of(SQL_POR_PRODUTO);
+    }
+
     /**
      * Registra uma nova movimentação no banco de dados (entrada ou saída).
      *
+     * A inserção é feita pelo {@link GravadorMovimentacoes}, que agrupa as
+     * movimentações recebidas ao mesmo tempo em uma única transação; o método
+     * só retorna depois do {@code commit} do lote.
+     *
+     * Quando o registro possui um {@code requestId} já gravado anteriormente,
+     * nenhuma linha nova é inserida e o método devolve {@code true}.
+     *
      * @param registro objeto {@link RegistroMovimentacao} contendo os dados da
      * movimentação.
      * @return {@code true} se a movimentação for registrada com sucesso,
      * {@code false} caso contrário.
      */
     public boolean registrarMovimentacao(RegistroMovimentacao registro) {
-        Conexao conexao = new Conexao();
-        String sql = "INSERT INTO registro_movimentacao (produto_id, tipo_movimentacao, quantidade, observacao, data_movimentacao) VALUES (?, ?, ?, ?, ?)";
-
-        try (Connection conn = conexao.conectar(); PreparedStatement st = conn.prepareStatement(sql)) {
-
-            // Usar a data do registro em vez de sempre a data atual
-            LocalDate dataMovimentacao = registro.getDataMovimentacao() != null
-                    ? LocalDate.parse(registro.getDataMovimentacao()) : LocalDate.now();
-
-            System.out.println("Inserindo movimentação no banco...");
-            System.out.println("Produto ID: " + registro.getProdutoId());
-            System.out.println("Tipo: " + registro.getTipoMovimentacao());
-            System.out.println("Quantidade: " + registro.getQuantidade());
-            System.out.println("Data: " + dataMovimentacao);
-
-            st.setInt(1, registro.getProdutoId());
-            st.setString(2, registro.getTipoMovimentacao());
-            st.setInt(3, registro.getQuantidade());
-            st.setString(4, registro.getObservacao());
-            st.setDate(5, java.sql.Date.valueOf(dataMovimentacao));
+        // Usar a data do registro em vez de sempre a data atual
+        LocalDate dataMovimentacao = registro.getDataMovimentacao() != null
+                ? LocalDate.parse(registro.getDataMovimentacao()) : LocalDate.now();
 
-            int rowsAffected = st.executeUpdate();
-            conn.commit(); // Adicionar commit explícito
+        System.out.println("Inserindo movimentação no banco...");
+        System.out.println("Produto ID: " + registro.getProdutoId());
+        System.out.println("Tipo: " + registro.getTipoMovimentacao());
+        System.out.println("Quantidade: " + registro.getQuantidade());
+        System.out.println("Data: " + dataMovimentacao);
 
-            System.out.println("Registro inserido com sucesso. Linhas afetadas: " + rowsAffected);
-            return rowsAffected > 0;
-
-        } catch (SQLException e) {
-            System.err.println("Erro ao registrar movimentação no banco de dados: " + e.getMessage());
-            e.printStackTrace();
-            return false;
-        }
+        return GravadorMovimentacoes.obter().gravar(registro.getProdutoId(), registro.getTipoMovimentacao(),
+                registro.getQuantidade(), registro.getObservacao(), dataMovimentacao, registro.getRequestId());
     }
 
     /**
@@ -75,7 +122,7 @@ public class RegistroMovimentacaoDAO {
         Conexao conexao = new Conexao();
         String sql = "SELECT id, produto_id, tipo_movimentacao, quantidade, observacao, data_movimentacao FROM registro_movimentacao ORDER BY data_movimentacao DESC, id DESC";
 
-        try (Connection conn = conexao.conectar(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = conexao.conectarLeitura(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
                 int id = rs.getInt("id");
@@ -98,6 +145,191 @@ public class RegistroMovimentacaoDAO {
         return listaMovimentacoes;
     }
 
+    /**
+     * Lista todas as movimentações em formato colunar, na mesma ordem de
+     * {@link #listarTodasMovimentacoes()}.
+     *
+     * As linhas são lidas em modo de streaming e gravadas diretamente nos
+     * vetores do {@link MovimentacoesColunar}, sem criar um objeto
+     * {@link RegistroMovimentacao} por linha.
+     *
+     * @return lista colunar de movimentações
+     */
+    public MovimentacoesColunar listarMovimentacoesColunar() {
+        int capacidade = 1024;
+        int total = 0;
+        int[] ids = new int[capacidade];
+        int[] produtoIds = new int[capacidade];
+        int[] quantidades = new int[capacidade];
+        int[] datas = new int[capacidade];
+        int[] tipos = new int[capacidade];
+        int[] observacoes = new int[capacidade];
+        DicionarioStrings dicionarioTipos = new DicionarioStrings();
+        DicionarioStrings dicionarioObservacoes = new DicionarioStrings();
+        int hoje = (int) LocalDate.now().toEpochDay();
+
+        String sql = "SELECT id, produto_id, tipo_movimentacao, quantidade, observacao, data_movimentacao FROM registro_movimentacao ORDER BY data_movimentacao DESC, id DESC";
+        try (Connection conn = new Conexao().conectarLeitura();
+                PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setFetchSize(Integer.MIN_VALUE); // streaming de linhas no driver MySQL
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (total == capacidade) {
+                        capacidade += capacidade >> 1;
+                        ids = Arrays.copyOf(ids, capacidade);
+                        produtoIds = Arrays.copyOf(produtoIds, capacidade);
+                        quantidades = Arrays.copyOf(quantidades, capacidade);
+                        datas = Arrays.copyOf(datas, capacidade);
+                        tipos = Arrays.copyOf(tipos, capacidade);
+                        observacoes = Arrays.copyOf(observacoes, capacidade);
+                    }
+                    ids[total] = rs.getInt(1);
+                    produtoIds[total] = rs.getInt(2);
+                    tipos[total] = dicionarioTipos.codificar(rs.getString(3));
+                    quantidades[total] = rs.getInt(4);
+                    observacoes[total] = dicionarioObservacoes.codificar(rs.getString(5));
+                    java.sql.Date sqlDate = rs.getDate(6);
+                    datas[total] = sqlDate != null ? (int) sqlDate.toLocalDate().toEpochDay() : hoje;
+                    total++;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Erro ao listar movimentações em formato colunar: " + e.getMessage());
+            e.printStackTrace();
+        }
+
+        return new MovimentacoesColunar(Arrays.copyOf(ids, total), Arrays.copyOf(produtoIds, total),
+                Arrays.copyOf(quantidades, total), Arrays.copyOf(datas, total),
+                dicionarioTipos.paraVetor(), Arrays.copyOf(tipos, total),
+                dicionarioObservacoes.paraVetor(), Arrays.copyOf(observacoes, total));
+    }
+
+    /**
+     * Soma, no banco, as entradas e as saídas (movimentações que não são
+     * entradas) de estoque do período por produto e as percorre em modo de
+     * streaming. Só entram as movimentações que alteraram a quantidade
+     * ({@code altera_estoque = 1}); as avulsas são apenas registros. Como cada
+     * linha já é o total de um produto, a memória e o tráfego dependem da
+     * quantidade de produtos movimentados, e não do tamanho do histórico.
+     *
+     * @param desde primeiro dia do período, ou {@code null} para não limitar
+     * @param ate último dia do período, ou {@code null} para não limitar
+     * @param consumidor chamado uma vez por produto movimentado no período
+     * @return a quantidade de produtos percorridos
+     * @throws SQLException se ocorrer erro na leitura do banco
+     */
+    public int somarVariacoes(LocalDate desde, LocalDate ate, ConsumidorVariacoes consumidor) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT produto_id,"
+                + " SUM(IF(tipo_movimentacao = 'Entrada', quantidade, 0)), SUM(IF(tipo_movimentacao = 'Entrada', 0, quantidade))"
+                + " FROM registro_movimentacao WHERE altera_estoque = 1");
+        if (desde != null) {
+            sql.append(" AND data_movimentacao >= ?");
+        }
+        if (ate != null) {
+            sql.append(" AND data_movimentacao <= ?");
+        }
+        sql.append(" GROUP BY produto_id");
+        int total = 0;
+        try (Connection conn = new Conexao().conectarLeitura();
+                PreparedStatement stmt = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            int parametro = 1;
+            if (desde != null) {
+                stmt.setDate(parametro++, java.sql.Date.valueOf(desde));
+            }
+            if (ate != null) {
+                stmt.setDate(parametro, java.sql.Date.valueOf(ate));
+            }
+            stmt.setFetchSize(Integer.MIN_VALUE); // streaming de linhas no driver MySQL
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumidor.aceitar(rs.getInt(1), rs.getLong(2), rs.getLong(3));
+                    total++;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Percorre as movimentações do período em modo de streaming, na ordem do
+     * ID, sem manter a lista na memória.
+     *
+     * O mesmo objeto {@link RegistroMovimentacao} é reaproveitado em todas as
+     * linhas; o consumidor deve copiar os valores que quiser guardar.
+     *
+     * @param desde primeiro dia do período, ou {@code null} para não limitar
+     * @param ate último dia do período, ou {@code null} para não limitar
+     * @param consumidor chamado uma vez por movimentação
+     * @return a quantidade de movimentações percorridas
+     * @throws SQLException se ocorrer erro na leitura do banco
+     */
+    public long percorrerMovimentacoes(LocalDate desde, LocalDate ate, Consumer<RegistroMovimentacao> consumidor) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT id, produto_id, tipo_movimentacao, quantidade, observacao, data_movimentacao, request_id FROM registro_movimentacao WHERE 1 = 1");
+        if (desde != null) {
+            sql.append(" AND data_movimentacao >= ?");
+        }
+        if (ate != null) {
+            sql.append(" AND data_movimentacao <= ?");
+        }
+        sql.append(" ORDER BY id");
+        RegistroMovimentacao registro = new RegistroMovimentacao();
+        long total = 0;
+        try (Connection conn = new Conexao().conectarLeitura();
+                PreparedStatement stmt = conn.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            int parametro = 1;
+            if (desde != null) {
+                stmt.setDate(parametro++, java.sql.Date.valueOf(desde));
+            }
+            if (ate != null) {
+                stmt.setDate(parametro, java.sql.Date.valueOf(ate));
+            }
+            stmt.setFetchSize(Integer.MIN_VALUE); // streaming de linhas no driver MySQL
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    registro.setId(rs.getInt(1));
+                    registro.setProdutoId(rs.getInt(2));
+                    registro.setTipoMovimentacao(rs.getString(3));
+                    registro.setQuantidade(rs.getInt(4));
+                    registro.setObservacao(rs.getString(5));
+                    java.sql.Date data = rs.getDate(6);
+                    registro.setDataMovimentacao(data != null ? data.toLocalDate().toString() : null);
+                    registro.setRequestId(rs.getString(7));
+                    consumidor.accept(registro);
+                    total++;
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Percorre, em modo de streaming, o total diário das saídas (movimentações
+     * que não são entradas) a partir de uma data, em ordem de produto e dia.
+     *
+     * @param desde primeiro dia a considerar
+     * @param consumidor chamado uma vez por produto e dia com saídas
+     * @return a quantidade de pares produto e dia percorridos
+     * @throws SQLException se ocorrer erro na leitura do banco
+     */
+    public long percorrerSaidasDiarias(LocalDate desde, ConsumidorSaidas consumidor) throws SQLException {
+        String sql = "SELECT produto_id, data_movimentacao, SUM(quantidade) FROM registro_movimentacao"
+                + " WHERE tipo_movimentacao <> 'Entrada' AND data_movimentacao >= ?"
+                + " GROUP BY produto_id, data_movimentacao ORDER BY produto_id, data_movimentacao";
+        long total = 0;
+        try (Connection conn = new Conexao().conectarLeitura();
+                PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setDate(1, java.sql.Date.valueOf(desde));
+            stmt.setFetchSize(Integer.MIN_VALUE); // streaming de linhas no driver MySQL
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumidor.aceitar(rs.getInt(1), rs.getDate(2).toLocalDate(), rs.getLong(3));
+                    total++;
+                }
+            }
+        }
+        return total;
+    }
+
     /**
      * Lista todas as movimentações relacionadas a um produto específico.
      *
@@ -108,9 +340,7 @@ public class RegistroMovimentacaoDAO {
     public List<RegistroMovimentacao> listarMovimentacoesPorProduto(int produtoId) {
         List<RegistroMovimentacao> listaMovimentacoes = new ArrayList<>();
         Conexao conexao = new Conexao();
-        String sql = "SELECT id, produto_id, tipo_movimentacao, quantidade, observacao, data_movimentacao FROM registro_movimentacao WHERE produto_id = ? ORDER BY data_movimentacao DESC, id DESC";
-
-        try (Connection conn = conexao.conectar(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = conexao.conectarLeitura(); PreparedStatement stmt = conn.prepareStatement(SQL_POR_PRODUTO)) {
 
             stmt.setInt(1, produtoId);
             try (ResultSet rs = stmt.executeQuery()) {
@@ -132,4 +362,60 @@ public class RegistroMovimentacaoDAO {
         }
         return listaMovimentacoes;
     }
+
+    /**
+     * Calcula o estoque de um produto no fim do dia informado. Parte do
+     * checkpoint diário mais recente até a data ({@link CheckpointEstoque}),
+     * que guarda a quantidade real do produto naquele dia, e soma só as
+     * movimentações de estoque posteriores a ele, de modo que o custo não
+     * depende do tamanho do histórico. Sem checkpoint até a data, parte da
+     * quantidade atual e desfaz as movimentações de estoque posteriores à
+     * data.
+     *
+     * Só contam as movimentações que alteraram a quantidade do produto
+     * (entradas e saídas de estoque); as registradas avulsas por
+     * {@link #registrarMovimentacao} não mudam o saldo.
+     *
+     * @param produtoId o identificador do produto
+     * @param data o dia da consulta
+     * @return o saldo, ou {@code null} se o produto não existir
+     * @throws SQLException se ocorrer erro na leitura do banco
+     */
+    public Integer consultarEstoqueEm(int produtoId, LocalDate data) throws SQLException {
+        try (Connection conn = new Conexao().conectarLeitura(); PreparedStatement stmt = conn.prepareStatement(SQL_ESTOQUE_EM + "p.id = ?")) {
+            stmt.setDate(1, java.sql.Date.valueOf(data));
+            stmt.setDate(2, java.sql.Date.valueOf(data));
+            stmt.setDate(3, java.sql.Date.valueOf(data));
+            stmt.setInt(4, produtoId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(2) : null;
+            }
+        }
+    }
+
+    /**
+     * Calcula o estoque no fim do dia informado de cada produto de uma
+     * categoria, como em {@link #consultarEstoqueEm(int, LocalDate)}.
+     *
+     * @param categoria o nome da categoria
+     * @param data o dia da consulta
+     * @return o saldo de cada produto da categoria, por ID, em ordem de ID
+     * @throws SQLException se ocorrer erro na leitura do banco
+     */
+    public Map<Integer, Integer> consultarEstoqueEm(String categoria, LocalDate data) throws SQLException {
+        Map<Integer, Integer> saldos = new LinkedHashMap<>();
+        try (Connection conn = new Conexao().conectarLeitura();
+                PreparedStatement stmt = conn.prepareStatement(SQL_ESTOQUE_EM + "p.categoria = ? ORDER BY p.id")) {
+            stmt.setDate(1, java.sql.Date.valueOf(data));
+            stmt.setDate(2, java.sql.Date.valueOf(data));
+            stmt.setDate(3, java.sql.Date.valueOf(data));
+            stmt.setString(4, categoria);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    saldos.put(rs.getInt(1), rs.getInt(2));
+                }
+            }
+        }
+        return saldos;
+    }
 }
@@ -0,0 +1,108 @@
+package dao;
+
+import modelo.Reserva;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Classe responsável pela persistência das reservas de estoque na tabela
+ * {@code reserva_estoque}.
+ *
+ * As reservas ativas são mantidas em memória pelo servidor; esta tabela serve
+ * apenas para que sobrevivam a uma reinicialização.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class ReservaDAO {
+
+    /**
+     * Grava uma nova reserva no banco de dados.
+     *
+     * @param produtoId ID do produto reservado
+     * @param quantidade quantidade reservada
+     * @param expiraEm instante de expiração em milissegundos
+     * @return o ID gerado para a reserva
+     * @throws SQLException se ocorrer erro na gravação
+     */
+    public int inserir(int produtoId, int quantidade, long expiraEm) throws SQLException {
+        String sql = "INSERT INTO reserva_estoque (produto_id, quantidade, expira_em) VALUES (?, ?, ?)";
+        try (Connection conn = new Conexao().conectar(); PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, produtoId);
+            stmt.setInt(2, quantidade);
+            stmt.setTimestamp(3, new Timestamp(expiraEm));
+            stmt.executeUpdate();
+
+            try (ResultSet chaves = stmt.getGeneratedKeys()) {
+                if (chaves.next()) {
+                    return chaves.getInt(1);
+                }
+            }
+        }
+        throw new SQLException("Não foi possível obter o ID da reserva.");
+    }
+
+    /**
+     * Remove uma reserva do banco de dados.
+     *
+     * @param id identificador da reserva
+     * @return {@code true} se a reserva existia e foi removida
+     */
+    public boolean remover(int id) {
+        String sql = "DELETE FROM reserva_estoque WHERE id = ?";
+        try (Connection conn = new Conexao().conectar(); PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, id);
+            return stmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            System.out.println("Erro ao remover reserva: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Remove as reservas cuja saída já foi registrada (movimentação com
+     * requestId {@code reserva-<id>}). Sobram reservas assim quando o servidor
+     * para entre a saída de uma confirmação e a remoção da reserva.
+     *
+     * @return quantidade de reservas removidas
+     */
+    public int removerConfirmadas() {
+        String sql = "DELETE FROM reserva_estoque WHERE EXISTS (SELECT 1 FROM registro_movimentacao m"
+                + " WHERE m.request_id = CONCAT('reserva-', reserva_estoque.id))";
+        try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement()) {
+            return stmt.executeUpdate(sql);
+        } catch (SQLException e) {
+            System.out.println("Erro ao remover reservas confirmadas: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Lista todas as reservas gravadas, inclusive as já expiradas.
+     *
+     * @return lista de reservas
+     */
+    public List<Reserva> listarReservas() {
+        List<Reserva> reservas = new ArrayList<>();
+        String sql = "SELECT id, produto_id, quantidade, expira_em FROM reserva_estoque";
+        try (Connection conn = new Conexao().conectarPrimario(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                reservas.add(new Reserva(
+                        rs.getInt("id"),
+                        rs.getInt("produto_id"),
+                        rs.getInt("quantidade"),
+                        rs.getTimestamp("expira_em").getTime()
+                ));
+            }
+        } catch (SQLException e) {
+            System.out.println("Erro ao listar reservas: " + e.getMessage());
+        }
+        return reservas;
+    }
+}
@@ -0,0 +1,371 @@
+package dao;
+
+import config.Configuracao;
+import modelo.Categoria;
+import modelo.Produto;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot binário do catálogo (produtos e categorias), usado para preencher
+ * os caches na inicialização sem ler a tabela {@code produto} inteira.
+ *
+ * O arquivo guarda a versão do catálogo, isto é, o horário do banco em que os
+ * dados foram lidos. Ao carregar, o arquivo é mapeado em memória, o CRC32C é
+ * conferido e, em seguida, só as linhas alteradas desde a versão (coluna
+ * {@code ultima_alteracao}) e as exclusões registradas em
+ * {@code registro_excluido} são lidas do banco. A comparação usa uma margem de
+ * segurança para incluir transações que estavam abertas durante a gravação.
+ *
+ * Formato: cabeçalho ({@code "ESTQSNAP"}, versão do formato, versão do
+ * catálogo), produtos e categorias (cada registro precedido do byte
+ * {@code 1}, cada seção terminada pelo byte {@code 0}) e, por fim, o CRC32C de
+ * todos os bytes anteriores. Textos são gravados como tamanho e bytes UTF-8,
+ * com tamanho {@code -1} para {@code null}.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class SnapshotCatalogo {
+
+    private static final byte[] ASSINATURA = "ESTQSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMATO = 2;
+    /**
+     * Margem, em milissegundos, subtraída da versão ao buscar as alterações.
+     */
+    private static final long MARGEM_MILLIS = 60_000;
+
+    /**
+     * Caminho do arquivo de snapshot.
+     */
+    private final Path arquivo;
+    /**
+     * Thread que grava o snapshot periodicamente.
+     */
+    private ScheduledExecutorService gravador;
+
+    /**
+     * Cria o snapshot no caminho da chave {@code estoque.snapshot.arquivo}.
+     */
+    public SnapshotCatalogo() {
+        this(Paths.get(Configuracao.obter().getString("estoque.snapshot.arquivo")));
+    }
+
+    /**
+     * Cria o snapshot no caminho informado.
+     *
+     * @param arquivo caminho do arquivo de snapshot
+     */
+    public SnapshotCatalogo(Path arquivo) {
+        this.arquivo = arquivo;
+    }
+
+    /**
+     * Lê o catálogo do banco primário e grava um novo snapshot. O arquivo é
+     * escrito em um temporário e só então substitui o anterior. Também remove
+     * os registros de exclusão mais antigos que a retenção configurada.
+     *
+     * @return a versão gravada, em milissegundos
+     * @throws SQLException se ocorrer erro na leitura do banco
+     * @throws IOException se ocorrer erro na gravação do arquivo
+     */
+    public long gravar() throws SQLException, IOException {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+        long versao;
+
+        try (Connection conn = new Conexao().conectar()) {
+            if (conn == null) {
+                throw new SQLException("Não foi possível conectar ao banco de dados.");
+            }
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+            }
+
+            try (FileOutputStream arquivoSaida = new FileOutputStream(temporario.toFile());
+                    DataOutputStream saida = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(arquivoSaida, crc), 1 << 16))) {
+                versao = horarioBanco(conn);
+                saida.write(ASSINATURA);
+                saida.writeInt(FORMATO);
+                saida.writeLong(versao);
+
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        ProdutoDAO.SQL_PRODUTO + " ORDER BY p.id",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    stmt.setFetchSize(Integer.MIN_VALUE); // streaming de linhas no driver MySQL
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            saida.writeByte(1);
+                            saida.writeInt(rs.getInt(1));
+                            escreverTexto(saida, rs.getString(2));
+                            escreverTexto(saida, rs.getString(3));
+                            saida.writeInt(rs.getInt(4));
+                            saida.writeDouble(rs.getDouble(5));
+                            saida.writeInt(rs.getInt(6));
+                            saida.writeInt(rs.getInt(7));
+                            escreverTexto(saida, rs.getString(8));
+                            saida.writeInt(rs.getInt(9));
+                        }
+                    }
+                }
+                saida.writeByte(0);
+
+                try (Statement stmt = conn.createStatement();
+                        ResultSet rs = stmt.executeQuery("SELECT idcategoria, nome, tamanho, embalagem FROM categoria")) {
+                    while (rs.next()) {
+                        saida.writeByte(1);
+                        saida.writeInt(rs.getInt(1));
+                        escreverTexto(saida, rs.getString(2));
+                        escreverTexto(saida, rs.getString(3));
+                        escreverTexto(saida, rs.getString(4));
+                    }
+                }
+                saida.writeByte(0);
+
+                saida.flush();
+                saida.writeLong(crc.getValue());
+                saida.flush();
+                arquivoSaida.getFD().sync();
+            }
+            conn.commit();
+
+            try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM registro_excluido WHERE excluido_em < ?")) {
+                stmt.setTimestamp(1, new Timestamp(versao - retencaoMillis()));
+                stmt.executeUpdate();
+                conn.commit();
+            }
+        } catch (SQLException | IOException e) {
+            Files.deleteIfExists(temporario);
+            throw e;
+        }
+
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return versao;
+    }
+
+    /**
+     * Carrega o snapshot nos caches de produtos e de categorias.
+     *
+     * @param cache cache de produtos a ser preenchido
+     * @return a versão do snapshot, ou {@code -1} se o arquivo não existir,
+     * estiver corrompido ou for mais antigo que a retenção das exclusões
+     */
+    public long carregar(ProdutoCache cache) {
+        if (!Files.isRegularFile(arquivo)) {
+            return -1;
+        }
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho < ASSINATURA.length + 4 + 8 + 2 + 8 || tamanho > Integer.MAX_VALUE) {
+                System.out.println("Snapshot do catálogo com tamanho inválido; ignorado.");
+                return -1;
+            }
+            MappedByteBuffer dados = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanho);
+
+            CRC32C crc = new CRC32C();
+            crc.update(dados.slice(0, (int) tamanho - 8));
+            if (crc.getValue() != dados.getLong((int) tamanho - 8)) {
+                System.out.println("Snapshot do catálogo corrompido (CRC); ignorado.");
+                return -1;
+            }
+
+            byte[] assinatura = new byte[ASSINATURA.length];
+            dados.get(assinatura);
+            if (!Arrays.equals(assinatura, ASSINATURA) || dados.getInt() != FORMATO) {
+                System.out.println("Snapshot do catálogo em formato desconhecido; ignorado.");
+                return -1;
+            }
+            long versao = dados.getLong();
+            if (versao < System.currentTimeMillis() - retencaoMillis()) {
+                System.out.println("Snapshot do catálogo mais antigo que a retenção de exclusões; ignorado.");
+                return -1;
+            }
+
+            while (dados.get() == 1) {
+                Produto produto = new Produto();
+                produto.setId(dados.getInt());
+                produto.setNome(lerTexto(dados));
+                produto.setUnidade(lerTexto(dados));
+                produto.setQuantidade(dados.getInt());
+                produto.setPreco(dados.getDouble());
+                produto.setMin(dados.getInt());
+                produto.setMax(dados.getInt());
+                produto.setCategoria(lerTexto(dados));
+                produto.setVersao(dados.getInt());
+                cache.armazenar(produto);
+            }
+            List<Categoria> categorias = new ArrayList<>();
+            while (dados.get() == 1) {
+                categorias.add(new Categoria(dados.getInt(), lerTexto(dados), lerTexto(dados), lerTexto(dados)));
+            }
+            CategoriaDAO.armazenarCache(categorias);
+            return versao;
+
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            System.out.println("Erro ao carregar snapshot do catálogo: " + e.getMessage());
+            cache.limpar();
+            return -1;
+        }
+    }
+
+    /**
+     * Aplica aos caches as alterações feitas no banco desde a versão de um
+     * snapshot carregado.
+     *
+     * @param versao versão retornada por {@link #carregar(ProdutoCache)}
+     * @param cache cache de produtos preenchido pelo snapshot
+     * @return quantidade de produtos alterados ou excluídos
+     * @throws SQLException se ocorrer erro na leitura do banco
+     */
+    public int aplicarAlteracoes(long versao, ProdutoCache cache) throws SQLException {
+        Timestamp desde = new Timestamp(versao - MARGEM_MILLIS);
+        int alterados = 0;
+        boolean categoriasAlteradas = false;
+
+        try (Connection conn = new Conexao().conectar()) {
+            if (conn == null) {
+                throw new SQLException("Não foi possível conectar ao banco de dados.");
+            }
+            // As saídas pelas frações do estoque fracionado não alteram a
+            // linha do produto: esses produtos são relidos sempre
+            try (PreparedStatement stmt = conn.prepareStatement(ProdutoDAO.SQL_PRODUTO
+                    + " WHERE p.ultima_alteracao >= ? OR p.id IN (SELECT produto_id FROM estoque_fracao)")) {
+                stmt.setTimestamp(1, desde);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Produto produto = new Produto();
+                        produto.setId(rs.getInt(1));
+                        produto.setNome(rs.getString(2));
+                        produto.setUnidade(rs.getString(3));
+                        produto.setQuantidade(rs.getInt(4));
+                        produto.setPreco(rs.getDouble(5));
+                        produto.setMin(rs.getInt(6));
+                        produto.setMax(rs.getInt(7));
+                        produto.setCategoria(rs.getString(8));
+                        produto.setVersao(rs.getInt(9));
+                        cache.armazenar(produto);
+                        alterados++;
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT tabela, registro_id FROM registro_excluido WHERE excluido_em >= ?")) {
+                stmt.setTimestamp(1, desde);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        if ("produto".equals(rs.getString(1))) {
+                            cache.invalidar(rs.getInt(2));
+                            alterados++;
+                        } else {
+                            categoriasAlteradas = true;
+                        }
+                    }
+                }
+            }
+            if (!categoriasAlteradas) {
+                try (PreparedStatement stmt = conn.prepareStatement("SELECT 1 FROM categoria WHERE ultima_alteracao >= ? LIMIT 1")) {
+                    stmt.setTimestamp(1, desde);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        categoriasAlteradas = rs.next();
+                    }
+                }
+            }
+        }
+
+        if (categoriasAlteradas) {
+            new CategoriaDAO().carregarCache();
+        }
+        return alterados;
+    }
+
+    /**
+     * Inicia a gravação periódica do snapshot, no intervalo da chave
+     * {@code estoque.snapshot.intervalo.s} ({@code 0} desativa). Se ainda não
+     * houver arquivo, o primeiro é gravado imediatamente.
+     */
+    public synchronized void iniciarGravacaoPeriodica() {
+        long intervalo = Configuracao.obter().getLong("estoque.snapshot.intervalo.s");
+        if (gravador != null || intervalo <= 0) {
+            return;
+        }
+        gravador = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "snapshot-catalogo");
+            t.setDaemon(true);
+            return t;
+        });
+        gravador.scheduleWithFixedDelay(() -> {
+            try {
+                long inicio = System.nanoTime();
+                gravar();
+                System.out.println("Snapshot do catálogo gravado em " + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+            } catch (SQLException | IOException | RuntimeException e) {
+                System.err.println("Erro ao gravar snapshot do catálogo: " + e.getMessage());
+            }
+        }, Files.exists(arquivo) ? intervalo : 0, intervalo, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @return o caminho do arquivo de snapshot
+     */
+    public Path getArquivo() {
+        return arquivo;
+    }
+
+    private static long horarioBanco(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT NOW(3)")) {
+            rs.next();
+            return rs.getTimestamp(1).getTime();
+        }
+    }
+
+    private static long retencaoMillis() {
+        return Configuracao.obter().getLong("estoque.snapshot.retencao.h") * 3_600_000L;
+    }
+
+    private static void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+        if (texto == null) {
+            saida.writeInt(-1);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        saida.writeInt(bytes.length);
+        saida.write(bytes);
+    }
+
+    private static String lerTexto(ByteBuffer dados) {
+        int tamanho = dados.getInt();
+        if (tamanho < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[tamanho];
+        dados.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
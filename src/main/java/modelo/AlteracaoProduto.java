@@ -0,0 +1,169 @@
+package modelo;
+
+import java.io.Serializable;
+
+/**
+ * Alteração dos dados cadastrais de um produto, aplicada somente se o produto
+ * ainda estiver na versão lida pelo cliente.
+ *
+ * Só os campos preenchidos são alterados; os campos {@code null} mantêm o
+ * valor atual. A quantidade em estoque não faz parte da alteração: ela só
+ * muda por movimentações, de modo que editar o preço ou o nome de um produto
+ * nunca desfaz uma entrada ou saída registrada ao mesmo tempo.
+ *
+ * @author Hector
+ * @version 1.0
+ * @see Produto#getVersao()
+ */
+public class AlteracaoProduto implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * Identificador do produto alterado.
+     */
+    private int id;
+    /**
+     * Versão do produto lida pelo cliente antes da alteração.
+     */
+    private int versao;
+    /**
+     * Novo nome, ou {@code null} para manter o atual.
+     */
+    private String nome;
+    /**
+     * Nova unidade de medida, ou {@code null} para manter a atual.
+     */
+    private String unidade;
+    /**
+     * Novo preço, ou {@code null} para manter o atual.
+     */
+    private Double preco;
+    /**
+     * Nova quantidade mínima, ou {@code null} para manter a atual.
+     */
+    private Integer min;
+    /**
+     * Nova quantidade máxima, ou {@code null} para manter a atual.
+     */
+    private Integer max;
+    /**
+     * Nova categoria, ou {@code null} para manter a atual.
+     */
+    private String categoria;
+
+    /**
+     * Cria uma alteração sem campos preenchidos.
+     *
+     * @param id identificador do produto
+     * @param versao versão do produto lida pelo cliente
+     */
+    public AlteracaoProduto(int id, int versao) {
+        this.id = id;
+        this.versao = versao;
+    }
+
+    /**
+     * @return {@code true} se nenhum campo foi preenchido
+     */
+    public boolean isVazia() {
+        return nome == null && unidade == null && preco == null && min == null && max == null && categoria == null;
+    }
+
+    /**
+     * @return o ID do produto
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return a versão do produto lida pelo cliente
+     */
+    public int getVersao() {
+        return versao;
+    }
+
+    /**
+     * @return o novo nome, ou {@code null}
+     */
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * @param nome define o novo nome
+     */
+    public void setNome(String nome) {
+        this.nome = nome;
+    }
+
+    /**
+     * @return a nova unidade de medida, ou {@code null}
+     */
+    public String getUnidade() {
+        return unidade;
+    }
+
+    /**
+     * @param unidade define a nova unidade de medida
+     */
+    public void setUnidade(String unidade) {
+        this.unidade = unidade;
+    }
+
+    /**
+     * @return o novo preço, ou {@code null}
+     */
+    public Double getPreco() {
+        return preco;
+    }
+
+    /**
+     * @param preco define o novo preço
+     */
+    public void setPreco(Double preco) {
+        this.preco = preco;
+    }
+
+    /**
+     * @return a nova quantidade mínima, ou {@code null}
+     */
+    public Integer getMin() {
+        return min;
+    }
+
+    /**
+     * @param min define a nova quantidade mínima
+     */
+    public void setMin(Integer min) {
+        this.min = min;
+    }
+
+    /**
+     * @return a nova quantidade máxima, ou {@code null}
+     */
+    public Integer getMax() {
+        return max;
+    }
+
+    /**
+     * @param max define a nova quantidade máxima
+     */
+    public void setMax(Integer max) {
+        this.max = max;
+    }
+
+    /**
+     * @return a nova categoria, ou {@code null}
+     */
+    public String getCategoria() {
+        return categoria;
+    }
+
+    /**
+     * @param categoria define a nova categoria
+     */
+    public void setCategoria(String categoria) {
+        this.categoria = categoria;
+    }
+}
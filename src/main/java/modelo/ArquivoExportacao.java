@@ -0,0 +1,92 @@
+package modelo;
+
+import java.io.Serializable;
+
+/**
+ * Descrição de um arquivo de exportação gerado no servidor, baixado depois
+ * em blocos.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class ArquivoExportacao implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * Identificador usado para baixar e descartar o arquivo.
+     */
+    private final int id;
+    /**
+     * Nome sugerido para salvar o arquivo.
+     */
+    private final String nome;
+    /**
+     * Tamanho do arquivo, em bytes.
+     */
+    private final long tamanho;
+    /**
+     * Quantidade de registros exportados.
+     */
+    private final long registros;
+    /**
+     * Tempo gasto na geração, em milissegundos.
+     */
+    private final long duracaoMillis;
+
+    /**
+     * Construtor completo.
+     *
+     * @param id identificador do arquivo
+     * @param nome nome sugerido
+     * @param tamanho tamanho em bytes
+     * @param registros registros exportados
+     * @param duracaoMillis tempo de geração, em milissegundos
+     */
+    public ArquivoExportacao(int id, String nome, long tamanho, long registros, long duracaoMillis) {
+        this.id = id;
+        this.nome = nome;
+        this.tamanho = tamanho;
+        this.registros = registros;
+        this.duracaoMillis = duracaoMillis;
+    }
+
+    /**
+     * @return o identificador usado para baixar e descartar o arquivo
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return o nome sugerido para salvar o arquivo
+     */
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * @return o tamanho do arquivo, em bytes
+     */
+    public long getTamanho() {
+        return tamanho;
+    }
+
+    /**
+     * @return a quantidade de registros exportados
+     */
+    public long getRegistros() {
+        return registros;
+    }
+
+    /**
+     * @return o tempo gasto na geração, em milissegundos
+     */
+    public long getDuracaoMillis() {
+        return duracaoMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d registros, %d bytes, gerado em %d ms", nome, registros, tamanho, duracaoMillis);
+    }
+}
@@ -0,0 +1,105 @@
+package modelo;
+
+import java.io.Serializable;
+
+/**
+ * Execução de um comando SQL que passou do limite de tempo do log de
+ * consultas lentas.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class ConsultaLenta implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * Instante do fim da execução, em milissegundos desde a época.
+     */
+    private final long instante;
+    /**
+     * Duração, em milissegundos.
+     */
+    private final double duracaoMillis;
+    /**
+     * Linhas lidas ou alteradas.
+     */
+    private final long linhas;
+    /**
+     * Nome da fonte de dados (ex: "primaria", "replica-1").
+     */
+    private final String fonte;
+    /**
+     * SQL normalizado.
+     */
+    private final String impressao;
+    /**
+     * SQL executado, sem os valores dos parâmetros.
+     */
+    private final String sql;
+
+    /**
+     * Construtor completo.
+     *
+     * @param instante fim da execução, em milissegundos desde a época
+     * @param duracaoMillis duração
+     * @param linhas linhas lidas ou alteradas
+     * @param fonte nome da fonte de dados
+     * @param impressao SQL normalizado
+     * @param sql SQL executado
+     */
+    public ConsultaLenta(long instante, double duracaoMillis, long linhas, String fonte, String impressao, String sql) {
+        this.instante = instante;
+        this.duracaoMillis = duracaoMillis;
+        this.linhas = linhas;
+        this.fonte = fonte;
+        this.impressao = impressao;
+        this.sql = sql;
+    }
+
+    /**
+     * @return o instante do fim da execução, em milissegundos desde a época
+     */
+    public long getInstante() {
+        return instante;
+    }
+
+    /**
+     * @return a duração, em milissegundos
+     */
+    public double getDuracaoMillis() {
+        return duracaoMillis;
+    }
+
+    /**
+     * @return as linhas lidas ou alteradas
+     */
+    public long getLinhas() {
+        return linhas;
+    }
+
+    /**
+     * @return o nome da fonte de dados
+     */
+    public String getFonte() {
+        return fonte;
+    }
+
+    /**
+     * @return o SQL normalizado
+     */
+    public String getImpressao() {
+        return impressao;
+    }
+
+    /**
+     * @return o SQL executado, sem os valores dos parâmetros
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %.1f ms, %d linhas [%s]: %s", java.time.Instant.ofEpochMilli(instante), duracaoMillis, linhas, fonte, sql);
+    }
+}
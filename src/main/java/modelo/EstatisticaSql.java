@@ -0,0 +1,144 @@
+package modelo;
+
+import java.io.Serializable;
+
+/**
+ * Estatísticas de execução de um tipo de comando SQL no servidor.
+ *
+ * Comandos que só diferem nos valores literais têm a mesma impressão digital
+ * (o SQL normalizado, com os valores trocados por {@code ?}) e são somados
+ * juntos. Os tempos são medidos do início da execução até a leitura da última
+ * linha, e os percentis são aproximados por faixas de tempo.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class EstatisticaSql implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * SQL normalizado.
+     */
+    private final String impressao;
+    /**
+     * Quantidade de execuções.
+     */
+    private final long execucoes;
+    /**
+     * Linhas lidas ou alteradas, somadas.
+     */
+    private final long linhas;
+    /**
+     * Tempo total, em milissegundos.
+     */
+    private final double totalMillis;
+    /**
+     * Percentil 50 do tempo, em milissegundos.
+     */
+    private final double p50Millis;
+    /**
+     * Percentil 95 do tempo, em milissegundos.
+     */
+    private final double p95Millis;
+    /**
+     * Percentil 99 do tempo, em milissegundos.
+     */
+    private final double p99Millis;
+    /**
+     * Maior tempo, em milissegundos.
+     */
+    private final double maximoMillis;
+
+    /**
+     * Construtor completo.
+     *
+     * @param impressao SQL normalizado
+     * @param execucoes quantidade de execuções
+     * @param linhas linhas lidas ou alteradas
+     * @param totalMillis tempo total
+     * @param p50Millis percentil 50 do tempo
+     * @param p95Millis percentil 95 do tempo
+     * @param p99Millis percentil 99 do tempo
+     * @param maximoMillis maior tempo
+     */
+    public EstatisticaSql(String impressao, long execucoes, long linhas, double totalMillis,
+            double p50Millis, double p95Millis, double p99Millis, double maximoMillis) {
+        this.impressao = impressao;
+        this.execucoes = execucoes;
+        this.linhas = linhas;
+        this.totalMillis = totalMillis;
+        this.p50Millis = p50Millis;
+        this.p95Millis = p95Millis;
+        this.p99Millis = p99Millis;
+        this.maximoMillis = maximoMillis;
+    }
+
+    /**
+     * @return o SQL normalizado
+     */
+    public String getImpressao() {
+        return impressao;
+    }
+
+    /**
+     * @return a quantidade de execuções
+     */
+    public long getExecucoes() {
+        return execucoes;
+    }
+
+    /**
+     * @return as linhas lidas ou alteradas, somadas
+     */
+    public long getLinhas() {
+        return linhas;
+    }
+
+    /**
+     * @return o tempo total, em milissegundos
+     */
+    public double getTotalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * @return o tempo médio por execução, em milissegundos
+     */
+    public double getMediaMillis() {
+        return execucoes > 0 ? totalMillis / execucoes : 0;
+    }
+
+    /**
+     * @return o percentil 50 do tempo, em milissegundos
+     */
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    /**
+     * @return o percentil 95 do tempo, em milissegundos
+     */
+    public double getP95Millis() {
+        return p95Millis;
+    }
+
+    /**
+     * @return o percentil 99 do tempo, em milissegundos
+     */
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    /**
+     * @return o maior tempo, em milissegundos
+     */
+    public double getMaximoMillis() {
+        return maximoMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d execuções, %d linhas, total %.1f ms, média %.2f ms, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, máx %.2f ms: %s",
+                execucoes, linhas, totalMillis, getMediaMillis(), p50Millis, p95Millis, p99Millis, maximoMillis, impressao);
+    }
+}
@@ -0,0 +1,152 @@
+package modelo;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * Lista de movimentações de estoque armazenada em formato colunar.
+ *
+ * Cada campo de {@link RegistroMovimentacao} é mantido em um vetor próprio. O
+ * tipo da movimentação e a observação, que se repetem muito, são guardados em
+ * dicionários e referenciados por códigos inteiros, e a data é representada
+ * pelo número de dias desde 1970-01-01 ({@link LocalDate#toEpochDay()}). Um
+ * código {@code -1} representa valor nulo.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class MovimentacoesColunar implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * IDs dos registros de movimentação.
+     */
+    private final int[] ids;
+    /**
+     * IDs dos produtos movimentados.
+     */
+    private final int[] produtoIds;
+    /**
+     * Quantidades movimentadas.
+     */
+    private final int[] quantidades;
+    /**
+     * Datas das movimentações, em dias desde 1970-01-01.
+     */
+    private final int[] datas;
+    /**
+     * Dicionário de tipos de movimentação distintos.
+     */
+    private final String[] dicionarioTipos;
+    /**
+     * Código do tipo de cada movimentação no dicionário.
+     */
+    private final int[] tipos;
+    /**
+     * Dicionário de observações distintas.
+     */
+    private final String[] dicionarioObservacoes;
+    /**
+     * Código da observação de cada movimentação no dicionário.
+     */
+    private final int[] observacoes;
+
+    /**
+     * Construtor completo. Todos os vetores por movimentação devem possuir o
+     * mesmo tamanho.
+     *
+     * @param ids IDs dos registros
+     * @param produtoIds IDs dos produtos
+     * @param quantidades quantidades movimentadas
+     * @param datas datas em dias desde 1970-01-01
+     * @param dicionarioTipos tipos distintos
+     * @param tipos códigos de tipo por movimentação
+     * @param dicionarioObservacoes observações distintas
+     * @param observacoes códigos de observação por movimentação
+     */
+    public MovimentacoesColunar(int[] ids, int[] produtoIds, int[] quantidades, int[] datas,
+            String[] dicionarioTipos, int[] tipos, String[] dicionarioObservacoes, int[] observacoes) {
+        this.ids = ids;
+        this.produtoIds = produtoIds;
+        this.quantidades = quantidades;
+        this.datas = datas;
+        this.dicionarioTipos = dicionarioTipos;
+        this.tipos = tipos;
+        this.dicionarioObservacoes = dicionarioObservacoes;
+        this.observacoes = observacoes;
+    }
+
+    /**
+     * @return a quantidade de movimentações da lista
+     */
+    public int tamanho() {
+        return ids.length;
+    }
+
+    /**
+     * @param i posição da movimentação
+     * @return o ID do registro
+     */
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    /**
+     * @param i posição da movimentação
+     * @return o ID do produto movimentado
+     */
+    public int getProdutoId(int i) {
+        return produtoIds[i];
+    }
+
+    /**
+     * @param i posição da movimentação
+     * @return a quantidade movimentada
+     */
+    public int getQuantidade(int i) {
+        return quantidades[i];
+    }
+
+    /**
+     * @param i posição da movimentação
+     * @return a data em dias desde 1970-01-01
+     */
+    public int getDiaMovimentacao(int i) {
+        return datas[i];
+    }
+
+    /**
+     * @param i posição da movimentação
+     * @return a data da movimentação no formato ISO (aaaa-mm-dd)
+     */
+    public String getDataMovimentacao(int i) {
+        return LocalDate.ofEpochDay(datas[i]).toString();
+    }
+
+    /**
+     * @param i posição da movimentação
+     * @return o tipo da movimentação, ou {@code null}
+     */
+    public String getTipoMovimentacao(int i) {
+        return tipos[i] < 0 ? null : dicionarioTipos[tipos[i]];
+    }
+
+    /**
+     * @param i posição da movimentação
+     * @return a observação da movimentação, ou {@code null}
+     */
+    public String getObservacao(int i) {
+        return observacoes[i] < 0 ? null : dicionarioObservacoes[observacoes[i]];
+    }
+
+    /**
+     * Monta um objeto {@link RegistroMovimentacao} a partir da posição
+     * informada.
+     *
+     * @param i posição da movimentação
+     * @return novo objeto {@link RegistroMovimentacao} com os dados da linha
+     */
+    public RegistroMovimentacao paraRegistro(int i) {
+        return new RegistroMovimentacao(ids[i], produtoIds[i], getTipoMovimentacao(i), quantidades[i], getObservacao(i), getDataMovimentacao(i));
+    }
+}
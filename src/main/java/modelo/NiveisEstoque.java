@@ -0,0 +1,120 @@
+package modelo;
+
+import java.io.Serializable;
+
+/**
+ * Projeção leve dos níveis de estoque dos produtos, contendo apenas ID, nome,
+ * quantidade atual e limites mínimo e máximo.
+ *
+ * Os dados são guardados em vetores paralelos em vez de uma lista de
+ * {@link Produto}, o que reduz a quantidade de objetos criados por linha e o
+ * volume transmitido via RMI. A posição {@code i} de cada vetor corresponde ao
+ * mesmo produto.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class NiveisEstoque implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * IDs dos produtos.
+     */
+    private final int[] ids;
+    /**
+     * Nomes dos produtos.
+     */
+    private final String[] nomes;
+    /**
+     * Quantidades atuais em estoque.
+     */
+    private final int[] quantidades;
+    /**
+     * Quantidades mínimas permitidas.
+     */
+    private final int[] minimos;
+    /**
+     * Quantidades máximas permitidas.
+     */
+    private final int[] maximos;
+
+    /**
+     * Construtor completo. Todos os vetores devem possuir o mesmo tamanho.
+     *
+     * @param ids IDs dos produtos
+     * @param nomes nomes dos produtos
+     * @param quantidades quantidades atuais
+     * @param minimos quantidades mínimas
+     * @param maximos quantidades máximas
+     */
+    public NiveisEstoque(int[] ids, String[] nomes, int[] quantidades, int[] minimos, int[] maximos) {
+        this.ids = ids;
+        this.nomes = nomes;
+        this.quantidades = quantidades;
+        this.minimos = minimos;
+        this.maximos = maximos;
+    }
+
+    /**
+     * @return a quantidade de produtos contidos na projeção
+     */
+    public int tamanho() {
+        return ids.length;
+    }
+
+    /**
+     * @param i posição do produto
+     * @return o ID do produto na posição informada
+     */
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return o nome do produto na posição informada
+     */
+    public String getNome(int i) {
+        return nomes[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return a quantidade em estoque do produto na posição informada
+     */
+    public int getQuantidade(int i) {
+        return quantidades[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return a quantidade mínima do produto na posição informada
+     */
+    public int getMin(int i) {
+        return minimos[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return a quantidade máxima do produto na posição informada
+     */
+    public int getMax(int i) {
+        return maximos[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return {@code true} se o produto estiver abaixo da quantidade mínima
+     */
+    public boolean abaixoDoMinimo(int i) {
+        return quantidades[i] < minimos[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return {@code true} se o produto estiver acima da quantidade máxima
+     */
+    public boolean acimaDoMaximo(int i) {
+        return quantidades[i] > maximos[i];
+    }
+}
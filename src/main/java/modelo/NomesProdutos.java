@@ -0,0 +1,60 @@
+package modelo;
+
+import java.io.Serializable;
+
+/**
+ * Projeção contendo apenas o ID e o nome dos produtos, usada para listas de
+ * seleção e buscas rápidas no cliente.
+ *
+ * Os dados são mantidos em dois vetores paralelos: a posição {@code i} de
+ * {@code ids} corresponde à posição {@code i} de {@code nomes}.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class NomesProdutos implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * IDs dos produtos.
+     */
+    private final int[] ids;
+    /**
+     * Nomes dos produtos.
+     */
+    private final String[] nomes;
+
+    /**
+     * Construtor completo. Os dois vetores devem possuir o mesmo tamanho.
+     *
+     * @param ids IDs dos produtos
+     * @param nomes nomes dos produtos
+     */
+    public NomesProdutos(int[] ids, String[] nomes) {
+        this.ids = ids;
+        this.nomes = nomes;
+    }
+
+    /**
+     * @return a quantidade de produtos contidos na projeção
+     */
+    public int tamanho() {
+        return ids.length;
+    }
+
+    /**
+     * @param i posição do produto
+     * @return o ID do produto na posição informada
+     */
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return o nome do produto na posição informada
+     */
+    public String getNome(int i) {
+        return nomes[i];
+    }
+}
@@ -45,6 +45,11 @@ public class Produto implements Serializable {
      * Categoria à qual o produto pertence.
      */
     private String categoria;
+    /**
+     * Versão dos dados cadastrais, incrementada a cada alteração deles.
+     * Movimentações de estoque não mudam a versão.
+     */
+    private int versao;
 
     /**
      * Construtor padrão. Inicializa o produto com valores padrão.
@@ -76,6 +81,16 @@ public class Produto implements Serializable {
         this.categoria = categoria;
     }
 
+    /**
+     * Construtor de cópia.
+     *
+     * @param outro produto cujos dados são copiados
+     */
+    public Produto(Produto outro) {
+        this(outro.id, outro.nome, outro.unidade, outro.preco, outro.quantidade, outro.min, outro.max, outro.categoria);
+        this.versao = outro.versao;
+    }
+
     /**
      * @return o ID do produto
      */
@@ -188,6 +203,20 @@ public class Produto implements Serializable {
         this.categoria = nomeCategoria;
     }
 
+    /**
+     * @return a versão dos dados cadastrais do produto
+     */
+    public int getVersao() {
+        return versao;
+    }
+
+    /**
+     * @param versao define a versão dos dados cadastrais do produto
+     */
+    public void setVersao(int versao) {
+        this.versao = versao;
+    }
+
     /**
      * Retorna o nome do produto como representação textual.
      *
@@ -0,0 +1,186 @@
+package modelo;
+
+import java.io.Serializable;
+
+/**
+ * Lista de produtos armazenada em formato colunar.
+ *
+ * Em vez de um objeto {@link Produto} por linha, cada campo é mantido em um
+ * vetor próprio, e os textos que se repetem muito (categoria e unidade) são
+ * guardados uma única vez em um dicionário, sendo referenciados por códigos
+ * inteiros. Isso reduz o consumo de memória e o volume serializado em
+ * listagens grandes. Um código {@code -1} representa valor nulo.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class ProdutosColunar implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * IDs dos produtos.
+     */
+    private final int[] ids;
+    /**
+     * Nomes dos produtos.
+     */
+    private final String[] nomes;
+    /**
+     * Quantidades em estoque.
+     */
+    private final int[] quantidades;
+    /**
+     * Preços unitários.
+     */
+    private final double[] precos;
+    /**
+     * Quantidades mínimas.
+     */
+    private final int[] minimos;
+    /**
+     * Quantidades máximas.
+     */
+    private final int[] maximos;
+    /**
+     * Dicionário de unidades distintas.
+     */
+    private final String[] dicionarioUnidades;
+    /**
+     * Código da unidade de cada produto no dicionário.
+     */
+    private final int[] unidades;
+    /**
+     * Dicionário de categorias distintas.
+     */
+    private final String[] dicionarioCategorias;
+    /**
+     * Código da categoria de cada produto no dicionário.
+     */
+    private final int[] categorias;
+
+    /**
+     * Construtor completo. Todos os vetores por produto devem possuir o mesmo
+     * tamanho.
+     *
+     * @param ids IDs dos produtos
+     * @param nomes nomes dos produtos
+     * @param quantidades quantidades em estoque
+     * @param precos preços unitários
+     * @param minimos quantidades mínimas
+     * @param maximos quantidades máximas
+     * @param dicionarioUnidades unidades distintas
+     * @param unidades códigos de unidade por produto
+     * @param dicionarioCategorias categorias distintas
+     * @param categorias códigos de categoria por produto
+     */
+    public ProdutosColunar(int[] ids, String[] nomes, int[] quantidades, double[] precos, int[] minimos, int[] maximos,
+            String[] dicionarioUnidades, int[] unidades, String[] dicionarioCategorias, int[] categorias) {
+        this.ids = ids;
+        this.nomes = nomes;
+        this.quantidades = quantidades;
+        this.precos = precos;
+        this.minimos = minimos;
+        this.maximos = maximos;
+        this.dicionarioUnidades = dicionarioUnidades;
+        this.unidades = unidades;
+        this.dicionarioCategorias = dicionarioCategorias;
+        this.categorias = categorias;
+    }
+
+    /**
+     * @return a quantidade de produtos da lista
+     */
+    public int tamanho() {
+        return ids.length;
+    }
+
+    /**
+     * @param i posição do produto
+     * @return o ID do produto
+     */
+    public int getId(int i) {
+        return ids[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return o nome do produto
+     */
+    public String getNome(int i) {
+        return nomes[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return a quantidade em estoque
+     */
+    public int getQuantidade(int i) {
+        return quantidades[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return o preço unitário
+     */
+    public double getPreco(int i) {
+        return precos[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return a quantidade mínima
+     */
+    public int getMin(int i) {
+        return minimos[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return a quantidade máxima
+     */
+    public int getMax(int i) {
+        return maximos[i];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return a unidade de medida, ou {@code null}
+     */
+    public String getUnidade(int i) {
+        return unidades[i] < 0 ? null : dicionarioUnidades[unidades[i]];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return a categoria, ou {@code null}
+     */
+    public String getCategoria(int i) {
+        return categorias[i] < 0 ? null : dicionarioCategorias[categorias[i]];
+    }
+
+    /**
+     * @param i posição do produto
+     * @return o código da categoria do produto no dicionário
+     */
+    public int getCodigoCategoria(int i) {
+        return categorias[i];
+    }
+
+    /**
+     * @return as categorias distintas presentes na lista, indexadas pelo
+     * código
+     */
+    public String[] getDicionarioCategorias() {
+        return dicionarioCategorias;
+    }
+
+    /**
+     * Monta um objeto {@link Produto} a partir da posição informada.
+     *
+     * @param i posição do produto
+     * @return novo objeto {@link Produto} com os dados da linha
+     */
+    public Produto paraProduto(int i) {
+        return new Produto(ids[i], nomes[i], getUnidade(i), precos[i], quantidades[i], minimos[i], maximos[i], getCategoria(i));
+    }
+}
@@ -26,6 +26,8 @@ public class RegistroMovimentacao implements Serializable {
     private String observacao;
     /** Data em que a movimentação foi realizada. */
     private String dataMovimentacao;
+    /** Identificador gerado pelo cliente para evitar registros duplicados em reenvios. */
+    private String requestId;
     /**
      * Construtor padrão.
      * Inicializa um objeto vazio de {@code RegistroMovimentacao}.
@@ -98,6 +100,14 @@ public class RegistroMovimentacao implements Serializable {
 public void setDataMovimentacao(String dataMovimentacao) {
     this.dataMovimentacao = dataMovimentacao;
 }
+/** @return identificador da requisição gerado pelo cliente, ou {@code null} */
+    public String getRequestId() {
+        return requestId;
+    }
+/** @param requestId define o identificador da requisição gerado pelo cliente */
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
     /**
      * Retorna uma representação textual do registro de movimentação.
      * 
@@ -0,0 +1,133 @@
+package modelo;
+
+import java.io.Serializable;
+
+/**
+ * Indicadores de estoque de uma categoria, calculados no servidor.
+ *
+ * Reúne o valor em estoque (soma de {@code preco × quantidade}), a
+ * quantidade de produtos abaixo do mínimo e as unidades que entraram e saíram
+ * no período do relatório, usadas para calcular o giro.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class RelatorioCategoria implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * Nome da categoria ({@code null} para produtos sem categoria).
+     */
+    private final String categoria;
+    /**
+     * Quantidade de produtos da categoria.
+     */
+    private final int produtos;
+    /**
+     * Soma das quantidades em estoque.
+     */
+    private final long unidades;
+    /**
+     * Soma de {@code preco × quantidade}.
+     */
+    private final double valorEstoque;
+    /**
+     * Quantidade de produtos com estoque abaixo do mínimo.
+     */
+    private final int abaixoMinimo;
+    /**
+     * Unidades que entraram no período.
+     */
+    private final long entradas;
+    /**
+     * Unidades que saíram no período.
+     */
+    private final long saidas;
+
+    /**
+     * Construtor completo.
+     *
+     * @param categoria nome da categoria
+     * @param produtos quantidade de produtos
+     * @param unidades soma das quantidades em estoque
+     * @param valorEstoque soma de {@code preco × quantidade}
+     * @param abaixoMinimo produtos abaixo do mínimo
+     * @param entradas unidades que entraram no período
+     * @param saidas unidades que saíram no período
+     */
+    public RelatorioCategoria(String categoria, int produtos, long unidades, double valorEstoque,
+            int abaixoMinimo, long entradas, long saidas) {
+        this.categoria = categoria;
+        this.produtos = produtos;
+        this.unidades = unidades;
+        this.valorEstoque = valorEstoque;
+        this.abaixoMinimo = abaixoMinimo;
+        this.entradas = entradas;
+        this.saidas = saidas;
+    }
+
+    /**
+     * @return o nome da categoria, ou {@code null} para produtos sem categoria
+     */
+    public String getCategoria() {
+        return categoria;
+    }
+
+    /**
+     * @return a quantidade de produtos da categoria
+     */
+    public int getProdutos() {
+        return produtos;
+    }
+
+    /**
+     * @return a soma das quantidades em estoque
+     */
+    public long getUnidades() {
+        return unidades;
+    }
+
+    /**
+     * @return a soma de {@code preco × quantidade}
+     */
+    public double getValorEstoque() {
+        return valorEstoque;
+    }
+
+    /**
+     * @return a quantidade de produtos com estoque abaixo do mínimo
+     */
+    public int getAbaixoMinimo() {
+        return abaixoMinimo;
+    }
+
+    /**
+     * @return as unidades que entraram no período
+     */
+    public long getEntradas() {
+        return entradas;
+    }
+
+    /**
+     * @return as unidades que saíram no período
+     */
+    public long getSaidas() {
+        return saidas;
+    }
+
+    /**
+     * Giro do estoque no período: unidades que saíram divididas pelas
+     * unidades em estoque.
+     *
+     * @return o giro, ou {@code 0} se não houver estoque
+     */
+    public double getGiro() {
+        return unidades > 0 ? (double) saidas / unidades : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d produtos, %d unidades, valor %.2f, %d abaixo do mínimo, giro %.2f",
+                categoria, produtos, unidades, valorEstoque, abaixoMinimo, getGiro());
+    }
+}
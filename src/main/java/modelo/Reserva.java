@@ -0,0 +1,99 @@
+package modelo;
+
+import java.io.Serializable;
+
+/**
+ * Representa uma reserva temporária de estoque.
+ *
+ * Uma reserva separa uma quantidade de um produto por um tempo limitado (por
+ * exemplo, durante o checkout de uma compra). Enquanto estiver ativa, a
+ * quantidade reservada não fica disponível para outras saídas. Ao ser
+ * confirmada, a reserva se transforma em uma saída de estoque; se for liberada
+ * ou expirar, a quantidade volta a ficar disponível.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class Reserva implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * Identificador único da reserva.
+     */
+    private int id;
+    /**
+     * Identificador do produto reservado.
+     */
+    private int produtoId;
+    /**
+     * Quantidade reservada.
+     */
+    private int quantidade;
+    /**
+     * Instante de expiração, em milissegundos desde 1970-01-01 (UTC).
+     */
+    private long expiraEm;
+
+    /**
+     * Construtor completo.
+     *
+     * @param id identificador da reserva
+     * @param produtoId identificador do produto reservado
+     * @param quantidade quantidade reservada
+     * @param expiraEm instante de expiração em milissegundos
+     */
+    public Reserva(int id, int produtoId, int quantidade, long expiraEm) {
+        this.id = id;
+        this.produtoId = produtoId;
+        this.quantidade = quantidade;
+        this.expiraEm = expiraEm;
+    }
+
+    /**
+     * @return o ID da reserva
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @param id define o ID da reserva
+     */
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * @return o ID do produto reservado
+     */
+    public int getProdutoId() {
+        return produtoId;
+    }
+
+    /**
+     * @return a quantidade reservada
+     */
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    /**
+     * @return o instante de expiração em milissegundos
+     */
+    public long getExpiraEm() {
+        return expiraEm;
+    }
+
+    /**
+     * @param agora instante de referência em milissegundos
+     * @return {@code true} se a reserva já expirou no instante informado
+     */
+    public boolean expirada(long agora) {
+        return expiraEm <= agora;
+    }
+
+    @Override
+    public String toString() {
+        return "Reserva{id=" + id + ", produtoId=" + produtoId + ", quantidade=" + quantidade + ", expiraEm=" + expiraEm + '}';
+    }
+}
@@ -0,0 +1,142 @@
+package modelo;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Progresso ou resultado final de uma importação de produtos em massa.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class ResultadoImportacao implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * Linhas de dados lidas até o momento (sem o cabeçalho e linhas vazias).
+     */
+    private final long linhasLidas;
+    /**
+     * Produtos gravados (inseridos ou atualizados).
+     */
+    private final long gravados;
+    /**
+     * Produtos gravados que tinham ID, isto é, atualizados ou inseridos com o
+     * ID informado.
+     */
+    private final long atualizados;
+    /**
+     * Linhas rejeitadas na validação ou na gravação.
+     */
+    private final long rejeitadas;
+    /**
+     * Mensagens de erro por linha, limitadas à quantidade configurada.
+     */
+    private final List<String> erros;
+    /**
+     * Se a importação terminou (com sucesso ou não).
+     */
+    private final boolean concluida;
+    /**
+     * Erro que interrompeu a importação, ou {@code null}.
+     */
+    private final String falha;
+    /**
+     * Tempo decorrido desde o início, em milissegundos.
+     */
+    private final long duracaoMillis;
+
+    /**
+     * Construtor completo.
+     *
+     * @param linhasLidas linhas de dados lidas
+     * @param gravados produtos gravados
+     * @param atualizados produtos gravados que tinham ID
+     * @param rejeitadas linhas rejeitadas
+     * @param erros mensagens de erro por linha
+     * @param concluida se a importação terminou
+     * @param falha erro que interrompeu a importação, ou {@code null}
+     * @param duracaoMillis tempo decorrido, em milissegundos
+     */
+    public ResultadoImportacao(long linhasLidas, long gravados, long atualizados, long rejeitadas,
+            List<String> erros, boolean concluida, String falha, long duracaoMillis) {
+        this.linhasLidas = linhasLidas;
+        this.gravados = gravados;
+        this.atualizados = atualizados;
+        this.rejeitadas = rejeitadas;
+        this.erros = erros;
+        this.concluida = concluida;
+        this.falha = falha;
+        this.duracaoMillis = duracaoMillis;
+    }
+
+    /**
+     * @return as linhas de dados lidas até o momento
+     */
+    public long getLinhasLidas() {
+        return linhasLidas;
+    }
+
+    /**
+     * @return os produtos gravados (inseridos ou atualizados)
+     */
+    public long getGravados() {
+        return gravados;
+    }
+
+    /**
+     * @return os produtos gravados que tinham ID
+     */
+    public long getAtualizados() {
+        return atualizados;
+    }
+
+    /**
+     * @return as linhas rejeitadas na validação ou na gravação
+     */
+    public long getRejeitadas() {
+        return rejeitadas;
+    }
+
+    /**
+     * @return as mensagens de erro por linha (limitadas)
+     */
+    public List<String> getErros() {
+        return erros;
+    }
+
+    /**
+     * @return {@code true} se a importação terminou
+     */
+    public boolean isConcluida() {
+        return concluida;
+    }
+
+    /**
+     * @return o erro que interrompeu a importação, ou {@code null}
+     */
+    public String getFalha() {
+        return falha;
+    }
+
+    /**
+     * @return o tempo decorrido desde o início, em milissegundos
+     */
+    public long getDuracaoMillis() {
+        return duracaoMillis;
+    }
+
+    /**
+     * @return produtos gravados por segundo desde o início
+     */
+    public double getLinhasPorSegundo() {
+        return duracaoMillis > 0 ? gravados * 1000.0 / duracaoMillis : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lidas, %d gravadas (%d com ID), %d rejeitadas em %d ms%s%s",
+                linhasLidas, gravados, atualizados, rejeitadas, duracaoMillis,
+                concluida ? "" : " (em andamento)", falha != null ? " - falha: " + falha : "");
+    }
+}
@@ -0,0 +1,155 @@
+package modelo;
+
+import java.io.Serializable;
+
+/**
+ * Sugestão de reposição de um produto, calculada a partir da demanda diária
+ * estimada pelo servidor.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class SugestaoReposicao implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * ID do produto.
+     */
+    private final int produtoId;
+    /**
+     * Nome do produto.
+     */
+    private final String nome;
+    /**
+     * Quantidade atual em estoque.
+     */
+    private final int quantidade;
+    /**
+     * Estoque mínimo do produto.
+     */
+    private final int min;
+    /**
+     * Estoque máximo do produto.
+     */
+    private final int max;
+    /**
+     * Média móvel exponencial das saídas diárias.
+     */
+    private final double mediaDiaria;
+    /**
+     * Desvio padrão exponencial das saídas diárias.
+     */
+    private final double desvioDiario;
+    /**
+     * Ponto de reposição: quantidade abaixo da qual o produto deve ser
+     * reposto.
+     */
+    private final double pontoReposicao;
+    /**
+     * Quantidade sugerida para a compra.
+     */
+    private final int quantidadeSugerida;
+
+    /**
+     * Construtor completo.
+     *
+     * @param produtoId ID do produto
+     * @param nome nome do produto
+     * @param quantidade quantidade atual
+     * @param min estoque mínimo
+     * @param max estoque máximo
+     * @param mediaDiaria média das saídas diárias
+     * @param desvioDiario desvio padrão das saídas diárias
+     * @param pontoReposicao ponto de reposição
+     * @param quantidadeSugerida quantidade sugerida para a compra
+     */
+    public SugestaoReposicao(int produtoId, String nome, int quantidade, int min, int max, double mediaDiaria,
+            double desvioDiario, double pontoReposicao, int quantidadeSugerida) {
+        this.produtoId = produtoId;
+        this.nome = nome;
+        this.quantidade = quantidade;
+        this.min = min;
+        this.max = max;
+        this.mediaDiaria = mediaDiaria;
+        this.desvioDiario = desvioDiario;
+        this.pontoReposicao = pontoReposicao;
+        this.quantidadeSugerida = quantidadeSugerida;
+    }
+
+    /**
+     * @return o ID do produto
+     */
+    public int getProdutoId() {
+        return produtoId;
+    }
+
+    /**
+     * @return o nome do produto
+     */
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * @return a quantidade atual em estoque
+     */
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    /**
+     * @return o estoque mínimo do produto
+     */
+    public int getMin() {
+        return min;
+    }
+
+    /**
+     * @return o estoque máximo do produto
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * @return a média móvel exponencial das saídas diárias
+     */
+    public double getMediaDiaria() {
+        return mediaDiaria;
+    }
+
+    /**
+     * @return o desvio padrão exponencial das saídas diárias
+     */
+    public double getDesvioDiario() {
+        return desvioDiario;
+    }
+
+    /**
+     * @return o ponto de reposição
+     */
+    public double getPontoReposicao() {
+        return pontoReposicao;
+    }
+
+    /**
+     * @return a quantidade sugerida para a compra
+     */
+    public int getQuantidadeSugerida() {
+        return quantidadeSugerida;
+    }
+
+    /**
+     * @return os dias que o estoque atual dura na demanda média, ou
+     * {@link Double#POSITIVE_INFINITY} se não houver demanda
+     */
+    public double getDiasCobertura() {
+        return mediaDiaria > 0 ? Math.max(0, quantidade) / mediaDiaria : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (ID %d): %d em estoque, %.1f/dia, cobertura %.1f dias, repor %d",
+                nome, produtoId, quantidade, mediaDiaria, getDiasCobertura(), quantidadeSugerida);
+    }
+}
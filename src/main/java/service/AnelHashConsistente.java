@@ -0,0 +1,224 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Anel de hash consistente que distribui os IDs de produto entre os nós do
+ * cluster.
+ *
+ * Cada nó ocupa vários pontos virtuais no anel de inteiros de 32 bits. Um
+ * produto pertence ao nó do primeiro ponto igual ou posterior ao hash do seu
+ * ID, dando a volta no anel quando necessário. Ao incluir um nó, apenas as
+ * faixas de hash cobertas pelos seus novos pontos mudam de dono; essas faixas
+ * são devolvidas para que o estado correspondente seja transferido.
+ *
+ * Esta classe não é sincronizada; quem a utiliza deve controlar o acesso
+ * concorrente.
+ *
+ * @param <T> tipo que representa um nó do cluster
+ * @author Hector
+ * @version 1.0
+ */
+public class AnelHashConsistente<T> {
+
+    /**
+     * Faixa de hash {@code (inicio, fim]} transferida de um nó para outro. Uma
+     * faixa com {@code inicio > fim} dá a volta no anel; uma faixa com
+     * {@code inicio == fim} representa o anel inteiro.
+     */
+    public static final class Faixa {
+
+        /**
+         * Início da faixa (exclusivo).
+         */
+        public final int inicio;
+        /**
+         * Fim da faixa (inclusivo).
+         */
+        public final int fim;
+        /**
+         * Nome do nó que era dono da faixa, ou {@code null} se o anel estava
+         * vazio.
+         */
+        public final String doador;
+
+        Faixa(int inicio, int fim, String doador) {
+            this.inicio = inicio;
+            this.fim = fim;
+            this.doador = doador;
+        }
+    }
+
+    /**
+     * Quantidade de pontos virtuais por nó.
+     */
+    private final int pontosPorNo;
+    /**
+     * Pontos do anel, associados ao nome do nó dono.
+     */
+    private final TreeMap<Integer, String> pontos = new TreeMap<>();
+    /**
+     * Nós do cluster, indexados pelo nome.
+     */
+    private final Map<String, T> nos = new LinkedHashMap<>();
+
+    /**
+     * Cria um anel vazio.
+     *
+     * @param pontosPorNo quantidade de pontos virtuais por nó
+     */
+    public AnelHashConsistente(int pontosPorNo) {
+        this.pontosPorNo = pontosPorNo;
+    }
+
+    /**
+     * Calcula a posição de um produto no anel.
+     *
+     * @param produtoId ID do produto
+     * @return hash do ID, bem distribuído no intervalo de inteiros
+     */
+    public static int hashProduto(int produtoId) {
+        return misturar(produtoId);
+    }
+
+    /**
+     * Verifica se um hash pertence à faixa {@code (inicio, fim]}.
+     *
+     * @param hash posição no anel
+     * @param inicio início da faixa (exclusivo)
+     * @param fim fim da faixa (inclusivo)
+     * @return {@code true} se o hash estiver na faixa
+     */
+    public static boolean naFaixa(int hash, int inicio, int fim) {
+        if (inicio == fim) {
+            return true;
+        }
+        if (inicio < fim) {
+            return hash > inicio && hash <= fim;
+        }
+        return hash > inicio || hash <= fim;
+    }
+
+    /**
+     * Inclui um nó no anel.
+     *
+     * @param nome nome único do nó
+     * @param no referência ao nó
+     * @return faixas que passaram a pertencer ao novo nó, com o nome do nó que
+     * as possuía antes
+     */
+    public List<Faixa> adicionar(String nome, T no) {
+        if (nos.containsKey(nome)) {
+            throw new IllegalArgumentException("Nó já pertence ao anel: " + nome);
+        }
+
+        List<Faixa> transferidas = new ArrayList<>();
+        if (pontos.isEmpty()) {
+            transferidas.add(new Faixa(0, 0, null));
+        }
+
+        TreeMap<Integer, String> anteriores = new TreeMap<>(pontos);
+        nos.put(nome, no);
+        for (int i = 0; i < pontosPorNo; i++) {
+            pontos.putIfAbsent(misturar((nome + "#" + i).hashCode()), nome);
+        }
+
+        if (!anteriores.isEmpty()) {
+            for (Map.Entry<Integer, String> ponto : pontos.entrySet()) {
+                if (!ponto.getValue().equals(nome) || anteriores.containsKey(ponto.getKey())) {
+                    continue;
+                }
+                Integer anterior = pontos.lowerKey(ponto.getKey());
+                if (anterior == null) {
+                    anterior = pontos.lastKey();
+                }
+                if (nome.equals(pontos.get(anterior))) {
+                    continue; // faixa contínua, já coberta a partir do ponto anterior
+                }
+                // Volta até o início da sequência de pontos consecutivos deste nó
+                transferidas.add(new Faixa(anterior, ultimoPontoConsecutivo(ponto.getKey(), nome),
+                        donoEm(anteriores, ponto.getKey())));
+            }
+        }
+        return transferidas;
+    }
+
+    /**
+     * Retorna o nó dono de um produto.
+     *
+     * @param produtoId ID do produto
+     * @return o nó dono, ou {@code null} se o anel estiver vazio
+     */
+    public T donoDe(int produtoId) {
+        String nome = donoEm(pontos, hashProduto(produtoId));
+        return nome == null ? null : nos.get(nome);
+    }
+
+    /**
+     * @param nome nome do nó
+     * @return o nó com o nome informado, ou {@code null}
+     */
+    public T no(String nome) {
+        return nos.get(nome);
+    }
+
+    /**
+     * @return os nós do anel, na ordem em que foram incluídos
+     */
+    public Collection<T> nos() {
+        return nos.values();
+    }
+
+    /**
+     * @return os nomes dos nós do anel, na ordem em que foram incluídos
+     */
+    public Collection<String> nomes() {
+        return nos.keySet();
+    }
+
+    /**
+     * Percorre os pontos seguintes enquanto pertencerem ao mesmo nó,
+     * devolvendo o último deles.
+     */
+    private int ultimoPontoConsecutivo(int ponto, String nome) {
+        int atual = ponto;
+        while (true) {
+            Integer proximo = pontos.higherKey(atual);
+            if (proximo == null) {
+                proximo = pontos.firstKey();
+            }
+            if (proximo == ponto || !nome.equals(pontos.get(proximo))) {
+                return atual;
+            }
+            atual = proximo;
+        }
+    }
+
+    /**
+     * Retorna o nome do dono de uma posição no mapa de pontos informado.
+     */
+    private static String donoEm(TreeMap<Integer, String> mapa, int hash) {
+        if (mapa.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Integer, String> ponto = mapa.ceilingEntry(hash);
+        return ponto != null ? ponto.getValue() : mapa.firstEntry().getValue();
+    }
+
+    /**
+     * Finalizador de 32 bits do MurmurHash3, usado para espalhar os valores.
+     */
+    private static int misturar(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,192 @@
+package service;
+
+import config.Configuracao;
+import dao.CategoriaDAO;
+import dao.Conexao;
+import dao.ProdutoDAO;
+import dao.RegistroMovimentacaoDAO;
+import dao.SnapshotCatalogo;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+import modelo.NomesProdutos;
+
+/**
+ * Fase de inicialização executada antes de o serviço ser publicado no
+ * registro RMI, para que as primeiras chamadas dos clientes não paguem o custo
+ * de carregar o driver, abrir conexões, preencher caches e compilar (JIT) os
+ * métodos mais usados.
+ *
+ * As fases são executadas em ordem e o tempo de cada uma é exibido no console:
+ * <ol>
+ * <li>abertura de todas as conexões dos pools;</li>
+ * <li>preparação dos comandos SQL mais frequentes em cada conexão;</li>
+ * <li>carga dos caches de produtos e de categorias a partir do
+ * {@link SnapshotCatalogo}, seguida das alterações feitas depois dele, ou, sem
+ * snapshot válido, leitura em streaming do banco;</li>
+ * <li>chamadas sintéticas, somente de leitura, aos métodos mais usados do
+ * serviço, incluindo a serialização das respostas.</li>
+ * </ol>
+ * A quantidade de chamadas sintéticas vem da chave
+ * {@code estoque.aquecimento.iteracoes} e o aquecimento inteiro pode ser
+ * desligado com {@code estoque.aquecimento.ativo=false}.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class Aquecimento {
+
+    /**
+     * Serviço aquecido.
+     */
+    private final EstoqueServiceImpl servico;
+    private final ProdutoDAO produtoDAO;
+    private final CategoriaDAO categoriaDAO;
+    /**
+     * Se o cache de produtos deve ser mantido preenchido. Nós de cluster só
+     * guardam os produtos de suas faixas, por isso descartam o cache depois
+     * das chamadas sintéticas.
+     */
+    private final boolean manterProdutos;
+
+    /**
+     * Cria o aquecimento de um serviço.
+     *
+     * @param servico serviço cujos métodos serão chamados
+     * @param produtoDAO DAO de produtos do serviço
+     * @param categoriaDAO DAO de categorias do serviço
+     * @param manterProdutos se o cache de produtos deve ser mantido
+     */
+    Aquecimento(EstoqueServiceImpl servico, ProdutoDAO produtoDAO, CategoriaDAO categoriaDAO, boolean manterProdutos) {
+        this.servico = servico;
+        this.produtoDAO = produtoDAO;
+        this.categoriaDAO = categoriaDAO;
+        this.manterProdutos = manterProdutos;
+    }
+
+    /**
+     * Executa todas as fases. Falhas em uma fase são exibidas e não impedem
+     * as seguintes nem a publicação do serviço.
+     */
+    public void executar() {
+        if (!Configuracao.obter().getBoolean("estoque.aquecimento.ativo")) {
+            return;
+        }
+        long inicio = System.nanoTime();
+
+        fase("Pools de conexões", () -> new Conexao().aquecer(List.of(), List.of()) + " conexões abertas");
+        fase("Comandos preparados", () -> {
+            List<String> escrita = ProdutoDAO.comandosFrequentes();
+            List<String> leitura = RegistroMovimentacaoDAO.comandosFrequentes();
+            new Conexao().aquecer(escrita, leitura);
+            return (escrita.size() + leitura.size()) + " comandos por conexão";
+        });
+        long versao = -1;
+        if (manterProdutos) {
+            versao = carregarSnapshot();
+            if (versao < 0) {
+                fase("Cache de produtos", () -> produtoDAO.carregarCache() + " produtos");
+            }
+        }
+        if (versao < 0) {
+            fase("Cache de categorias", () -> categoriaDAO.carregarCache().size() + " categorias");
+        }
+        fase("Chamadas sintéticas", this::chamadasSinteticas);
+
+        System.out.printf("Aquecimento concluído em %d ms%n", (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Carrega o snapshot do catálogo e aplica as alterações feitas depois
+     * dele. Se as alterações não puderem ser lidas, o cache é descartado.
+     *
+     * @return a versão do snapshot, ou {@code -1} se não foi usado
+     */
+    private long carregarSnapshot() {
+        SnapshotCatalogo snapshot = new SnapshotCatalogo();
+        long[] versao = {-1};
+        fase("Snapshot do catálogo", () -> {
+            versao[0] = snapshot.carregar(produtoDAO.getCache());
+            return versao[0] < 0
+                    ? "indisponível"
+                    : produtoDAO.getCache().tamanho() + " produtos da versão " + new Timestamp(versao[0]);
+        });
+        if (versao[0] >= 0) {
+            fase("Alterações após o snapshot", () -> {
+                try {
+                    return snapshot.aplicarAlteracoes(versao[0], produtoDAO.getCache()) + " produtos";
+                } catch (SQLException e) {
+                    produtoDAO.getCache().limpar();
+                    versao[0] = -1;
+                    throw e;
+                }
+            });
+        }
+        return versao[0];
+    }
+
+    /**
+     * Chama repetidamente os métodos de leitura mais usados com IDs de
+     * produtos existentes e serializa as respostas, como o RMI faria.
+     */
+    private String chamadasSinteticas() throws Exception {
+        NomesProdutos nomes = servico.listarNomesProdutos(null);
+        int[] ids = new int[nomes.tamanho()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nomes.getId(i);
+        }
+        if (ids.length == 0) {
+            return "nenhum produto cadastrado";
+        }
+        int iteracoes = Configuracao.obter().getInt("estoque.aquecimento.iteracoes");
+        try (ObjectOutputStream saida = new ObjectOutputStream(OutputStream.nullOutputStream())) {
+            for (int i = 0; i < iteracoes; i++) {
+                int id = ids[i % ids.length];
+                serializar(saida, servico.buscarProdutoPorId(id));
+                servico.consultarDisponivel(id);
+                if (i % 64 == 0) {
+                    int de = i % ids.length;
+                    serializar(saida, servico.buscarProdutosPorIds(Arrays.copyOfRange(ids, de, Math.min(ids.length, de + 16))));
+                    serializar(saida, servico.listarCategorias());
+                }
+                if (i % 256 == 0) {
+                    serializar(saida, servico.listarMovimentacoesPorProduto(id));
+                }
+            }
+        }
+        if (!manterProdutos) {
+            produtoDAO.getCache().limpar();
+        }
+        return iteracoes + " iterações";
+    }
+
+    private static void serializar(ObjectOutputStream saida, Object resposta) throws IOException {
+        saida.writeObject(resposta);
+        saida.reset();
+    }
+
+    /**
+     * Executa uma fase e exibe seu tempo.
+     */
+    private static void fase(String nome, Etapa etapa) {
+        long inicio = System.nanoTime();
+        try {
+            String resultado = etapa.executar();
+            System.out.printf("Aquecimento - %s: %s em %d ms%n", nome, resultado, (System.nanoTime() - inicio) / 1_000_000);
+        } catch (Exception e) {
+            System.err.println("Aquecimento - " + nome + " falhou: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Uma fase do aquecimento, que devolve um resumo do que foi feito.
+     */
+    private interface Etapa {
+
+        String executar() throws Exception;
+    }
+}
@@ -0,0 +1,35 @@
+package service;
+
+/**
+ * Classes de operações remotas usadas pelo {@link ControleAdmissao}. Cada
+ * classe tem seu próprio limite de execuções simultâneas, de modo que uma
+ * classe sobrecarregada não ocupa as vagas das outras.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+enum ClasseOperacao {
+
+    /**
+     * Consultas rápidas por ID ou nome, em geral atendidas pelo cache.
+     */
+    CONSULTA("consulta"),
+    /**
+     * Operações que alteram o estoque ou o cadastro.
+     */
+    ESCRITA("escrita"),
+    /**
+     * Listagens completas, relatórios, importações e exportações.
+     */
+    PESADA("pesada");
+
+    /**
+     * Parte do nome das chaves de configuração da classe
+     * ({@code estoque.admissao.<chave>.*}).
+     */
+    final String chave;
+
+    ClasseOperacao(String chave) {
+        this.chave = chave;
+    }
+}
@@ -0,0 +1,36 @@
+package service;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Interface remota de administração do cluster de servidores de estoque.
+ *
+ * @author Hector
+ * @version 1.0
+ * @see RoteadorEstoque
+ */
+public interface ClusterService extends Remote {
+
+    /**
+     * Inclui um nó no cluster. O nó deve estar publicado em um registro RMI;
+     * as faixas de produtos que passam a pertencer a ele são transferidas dos
+     * nós que as possuíam.
+     *
+     * @param host endereço do registro RMI do nó.
+     * @param porta porta do registro RMI do nó.
+     * @param nome nome com que o nó foi publicado no registro.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI ou se o
+     * nó não for encontrado.
+     */
+    void adicionarNo(String host, int porta, String nome) throws RemoteException;
+
+    /**
+     * Lista os nós do cluster.
+     *
+     * @return os nomes dos nós, na ordem em que foram incluídos.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    List<String> listarNos() throws RemoteException;
+}
@@ -0,0 +1,40 @@
+package service;
+
+import java.rmi.RemoteException;
+
+/**
+ * Indica que uma alteração de produto foi recusada porque o produto já tinha
+ * sido alterado por outro cliente depois da versão informada. Nada foi
+ * gravado; o cliente deve ler o produto de novo e refazer a alteração sobre a
+ * versão atual.
+ *
+ * @author Hector
+ * @version 1.0
+ * @see ProdutoService#atualizarProduto(modelo.AlteracaoProduto)
+ */
+public class ConflitoVersaoException extends RemoteException {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * Versão atual do produto no banco.
+     */
+    private final int versaoAtual;
+
+    /**
+     * Cria a exceção com a mensagem e a versão atual do produto.
+     *
+     * @param mensagem descrição do conflito
+     * @param versaoAtual versão atual do produto no banco
+     */
+    public ConflitoVersaoException(String mensagem, int versaoAtual) {
+        super(mensagem);
+        this.versaoAtual = versaoAtual;
+    }
+
+    /**
+     * @return a versão atual do produto no banco
+     */
+    public int getVersaoAtual() {
+        return versaoAtual;
+    }
+}
@@ -0,0 +1,212 @@
+package service;
+
+import config.Configuracao;
+import dao.Prazo;
+import java.rmi.RemoteException;
+import java.rmi.server.RemoteServer;
+import java.rmi.server.ServerNotActiveException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Controle de admissão das chamadas remotas.
+ *
+ * Cada chamada pertence a uma {@link ClasseOperacao} e passa por duas
+ * verificações antes de ser executada:
+ * <ol>
+ * <li>a cota do cliente, um balde de fichas por endereço de origem que se
+ * enche a {@code estoque.admissao.cliente.taxa} fichas por segundo, até
+ * {@code estoque.admissao.cliente.rajada}. Consultas e escritas custam uma
+ * ficha e operações pesadas custam {@code estoque.admissao.pesada.custo}. Sem
+ * fichas, a chamada é recusada na hora;</li>
+ * <li>a concorrência da classe: no máximo
+ * {@code estoque.admissao.<classe>.concorrencia} execuções simultâneas. A
+ * chamada espera na fila até {@code estoque.admissao.<classe>.espera.ms} por
+ * uma vaga e, se não conseguir, é recusada.</li>
+ * </ol>
+ * A chamada admitida recebe o {@link Prazo} da sua classe
+ * ({@code estoque.prazo.<classe>.ms}), contado desde a chegada: o tempo na
+ * fila é descontado e, se o prazo acabar antes da vaga, a chamada é recusada
+ * sem tocar no banco.
+ *
+ * Recusas lançam {@link SobrecargaException}. Assim, um cliente que repete
+ * listagens completas em laço esgota a própria cota e as vagas das operações
+ * pesadas, mas não as conexões do banco nem as vagas das escritas dos
+ * demais terminais.
+ *
+ * Chamadas feitas dentro do próprio processo (aquecimento, nós locais do
+ * cluster) não têm cliente RMI e não consomem cota.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+class ControleAdmissao {
+
+    /**
+     * Quantidade de clientes acima da qual os baldes cheios são descartados.
+     */
+    private static final int LIMPEZA_CLIENTES = 10_000;
+
+    /**
+     * Balde de fichas de um cliente.
+     */
+    private static final class Balde {
+
+        private double fichas;
+        private long atualizado = System.nanoTime();
+
+        Balde(double capacidade) {
+            this.fichas = capacidade;
+        }
+
+        /**
+         * Retira as fichas, se houver.
+         *
+         * @return {@code 0} se as fichas foram retiradas, ou o tempo em
+         * milissegundos até haver fichas suficientes
+         */
+        synchronized long retirar(double custo, double taxa, double capacidade) {
+            encher(taxa, capacidade);
+            if (fichas >= custo) {
+                fichas -= custo;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((custo - fichas) * 1000 / taxa));
+        }
+
+        synchronized boolean cheio(double taxa, double capacidade) {
+            encher(taxa, capacidade);
+            return fichas >= capacidade;
+        }
+
+        private void encher(double taxa, double capacidade) {
+            long agora = System.nanoTime();
+            fichas = Math.min(capacidade, fichas + (agora - atualizado) * taxa / 1e9);
+            atualizado = agora;
+        }
+    }
+
+    /**
+     * Operação remota executada depois da admissão.
+     */
+    interface Operacao<R> {
+
+        R executar() throws RemoteException;
+    }
+
+    /**
+     * Operação remota sem retorno executada depois da admissão.
+     */
+    interface Acao {
+
+        void executar() throws RemoteException;
+    }
+
+    private final boolean limitarClientes;
+    private final Map<ClasseOperacao, Semaphore> vagas = new EnumMap<>(ClasseOperacao.class);
+    private final Map<String, Balde> baldes = new ConcurrentHashMap<>();
+
+    /**
+     * Cria o controle com os limites da configuração.
+     *
+     * @param limitarClientes se {@code true}, aplica a cota por cliente
+     * @param limitarConcorrencia se {@code true}, aplica os limites de
+     * execuções simultâneas por classe
+     */
+    ControleAdmissao(boolean limitarClientes, boolean limitarConcorrencia) {
+        Configuracao config = Configuracao.obter();
+        boolean ativo = config.getBoolean("estoque.admissao.ativo");
+        this.limitarClientes = ativo && limitarClientes;
+        for (ClasseOperacao classe : ClasseOperacao.values()) {
+            if (ativo && limitarConcorrencia) {
+                vagas.put(classe, new Semaphore(Math.max(1, config.getInt("estoque.admissao." + classe.chave + ".concorrencia"))));
+            }
+        }
+    }
+
+    /**
+     * Executa a operação se ela for admitida.
+     *
+     * @param classe classe da operação
+     * @param operacao operação a executar
+     * @return o resultado da operação
+     * @throws SobrecargaException se a chamada for recusada
+     * @throws RemoteException se a operação falhar
+     */
+    <R> R executar(ClasseOperacao classe, Operacao<R> operacao) throws RemoteException {
+        verificarCliente(classe);
+        Configuracao config = Configuracao.obter();
+        Prazo prazo = Prazo.definir(config.getLong("estoque.prazo." + classe.chave + ".ms"));
+        try {
+            Semaphore semaforo = vagas.get(classe);
+            if (semaforo == null) {
+                return operacao.executar();
+            }
+            long espera = config.getLong("estoque.admissao." + classe.chave + ".espera.ms");
+            long restante = Prazo.restanteMillis();
+            try {
+                if (!semaforo.tryAcquire(Math.max(0, Math.min(espera, restante)), TimeUnit.MILLISECONDS)) {
+                    if (restante < espera) {
+                        Prazo.registrarAdmissaoEsgotada();
+                    }
+                    throw new SobrecargaException("Servidor sobrecarregado: todas as vagas de operações do tipo "
+                            + classe.chave + " estão ocupadas. Tente novamente.", Math.max(espera, 100));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemoteException("Chamada interrompida na fila de admissão.", e);
+            }
+            try {
+                return operacao.executar();
+            } finally {
+                semaforo.release();
+            }
+        } finally {
+            prazo.close();
+        }
+    }
+
+    /**
+     * Executa a ação se ela for admitida.
+     *
+     * @param classe classe da ação
+     * @param acao ação a executar
+     * @throws SobrecargaException se a chamada for recusada
+     * @throws RemoteException se a ação falhar
+     */
+    void executar(ClasseOperacao classe, Acao acao) throws RemoteException {
+        executar(classe, () -> {
+            acao.executar();
+            return null;
+        });
+    }
+
+    private void verificarCliente(ClasseOperacao classe) throws SobrecargaException {
+        if (!limitarClientes) {
+            return;
+        }
+        String cliente;
+        try {
+            cliente = RemoteServer.getClientHost();
+        } catch (ServerNotActiveException e) {
+            return; // chamada local
+        }
+        Configuracao config = Configuracao.obter();
+        double taxa = Math.max(1, config.getLong("estoque.admissao.cliente.taxa"));
+        double capacidade = Math.max(1, config.getLong("estoque.admissao.cliente.rajada"));
+        double custo = classe == ClasseOperacao.PESADA
+                ? Math.min(capacidade, Math.max(1, config.getLong("estoque.admissao.pesada.custo"))) : 1;
+
+        if (baldes.size() > LIMPEZA_CLIENTES) {
+            baldes.values().removeIf(balde -> balde.cheio(taxa, capacidade));
+        }
+        long espera = baldes.computeIfAbsent(cliente, c -> new Balde(capacidade)).retirar(custo, taxa, capacidade);
+        if (espera > 0) {
+            throw new SobrecargaException("Limite de requisições excedido para o cliente " + cliente
+                    + ". Tente novamente em " + espera + " ms.", espera);
+        }
+    }
+}
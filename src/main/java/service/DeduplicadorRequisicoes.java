@@ -0,0 +1,151 @@
+package service;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Armazena em memória o resultado das movimentações recentes, indexado pelo
+ * identificador de requisição gerado pelo cliente.
+ *
+ * Quando o cliente reenvia uma chamada (por exemplo, após um tempo limite do
+ * RMI), o resultado original é devolvido sem executar a operação novamente.
+ * Reenvios simultâneos da mesma requisição aguardam a execução em andamento.
+ * As entradas expiram após {@link #validadeMillis} e o total de entradas é
+ * limitado a {@link #capacidade}; depois disso, a proteção passa a depender da
+ * chave única {@code request_id} da tabela {@code registro_movimentacao}.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class DeduplicadorRequisicoes {
+
+    /**
+     * Resultado de uma requisição e o instante em que foi registrado.
+     */
+    private static final class Entrada {
+
+        final String requestId;
+        final CompletableFuture<Boolean> resultado = new CompletableFuture<>();
+        final long criadaEm = System.currentTimeMillis();
+
+        Entrada(String requestId) {
+            this.requestId = requestId;
+        }
+    }
+
+    /**
+     * Resultados armazenados, indexados pelo identificador da requisição.
+     */
+    private final ConcurrentHashMap<String, Entrada> entradas = new ConcurrentHashMap<>();
+    /**
+     * Entradas na ordem em que foram criadas, usada para descartar as mais
+     * antigas.
+     */
+    private final ConcurrentLinkedQueue<Entrada> ordem = new ConcurrentLinkedQueue<>();
+    /**
+     * Tempo, em milissegundos, durante o qual um resultado é mantido.
+     */
+    private final long validadeMillis;
+    /**
+     * Quantidade máxima de resultados mantidos em memória.
+     */
+    private final int capacidade;
+
+    /**
+     * Cria o deduplicador com a validade e a capacidade informadas.
+     *
+     * @param validadeMillis tempo de retenção de cada resultado, em
+     * milissegundos
+     * @param capacidade quantidade máxima de resultados mantidos
+     */
+    public DeduplicadorRequisicoes(long validadeMillis, int capacidade) {
+        this.validadeMillis = validadeMillis;
+        this.capacidade = capacidade;
+    }
+
+    /**
+     * Executa a operação uma única vez por identificador de requisição.
+     *
+     * Se a requisição já foi processada dentro do prazo de validade, devolve
+     * o resultado original. Se estiver em execução por outra thread, aguarda
+     * e devolve o mesmo resultado. Operações que lançam exceção não são
+     * memorizadas, permitindo uma nova tentativa.
+     *
+     * @param requestId identificador da requisição; se {@code null}, a
+     * operação é executada sem deduplicação
+     * @param operacao operação a ser executada
+     * @return resultado da operação
+     * @throws Exception se a operação falhar
+     */
+    public boolean executar(String requestId, Callable<Boolean> operacao) throws Exception {
+        if (requestId == null) {
+            return operacao.call();
+        }
+
+        Entrada nova = new Entrada(requestId);
+        Entrada existente = entradas.putIfAbsent(requestId, nova);
+        if (existente != null) {
+            if (!expirada(existente)) {
+                return aguardar(existente);
+            }
+            entradas.remove(requestId, existente);
+            return executar(requestId, operacao);
+        }
+
+        try {
+            boolean resultado = operacao.call();
+            nova.resultado.complete(resultado);
+            ordem.add(nova);
+            limparSeNecessario();
+            return resultado;
+        } catch (Exception e) {
+            entradas.remove(requestId, nova);
+            nova.resultado.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * @return quantidade de resultados mantidos em memória
+     */
+    public int tamanho() {
+        return entradas.size();
+    }
+
+    /**
+     * Aguarda o resultado de uma execução em andamento ou já concluída.
+     */
+    private boolean aguardar(Entrada entrada) throws Exception {
+        try {
+            return entrada.resultado.get();
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            throw causa instanceof Exception ? (Exception) causa : e;
+        }
+    }
+
+    /**
+     * Verifica se a entrada passou do prazo de validade.
+     */
+    private boolean expirada(Entrada entrada) {
+        return System.currentTimeMillis() - entrada.criadaEm > validadeMillis;
+    }
+
+    /**
+     * Remove, em ordem de chegada, as entradas expiradas e as que excedem a
+     * capacidade.
+     */
+    private void limparSeNecessario() {
+        Entrada maisAntiga;
+        while ((maisAntiga = ordem.peek()) != null
+                && (entradas.size() > capacidade || expirada(maisAntiga))) {
+            maisAntiga = ordem.poll();
+            if (maisAntiga != null) {
+                entradas.remove(maisAntiga.requestId, maisAntiga);
+            }
+        }
+    }
+}
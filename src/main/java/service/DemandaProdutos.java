@@ -0,0 +1,212 @@
+package service;
+
+import config.Configuracao;
+import dao.RegistroMovimentacaoDAO;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntPredicate;
+import modelo.NiveisEstoque;
+import modelo.SugestaoReposicao;
+
+/**
+ * Estatísticas de demanda dos produtos, mantidas em memória e atualizadas a
+ * cada saída, e as sugestões de reposição calculadas a partir delas.
+ *
+ * Para cada produto são guardadas a média e a variância móveis exponenciais
+ * das saídas diárias (fator {@code estoque.demanda.alfa}) e o total de saídas
+ * do dia corrente, que entra nas médias quando o dia vira. Cada saída custa
+ * O(1); dias sem saídas entram como zero. Saídas com data anterior ao dia
+ * corrente do produto são somadas ao dia corrente.
+ *
+ * As estatísticas são carregadas das saídas dos últimos
+ * {@code estoque.demanda.historico.dias} dias, no início do servidor ou quando
+ * um nó do cluster assume uma faixa de produtos.
+ *
+ * Um produto deve ser reposto quando a quantidade chega ao ponto de reposição:
+ * o maior entre o mínimo cadastrado e a demanda esperada durante o prazo de
+ * entrega ({@code estoque.demanda.prazo.dias}) mais o estoque de segurança
+ * ({@code estoque.demanda.fator.seguranca} desvios padrão da demanda no
+ * prazo). A quantidade sugerida leva o estoque ao máximo cadastrado ou, se
+ * ele for menor, ao ponto de reposição.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+class DemandaProdutos {
+
+    /**
+     * Dias sem saída aplicados de uma vez, no máximo; depois disso a média já
+     * é praticamente zero.
+     */
+    private static final int MAXIMO_DIAS_VAZIOS = 3650;
+
+    /**
+     * Ordem das sugestões: menor cobertura em dias primeiro e, entre as sem
+     * demanda, a maior falta em relação ao mínimo.
+     */
+    static final Comparator<SugestaoReposicao> ORDEM = Comparator.comparingDouble(SugestaoReposicao::getDiasCobertura)
+            .thenComparingInt(s -> s.getQuantidade() - s.getMin());
+
+    /**
+     * Estatísticas de um produto.
+     */
+    private static final class Demanda {
+
+        /**
+         * Dia corrente, em dias desde a época.
+         */
+        private long dia;
+        /**
+         * Saídas do dia corrente.
+         */
+        private long saidasDia;
+        private double media;
+        private double variancia;
+
+        Demanda(long dia) {
+            this.dia = dia;
+        }
+
+        synchronized void registrar(long diaSaida, long quantidade, double alfa) {
+            avancar(diaSaida, alfa);
+            saidasDia += quantidade;
+        }
+
+        /**
+         * @return a média e a variância dos dias encerrados até ontem
+         */
+        synchronized double[] estado(long hoje, double alfa) {
+            avancar(hoje, alfa);
+            return new double[]{media, variancia};
+        }
+
+        /**
+         * Encerra o dia corrente e os dias sem saída até o novo dia.
+         */
+        private void avancar(long novoDia, double alfa) {
+            if (novoDia <= dia) {
+                return;
+            }
+            aplicar(saidasDia, alfa);
+            saidasDia = 0;
+            for (long vazios = Math.min(novoDia - dia - 1, MAXIMO_DIAS_VAZIOS); vazios > 0; vazios--) {
+                aplicar(0, alfa);
+            }
+            dia = novoDia;
+        }
+
+        private void aplicar(double valor, double alfa) {
+            double diferenca = valor - media;
+            double incremento = alfa * diferenca;
+            media += incremento;
+            variancia = (1 - alfa) * (variancia + diferenca * incremento);
+        }
+    }
+
+    private final RegistroMovimentacaoDAO registroDAO;
+    private final Map<Integer, Demanda> demandas = new ConcurrentHashMap<>();
+
+    /**
+     * @param registroDAO DAO usado para carregar o histórico de saídas
+     */
+    DemandaProdutos(RegistroMovimentacaoDAO registroDAO) {
+        this.registroDAO = registroDAO;
+    }
+
+    /**
+     * Recalcula, a partir do histórico de saídas, as estatísticas dos
+     * produtos que satisfazem o critério.
+     *
+     * @param criterio critério aplicado ao ID do produto
+     */
+    void carregar(IntPredicate criterio) {
+        Configuracao config = Configuracao.obter();
+        double alfa = alfa();
+        LocalDate desde = LocalDate.now().minusDays(Math.max(1, config.getLong("estoque.demanda.historico.dias")));
+        long inicio = desde.toEpochDay();
+        Map<Integer, Demanda> carregadas = new HashMap<>();
+        try {
+            registroDAO.percorrerSaidasDiarias(desde, (produtoId, dia, quantidade) -> {
+                if (criterio.test(produtoId)) {
+                    carregadas.computeIfAbsent(produtoId, id -> new Demanda(inicio))
+                            .registrar(Math.min(dia.toEpochDay(), LocalDate.now().toEpochDay()), quantidade, alfa);
+                }
+            });
+        } catch (SQLException e) {
+            System.err.println("Erro ao carregar o histórico de demanda: " + e.getMessage());
+        }
+        demandas.putAll(carregadas);
+        System.out.println("Estatísticas de demanda carregadas: " + carregadas.size() + " produtos");
+    }
+
+    /**
+     * Descarta as estatísticas dos produtos que satisfazem o critério. Usado
+     * quando outro nó do cluster passa a ser responsável por eles.
+     *
+     * @param criterio critério aplicado ao ID do produto
+     */
+    void descartar(IntPredicate criterio) {
+        demandas.keySet().removeIf(criterio::test);
+    }
+
+    /**
+     * Registra uma saída confirmada.
+     *
+     * @param produtoId ID do produto
+     * @param quantidade quantidade que saiu
+     * @param data data da movimentação
+     */
+    void registrarSaida(int produtoId, int quantidade, LocalDate data) {
+        long hoje = LocalDate.now().toEpochDay();
+        demandas.computeIfAbsent(produtoId, id -> new Demanda(hoje))
+                .registrar(Math.min(data.toEpochDay(), hoje), quantidade, alfa());
+    }
+
+    /**
+     * Calcula as sugestões de reposição dos produtos informados, dos que
+     * acabam primeiro na demanda média para os que duram mais.
+     *
+     * @param niveis quantidade, mínimo e máximo dos produtos
+     * @param limite quantidade máxima de sugestões; zero ou negativo para
+     * todas
+     * @return as sugestões
+     */
+    List<SugestaoReposicao> sugerir(NiveisEstoque niveis, int limite) {
+        Configuracao config = Configuracao.obter();
+        double alfa = alfa();
+        double prazo = Math.max(0, config.getLong("estoque.demanda.prazo.dias"));
+        double fator = Math.max(0, config.getDouble("estoque.demanda.fator.seguranca"));
+        long hoje = LocalDate.now().toEpochDay();
+
+        List<SugestaoReposicao> sugestoes = new ArrayList<>();
+        for (int i = 0; i < niveis.tamanho(); i++) {
+            Demanda demanda = demandas.get(niveis.getId(i));
+            double[] estado = demanda != null ? demanda.estado(hoje, alfa) : new double[2];
+            double media = estado[0];
+            double desvio = Math.sqrt(Math.max(0, estado[1]));
+            double ponto = Math.max(niveis.getMin(i), media * prazo + fator * desvio * Math.sqrt(prazo));
+            int quantidade = niveis.getQuantidade(i);
+            if (quantidade > ponto) {
+                continue;
+            }
+            long alvo = Math.max(niveis.getMax(i), (long) Math.ceil(ponto));
+            if (alvo <= quantidade) {
+                continue;
+            }
+            sugestoes.add(new SugestaoReposicao(niveis.getId(i), niveis.getNome(i), quantidade, niveis.getMin(i),
+                    niveis.getMax(i), media, desvio, ponto, (int) Math.min(Integer.MAX_VALUE, alvo - quantidade)));
+        }
+        sugestoes.sort(ORDEM);
+        return limite > 0 && sugestoes.size() > limite ? new ArrayList<>(sugestoes.subList(0, limite)) : sugestoes;
+    }
+
+    private static double alfa() {
+        return Math.min(1, Math.max(0.001, Configuracao.obter().getDouble("estoque.demanda.alfa")));
+    }
+}
@@ -0,0 +1,40 @@
+package service;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+import modelo.ConsultaLenta;
+import modelo.EstatisticaSql;
+
+/**
+ * Interface remota de diagnóstico do acesso ao banco de dados.
+ *
+ * @author Hector
+ * @version 1.0
+ * @see dao.MonitorSql
+ */
+public interface DiagnosticoService extends Remote {
+
+    /**
+     * Lista as estatísticas de execução dos comandos SQL na janela recente,
+     * agrupadas por impressão digital (o SQL sem os valores).
+     *
+     * @param limite quantidade máxima de comandos; zero ou negativo para
+     * todos.
+     * @return as estatísticas, do comando com maior tempo total para o de
+     * menor.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    List<EstatisticaSql> listarEstatisticasSql(int limite) throws RemoteException;
+
+    /**
+     * Lista as últimas execuções que passaram do limite do log de consultas
+     * lentas.
+     *
+     * @param limite quantidade máxima de execuções; zero ou negativo para
+     * todas as guardadas em memória.
+     * @return as consultas lentas, da mais recente para a mais antiga.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    List<ConsultaLenta> listarConsultasLentas(int limite) throws RemoteException;
+}
@@ -1,15 +1,34 @@
 package service;
 
+import config.Configuracao;
 import dao.CategoriaDAO;
+import dao.EstoqueFracionado;
+import dao.MonitorSql;
 import dao.ProdutoDAO;
 import dao.RegistroMovimentacaoDAO;
+import modelo.AlteracaoProduto;
+import modelo.ArquivoExportacao;
 import modelo.Categoria;
+import modelo.ConsultaLenta;
+import modelo.EstatisticaSql;
+import modelo.MovimentacoesColunar;
+import modelo.NiveisEstoque;
+import modelo.NomesProdutos;
+import modelo.ProdutosColunar;
 import modelo.Produto;
+import modelo.RelatorioCategoria;
+import modelo.ResultadoImportacao;
+import modelo.SugestaoReposicao;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
 import modelo.RegistroMovimentacao;
 
 /**
@@ -22,12 +41,21 @@ import modelo.RegistroMovimentacao;
  *
  * Responsabilidades:
  * Gerenciar produtos (CRUD e movimentações de entrada/saída).
+ * Importar produtos em massa a partir de arquivos CSV.
  * Gerenciar categorias de produtos.
  * Registrar e listar movimentações de estoque.
+ * Reservar temporariamente quantidades de produtos.
+ * Gerar relatórios gerenciais por categoria.
+ * Exportar produtos e movimentações para arquivos compactados.
+ * Limitar a carga de cada cliente e de cada tipo de operação ({@link ControleAdmissao}).
+ * Informar os tempos dos comandos SQL e as consultas lentas ({@link MonitorSql}).
  *
  *
  * Implementa as interfaces:
- * {@link ProdutoService}, {@link CategoriaService}, {@link MovimentacaoService}
+ * {@link ProdutoService}, {@link CategoriaService}, {@link MovimentacaoService},
+ * {@link ReservaService}, {@link RelatorioService}, {@link ExportacaoService},
+ * {@link DiagnosticoService}, por meio de {@link NoEstoqueService}, o que permite
+ * usá-la tanto como servidor único quanto como nó de um cluster.
  *
  * @author Hector
  * @version 1.0
@@ -35,7 +63,14 @@ import modelo.RegistroMovimentacao;
  * @see CategoriaDAO
  * @see RegistroMovimentacaoDAO
  */
-public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoService, CategoriaService, MovimentacaoService {
+public class EstoqueServiceImpl extends UnicastRemoteObject implements NoEstoqueService {
+
+    /**
+     * Fábricas de socket usadas na exportação (TCP_NODELAY, buffers e
+     * compressão das mensagens grandes).
+     */
+    private static final FabricaSocketCliente FABRICA_CLIENTE = FabricaSocketCliente.daConfiguracao();
+    private static final FabricaSocketServidor FABRICA_SERVIDOR = new FabricaSocketServidor(FABRICA_CLIENTE);
 
     /**
      * DAO responsável pela manipulação dos dados de produtos.
@@ -49,6 +84,49 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      * DAO responsável pelo registro e consulta de movimentações.
      */
     private final RegistroMovimentacaoDAO registroDAO = new RegistroMovimentacaoDAO();
+    /**
+     * Resultados recentes das movimentações, usados para responder a reenvios
+     * com o mesmo identificador de requisição.
+     */
+    private final DeduplicadorRequisicoes deduplicador = new DeduplicadorRequisicoes(
+            Configuracao.obter().getLong("estoque.dedup.validade.ms"),
+            Configuracao.obter().getInt("estoque.dedup.capacidade"));
+    /**
+     * Reservas temporárias de estoque.
+     */
+    private final ReservaEstoque reservas;
+    /**
+     * Motor dos relatórios gerenciais.
+     */
+    private final MotorRelatorios relatorios = new MotorRelatorios(produtoDAO, registroDAO);
+    /**
+     * Gerador dos arquivos de exportação.
+     */
+    private final ExportadorArquivos exportador = new ExportadorArquivos(produtoDAO, registroDAO);
+    /**
+     * Estatísticas de demanda dos produtos, usadas nas sugestões de
+     * reposição.
+     */
+    private final DemandaProdutos demanda = new DemandaProdutos(registroDAO);
+    /**
+     * Importações de produtos em andamento (ou concluídas e ainda não
+     * consultadas), por identificador.
+     */
+    private final Map<Integer, ImportacaoProdutos> importacoes = new ConcurrentHashMap<>();
+    /**
+     * Gerador dos identificadores de importação.
+     */
+    private final AtomicInteger proximaImportacao = new AtomicInteger();
+    /**
+     * Indica se o serviço é um nó de cluster, que só responde pelas faixas de
+     * produtos atribuídas a ele.
+     */
+    private final boolean noDeCluster;
+    /**
+     * Controle de admissão das chamadas remotas. Nós de cluster não aplicam a
+     * cota por cliente, que é aplicada pelo roteador.
+     */
+    private final ControleAdmissao admissao;
 
     /**
      * Construtor padrão que inicializa o serviço remoto de estoque.
@@ -56,7 +134,41 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      * @throws RemoteException se ocorrer um erro ao exportar o objeto remoto.
      */
     public EstoqueServiceImpl() throws RemoteException {
-        super();
+        this(false);
+    }
+
+    /**
+     * Inicializa o serviço remoto de estoque.
+     *
+     * @param noDeCluster se {@code true}, o serviço começa sem responder por
+     * nenhum produto e só carrega as reservas e as estatísticas de demanda
+     * das faixas atribuídas depois por
+     * {@link #assumirFaixa(int, int)}
+     * @throws RemoteException se ocorrer um erro ao exportar o objeto remoto.
+     */
+    public EstoqueServiceImpl(boolean noDeCluster) throws RemoteException {
+        super(Configuracao.obter().getInt("estoque.rmi.porta.servico"), FABRICA_CLIENTE, FABRICA_SERVIDOR);
+        this.noDeCluster = noDeCluster;
+        this.admissao = new ControleAdmissao(!noDeCluster, true);
+        this.reservas = noDeCluster
+                ? new ReservaEstoque(produtoDAO, produtoId -> false)
+                : new ReservaEstoque(produtoDAO);
+        reservas.aoConfirmar(reserva -> demanda.registrarSaida(reserva.getProdutoId(), reserva.getQuantidade(), LocalDate.now()));
+        EstoqueFracionado.obter().aoReconciliar(produtoDAO.getCache()::invalidar);
+        if (!noDeCluster) {
+            demanda.carregar(produtoId -> true);
+        }
+    }
+
+    /**
+     * Prepara o serviço para atender as primeiras chamadas (pools, comandos
+     * preparados, caches e JIT). Deve ser chamado antes de publicar o serviço
+     * no registro RMI.
+     *
+     * @see Aquecimento
+     */
+    public void aquecer() {
+        new Aquecimento(this, produtoDAO, categoriaDAO, !noDeCluster).executar();
     }
 
 // ==================== IMPLEMENTAÇÃO DE ProdutoService ====================
@@ -65,14 +177,42 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      */
     @Override
     public void salvarProduto(Produto produto) throws RemoteException {
-        try {
-            boolean sucesso = produtoDAO.CadastrarProduto(produto);
-            if (!sucesso) {
-                throw new RemoteException("Erro ao cadastrar produto no banco.");
+        admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            try {
+                boolean sucesso = produtoDAO.CadastrarProduto(produto);
+                if (!sucesso) {
+                    throw new RemoteException("Erro ao cadastrar produto no banco.");
+                }
+            } catch (Exception e) {
+                throw new RemoteException("Falha ao salvar produto.", e);
             }
-        } catch (Exception e) {
-            throw new RemoteException("Falha ao salvar produto.", e);
-        }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Produto atualizarProduto(AlteracaoProduto alteracao) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            if (alteracao.isVazia()) {
+                throw new RemoteException("Nenhum campo informado para alterar o produto ID: " + alteracao.getId());
+            }
+            try {
+                if (produtoDAO.atualizarCampos(alteracao)) {
+                    System.out.println("Produto ID " + alteracao.getId() + " atualizado para a versão " + (alteracao.getVersao() + 1));
+                    return produtoDAO.ProcurarProdutoID(alteracao.getId());
+                }
+                int versaoAtual = produtoDAO.consultarVersao(alteracao.getId());
+                if (versaoAtual < 0) {
+                    throw new RemoteException("Produto não encontrado: ID " + alteracao.getId());
+                }
+                throw new ConflitoVersaoException("O produto ID " + alteracao.getId() + " foi alterado por outro usuário (versão "
+                        + alteracao.getVersao() + ", atual " + versaoAtual + "). Leia o produto novamente.", versaoAtual);
+            } catch (SQLException e) {
+                throw new RemoteException("Erro ao atualizar produto: " + e.getMessage(), e);
+            }
+        });
     }
 
     // MÉTODO CORRIGIDO - MANTIDO O NOME ORIGINAL
@@ -81,11 +221,13 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      */
     @Override
     public boolean DeletarProdutoID(int idProduto) throws RemoteException {
-        try {
-            return produtoDAO.DeletarProdutoID(idProduto);
-        } catch (Exception e) {
-            throw new RemoteException("Erro ao excluir produto: " + e.getMessage(), e);
-        }
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            try {
+                return produtoDAO.DeletarProdutoID(idProduto);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao excluir produto: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -93,12 +235,56 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      */
     @Override
     public List<Produto> listarProdutos() throws RemoteException {
-        try {
-            ArrayList<Produto> lista = produtoDAO.getMinhaListaProdutos();
-            return lista != null ? lista : new ArrayList<>();
-        } catch (Exception e) {
-            throw new RemoteException("Erro ao listar produtos.", e);
-        }
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            try {
+                ArrayList<Produto> lista = produtoDAO.getMinhaListaProdutos();
+                return lista != null ? lista : new ArrayList<>();
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao listar produtos.", e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ProdutosColunar listarProdutosColunar() throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            try {
+                return produtoDAO.listarProdutosColunar();
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao listar produtos.", e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NiveisEstoque listarNiveisEstoque() throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            try {
+                return produtoDAO.listarNiveisEstoque();
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao listar níveis de estoque.", e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NomesProdutos listarNomesProdutos(String filtro) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            try {
+                return produtoDAO.listarNomesProdutos(filtro);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao listar nomes de produtos.", e);
+            }
+        });
     }
 
     /**
@@ -106,11 +292,27 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      */
     @Override
     public Produto buscarProdutoPorId(int id) throws RemoteException {
-        try {
-            return produtoDAO.ProcurarProdutoID(id);
-        } catch (Exception e) {
-            throw new RemoteException("Erro ao buscar produto por ID.", e);
-        }
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            try {
+                return produtoDAO.ProcurarProdutoID(id);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao buscar produto por ID.", e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, Produto> buscarProdutosPorIds(int[] ids) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            try {
+                return produtoDAO.ProcurarProdutosIDs(ids != null ? ids : new int[0]);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao buscar produtos por IDs.", e);
+            }
+        });
     }
 
     /**
@@ -118,11 +320,13 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      */
     @Override
     public Produto buscarProdutoPorNome(String nome) throws RemoteException {
-        try {
-            return produtoDAO.ProcurarProdutoNome(nome);
-        } catch (Exception e) {
-            throw new RemoteException("Erro ao buscar produto por nome", e);
-        }
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            try {
+                return produtoDAO.ProcurarProdutoNome(nome);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao buscar produto por nome", e);
+            }
+        });
     }
 
     /**
@@ -130,20 +334,31 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      */
     @Override
     public boolean registrarEntradaProduto(int idProduto, int quantidade) throws RemoteException {
-        try {
-            boolean sucesso = produtoDAO.RegistrarEntradaProduto(idProduto, quantidade, "Entrada via sistema");
+        return registrarEntradaProduto(idProduto, quantidade, null);
+    }
 
-            if (sucesso) {
-                System.out.println("Entrada registrada com sucesso para produto ID: " + idProduto);
-                return true;
-            } else {
-                System.out.println("Falha ao registrar entrada para produto ID: " + idProduto);
-                return false;
-            }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean registrarEntradaProduto(int idProduto, int quantidade, String requestId) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            try {
+                boolean sucesso = deduplicador.executar(requestId,
+                        () -> produtoDAO.RegistrarEntradaProduto(idProduto, quantidade, "Entrada via sistema", requestId));
 
-        } catch (Exception e) {
-            throw new RemoteException("Erro ao registrar entrada: " + e.getMessage(), e);
-        }
+                if (sucesso) {
+                    System.out.println("Entrada registrada com sucesso para produto ID: " + idProduto);
+                    return true;
+                } else {
+                    System.out.println("Falha ao registrar entrada para produto ID: " + idProduto);
+                    return false;
+                }
+
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao registrar entrada: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -151,20 +366,101 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      */
     @Override
     public boolean registrarSaidaProduto(int idProduto, int quantidade) throws RemoteException {
-        try {
-            boolean sucesso = produtoDAO.RegistrarSaidaProduto(idProduto, quantidade, "Saída via sistema");
+        return registrarSaidaProduto(idProduto, quantidade, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean registrarSaidaProduto(int idProduto, int quantidade, String requestId) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            try {
+                boolean sucesso = deduplicador.executar(requestId, () -> {
+                    // A saída não pode consumir a quantidade separada por reservas ativas
+                    boolean registrada = reservas.registrarSaida(idProduto, quantidade, "Saída via sistema", requestId);
+                    if (registrada) {
+                        demanda.registrarSaida(idProduto, quantidade, LocalDate.now());
+                    }
+                    return registrada;
+                });
 
-            if (sucesso) {
-                System.out.println("Saída registrada com sucesso para produto ID: " + idProduto);
-                return true;
-            } else {
-                System.out.println("Falha ao registrar saída para produto ID: " + idProduto);
-                return false;
+                if (sucesso) {
+                    System.out.println("Saída registrada com sucesso para produto ID: " + idProduto);
+                    return true;
+                } else {
+                    System.out.println("Falha ao registrar saída para produto ID: " + idProduto);
+                    return false;
+                }
+
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao registrar saída: " + e.getMessage(), e);
             }
+        });
+    }
 
-        } catch (Exception e) {
-            throw new RemoteException("Erro ao registrar saída: " + e.getMessage(), e);
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int iniciarImportacaoProdutos() throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            importacoes.values().removeIf(ImportacaoProdutos::expirada);
+            int id = proximaImportacao.incrementAndGet();
+            importacoes.put(id, new ImportacaoProdutos(id, produtoDAO));
+            System.out.println("Importação de produtos iniciada: " + id);
+            return id;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void enviarBlocoImportacao(int idImportacao, byte[] bloco) throws RemoteException {
+        admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            try {
+                importacao(idImportacao).enviar(bloco);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemoteException("Envio do bloco interrompido.", e);
+            } catch (IllegalStateException e) {
+                throw new RemoteException(e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResultadoImportacao concluirImportacao(int idImportacao) throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            try {
+                ResultadoImportacao resultado = importacao(idImportacao).concluir();
+                importacoes.remove(idImportacao);
+                return resultado;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RemoteException("Conclusão da importação interrompida.", e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResultadoImportacao consultarImportacao(int idImportacao) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> importacao(idImportacao).resultado());
+    }
+
+    private ImportacaoProdutos importacao(int idImportacao) throws RemoteException {
+        ImportacaoProdutos importacao = importacoes.get(idImportacao);
+        if (importacao == null) {
+            throw new RemoteException("Importação não encontrada: " + idImportacao);
         }
+        return importacao;
     }
 
     /**
@@ -172,11 +468,13 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      */
     @Override
     public void salvarCategoria(Categoria categoria) throws RemoteException {
-        try {
-            categoriaDAO.salvar(categoria);
-        } catch (SQLException e) {
-            throw new RemoteException("Erro ao salvar categoria.", e);
-        }
+        admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            try {
+                categoriaDAO.salvar(categoria);
+            } catch (SQLException e) {
+                throw new RemoteException("Erro ao salvar categoria.", e);
+            }
+        });
     }
 
     /**
@@ -184,11 +482,13 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      */
     @Override
     public List<Categoria> listarCategorias() throws RemoteException {
-        try {
-            return categoriaDAO.listarCategorias();
-        } catch (SQLException e) {
-            throw new RemoteException("Erro ao listar categorias.", e);
-        }
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            try {
+                return categoriaDAO.listarCategorias();
+            } catch (SQLException e) {
+                throw new RemoteException("Erro ao listar categorias.", e);
+            }
+        });
     }
 
     /**
@@ -196,11 +496,13 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      */
     @Override
     public void excluirCategoria(int id) throws RemoteException {
-        try {
-            categoriaDAO.excluir(id);
-        } catch (Exception e) {
-            throw new RemoteException("Erro ao excluir categoria.", e);
-        }
+        admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            try {
+                categoriaDAO.excluir(id);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao excluir categoria.", e);
+            }
+        });
     }
 
     /**
@@ -208,11 +510,27 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      */
     @Override
     public List<RegistroMovimentacao> listarMovimentacoes() throws RemoteException {
-        try {
-            return registroDAO.listarTodasMovimentacoes();
-        } catch (Exception e) {
-            throw new RemoteException("Erro ao listar movimentações: " + e.getMessage(), e);
-        }
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            try {
+                return registroDAO.listarTodasMovimentacoes();
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao listar movimentações: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MovimentacoesColunar listarMovimentacoesColunar() throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            try {
+                return registroDAO.listarMovimentacoesColunar();
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao listar movimentações: " + e.getMessage(), e);
+            }
+        });
     }
 
     /**
@@ -220,10 +538,238 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      */
     @Override
     public boolean registrarMovimentacao(RegistroMovimentacao registro) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            try {
+                return deduplicador.executar(registro.getRequestId(), () -> {
+                    boolean registrada = registroDAO.registrarMovimentacao(registro);
+                    if (registrada && !"Entrada".equals(registro.getTipoMovimentacao())) {
+                        demanda.registrarSaida(registro.getProdutoId(), registro.getQuantidade(),
+                                registro.getDataMovimentacao() != null ? LocalDate.parse(registro.getDataMovimentacao()) : LocalDate.now());
+                    }
+                    return registrada;
+                });
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao registrar movimentação: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RegistroMovimentacao> listarMovimentacoesPorProduto(int produtoId) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            try {
+                return registroDAO.listarMovimentacoesPorProduto(produtoId);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao listar movimentações por produto: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int consultarEstoqueEm(int produtoId, String data) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            Integer saldo;
+            try {
+                saldo = registroDAO.consultarEstoqueEm(produtoId, LocalDate.parse(data));
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao consultar estoque na data: " + e.getMessage(), e);
+            }
+            if (saldo == null) {
+                throw new RemoteException("Produto não encontrado: " + produtoId);
+            }
+            return saldo;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, Integer> consultarEstoqueEm(String categoria, String data) throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            try {
+                return registroDAO.consultarEstoqueEm(categoria, LocalDate.parse(data));
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao consultar estoque da categoria na data: " + e.getMessage(), e);
+            }
+        });
+    }
+
+// ==================== IMPLEMENTAÇÃO DE ReservaService ====================
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int reservarProduto(int idProduto, int quantidade, int ttlSegundos) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            try {
+                return reservas.reservar(idProduto, quantidade, ttlSegundos);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao reservar produto: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean confirmarReserva(int idReserva) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            try {
+                return reservas.confirmar(idReserva);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao confirmar reserva: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean liberarReserva(int idReserva) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            try {
+                return reservas.liberar(idReserva);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao liberar reserva: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int consultarDisponivel(int idProduto) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            try {
+                return reservas.consultarDisponivel(idProduto);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao consultar quantidade disponível: " + e.getMessage(), e);
+            }
+        });
+    }
+
+// ==================== IMPLEMENTAÇÃO DE RelatorioService ====================
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RelatorioCategoria> gerarRelatorioCategorias(String dataInicio, String dataFim) throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            try {
+                return relatorios.gerarPorCategoria(dataInicio != null ? LocalDate.parse(dataInicio) : null,
+                        dataFim != null ? LocalDate.parse(dataFim) : null);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao gerar relatório por categoria: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SugestaoReposicao> listarSugestoesReposicao(int limite) throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            try {
+                return demanda.sugerir(produtoDAO.listarNiveisEstoque(), limite);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao calcular sugestões de reposição: " + e.getMessage(), e);
+            }
+        });
+    }
+
+// ==================== IMPLEMENTAÇÃO DE ExportacaoService ====================
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArquivoExportacao exportarProdutos(boolean binario) throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            try {
+                return exportador.exportarProdutos(binario);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao exportar produtos: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ArquivoExportacao exportarMovimentacoes(String dataInicio, String dataFim, boolean binario) throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            try {
+                return exportador.exportarMovimentacoes(dataInicio != null ? LocalDate.parse(dataInicio) : null,
+                        dataFim != null ? LocalDate.parse(dataFim) : null, binario);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao exportar movimentações: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] baixarBlocoExportacao(int idArquivo, long posicao, int tamanho) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            try {
+                return exportador.ler(idArquivo, posicao, tamanho);
+            } catch (Exception e) {
+                throw new RemoteException("Erro ao ler arquivo de exportação: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void descartarExportacao(int idArquivo) throws RemoteException {
+        exportador.descartar(idArquivo);
+    }
+
+// ==================== IMPLEMENTAÇÃO DE DiagnosticoService ====================
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<EstatisticaSql> listarEstatisticasSql(int limite) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> MonitorSql.estatisticas(limite));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ConsultaLenta> listarConsultasLentas(int limite) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> MonitorSql.consultasLentas(limite));
+    }
+
+// ==================== IMPLEMENTAÇÃO DE NoEstoqueService ====================
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void assumirFaixa(int inicio, int fim) throws RemoteException {
         try {
-            return registroDAO.registrarMovimentacao(registro);
+            IntPredicate naFaixa
+                    = produtoId -> AnelHashConsistente.naFaixa(AnelHashConsistente.hashProduto(produtoId), inicio, fim);
+            reservas.carregar(naFaixa);
+            demanda.carregar(naFaixa);
         } catch (Exception e) {
-            throw new RemoteException("Erro ao registrar movimentação: " + e.getMessage(), e);
+            throw new RemoteException("Erro ao assumir faixa de produtos: " + e.getMessage(), e);
         }
     }
 
@@ -231,11 +777,23 @@ public class EstoqueServiceImpl extends UnicastRemoteObject implements ProdutoSe
      * {@inheritDoc}
      */
     @Override
-    public List<RegistroMovimentacao> listarMovimentacoesPorProduto(int produtoId) throws RemoteException {
+    public void liberarFaixa(int inicio, int fim) throws RemoteException {
         try {
-            return registroDAO.listarMovimentacoesPorProduto(produtoId);
+            IntPredicate naFaixa
+                    = produtoId -> AnelHashConsistente.naFaixa(AnelHashConsistente.hashProduto(produtoId), inicio, fim);
+            reservas.descartar(naFaixa);
+            demanda.descartar(naFaixa);
+            produtoDAO.getCache().invalidarSe(naFaixa);
         } catch (Exception e) {
-            throw new RemoteException("Erro ao listar movimentações por produto: " + e.getMessage(), e);
+            throw new RemoteException("Erro ao liberar faixa de produtos: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void descartarCacheProdutos() throws RemoteException {
+        produtoDAO.getCache().limpar();
+    }
 }
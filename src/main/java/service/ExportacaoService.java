@@ -0,0 +1,82 @@
+package service;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import modelo.ArquivoExportacao;
+
+/**
+ * Interface remota responsável pela exportação completa de produtos e
+ * movimentações para arquivos compactados.
+ *
+ * O arquivo é gerado no servidor, lendo o banco em streaming, e depois
+ * baixado pelo cliente em blocos, de modo que nenhum dos lados precisa manter
+ * a lista inteira na memória. Os arquivos são sempre compactados com gzip e
+ * podem ser gerados em dois formatos:
+ * <ul>
+ * <li>CSV (UTF-8, separador {@code ;}, cabeçalho na primeira linha). O CSV de
+ * produtos tem as mesmas colunas aceitas por
+ * {@link ProdutoService#iniciarImportacaoProdutos()};</li>
+ * <li>binário: assinatura {@code "ESTQEXPO"}, versão do formato e tipo
+ * ({@code 1} produtos, {@code 2} movimentações); cada registro é precedido do
+ * byte {@code 1} e a lista termina com o byte {@code 0} seguido da quantidade
+ * de registros. Números são gravados em big-endian, datas como dia desde a
+ * época ({@code -1} se vazias) e textos como tamanho e bytes UTF-8, com
+ * tamanho {@code -1} para {@code null}.</li>
+ * </ul>
+ *
+ * @author Hector
+ * @version 1.0
+ * @see modelo.ArquivoExportacao
+ */
+public interface ExportacaoService extends Remote {
+
+    /**
+     * Exporta todos os produtos, na ordem do ID. Registro binário: id, nome,
+     * unidade, quantidade, preço ({@code double}), mínimo, máximo e
+     * categoria.
+     *
+     * @param binario {@code true} para o formato binário, {@code false} para
+     * CSV
+     * @return a descrição do arquivo gerado
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    ArquivoExportacao exportarProdutos(boolean binario) throws RemoteException;
+
+    /**
+     * Exporta as movimentações do período, na ordem do ID. Registro binário:
+     * id, ID do produto, tipo, quantidade, observação, data e identificador
+     * da requisição.
+     *
+     * @param dataInicio primeiro dia do período ({@code yyyy-MM-dd}), ou
+     * {@code null} para não limitar
+     * @param dataFim último dia do período ({@code yyyy-MM-dd}), ou
+     * {@code null} para não limitar
+     * @param binario {@code true} para o formato binário, {@code false} para
+     * CSV
+     * @return a descrição do arquivo gerado
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    ArquivoExportacao exportarMovimentacoes(String dataInicio, String dataFim, boolean binario) throws RemoteException;
+
+    /**
+     * Lê um bloco de um arquivo exportado. O bloco é lido pela posição, então
+     * um bloco perdido pode ser pedido de novo.
+     *
+     * @param idArquivo o identificador do arquivo
+     * @param posicao posição do primeiro byte
+     * @param tamanho tamanho desejado, limitado pelo servidor
+     * @return os bytes lidos; um vetor vazio indica o fim do arquivo
+     * @throws RemoteException se o arquivo não existir ou se ocorrer um erro de
+     * comunicação RMI.
+     */
+    byte[] baixarBlocoExportacao(int idArquivo, long posicao, int tamanho) throws RemoteException;
+
+    /**
+     * Apaga um arquivo exportado depois do download. Arquivos não descartados
+     * são apagados pelo servidor quando expiram.
+     *
+     * @param idArquivo o identificador do arquivo
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    void descartarExportacao(int idArquivo) throws RemoteException;
+}
@@ -0,0 +1,374 @@
+package service;
+
+import config.Configuracao;
+import dao.ProdutoDAO;
+import dao.RegistroMovimentacaoDAO;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+import modelo.ArquivoExportacao;
+
+/**
+ * Gera os arquivos de exportação de produtos e movimentações e atende o
+ * download em blocos.
+ *
+ * As linhas são lidas do banco em streaming
+ * ({@link ProdutoDAO#percorrerProdutos}, {@link RegistroMovimentacaoDAO#percorrerMovimentacoes})
+ * e escritas uma a uma, por um buffer e pela compressão gzip, no canal do
+ * arquivo; a memória usada não depende da quantidade de linhas. Os arquivos
+ * ficam no diretório {@code estoque.exportacao.diretorio} até serem
+ * descartados pelo cliente ou expirarem ({@code estoque.exportacao.validade.s}).
+ * O formato dos arquivos está descrito em {@link ExportacaoService}.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+class ExportadorArquivos {
+
+    private static final byte[] ASSINATURA = "ESTQEXPO".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMATO = 1;
+    private static final int TIPO_PRODUTOS = 1;
+    private static final int TIPO_MOVIMENTACOES = 2;
+    private static final String PREFIXO = "exportacao-";
+    private static final int BUFFER = 1 << 16;
+
+    /**
+     * Escrita do conteúdo de um arquivo.
+     */
+    private interface Gravacao {
+
+        long gravar(OutputStream saida) throws SQLException, IOException;
+    }
+
+    /**
+     * Arquivo gerado e ainda não descartado.
+     */
+    private static final class Arquivo {
+
+        final Path caminho;
+        final ArquivoExportacao descricao;
+        final long criacao = System.currentTimeMillis();
+
+        Arquivo(Path caminho, ArquivoExportacao descricao) {
+            this.caminho = caminho;
+            this.descricao = descricao;
+        }
+    }
+
+    private final ProdutoDAO produtoDAO;
+    private final RegistroMovimentacaoDAO registroDAO;
+    private final Map<Integer, Arquivo> arquivos = new ConcurrentHashMap<>();
+    private final AtomicInteger proximoId = new AtomicInteger();
+
+    /**
+     * Cria o exportador sobre os DAOs de um serviço.
+     *
+     * @param produtoDAO DAO de produtos
+     * @param registroDAO DAO de movimentações
+     */
+    ExportadorArquivos(ProdutoDAO produtoDAO, RegistroMovimentacaoDAO registroDAO) {
+        this.produtoDAO = produtoDAO;
+        this.registroDAO = registroDAO;
+    }
+
+    /**
+     * Exporta todos os produtos.
+     *
+     * @param binario se {@code true}, usa o formato binário; senão, CSV
+     * @return a descrição do arquivo gerado
+     * @throws SQLException se ocorrer erro na leitura do banco
+     * @throws IOException se ocorrer erro na gravação do arquivo
+     */
+    ArquivoExportacao exportarProdutos(boolean binario) throws SQLException, IOException {
+        return exportar("produtos" + (binario ? ".bin.gz" : ".csv.gz"), binario
+                ? saida -> gravarProdutosBinario(new DataOutputStream(new BufferedOutputStream(saida, BUFFER)))
+                : saida -> gravarProdutosCsv(new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), BUFFER)));
+    }
+
+    /**
+     * Exporta as movimentações do período.
+     *
+     * @param desde primeiro dia do período, ou {@code null} para não limitar
+     * @param ate último dia do período, ou {@code null} para não limitar
+     * @param binario se {@code true}, usa o formato binário; senão, CSV
+     * @return a descrição do arquivo gerado
+     * @throws SQLException se ocorrer erro na leitura do banco
+     * @throws IOException se ocorrer erro na gravação do arquivo
+     */
+    ArquivoExportacao exportarMovimentacoes(LocalDate desde, LocalDate ate, boolean binario) throws SQLException, IOException {
+        String nome = "movimentacoes" + (desde != null ? "-desde-" + desde : "") + (ate != null ? "-ate-" + ate : "")
+                + (binario ? ".bin.gz" : ".csv.gz");
+        return exportar(nome, binario
+                ? saida -> gravarMovimentacoesBinario(new DataOutputStream(new BufferedOutputStream(saida, BUFFER)), desde, ate)
+                : saida -> gravarMovimentacoesCsv(new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8), BUFFER), desde, ate));
+    }
+
+    /**
+     * Lê um bloco de um arquivo gerado.
+     *
+     * @param id identificador do arquivo
+     * @param posicao posição do primeiro byte
+     * @param tamanho tamanho desejado, limitado por
+     * {@code estoque.exportacao.bloco.maximo}
+     * @return os bytes lidos, vazio no fim do arquivo
+     * @throws IOException se ocorrer erro na leitura
+     * @throws IllegalArgumentException se o arquivo não existir
+     */
+    byte[] ler(int id, long posicao, int tamanho) throws IOException {
+        Arquivo arquivo = arquivos.get(id);
+        if (arquivo == null) {
+            throw new IllegalArgumentException("Arquivo de exportação não encontrado: " + id);
+        }
+        long restante = arquivo.descricao.getTamanho() - Math.max(0, posicao);
+        int limite = Math.max(1, Configuracao.obter().getInt("estoque.exportacao.bloco.maximo"));
+        ByteBuffer bloco = ByteBuffer.allocate((int) Math.max(0, Math.min(restante, Math.min(tamanho, limite))));
+        try (FileChannel canal = FileChannel.open(arquivo.caminho, StandardOpenOption.READ)) {
+            while (bloco.hasRemaining()) {
+                if (canal.read(bloco, posicao + bloco.position()) < 0) {
+                    break;
+                }
+            }
+        }
+        return bloco.position() == bloco.capacity() ? bloco.array() : Arrays.copyOf(bloco.array(), bloco.position());
+    }
+
+    /**
+     * Apaga um arquivo gerado. Identificadores desconhecidos são ignorados.
+     *
+     * @param id identificador do arquivo
+     */
+    void descartar(int id) {
+        Arquivo arquivo = arquivos.remove(id);
+        if (arquivo != null) {
+            apagar(arquivo.caminho);
+        }
+    }
+
+    private ArquivoExportacao exportar(String nome, Gravacao gravacao) throws SQLException, IOException {
+        removerExpirados();
+        Path diretorio = diretorio();
+        Files.createDirectories(diretorio);
+        Path caminho = Files.createTempFile(diretorio, PREFIXO, "-" + nome);
+        long inicio = System.currentTimeMillis();
+        long registros;
+        int nivel = Configuracao.obter().getInt("estoque.exportacao.compressao.nivel");
+        try (FileChannel canal = FileChannel.open(caminho, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                GZIPOutputStream compactado = new GZIPOutputStream(Channels.newOutputStream(canal), BUFFER) {
+            {
+                def.setLevel(nivel);
+            }
+        }) {
+            try {
+                registros = gravacao.gravar(compactado);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            compactado.finish();
+            canal.force(false);
+        } catch (SQLException | IOException | RuntimeException e) {
+            apagar(caminho);
+            throw e;
+        }
+
+        int id = proximoId.incrementAndGet();
+        ArquivoExportacao descricao = new ArquivoExportacao(id, nome, Files.size(caminho), registros,
+                System.currentTimeMillis() - inicio);
+        arquivos.put(id, new Arquivo(caminho, descricao));
+        System.out.println("Exportação gerada: " + descricao);
+        return descricao;
+    }
+
+    private long gravarProdutosCsv(Writer saida) throws SQLException, IOException {
+        saida.write("id;nome;unidade;quantidade;preco;min;max;categoria\n");
+        long total = produtoDAO.percorrerProdutos(produto -> {
+            try {
+                saida.write(Integer.toString(produto.getId()));
+                campoCsv(saida, produto.getNome());
+                campoCsv(saida, produto.getUnidade());
+                saida.write(';');
+                saida.write(Integer.toString(produto.getQuantidade()));
+                saida.write(';');
+                saida.write(BigDecimal.valueOf(produto.getPreco()).toPlainString());
+                saida.write(';');
+                saida.write(Integer.toString(produto.getMin()));
+                saida.write(';');
+                saida.write(Integer.toString(produto.getMax()));
+                campoCsv(saida, produto.getCategoria());
+                saida.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        saida.flush();
+        return total;
+    }
+
+    private long gravarMovimentacoesCsv(Writer saida, LocalDate desde, LocalDate ate) throws SQLException, IOException {
+        saida.write("id;produto_id;tipo_movimentacao;quantidade;observacao;data_movimentacao;request_id\n");
+        long total = registroDAO.percorrerMovimentacoes(desde, ate, registro -> {
+            try {
+                saida.write(Integer.toString(registro.getId()));
+                saida.write(';');
+                saida.write(Integer.toString(registro.getProdutoId()));
+                campoCsv(saida, registro.getTipoMovimentacao());
+                saida.write(';');
+                saida.write(Integer.toString(registro.getQuantidade()));
+                campoCsv(saida, registro.getObservacao());
+                campoCsv(saida, registro.getDataMovimentacao());
+                campoCsv(saida, registro.getRequestId());
+                saida.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        saida.flush();
+        return total;
+    }
+
+    private long gravarProdutosBinario(DataOutputStream saida) throws SQLException, IOException {
+        cabecalho(saida, TIPO_PRODUTOS);
+        long total = produtoDAO.percorrerProdutos(produto -> {
+            try {
+                saida.writeByte(1);
+                saida.writeInt(produto.getId());
+                escreverTexto(saida, produto.getNome());
+                escreverTexto(saida, produto.getUnidade());
+                saida.writeInt(produto.getQuantidade());
+                saida.writeDouble(produto.getPreco());
+                saida.writeInt(produto.getMin());
+                saida.writeInt(produto.getMax());
+                escreverTexto(saida, produto.getCategoria());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        saida.writeByte(0);
+        saida.writeLong(total);
+        saida.flush();
+        return total;
+    }
+
+    private long gravarMovimentacoesBinario(DataOutputStream saida, LocalDate desde, LocalDate ate) throws SQLException, IOException {
+        cabecalho(saida, TIPO_MOVIMENTACOES);
+        long total = registroDAO.percorrerMovimentacoes(desde, ate, registro -> {
+            try {
+                saida.writeByte(1);
+                saida.writeInt(registro.getId());
+                saida.writeInt(registro.getProdutoId());
+                escreverTexto(saida, registro.getTipoMovimentacao());
+                saida.writeInt(registro.getQuantidade());
+                escreverTexto(saida, registro.getObservacao());
+                saida.writeInt(registro.getDataMovimentacao() != null
+                        ? (int) LocalDate.parse(registro.getDataMovimentacao()).toEpochDay() : -1);
+                escreverTexto(saida, registro.getRequestId());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        saida.writeByte(0);
+        saida.writeLong(total);
+        saida.flush();
+        return total;
+    }
+
+    private static void cabecalho(DataOutputStream saida, int tipo) throws IOException {
+        saida.write(ASSINATURA);
+        saida.writeInt(FORMATO);
+        saida.writeByte(tipo);
+    }
+
+    /**
+     * Escreve o separador e o campo, entre aspas se ele contiver separador,
+     * aspas ou quebra de linha. {@code null} vira campo vazio.
+     */
+    private static void campoCsv(Writer saida, String valor) throws IOException {
+        saida.write(';');
+        if (valor == null) {
+            return;
+        }
+        boolean aspas = false;
+        for (int i = 0; i < valor.length() && !aspas; i++) {
+            char c = valor.charAt(i);
+            aspas = c == ';' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!aspas) {
+            saida.write(valor);
+            return;
+        }
+        saida.write('"');
+        saida.write(valor.replace("\"", "\"\""));
+        saida.write('"');
+    }
+
+    private static void escreverTexto(DataOutputStream saida, String texto) throws IOException {
+        if (texto == null) {
+            saida.writeInt(-1);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        saida.writeInt(bytes.length);
+        saida.write(bytes);
+    }
+
+    /**
+     * Apaga os arquivos expirados, inclusive os que sobraram de execuções
+     * anteriores do servidor.
+     */
+    private void removerExpirados() {
+        long limite = System.currentTimeMillis() - Configuracao.obter().getLong("estoque.exportacao.validade.s") * 1000;
+        arquivos.entrySet().removeIf(entrada -> {
+            if (entrada.getValue().criacao < limite) {
+                apagar(entrada.getValue().caminho);
+                return true;
+            }
+            return false;
+        });
+        Path diretorio = diretorio();
+        if (!Files.isDirectory(diretorio)) {
+            return;
+        }
+        try (DirectoryStream<Path> antigos = Files.newDirectoryStream(diretorio, PREFIXO + "*")) {
+            for (Path caminho : antigos) {
+                if (Files.getLastModifiedTime(caminho).toMillis() < limite) {
+                    apagar(caminho);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Erro ao remover exportações expiradas: " + e.getMessage());
+        }
+    }
+
+    private static Path diretorio() {
+        return Paths.get(Configuracao.obter().getString("estoque.exportacao.diretorio"));
+    }
+
+    private static void apagar(Path caminho) {
+        try {
+            Files.deleteIfExists(caminho);
+        } catch (IOException e) {
+            System.err.println("Erro ao apagar exportação " + caminho + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package service;
+
+import config.Configuracao;
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.rmi.server.RMIClientSocketFactory;
+import java.util.Objects;
+
+/**
+ * Fábrica dos sockets usados pelos clientes para chamar os serviços remotos.
+ *
+ * É serializada junto com o stub do serviço, de modo que o cliente passa a
+ * criar as conexões com as mesmas opções definidas no servidor: TCP_NODELAY,
+ * tamanhos dos buffers de envio e recepção e compressão Deflate das mensagens
+ * a partir de um tamanho mínimo (ver {@link SocketRmi}). Por isso esta classe
+ * e {@link SocketRmi} também precisam estar no classpath do cliente.
+ *
+ * @author Hector
+ * @version 1.0
+ * @see FabricaSocketServidor
+ */
+public class FabricaSocketCliente implements RMIClientSocketFactory, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Se o algoritmo de Nagle deve ser desativado.
+     */
+    private final boolean semAtraso;
+    /**
+     * Tamanho do buffer de envio do socket; {@code 0} usa o padrão do sistema.
+     */
+    private final int bufferEnvio;
+    /**
+     * Tamanho do buffer de recepção do socket; {@code 0} usa o padrão do
+     * sistema.
+     */
+    private final int bufferRecepcao;
+    /**
+     * Tamanho mínimo, em bytes, de uma mensagem para ser compactada;
+     * {@code 0} desativa a compressão.
+     */
+    private final int limiteCompressao;
+    /**
+     * Nível de compressão do Deflate (1 a 9).
+     */
+    private final int nivelCompressao;
+    /**
+     * Tempo limite para estabelecer a conexão, em milissegundos.
+     */
+    private final int timeoutConexao;
+
+    /**
+     * Cria a fábrica com as opções informadas.
+     *
+     * @param semAtraso se o algoritmo de Nagle deve ser desativado
+     * @param bufferEnvio tamanho do buffer de envio ({@code 0} = padrão)
+     * @param bufferRecepcao tamanho do buffer de recepção ({@code 0} = padrão)
+     * @param limiteCompressao tamanho mínimo das mensagens compactadas
+     * ({@code 0} = sem compressão)
+     * @param nivelCompressao nível de compressão do Deflate
+     * @param timeoutConexao tempo limite de conexão em milissegundos
+     */
+    public FabricaSocketCliente(boolean semAtraso, int bufferEnvio, int bufferRecepcao,
+            int limiteCompressao, int nivelCompressao, int timeoutConexao) {
+        this.semAtraso = semAtraso;
+        this.bufferEnvio = bufferEnvio;
+        this.bufferRecepcao = bufferRecepcao;
+        this.limiteCompressao = limiteCompressao;
+        this.nivelCompressao = nivelCompressao;
+        this.timeoutConexao = timeoutConexao;
+    }
+
+    /**
+     * Cria a fábrica com as opções das chaves {@code estoque.rmi.tcp.*} e
+     * {@code estoque.rmi.compressao.*} da {@link Configuracao}.
+     *
+     * @return a fábrica configurada
+     */
+    public static FabricaSocketCliente daConfiguracao() {
+        Configuracao config = Configuracao.obter();
+        return new FabricaSocketCliente(
+                config.getBoolean("estoque.rmi.tcp.semAtraso"),
+                config.getInt("estoque.rmi.tcp.buffer.envio"),
+                config.getInt("estoque.rmi.tcp.buffer.recepcao"),
+                config.getInt("estoque.rmi.compressao.limite"),
+                config.getInt("estoque.rmi.compressao.nivel"),
+                config.getInt("estoque.rmi.timeout.conexao.ms"));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Socket createSocket(String host, int porta) throws IOException {
+        SocketRmi socket = new SocketRmi(this);
+        try {
+            aplicarOpcoes(socket);
+            socket.connect(new InetSocketAddress(host, porta), timeoutConexao);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        return socket;
+    }
+
+    /**
+     * Aplica as opções de TCP a um socket.
+     *
+     * @param socket socket a ser configurado
+     * @throws SocketException se alguma opção não puder ser aplicada
+     */
+    void aplicarOpcoes(Socket socket) throws SocketException {
+        socket.setTcpNoDelay(semAtraso);
+        if (bufferEnvio > 0) {
+            socket.setSendBufferSize(bufferEnvio);
+        }
+        if (bufferRecepcao > 0) {
+            socket.setReceiveBufferSize(bufferRecepcao);
+        }
+    }
+
+    /**
+     * @return {@code true} se as mensagens podem ser compactadas
+     */
+    boolean isCompressao() {
+        return limiteCompressao > 0;
+    }
+
+    /**
+     * @return tamanho mínimo das mensagens compactadas
+     */
+    int getLimiteCompressao() {
+        return limiteCompressao;
+    }
+
+    /**
+     * @return nível de compressão do Deflate
+     */
+    int getNivelCompressao() {
+        return nivelCompressao;
+    }
+
+    /**
+     * @return tamanho do buffer de recepção ({@code 0} = padrão)
+     */
+    int getBufferRecepcao() {
+        return bufferRecepcao;
+    }
+
+    /**
+     * Duas fábricas são iguais se criam sockets com as mesmas opções, o que
+     * permite ao RMI reutilizar as conexões abertas.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        FabricaSocketCliente outra = (FabricaSocketCliente) obj;
+        return semAtraso == outra.semAtraso
+                && bufferEnvio == outra.bufferEnvio
+                && bufferRecepcao == outra.bufferRecepcao
+                && limiteCompressao == outra.limiteCompressao
+                && nivelCompressao == outra.nivelCompressao
+                && timeoutConexao == outra.timeoutConexao;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(semAtraso, bufferEnvio, bufferRecepcao, limiteCompressao, nivelCompressao, timeoutConexao);
+    }
+}
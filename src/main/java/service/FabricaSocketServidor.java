@@ -0,0 +1,82 @@
+package service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMIServerSocketFactory;
+
+/**
+ * Fábrica dos sockets em que o servidor aceita as chamadas remotas.
+ *
+ * As conexões aceitas usam as mesmas opções de TCP e o mesmo formato de
+ * compressão da {@link FabricaSocketCliente} informada, que deve ser a mesma
+ * usada na exportação do objeto remoto.
+ *
+ * @author Hector
+ * @version 1.0
+ * @see FabricaSocketCliente
+ */
+public class FabricaSocketServidor implements RMIServerSocketFactory {
+
+    /**
+     * Opções compartilhadas com os clientes.
+     */
+    private final FabricaSocketCliente parametros;
+
+    /**
+     * Cria a fábrica com as opções informadas.
+     *
+     * @param parametros opções de TCP e de compressão
+     */
+    public FabricaSocketServidor(FabricaSocketCliente parametros) {
+        this.parametros = parametros;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ServerSocket createServerSocket(int porta) throws IOException {
+        ServerSocket servidor = new ServerSocket() {
+            @Override
+            public Socket accept() throws IOException {
+                Socket socket = new SocketRmi(parametros);
+                implAccept(socket);
+                try {
+                    parametros.aplicarOpcoes(socket);
+                } catch (IOException e) {
+                    socket.close();
+                    throw e;
+                }
+                return socket;
+            }
+        };
+        // Aplicado antes do bind para valer para janelas maiores que 64 KB
+        try {
+            if (parametros.getBufferRecepcao() > 0) {
+                servidor.setReceiveBufferSize(parametros.getBufferRecepcao());
+            }
+            servidor.bind(new InetSocketAddress(porta));
+        } catch (IOException e) {
+            servidor.close();
+            throw e;
+        }
+        return servidor;
+    }
+
+    /**
+     * Duas fábricas são iguais se usam as mesmas opções, o que permite ao RMI
+     * compartilhar a mesma porta entre os objetos exportados.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof FabricaSocketServidor
+                && parametros.equals(((FabricaSocketServidor) obj).parametros);
+    }
+
+    @Override
+    public int hashCode() {
+        return parametros.hashCode();
+    }
+}
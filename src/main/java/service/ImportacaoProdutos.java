@@ -0,0 +1,513 @@
+package service;
+
+import config.Configuracao;
+import dao.ProdutoDAO;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import modelo.Produto;
+import modelo.ResultadoImportacao;
+
+/**
+ * Uma importação de produtos em massa a partir de um CSV enviado em blocos.
+ *
+ * A importação é um pipeline de três estágios ligados por filas limitadas:
+ * <ol>
+ * <li>as chamadas remotas entregam blocos de bytes do arquivo
+ * ({@link #enviar(byte[])}), bloqueando se a fila de blocos estiver cheia;</li>
+ * <li>a thread de leitura decodifica o UTF-8, separa os campos (aceitando
+ * aspas e os separadores {@code ,} ou {@code ;}), valida cada linha e monta
+ * lotes de {@code estoque.importacao.lote} produtos;</li>
+ * <li>a thread de gravação grava cada lote em uma transação com
+ * {@link ProdutoDAO#gravarLote}.</li>
+ * </ol>
+ * Leitura e gravação acontecem ao mesmo tempo: enquanto um lote é gravado, o
+ * próximo já está sendo montado.
+ *
+ * Colunas: {@code id;nome;unidade;quantidade;preco;min;max;categoria}. O ID
+ * pode ficar vazio para cadastrar um produto novo; se informado, o produto é
+ * inserido ou atualizado com esse ID. A quantidade é a inicial dos produtos
+ * inseridos; a de um produto já existente não é alterada. Uma primeira linha começando por
+ * {@code id} é tratada como cabeçalho. Linhas inválidas são rejeitadas com a
+ * mensagem e o número da linha, sem interromper a importação.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+class ImportacaoProdutos {
+
+    /**
+     * Marca o fim dos blocos enviados.
+     */
+    private static final byte[] FIM_BLOCOS = new byte[0];
+    private static final int COLUNAS = 8;
+
+    private final ProdutoDAO produtoDAO;
+    private final BlockingQueue<byte[]> blocos;
+    private final BlockingQueue<Lote> lotes = new ArrayBlockingQueue<>(4);
+    private final long inatividadeMillis;
+    private final int maximoErros;
+    private final long inicio = System.currentTimeMillis();
+
+    private final AtomicLong linhasLidas = new AtomicLong();
+    private final AtomicLong gravados = new AtomicLong();
+    private final AtomicLong atualizados = new AtomicLong();
+    private final AtomicLong rejeitadas = new AtomicLong();
+    private final List<String> erros = new ArrayList<>();
+    private final CountDownLatch terminada = new CountDownLatch(1);
+    /**
+     * Se a importação foi interrompida por uma falha.
+     */
+    private volatile String falha;
+    private volatile long fim;
+
+    /**
+     * Cria a importação e inicia as threads de leitura e gravação.
+     *
+     * @param id identificador da importação, usado no nome das threads
+     * @param produtoDAO DAO usado na gravação
+     */
+    ImportacaoProdutos(int id, ProdutoDAO produtoDAO) {
+        Configuracao config = Configuracao.obter();
+        this.produtoDAO = produtoDAO;
+        this.blocos = new ArrayBlockingQueue<>(Math.max(1, config.getInt("estoque.importacao.fila.blocos")));
+        this.inatividadeMillis = config.getLong("estoque.importacao.inatividade.s") * 1000;
+        this.maximoErros = config.getInt("estoque.importacao.erros.maximo");
+
+        Thread leitura = new Thread(this::ler, "importacao-" + id + "-leitura");
+        Thread gravacao = new Thread(this::gravar, "importacao-" + id + "-gravacao");
+        leitura.setDaemon(true);
+        gravacao.setDaemon(true);
+        leitura.start();
+        gravacao.start();
+    }
+
+    /**
+     * Entrega o próximo bloco do arquivo, esperando se a leitura estiver
+     * atrasada.
+     *
+     * @param bloco bytes do arquivo, na ordem
+     * @throws IllegalStateException se a importação já terminou ou falhou
+     * @throws InterruptedException se a espera for interrompida
+     */
+    void enviar(byte[] bloco) throws InterruptedException {
+        if (bloco == null || bloco.length == 0) {
+            return;
+        }
+        while (!blocos.offer(bloco, 1, TimeUnit.SECONDS)) {
+            verificarAtiva();
+        }
+        verificarAtiva();
+    }
+
+    /**
+     * Indica o fim do arquivo e espera a gravação dos últimos lotes.
+     *
+     * @return o resultado final
+     * @throws InterruptedException se a espera for interrompida
+     */
+    ResultadoImportacao concluir() throws InterruptedException {
+        while (terminada.getCount() > 0 && !blocos.offer(FIM_BLOCOS, 1, TimeUnit.SECONDS)) {
+            // a leitura consome os blocos pendentes ou termina por falha
+        }
+        terminada.await();
+        return resultado();
+    }
+
+    /**
+     * @return o progresso até o momento, ou o resultado final
+     */
+    ResultadoImportacao resultado() {
+        boolean concluida = terminada.getCount() == 0;
+        List<String> copia;
+        synchronized (erros) {
+            copia = new ArrayList<>(erros);
+        }
+        return new ResultadoImportacao(linhasLidas.get(), gravados.get(), atualizados.get(), rejeitadas.get(),
+                copia, concluida, falha, (concluida ? fim : System.currentTimeMillis()) - inicio);
+    }
+
+    /**
+     * @return {@code true} se a importação terminou há mais tempo que o limite
+     * de inatividade, e pode ser descartada
+     */
+    boolean expirada() {
+        return terminada.getCount() == 0 && System.currentTimeMillis() - fim > inatividadeMillis;
+    }
+
+    private void verificarAtiva() {
+        if (falha != null) {
+            throw new IllegalStateException("Importação interrompida: " + falha);
+        }
+        if (terminada.getCount() == 0) {
+            throw new IllegalStateException("Importação já concluída.");
+        }
+    }
+
+    // ==================== Estágio de leitura ====================
+
+    private void ler() {
+        int tamanhoLote = Math.max(1, Configuracao.obter().getInt("estoque.importacao.lote"));
+        Lote lote = new Lote(tamanhoLote);
+        try (Reader leitor = new InputStreamReader(new FluxoBlocos(), StandardCharsets.UTF_8)) {
+            LeitorCsv csv = new LeitorCsv(leitor);
+            List<String> campos = new ArrayList<>(COLUNAS);
+            while (falha == null && csv.proximaLinha(campos)) {
+                if (campos.size() == 1 && campos.get(0).isBlank()) {
+                    continue;
+                }
+                if (csv.getLinha() == 1 && campos.get(0).trim().equalsIgnoreCase("id")) {
+                    continue; // cabeçalho
+                }
+                linhasLidas.incrementAndGet();
+                try {
+                    lote.adicionar(converter(campos), csv.getLinha());
+                } catch (IllegalArgumentException e) {
+                    rejeitar(csv.getLinha(), e.getMessage());
+                }
+                if (lote.cheio()) {
+                    entregar(lote);
+                    lote = new Lote(tamanhoLote);
+                }
+            }
+            if (!lote.produtos.isEmpty()) {
+                entregar(lote);
+            }
+        } catch (IOException e) {
+            interromper("erro na leitura do arquivo: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            interromper("leitura interrompida");
+        } finally {
+            try {
+                entregar(Lote.FIM);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Passa o lote à gravação, desistindo se a importação falhar.
+     */
+    private void entregar(Lote lote) throws InterruptedException {
+        while (!lotes.offer(lote, 1, TimeUnit.SECONDS)) {
+            if (falha != null && lote != Lote.FIM || terminada.getCount() == 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Converte e valida os campos de uma linha.
+     *
+     * @throws IllegalArgumentException com a mensagem do erro encontrado
+     */
+    private static Produto converter(List<String> campos) {
+        if (campos.size() != COLUNAS) {
+            throw new IllegalArgumentException("esperadas " + COLUNAS + " colunas, encontradas " + campos.size());
+        }
+        Produto produto = new Produto();
+        String id = campos.get(0).trim();
+        produto.setId(id.isEmpty() ? 0 : inteiro(id, "id", 1));
+        produto.setNome(texto(campos.get(1), "nome", 100, true));
+        produto.setUnidade(texto(campos.get(2), "unidade", 10, false));
+        produto.setQuantidade(inteiro(campos.get(3), "quantidade", 0));
+        produto.setPreco(decimal(campos.get(4), "preco"));
+        produto.setMin(inteiro(campos.get(5), "min", 0));
+        produto.setMax(inteiro(campos.get(6), "max", 0));
+        produto.setCategoria(texto(campos.get(7), "categoria", 100, true));
+        if (produto.getMax() < produto.getMin()) {
+            throw new IllegalArgumentException("max menor que min");
+        }
+        return produto;
+    }
+
+    private static int inteiro(String valor, String campo, int minimo) {
+        try {
+            int numero = Integer.parseInt(valor.trim());
+            if (numero < minimo) {
+                throw new IllegalArgumentException(campo + " deve ser no mínimo " + minimo);
+            }
+            return numero;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(campo + " inválido: " + valor);
+        }
+    }
+
+    private static double decimal(String valor, String campo) {
+        try {
+            double numero = Double.parseDouble(valor.trim().replace(',', '.'));
+            if (!(numero >= 0) || Double.isInfinite(numero)) {
+                throw new IllegalArgumentException(campo + " deve ser positivo");
+            }
+            return numero;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(campo + " inválido: " + valor);
+        }
+    }
+
+    private static String texto(String valor, String campo, int tamanhoMaximo, boolean obrigatorio) {
+        String texto = valor.trim();
+        if (texto.isEmpty()) {
+            if (obrigatorio) {
+                throw new IllegalArgumentException(campo + " obrigatório");
+            }
+            return null;
+        }
+        if (texto.length() > tamanhoMaximo) {
+            throw new IllegalArgumentException(campo + " com mais de " + tamanhoMaximo + " caracteres");
+        }
+        return texto;
+    }
+
+    // ==================== Estágio de gravação ====================
+
+    private void gravar() {
+        try {
+            while (true) {
+                Lote lote = lotes.take();
+                if (lote == Lote.FIM) {
+                    break;
+                }
+                if (falha != null) {
+                    continue; // descarta os lotes restantes até o fim da leitura
+                }
+                boolean[] rejeitados = new boolean[lote.produtos.size()];
+                Lote atual = lote;
+                int gravadosLote = produtoDAO.gravarLote(lote.produtos, (mensagem, i) -> {
+                    rejeitados[i] = true;
+                    rejeitar(atual.linhas[i], mensagem);
+                });
+                gravados.addAndGet(gravadosLote);
+                for (int i = 0; i < rejeitados.length; i++) {
+                    if (!rejeitados[i] && lote.produtos.get(i).getId() != 0) {
+                        atualizados.incrementAndGet();
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            interromper("erro na gravação: " + e.getMessage());
+            descartarLotes();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            interromper("gravação interrompida");
+        } catch (RuntimeException e) {
+            interromper("erro na gravação: " + e);
+            descartarLotes();
+        } finally {
+            fim = System.currentTimeMillis();
+            terminada.countDown();
+            blocos.clear();
+            System.out.println("Importação de produtos terminada: " + resultado());
+        }
+    }
+
+    /**
+     * Consome os lotes até o fim da leitura, que desiste ao ver a falha.
+     */
+    private void descartarLotes() {
+        try {
+            while (lotes.poll(inatividadeMillis, TimeUnit.MILLISECONDS) != Lote.FIM) {
+                // a leitura ainda pode entregar o lote que estava montando
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void rejeitar(int linha, String mensagem) {
+        rejeitadas.incrementAndGet();
+        synchronized (erros) {
+            if (erros.size() < maximoErros) {
+                erros.add("Linha " + linha + ": " + mensagem);
+            }
+        }
+    }
+
+    private void interromper(String motivo) {
+        if (falha == null) {
+            falha = motivo;
+            System.err.println("Importação de produtos interrompida: " + motivo);
+        }
+    }
+
+    /**
+     * Produtos de um lote e o número da linha de cada um no arquivo.
+     */
+    private static final class Lote {
+
+        /**
+         * Marca o fim dos lotes.
+         */
+        static final Lote FIM = new Lote(0);
+
+        final List<Produto> produtos;
+        final int[] linhas;
+
+        Lote(int tamanho) {
+            produtos = new ArrayList<>(tamanho);
+            linhas = new int[tamanho];
+        }
+
+        void adicionar(Produto produto, int linha) {
+            linhas[produtos.size()] = linha;
+            produtos.add(produto);
+        }
+
+        boolean cheio() {
+            return produtos.size() == linhas.length;
+        }
+    }
+
+    /**
+     * Fluxo de bytes formado pelos blocos da fila. Termina no bloco vazio e
+     * falha se nenhum bloco chegar dentro do limite de inatividade.
+     */
+    private final class FluxoBlocos extends InputStream {
+
+        private byte[] atual = new byte[0];
+        private int posicao;
+        private boolean terminado;
+
+        @Override
+        public int read() throws IOException {
+            byte[] um = new byte[1];
+            return read(um, 0, 1) < 0 ? -1 : um[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] destino, int deslocamento, int tamanho) throws IOException {
+            while (posicao == atual.length) {
+                if (terminado || falha != null) {
+                    return -1;
+                }
+                try {
+                    byte[] proximo = blocos.poll(inatividadeMillis, TimeUnit.MILLISECONDS);
+                    if (proximo == null) {
+                        throw new IOException("nenhum bloco recebido em " + inatividadeMillis / 1000 + " s");
+                    }
+                    terminado = proximo == FIM_BLOCOS;
+                    atual = proximo;
+                    posicao = 0;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("leitura interrompida");
+                }
+            }
+            int copiados = Math.min(tamanho, atual.length - posicao);
+            System.arraycopy(atual, posicao, destino, deslocamento, copiados);
+            posicao += copiados;
+            return copiados;
+        }
+    }
+
+    /**
+     * Separador de campos CSV com suporte a aspas (inclusive quebras de linha
+     * e aspas duplicadas dentro delas). O separador, {@code ;} ou {@code ,},
+     * é definido pela primeira linha.
+     */
+    private static final class LeitorCsv {
+
+        private final Reader leitor;
+        private final char[] buffer = new char[64 * 1024];
+        private int tamanho;
+        private int posicao;
+        private char separador;
+        private int linha;
+        private final StringBuilder campo = new StringBuilder();
+
+        LeitorCsv(Reader leitor) {
+            this.leitor = leitor;
+        }
+
+        /**
+         * @return número da última linha lida (começando em 1)
+         */
+        int getLinha() {
+            return linha;
+        }
+
+        /**
+         * Lê os campos do próximo registro.
+         *
+         * @return {@code false} no fim do arquivo
+         */
+        boolean proximaLinha(List<String> campos) throws IOException {
+            campos.clear();
+            campo.setLength(0);
+            if (!garantir()) {
+                return false;
+            }
+            if (separador == 0) {
+                separador = detectarSeparador();
+            }
+            linha++;
+            boolean aspas = false;
+            while (garantir()) {
+                char c = buffer[posicao++];
+                if (aspas) {
+                    if (c == '"') {
+                        if (garantir() && buffer[posicao] == '"') {
+                            campo.append('"');
+                            posicao++;
+                        } else {
+                            aspas = false;
+                        }
+                    } else {
+                        campo.append(c);
+                    }
+                } else if (c == '"' && campo.length() == 0) {
+                    aspas = true;
+                } else if (c == separador) {
+                    campos.add(campo.toString());
+                    campo.setLength(0);
+                } else if (c == '\n') {
+                    break;
+                } else if (c != '\r') {
+                    campo.append(c);
+                }
+            }
+            campos.add(campo.toString());
+            return true;
+        }
+
+        /**
+         * @return {@code ;} se a primeira linha no buffer contiver esse
+         * caractere, senão {@code ,}
+         */
+        private char detectarSeparador() {
+            for (int i = posicao; i < tamanho && buffer[i] != '\n'; i++) {
+                if (buffer[i] == ';') {
+                    return ';';
+                }
+            }
+            return ',';
+        }
+
+        /**
+         * @return {@code false} se não houver mais caracteres
+         */
+        private boolean garantir() throws IOException {
+            if (posicao < tamanho) {
+                return true;
+            }
+            tamanho = leitor.read(buffer);
+            posicao = 0;
+            while (tamanho == 0) {
+                tamanho = leitor.read(buffer);
+            }
+            return tamanho > 0;
+        }
+    }
+}
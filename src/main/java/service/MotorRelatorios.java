@@ -0,0 +1,352 @@
+package service;
+
+import config.Configuracao;
+import dao.Prazo;
+import dao.ProdutoDAO;
+import dao.RegistroMovimentacaoDAO;
+import java.io.Serializable;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import modelo.ProdutosColunar;
+import modelo.RelatorioCategoria;
+
+/**
+ * Calcula os relatórios gerenciais no servidor com paralelismo fork/join.
+ *
+ * Os produtos são lidos em formato colunar e as entradas e saídas de estoque
+ * do período já somadas por produto no banco
+ * ({@link RegistroMovimentacaoDAO#somarVariacoes}), as duas leituras em
+ * paralelo e em streaming; a memória usada depende da quantidade de produtos,
+ * e não do tamanho do histórico. Em seguida, cada vetor é dividido
+ * recursivamente em partições de até {@code estoque.relatorio.particao}
+ * elementos; cada partição acumula os indicadores em vetores indexados pelo
+ * código da categoria no dicionário dos produtos, e os resultados parciais
+ * são somados ao juntar as tarefas. A categoria de cada produto movimentado é
+ * obtida de uma tabela indexada pelo ID quando os IDs são densos, ou por
+ * busca binária no vetor de IDs, que vem ordenado do banco.
+ *
+ * O pool tem {@code estoque.relatorio.paralelismo} threads (zero usa a
+ * quantidade de processadores) e é compartilhado pelos relatórios do servidor.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+class MotorRelatorios {
+
+    private static ForkJoinPool pool;
+
+    private final ProdutoDAO produtoDAO;
+    private final RegistroMovimentacaoDAO registroDAO;
+
+    /**
+     * Cria o motor de relatórios sobre os DAOs de um serviço.
+     *
+     * @param produtoDAO DAO de produtos
+     * @param registroDAO DAO de movimentações
+     */
+    MotorRelatorios(ProdutoDAO produtoDAO, RegistroMovimentacaoDAO registroDAO) {
+        this.produtoDAO = produtoDAO;
+        this.registroDAO = registroDAO;
+    }
+
+    /**
+     * Gera os indicadores de estoque por categoria.
+     *
+     * @param desde primeiro dia do período, ou {@code null}
+     * @param ate último dia do período, ou {@code null}
+     * @return um item por categoria, em ordem decrescente de valor em estoque
+     * @throws SQLException se ocorrer erro na leitura das movimentações
+     */
+    List<RelatorioCategoria> gerarPorCategoria(LocalDate desde, LocalDate ate) throws SQLException {
+        long inicio = System.nanoTime();
+        ForkJoinPool pool = pool();
+        long prazo = Prazo.limite();
+        CompletableFuture<Variacoes> leituraVariacoes = CompletableFuture.supplyAsync(() -> {
+            Prazo escopo = Prazo.definirLimite(prazo);
+            try {
+                Variacoes lidas = new Variacoes();
+                registroDAO.somarVariacoes(desde, ate, lidas::adicionar);
+                return lidas;
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                escopo.close();
+            }
+        }, pool);
+        ProdutosColunar produtos = produtoDAO.listarProdutosColunar();
+        Variacoes variacoes;
+        try {
+            variacoes = leituraVariacoes.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw e;
+        }
+        long lido = System.nanoTime();
+
+        int categorias = produtos.getDicionarioCategorias().length + 1;
+        int particao = Math.max(1024, Configuracao.obter().getInt("estoque.relatorio.particao"));
+        Parcial total = pool.invoke(new TarefaProdutos(produtos, categorias, particao, 0, produtos.tamanho()));
+        int[] categoriaPorId = tabelaCategorias(produtos, categorias);
+        total.somar(pool.invoke(new TarefaVariacoes(produtos, categoriaPorId, variacoes, categorias, particao, 0, variacoes.tamanho)));
+
+        List<RelatorioCategoria> relatorio = new ArrayList<>();
+        String[] nomes = produtos.getDicionarioCategorias();
+        for (int c = 0; c < categorias; c++) {
+            if (total.produtos[c] > 0 || total.entradas[c] > 0 || total.saidas[c] > 0) {
+                relatorio.add(new RelatorioCategoria(c < nomes.length ? nomes[c] : null, (int) total.produtos[c],
+                        total.unidades[c], total.valor[c], (int) total.abaixoMinimo[c], total.entradas[c], total.saidas[c]));
+            }
+        }
+        relatorio.sort(Comparator.comparingDouble(RelatorioCategoria::getValorEstoque).reversed());
+        System.out.printf("Relatório por categoria: %d produtos, %d com movimentações, lidos em %d ms, agregados em %d ms (paralelismo %d)%n",
+                produtos.tamanho(), variacoes.tamanho, (lido - inicio) / 1_000_000,
+                (System.nanoTime() - lido) / 1_000_000, pool.getParallelism());
+        return relatorio;
+    }
+
+    private static synchronized ForkJoinPool pool() {
+        if (pool == null) {
+            int paralelismo = Configuracao.obter().getInt("estoque.relatorio.paralelismo");
+            pool = new ForkJoinPool(paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors());
+        }
+        return pool;
+    }
+
+    /**
+     * Monta a tabela do índice de categoria por ID de produto ({@code -1}
+     * para IDs inexistentes), se os IDs forem densos o bastante para que ela
+     * não ocupe mais que alguns vetores do tamanho da lista.
+     *
+     * @return a tabela, ou {@code null} se os IDs forem esparsos
+     */
+    private static int[] tabelaCategorias(ProdutosColunar produtos, int categorias) {
+        int total = produtos.tamanho();
+        if (total == 0) {
+            return null;
+        }
+        int maiorId = produtos.getId(total - 1);
+        if (maiorId < 0 || maiorId > 4L * total + 1024) {
+            return null;
+        }
+        int[] tabela = new int[maiorId + 1];
+        Arrays.fill(tabela, -1);
+        for (int i = 0; i < total; i++) {
+            int id = produtos.getId(i);
+            if (id >= 0) {
+                tabela[id] = indiceCategoria(produtos, i, categorias);
+            }
+        }
+        return tabela;
+    }
+
+    /**
+     * @return o índice da categoria do produto nos vetores de acumulação; o
+     * último índice reúne os produtos sem categoria
+     */
+    private static int indiceCategoria(ProdutosColunar produtos, int i, int categorias) {
+        int codigo = produtos.getCodigoCategoria(i);
+        return codigo >= 0 ? codigo : categorias - 1;
+    }
+
+    /**
+     * Totais de entrada e de saída por produto, na ordem em que o banco os
+     * entregar.
+     */
+    private static final class Variacoes implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        int[] produtoIds = new int[1024];
+        long[] entradas = new long[1024];
+        long[] saidas = new long[1024];
+        int tamanho;
+
+        void adicionar(int produtoId, long entrada, long saida) {
+            if (tamanho == produtoIds.length) {
+                int capacidade = tamanho + (tamanho >> 1);
+                produtoIds = Arrays.copyOf(produtoIds, capacidade);
+                entradas = Arrays.copyOf(entradas, capacidade);
+                saidas = Arrays.copyOf(saidas, capacidade);
+            }
+            produtoIds[tamanho] = produtoId;
+            entradas[tamanho] = entrada;
+            saidas[tamanho] = saida;
+            tamanho++;
+        }
+    }
+
+    /**
+     * Indicadores acumulados por categoria em uma partição.
+     */
+    private static final class Parcial {
+
+        final long[] produtos;
+        final long[] unidades;
+        final double[] valor;
+        final long[] abaixoMinimo;
+        final long[] entradas;
+        final long[] saidas;
+
+        Parcial(int categorias) {
+            produtos = new long[categorias];
+            unidades = new long[categorias];
+            valor = new double[categorias];
+            abaixoMinimo = new long[categorias];
+            entradas = new long[categorias];
+            saidas = new long[categorias];
+        }
+
+        void somar(Parcial outra) {
+            for (int c = 0; c < produtos.length; c++) {
+                produtos[c] += outra.produtos[c];
+                unidades[c] += outra.unidades[c];
+                valor[c] += outra.valor[c];
+                abaixoMinimo[c] += outra.abaixoMinimo[c];
+                entradas[c] += outra.entradas[c];
+                saidas[c] += outra.saidas[c];
+            }
+        }
+    }
+
+    /**
+     * Acumula quantidade, valor e produtos abaixo do mínimo de uma faixa de
+     * produtos.
+     */
+    private static final class TarefaProdutos extends RecursiveTask<Parcial> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ProdutosColunar produtos;
+        private final int categorias;
+        private final int particao;
+        private final int inicio;
+        private final int fim;
+
+        TarefaProdutos(ProdutosColunar produtos, int categorias, int particao, int inicio, int fim) {
+            this.produtos = produtos;
+            this.categorias = categorias;
+            this.particao = particao;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (fim - inicio > particao) {
+                int meio = (inicio + fim) >>> 1;
+                TarefaProdutos esquerda = new TarefaProdutos(produtos, categorias, particao, inicio, meio);
+                esquerda.fork();
+                Parcial parcial = new TarefaProdutos(produtos, categorias, particao, meio, fim).compute();
+                parcial.somar(esquerda.join());
+                return parcial;
+            }
+            Parcial parcial = new Parcial(categorias);
+            for (int i = inicio; i < fim; i++) {
+                int c = indiceCategoria(produtos, i, categorias);
+                int quantidade = produtos.getQuantidade(i);
+                parcial.produtos[c]++;
+                parcial.unidades[c] += quantidade;
+                parcial.valor[c] += produtos.getPreco(i) * quantidade;
+                if (quantidade < produtos.getMin(i)) {
+                    parcial.abaixoMinimo[c]++;
+                }
+            }
+            return parcial;
+        }
+    }
+
+    /**
+     * Acumula as entradas e saídas de uma faixa de produtos movimentados,
+     * atribuídas à categoria atual do produto. Movimentações de produtos
+     * excluídos são ignoradas.
+     */
+    private static final class TarefaVariacoes extends RecursiveTask<Parcial> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ProdutosColunar produtos;
+        /**
+         * Índice da categoria por ID de produto, ou {@code null} para usar
+         * busca binária.
+         */
+        private final int[] categoriaPorId;
+        private final Variacoes variacoes;
+        private final int categorias;
+        private final int particao;
+        private final int inicio;
+        private final int fim;
+
+        TarefaVariacoes(ProdutosColunar produtos, int[] categoriaPorId, Variacoes variacoes, int categorias, int particao, int inicio, int fim) {
+            this.produtos = produtos;
+            this.categoriaPorId = categoriaPorId;
+            this.variacoes = variacoes;
+            this.categorias = categorias;
+            this.particao = particao;
+            this.inicio = inicio;
+            this.fim = fim;
+        }
+
+        @Override
+        protected Parcial compute() {
+            if (fim - inicio > particao) {
+                int meio = (inicio + fim) >>> 1;
+                TarefaVariacoes esquerda = new TarefaVariacoes(produtos, categoriaPorId, variacoes, categorias, particao, inicio, meio);
+                esquerda.fork();
+                Parcial parcial = new TarefaVariacoes(produtos, categoriaPorId, variacoes, categorias, particao, meio, fim).compute();
+                parcial.somar(esquerda.join());
+                return parcial;
+            }
+            Parcial parcial = new Parcial(categorias);
+            for (int i = inicio; i < fim; i++) {
+                int c = categoria(variacoes.produtoIds[i]);
+                if (c >= 0) {
+                    parcial.entradas[c] += variacoes.entradas[i];
+                    parcial.saidas[c] += variacoes.saidas[i];
+                }
+            }
+            return parcial;
+        }
+
+        /**
+         * @return o índice da categoria do produto, ou {@code -1} se ele não
+         * existir mais
+         */
+        private int categoria(int id) {
+            if (categoriaPorId != null) {
+                return id >= 0 && id < categoriaPorId.length ? categoriaPorId[id] : -1;
+            }
+            int posicao = buscarProduto(id);
+            return posicao >= 0 ? indiceCategoria(produtos, posicao, categorias) : -1;
+        }
+
+        /**
+         * @return a posição do produto no vetor ordenado por ID, ou {@code -1}
+         */
+        private int buscarProduto(int id) {
+            int baixo = 0;
+            int alto = produtos.tamanho() - 1;
+            while (baixo <= alto) {
+                int meio = (baixo + alto) >>> 1;
+                int atual = produtos.getId(meio);
+                if (atual < id) {
+                    baixo = meio + 1;
+                } else if (atual > id) {
+                    alto = meio - 1;
+                } else {
+                    return meio;
+                }
+            }
+            return -1;
+        }
+    }
+}
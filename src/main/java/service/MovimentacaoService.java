@@ -3,6 +3,8 @@ package service;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.util.List;
+import java.util.Map;
+import modelo.MovimentacoesColunar;
 import modelo.RegistroMovimentacao;
 
 /**
@@ -18,6 +20,7 @@ import modelo.RegistroMovimentacao;
  * Registrar novas movimentações de produtos (entradas ou saídas).
  * Listar todas as movimentações cadastradas.
  * Listar movimentações específicas de um produto.
+ * Consultar o estoque de um produto ou categoria em uma data passada.
  *
  * As classes que implementam esta interface devem lidar com operações remotas e
  * garantir a integridade dos dados durante as transações.
@@ -37,9 +40,19 @@ public interface MovimentacaoService extends Remote {
      */
     List<RegistroMovimentacao> listarMovimentacoes() throws RemoteException;
 
+    /**
+     * Lista todas as movimentações em formato colunar, mais compacto que
+     * {@link #listarMovimentacoes()} para históricos grandes.
+     *
+     * @return a lista colunar de movimentações.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    MovimentacoesColunar listarMovimentacoesColunar() throws RemoteException;
+
     /**
      * Registra uma nova movimentação (entrada ou saída) de um produto no
-     * estoque.
+     * estoque. Se o registro tiver um {@code requestId}, reenvios com o mesmo
+     * identificador não gravam uma nova movimentação.
      *
      * @param registro objeto {@link RegistroMovimentacao} contendo os dados da
      * movimentação.
@@ -57,4 +70,28 @@ public interface MovimentacaoService extends Remote {
      * @throws RemoteException se ocorrer um erro de comunicação RMI.
      */
     List<RegistroMovimentacao> listarMovimentacoesPorProduto(int produtoId) throws RemoteException;
+
+    /**
+     * Consulta o estoque de um produto no fim de um dia: a quantidade que o
+     * produto tinha naquele dia, considerando as entradas e saídas de estoque
+     * (as movimentações avulsas não alteram o saldo). O tempo da consulta não depende do tamanho do histórico.
+     *
+     * @param produtoId identificador único do produto.
+     * @param data dia da consulta, no formato {@code yyyy-MM-dd}.
+     * @return o saldo do produto no fim do dia.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI ou se o
+     * produto não existir.
+     */
+    int consultarEstoqueEm(int produtoId, String data) throws RemoteException;
+
+    /**
+     * Consulta o estoque no fim de um dia de cada produto de uma categoria,
+     * como em {@link #consultarEstoqueEm(int, String)}.
+     *
+     * @param categoria nome da categoria.
+     * @param data dia da consulta, no formato {@code yyyy-MM-dd}.
+     * @return o saldo de cada produto da categoria, por ID, em ordem de ID.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    Map<Integer, Integer> consultarEstoqueEm(String categoria, String data) throws RemoteException;
 }
@@ -0,0 +1,49 @@
+package service;
+
+import java.rmi.RemoteException;
+
+/**
+ * Interface remota de um nó do cluster de estoque.
+ *
+ * Além de todos os serviços de estoque, o nó oferece as operações usadas pelo
+ * {@link RoteadorEstoque} para transferir a responsabilidade por faixas de
+ * produtos entre nós. As faixas são intervalos {@code (inicio, fim]} do
+ * {@link AnelHashConsistente}; uma faixa com {@code inicio == fim} representa
+ * todos os produtos.
+ *
+ * @author Hector
+ * @version 1.0
+ * @see RoteadorEstoque
+ */
+public interface NoEstoqueService extends ProdutoService, CategoriaService, MovimentacaoService, ReservaService, RelatorioService, ExportacaoService, DiagnosticoService {
+
+    /**
+     * Passa a responder pelos produtos da faixa informada, carregando o estado
+     * em memória correspondente (reservas ativas).
+     *
+     * @param inicio início da faixa de hash (exclusivo)
+     * @param fim fim da faixa de hash (inclusivo)
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    void assumirFaixa(int inicio, int fim) throws RemoteException;
+
+    /**
+     * Deixa de responder pelos produtos da faixa informada, descartando o
+     * estado em memória correspondente (cache e reservas ativas). Os dados
+     * gravados no banco não são alterados.
+     *
+     * @param inicio início da faixa de hash (exclusivo)
+     * @param fim fim da faixa de hash (inclusivo)
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    void liberarFaixa(int inicio, int fim) throws RemoteException;
+
+    /**
+     * Descarta todo o cache de produtos do nó. Usado depois de alterações
+     * feitas diretamente no banco compartilhado por outro nó, como uma
+     * importação em massa.
+     *
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    void descartarCacheProdutos() throws RemoteException;
+}
@@ -3,7 +3,13 @@ package service;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 import java.util.List;
+import java.util.Map;
+import modelo.AlteracaoProduto;
+import modelo.NiveisEstoque;
+import modelo.NomesProdutos;
 import modelo.Produto;
+import modelo.ProdutosColunar;
+import modelo.ResultadoImportacao;
 
 /**
  * Interface remota responsável pelos serviços de manipulação de produtos no
@@ -48,6 +54,24 @@ public interface ProdutoService extends Remote {
      */
     boolean DeletarProdutoID(int id) throws RemoteException;
 
+    /**
+     * Altera os dados cadastrais de um produto (nome, unidade, preço, mínimo,
+     * máximo e categoria) sem bloqueá-lo durante a edição. Só os campos
+     * preenchidos na alteração são gravados, e a quantidade em estoque nunca é
+     * alterada. A alteração só é aplicada se o produto ainda estiver na versão
+     * informada ({@link Produto#getVersao()}); caso contrário é recusada sem
+     * esperar pela outra alteração.
+     *
+     * @param alteracao os campos alterados, com o ID do produto e a versão
+     * lida.
+     * @return o produto atualizado, com a nova versão.
+     * @throws ConflitoVersaoException se o produto foi alterado depois da
+     * versão informada.
+     * @throws RemoteException se o produto não existir, se nenhum campo for
+     * informado ou se ocorrer um erro de comunicação RMI.
+     */
+    Produto atualizarProduto(AlteracaoProduto alteracao) throws RemoteException;
+
     /**
      * Retorna uma lista com todos os produtos cadastrados no sistema.
      *
@@ -56,6 +80,34 @@ public interface ProdutoService extends Remote {
      */
     List<Produto> listarProdutos() throws RemoteException;
 
+    /**
+     * Retorna todos os produtos em formato colunar, mais compacto que
+     * {@link #listarProdutos()} para listagens grandes.
+     *
+     * @return a lista colunar de produtos.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    ProdutosColunar listarProdutosColunar() throws RemoteException;
+
+    /**
+     * Retorna apenas os níveis de estoque (ID, nome, quantidade, mínimo e
+     * máximo) de todos os produtos, sem carregar os demais campos.
+     *
+     * @return a projeção {@link NiveisEstoque} dos produtos.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    NiveisEstoque listarNiveisEstoque() throws RemoteException;
+
+    /**
+     * Retorna apenas o ID e o nome dos produtos, para uso em listas de
+     * seleção.
+     *
+     * @param filtro parte do nome a ser pesquisada, ou {@code null} para todos.
+     * @return a projeção {@link NomesProdutos} dos produtos encontrados.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    NomesProdutos listarNomesProdutos(String filtro) throws RemoteException;
+
     /**
      * Busca um produto específico pelo seu identificador único.
      *
@@ -66,6 +118,16 @@ public interface ProdutoService extends Remote {
      */
     Produto buscarProdutoPorId(int id) throws RemoteException;
 
+    /**
+     * Busca vários produtos em uma única chamada remota.
+     *
+     * @param ids os IDs dos produtos desejados.
+     * @return um mapa com os produtos encontrados, indexado pelo ID. IDs
+     * inexistentes não aparecem no mapa.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    Map<Integer, Produto> buscarProdutosPorIds(int[] ids) throws RemoteException;
+
     /**
      * Busca um produto pelo nome.
      *
@@ -88,6 +150,20 @@ public interface ProdutoService extends Remote {
      */
     boolean registrarEntradaProduto(int idProduto, int quantidade) throws RemoteException;
 
+    /**
+     * Registra uma entrada de produtos de forma idempotente. Reenvios com o
+     * mesmo {@code requestId} não alteram o estoque novamente e devolvem o
+     * resultado da primeira execução.
+     *
+     * @param idProduto o ID do produto que receberá a entrada.
+     * @param quantidade a quantidade a ser adicionada.
+     * @param requestId identificador único da requisição, gerado pelo cliente.
+     * @return {@code true} se a entrada for registrada com sucesso,
+     * {@code false} caso contrário.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    boolean registrarEntradaProduto(int idProduto, int quantidade, String requestId) throws RemoteException;
+
     /**
      * Registra uma saída de produtos do estoque (reduz a quantidade
      * disponível).
@@ -99,4 +175,63 @@ public interface ProdutoService extends Remote {
      * @throws RemoteException se ocorrer um erro de comunicação RMI.
      */
     boolean registrarSaidaProduto(int idProduto, int quantidade) throws RemoteException;
+
+    /**
+     * Registra uma saída de produtos de forma idempotente. Reenvios com o
+     * mesmo {@code requestId} não alteram o estoque novamente e devolvem o
+     * resultado da primeira execução.
+     *
+     * @param idProduto o ID do produto que terá a saída registrada.
+     * @param quantidade a quantidade a ser removida.
+     * @param requestId identificador único da requisição, gerado pelo cliente.
+     * @return {@code true} se a saída for registrada com sucesso, {@code false}
+     * caso contrário.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    boolean registrarSaidaProduto(int idProduto, int quantidade, String requestId) throws RemoteException;
+
+    /**
+     * Inicia uma importação de produtos em massa a partir de um arquivo CSV
+     * com as colunas {@code id;nome;unidade;quantidade;preco;min;max;categoria}
+     * (o separador pode ser {@code ;} ou {@code ,}, e o ID pode ficar vazio
+     * para cadastrar um produto novo). A quantidade só é usada para produtos
+     * novos: a de um produto existente é mantida. O arquivo é enviado em seguida, em
+     * blocos, por {@link #enviarBlocoImportacao(int, byte[])}.
+     *
+     * @return o identificador da importação.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    int iniciarImportacaoProdutos() throws RemoteException;
+
+    /**
+     * Envia o próximo bloco do arquivo de uma importação. Os blocos são
+     * processados enquanto os seguintes são enviados; a chamada só espera se
+     * o servidor estiver atrasado em relação ao envio.
+     *
+     * @param idImportacao o identificador devolvido na abertura.
+     * @param bloco os próximos bytes do arquivo (UTF-8), em ordem.
+     * @throws RemoteException se a importação não existir ou tiver sido
+     * interrompida, ou se ocorrer um erro de comunicação RMI.
+     */
+    void enviarBlocoImportacao(int idImportacao, byte[] bloco) throws RemoteException;
+
+    /**
+     * Indica o fim do arquivo e espera a gravação de todas as linhas.
+     *
+     * @param idImportacao o identificador devolvido na abertura.
+     * @return o resultado final, com as linhas rejeitadas e seus erros.
+     * @throws RemoteException se a importação não existir ou se ocorrer um
+     * erro de comunicação RMI.
+     */
+    ResultadoImportacao concluirImportacao(int idImportacao) throws RemoteException;
+
+    /**
+     * Consulta o progresso de uma importação em andamento.
+     *
+     * @param idImportacao o identificador devolvido na abertura.
+     * @return o progresso até o momento.
+     * @throws RemoteException se a importação não existir ou se ocorrer um
+     * erro de comunicação RMI.
+     */
+    ResultadoImportacao consultarImportacao(int idImportacao) throws RemoteException;
 }
@@ -0,0 +1,46 @@
+package service;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+import modelo.RelatorioCategoria;
+import modelo.SugestaoReposicao;
+
+/**
+ * Interface remota responsável pelos relatórios gerenciais de estoque.
+ *
+ * Os indicadores são calculados no servidor, sem que o cliente precise
+ * transferir a lista completa de produtos e de movimentações.
+ *
+ * @author Hector
+ * @version 1.0
+ * @see modelo.RelatorioCategoria
+ */
+public interface RelatorioService extends Remote {
+
+    /**
+     * Gera os indicadores de estoque por categoria: valor em estoque,
+     * produtos abaixo do mínimo, entradas, saídas e giro no período.
+     *
+     * @param dataInicio primeiro dia do período ({@code yyyy-MM-dd}), ou
+     * {@code null} para não limitar
+     * @param dataFim último dia do período ({@code yyyy-MM-dd}), ou
+     * {@code null} para não limitar
+     * @return um item por categoria, em ordem decrescente de valor em estoque
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    List<RelatorioCategoria> gerarRelatorioCategorias(String dataInicio, String dataFim) throws RemoteException;
+
+    /**
+     * Lista os produtos que devem ser repostos, com a quantidade sugerida,
+     * segundo a demanda diária estimada pelo servidor a cada saída. A
+     * consulta não percorre o histórico de movimentações.
+     *
+     * @param limite quantidade máxima de sugestões; zero ou negativo para
+     * todas
+     * @return as sugestões, dos produtos cujo estoque acaba primeiro na
+     * demanda média para os que duram mais
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    List<SugestaoReposicao> listarSugestoesReposicao(int limite) throws RemoteException;
+}
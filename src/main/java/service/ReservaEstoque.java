@@ -0,0 +1,463 @@
+package service;
+
+import config.Configuracao;
+import dao.EstoqueForaHeap;
+import dao.ProdutoDAO;
+import dao.ReservaDAO;
+import modelo.Reserva;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import util.ConjuntoInt;
+import util.ContadorIntLong;
+import util.MapaIntObjeto;
+
+/**
+ * Mecanismo de reservas temporárias de estoque.
+ *
+ * As reservas ativas e o total reservado por produto ficam em memória, de
+ * modo que a quantidade disponível ({@code quantidade - reservas ativas}) é
+ * calculada sem consultar a tabela de reservas. Cada reserva também é gravada
+ * pelo {@link ReservaDAO} para sobreviver a uma reinicialização, e a expiração
+ * é controlada por uma {@link RodaTemporizacao}.
+ *
+ * A confirmação de uma reserva registra uma saída pelo mesmo caminho das
+ * demais movimentações ({@link ProdutoDAO#RegistrarSaidaProduto}), usando o
+ * identificador {@code reserva-<id>} como requestId para que uma confirmação
+ * repetida não gere uma segunda saída. A reserva continua separando a
+ * quantidade até a saída ser gravada; se a saída falhar, ela volta a valer
+ * com a expiração original.
+ *
+ * As demais saídas passam por {@link #registrarSaida}, que desconta da
+ * quantidade disponível as reservas ativas e as saídas ainda em andamento.
+ *
+ * Cada produto tem um bloqueio próprio (os produtos são divididos em
+ * {@value #TRAVAS} grupos pelo ID). A quantidade em estoque é lida e
+ * comparada com o que já está comprometido sob esse bloqueio, e toda
+ * redução do comprometido (fim de uma saída, reserva confirmada, liberada ou
+ * expirada) também é feita sob ele. Assim uma saída que termina não pode
+ * deixar de ser descontada entre a leitura da quantidade e a verificação, e
+ * uma reserva e uma saída simultâneas não usam a mesma quantidade. O
+ * bloqueio do objeto protege apenas as estruturas em memória e nunca é
+ * mantido durante um acesso ao banco.
+ *
+ * Uma nova reserva separa a quantidade em memória antes de ser gravada; a
+ * gravação acontece fora de qualquer bloqueio e, se falhar, a quantidade é
+ * devolvida. Reservas e saídas de um produto não esperam as gravações de
+ * outras reservas, nem mesmo do mesmo produto.
+ *
+ * A reserva confirmada é apagada do banco depois da saída. Se o servidor
+ * parar entre as duas gravações, a reserva cuja saída {@code reserva-<id>}
+ * já foi registrada é apagada ao recarregar, em vez de separar de novo
+ * quantidade que já saiu.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public final class ReservaEstoque {
+
+    /**
+     * Quantidade de bloqueios por produto (potência de dois).
+     */
+    private static final int TRAVAS = 64;
+
+    /**
+     * DAO usado para consultar quantidades e registrar saídas.
+     */
+    private final ProdutoDAO produtoDAO;
+    /**
+     * DAO usado para persistir as reservas.
+     */
+    private final ReservaDAO reservaDAO;
+    /**
+     * Bloqueios dos produtos, escolhidos pelo ID.
+     */
+    private final Object[] travas = new Object[TRAVAS];
+    /**
+     * Reservas ativas, indexadas pelo ID.
+     */
+    private final MapaIntObjeto<Reserva> ativas = new MapaIntObjeto<>();
+    /**
+     * Quantidade total reservada por produto, incluindo as reservas ainda
+     * sendo gravadas.
+     */
+    private final ContadorIntLong reservadoPorProduto = new ContadorIntLong();
+    /**
+     * Quantidade de saídas em andamento por produto, já aceitas e ainda não
+     * refletidas na quantidade em estoque.
+     */
+    private final ContadorIntLong saindoPorProduto = new ContadorIntLong();
+    /**
+     * Reservas cuja saída está sendo gravada.
+     */
+    private final ConjuntoInt confirmando = new ConjuntoInt();
+    /**
+     * Roda responsável por expirar as reservas.
+     */
+    private final RodaTemporizacao roda;
+    /**
+     * Ação executada após cada saída registrada por confirmação de reserva.
+     */
+    private volatile Consumer<Reserva> aoConfirmar = reserva -> {
+    };
+
+    /**
+     * Cria o mecanismo de reservas e recarrega todas as reservas gravadas no
+     * banco. Reservas que expiraram enquanto o servidor estava parado são
+     * removidas.
+     *
+     * @param produtoDAO DAO de produtos usado para consultar o estoque e
+     * registrar as saídas
+     */
+    public ReservaEstoque(ProdutoDAO produtoDAO) {
+        this(produtoDAO, produtoId -> true);
+    }
+
+    /**
+     * Cria o mecanismo de reservas, recarregando do banco apenas as reservas
+     * dos produtos que satisfazem o critério informado.
+     *
+     * @param produtoDAO DAO de produtos usado para consultar o estoque e
+     * registrar as saídas
+     * @param produtosCarregados critério aplicado ao ID do produto de cada
+     * reserva gravada
+     */
+    public ReservaEstoque(ProdutoDAO produtoDAO, IntPredicate produtosCarregados) {
+        this(produtoDAO, new ReservaDAO(), produtosCarregados);
+    }
+
+    /**
+     * Cria o mecanismo de reservas com o DAO de reservas informado.
+     *
+     * @param produtoDAO DAO de produtos usado para consultar o estoque e
+     * registrar as saídas
+     * @param reservaDAO DAO usado para persistir as reservas
+     * @param produtosCarregados critério aplicado ao ID do produto de cada
+     * reserva gravada
+     */
+    ReservaEstoque(ProdutoDAO produtoDAO, ReservaDAO reservaDAO, IntPredicate produtosCarregados) {
+        this.produtoDAO = produtoDAO;
+        this.reservaDAO = reservaDAO;
+        for (int i = 0; i < TRAVAS; i++) {
+            travas[i] = new Object();
+        }
+        this.roda = new RodaTemporizacao(
+                Configuracao.obter().getLong("estoque.reserva.tick.ms"),
+                Configuracao.obter().getInt("estoque.reserva.posicoes"),
+                this::expirar);
+        carregar(produtosCarregados);
+    }
+
+    /**
+     * Define a ação executada após cada saída registrada por confirmação de
+     * reserva.
+     *
+     * @param ouvinte ação que recebe a reserva confirmada
+     */
+    public void aoConfirmar(Consumer<Reserva> ouvinte) {
+        this.aoConfirmar = ouvinte;
+    }
+
+    /**
+     * Carrega do banco as reservas dos produtos que satisfazem o critério e
+     * ainda não estão em memória. Reservas vencidas e reservas cuja saída já
+     * foi registrada são removidas do banco.
+     *
+     * @param criterio critério aplicado ao ID do produto de cada reserva
+     */
+    public void carregar(IntPredicate criterio) {
+        int confirmadas = reservaDAO.removerConfirmadas();
+        if (confirmadas > 0) {
+            System.out.println("Reservas já confirmadas removidas: " + confirmadas);
+        }
+        long agora = System.currentTimeMillis();
+        int carregadas = 0;
+        for (Reserva reserva : reservaDAO.listarReservas()) {
+            if (!criterio.test(reserva.getProdutoId())) {
+                continue;
+            }
+            if (reserva.expirada(agora)) {
+                reservaDAO.remover(reserva.getId());
+                continue;
+            }
+            synchronized (this) {
+                if (ativas.containsKey(reserva.getId())) {
+                    continue;
+                }
+                adicionar(reserva);
+            }
+            roda.agendar(reserva.getId(), reserva.getExpiraEm());
+            carregadas++;
+        }
+        System.out.println("Reservas ativas carregadas: " + carregadas);
+    }
+
+    /**
+     * Retira da memória as reservas dos produtos que satisfazem o critério,
+     * sem removê-las do banco. Usado quando outro nó do cluster passa a ser
+     * responsável por esses produtos.
+     *
+     * @param criterio critério aplicado ao ID do produto de cada reserva
+     */
+    public void descartar(IntPredicate criterio) {
+        List<Reserva> descartadas = new ArrayList<>();
+        synchronized (this) {
+            for (Reserva reserva : ativas.valores()) {
+                if (criterio.test(reserva.getProdutoId())) {
+                    descartadas.add(reserva);
+                }
+            }
+        }
+        for (Reserva reserva : descartadas) {
+            synchronized (trava(reserva.getProdutoId())) {
+                synchronized (this) {
+                    if (ativas.get(reserva.getId()) == reserva) {
+                        remover(reserva);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserva uma quantidade de um produto por um tempo limitado.
+     *
+     * @param produtoId ID do produto
+     * @param quantidade quantidade a reservar
+     * @param ttlSegundos tempo de validade da reserva, em segundos
+     * @return o ID da reserva criada, ou {@code 0} se o produto não existir ou
+     * não houver quantidade disponível
+     * @throws SQLException se ocorrer erro ao gravar a reserva
+     */
+    public int reservar(int produtoId, int quantidade, int ttlSegundos) throws SQLException {
+        if (quantidade <= 0 || ttlSegundos <= 0) {
+            return 0;
+        }
+        synchronized (trava(produtoId)) {
+            int emEstoque = produtoDAO.consultarQuantidade(produtoId);
+            if (emEstoque == EstoqueForaHeap.AUSENTE) {
+                return 0;
+            }
+            synchronized (this) {
+                if (emEstoque - comprometido(produtoId) < quantidade) {
+                    return 0;
+                }
+                // Separa a quantidade antes de gravar a reserva
+                reservadoPorProduto.somar(produtoId, quantidade);
+            }
+        }
+
+        long expiraEm = System.currentTimeMillis() + ttlSegundos * 1000L;
+        Reserva reserva;
+        try {
+            reserva = new Reserva(reservaDAO.inserir(produtoId, quantidade, expiraEm), produtoId, quantidade, expiraEm);
+        } catch (SQLException | RuntimeException e) {
+            synchronized (trava(produtoId)) {
+                synchronized (this) {
+                    descontarReservado(produtoId, quantidade);
+                }
+            }
+            throw e;
+        }
+        synchronized (this) {
+            ativas.put(reserva.getId(), reserva);
+        }
+        roda.agendar(reserva.getId(), expiraEm);
+        return reserva.getId();
+    }
+
+    /**
+     * Confirma uma reserva, registrando a saída da quantidade reservada.
+     *
+     * @param reservaId ID da reserva
+     * @return {@code true} se a saída foi registrada; {@code false} se a
+     * reserva não existir, já tiver expirado, já estiver sendo confirmada ou
+     * a saída falhar
+     */
+    public boolean confirmar(int reservaId) {
+        Reserva reserva;
+        synchronized (this) {
+            reserva = ativas.get(reservaId);
+            if (reserva == null || reserva.expirada(System.currentTimeMillis()) || !confirmando.adicionar(reservaId)) {
+                return false;
+            }
+        }
+
+        boolean sucesso = false;
+        try {
+            sucesso = produtoDAO.RegistrarSaidaProduto(reserva.getProdutoId(), reserva.getQuantidade(),
+                    "Saída da reserva #" + reservaId, "reserva-" + reservaId);
+        } finally {
+            synchronized (trava(reserva.getProdutoId())) {
+                synchronized (this) {
+                    confirmando.remover(reservaId);
+                    if (sucesso) {
+                        remover(reserva);
+                    }
+                }
+            }
+        }
+        if (sucesso) {
+            reservaDAO.remover(reservaId);
+            aoConfirmar.accept(reserva);
+        } else {
+            // A expiração pode ter sido ignorada durante a confirmação
+            roda.agendar(reservaId, reserva.getExpiraEm());
+        }
+        return sucesso;
+    }
+
+    /**
+     * Registra uma saída que não vem de uma reserva. Se o produto tiver
+     * reservas ativas, a saída só é aceita se couber na quantidade disponível
+     * (estoque menos reservas e saídas em andamento); sem reservas, a
+     * verificação fica com o banco.
+     *
+     * @param produtoId ID do produto
+     * @param quantidade quantidade que sai
+     * @param observacao observação da movimentação
+     * @param requestId identificador da requisição, ou {@code null}
+     * @return {@code true} se a saída foi registrada
+     */
+    public boolean registrarSaida(int produtoId, int quantidade, String observacao, String requestId) {
+        synchronized (trava(produtoId)) {
+            // Sob o bloqueio do produto, o reservado e as saídas em andamento
+            // só mudam por esta thread
+            if (quantidadeReservada(produtoId) > 0) {
+                int emEstoque = produtoDAO.consultarQuantidade(produtoId);
+                synchronized (this) {
+                    if (emEstoque != EstoqueForaHeap.AUSENTE && emEstoque - comprometido(produtoId) < quantidade) {
+                        System.out.println("Quantidade disponível insuficiente (reservas ativas) para produto ID: " + produtoId);
+                        return false;
+                    }
+                }
+            }
+            synchronized (this) {
+                saindoPorProduto.somar(produtoId, quantidade);
+            }
+        }
+        try {
+            return produtoDAO.RegistrarSaidaProduto(produtoId, quantidade, observacao, requestId);
+        } finally {
+            // A quantidade em estoque já reflete a saída (ou ela falhou)
+            synchronized (trava(produtoId)) {
+                synchronized (this) {
+                    if (saindoPorProduto.somar(produtoId, -quantidade) <= 0) {
+                        saindoPorProduto.remove(produtoId);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Libera uma reserva sem registrar saída.
+     *
+     * @param reservaId ID da reserva
+     * @return {@code true} se a reserva estava ativa e foi liberada
+     */
+    public boolean liberar(int reservaId) {
+        Reserva reserva;
+        synchronized (this) {
+            reserva = ativas.get(reservaId);
+        }
+        if (reserva == null) {
+            return false;
+        }
+        synchronized (trava(reserva.getProdutoId())) {
+            synchronized (this) {
+                if (ativas.get(reservaId) != reserva || confirmando.contem(reservaId)) {
+                    return false;
+                }
+                remover(reserva);
+            }
+        }
+        reservaDAO.remover(reservaId);
+        return true;
+    }
+
+    /**
+     * Calcula a quantidade de um produto disponível para novas reservas e
+     * saídas.
+     *
+     * @param produtoId ID do produto
+     * @return quantidade em estoque menos as reservas ativas e as saídas em
+     * andamento
+     */
+    public int consultarDisponivel(int produtoId) {
+        synchronized (trava(produtoId)) {
+            int emEstoque = produtoDAO.consultarQuantidade(produtoId);
+            synchronized (this) {
+                return (emEstoque == EstoqueForaHeap.AUSENTE ? 0 : emEstoque) - comprometido(produtoId);
+            }
+        }
+    }
+
+    /**
+     * @param produtoId ID do produto
+     * @return quantidade total reservada do produto
+     */
+    public synchronized int quantidadeReservada(int produtoId) {
+        return (int) reservadoPorProduto.get(produtoId);
+    }
+
+    /**
+     * Quantidade que não pode ser usada por novas reservas e saídas: reservas
+     * ativas e saídas em andamento. Chamado com o bloqueio do objeto.
+     */
+    private int comprometido(int produtoId) {
+        return (int) (reservadoPorProduto.get(produtoId) + saindoPorProduto.get(produtoId));
+    }
+
+    /**
+     * Remove uma reserva vencida, chamado pela roda de temporização. Reservas
+     * em confirmação são mantidas; se a confirmação falhar, a expiração é
+     * agendada de novo.
+     */
+    private void expirar(int reservaId) {
+        Reserva reserva;
+        synchronized (this) {
+            reserva = ativas.get(reservaId);
+        }
+        if (reserva == null) {
+            return;
+        }
+        synchronized (trava(reserva.getProdutoId())) {
+            synchronized (this) {
+                if (ativas.get(reservaId) != reserva || !reserva.expirada(System.currentTimeMillis())
+                        || confirmando.contem(reservaId)) {
+                    return;
+                }
+                remover(reserva);
+            }
+        }
+        reservaDAO.remover(reservaId);
+        System.out.println("Reserva expirada: " + reservaId);
+    }
+
+    private Object trava(int produtoId) {
+        return travas[(produtoId ^ (produtoId >>> 16)) & (TRAVAS - 1)];
+    }
+
+    private void adicionar(Reserva reserva) {
+        ativas.put(reserva.getId(), reserva);
+        reservadoPorProduto.somar(reserva.getProdutoId(), reserva.getQuantidade());
+    }
+
+    /**
+     * Retira uma reserva da memória. Chamado com o bloqueio do produto e o do
+     * objeto.
+     */
+    private void remover(Reserva reserva) {
+        ativas.remove(reserva.getId());
+        descontarReservado(reserva.getProdutoId(), reserva.getQuantidade());
+    }
+
+    private void descontarReservado(int produtoId, int quantidade) {
+        if (reservadoPorProduto.somar(produtoId, -quantidade) <= 0) {
+            reservadoPorProduto.remove(produtoId);
+        }
+    }
+}
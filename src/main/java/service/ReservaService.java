@@ -0,0 +1,60 @@
+package service;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * Interface remota responsável pelas reservas temporárias de estoque.
+ *
+ * Permite separar uma quantidade de um produto durante um período (por
+ * exemplo, enquanto o cliente finaliza uma compra), confirmando-a como saída
+ * de estoque ou liberando-a em seguida. Reservas não confirmadas nem liberadas
+ * expiram automaticamente ao fim do prazo.
+ *
+ * @author Hector
+ * @version 1.0
+ * @see modelo.Reserva
+ */
+public interface ReservaService extends Remote {
+
+    /**
+     * Reserva uma quantidade de um produto por um tempo limitado.
+     *
+     * @param idProduto o ID do produto.
+     * @param quantidade a quantidade a ser reservada.
+     * @param ttlSegundos o tempo de validade da reserva, em segundos.
+     * @return o ID da reserva criada, ou {@code 0} se não houver quantidade
+     * disponível.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    int reservarProduto(int idProduto, int quantidade, int ttlSegundos) throws RemoteException;
+
+    /**
+     * Confirma uma reserva, registrando a saída da quantidade reservada.
+     *
+     * @param idReserva o ID da reserva.
+     * @return {@code true} se a saída for registrada, {@code false} se a
+     * reserva não existir ou já tiver expirado.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    boolean confirmarReserva(int idReserva) throws RemoteException;
+
+    /**
+     * Libera uma reserva sem registrar saída de estoque.
+     *
+     * @param idReserva o ID da reserva.
+     * @return {@code true} se a reserva estava ativa e foi liberada.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    boolean liberarReserva(int idReserva) throws RemoteException;
+
+    /**
+     * Retorna a quantidade disponível de um produto, descontando as reservas
+     * ativas.
+     *
+     * @param idProduto o ID do produto.
+     * @return a quantidade em estoque menos a quantidade reservada.
+     * @throws RemoteException se ocorrer um erro de comunicação RMI.
+     */
+    int consultarDisponivel(int idProduto) throws RemoteException;
+}
@@ -0,0 +1,137 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Roda de temporização (timer wheel) para expirar itens identificados por um
+ * número inteiro.
+ *
+ * O tempo é dividido em intervalos fixos ({@code tickMillis}) distribuídos
+ * circularmente entre {@code numeroPosicoes} posições. Cada item é colocado na
+ * posição correspondente ao seu prazo, e uma única thread percorre a posição
+ * atual a cada intervalo, disparando os itens vencidos. Itens com prazo além
+ * de uma volta completa permanecem na posição até a volta em que vencem.
+ *
+ * Isso evita criar uma tarefa agendada por item: agendar custa O(1) e o custo
+ * de cada intervalo é proporcional apenas aos itens da posição visitada.
+ * Cancelamentos não são necessários; quem recebe o aviso deve ignorar itens
+ * que já não estejam ativos.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class RodaTemporizacao {
+
+    /**
+     * Item agendado na roda.
+     */
+    private static final class Item {
+
+        final int id;
+        final long prazo;
+
+        Item(int id, long prazo) {
+            this.id = id;
+            this.prazo = prazo;
+        }
+    }
+
+    /**
+     * Duração de cada intervalo, em milissegundos.
+     */
+    private final long tickMillis;
+    /**
+     * Posições da roda, cada uma com os itens que vencem naquele intervalo.
+     */
+    private final List<List<Item>> posicoes;
+    /**
+     * Ação executada para cada item vencido.
+     */
+    private final IntConsumer aoExpirar;
+    /**
+     * Thread responsável por avançar a roda.
+     */
+    private final ScheduledExecutorService relogio;
+    /**
+     * Próximo intervalo a ser processado, contado desde 1970-01-01.
+     */
+    private long proximoTick;
+
+    /**
+     * Cria e inicia a roda de temporização.
+     *
+     * @param tickMillis duração de cada intervalo em milissegundos
+     * @param numeroPosicoes quantidade de posições da roda
+     * @param aoExpirar ação executada com o ID de cada item vencido
+     */
+    public RodaTemporizacao(long tickMillis, int numeroPosicoes, IntConsumer aoExpirar) {
+        this.tickMillis = tickMillis;
+        this.aoExpirar = aoExpirar;
+        this.posicoes = new ArrayList<>(numeroPosicoes);
+        for (int i = 0; i < numeroPosicoes; i++) {
+            posicoes.add(new ArrayList<>());
+        }
+        this.proximoTick = System.currentTimeMillis() / tickMillis;
+
+        this.relogio = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "roda-temporizacao");
+            t.setDaemon(true);
+            return t;
+        });
+        relogio.scheduleAtFixedRate(this::avancar, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Agenda um item para expirar no instante informado.
+     *
+     * @param id identificador do item
+     * @param prazo instante de expiração em milissegundos
+     */
+    public synchronized void agendar(int id, long prazo) {
+        // O item é visitado no intervalo seguinte ao do seu prazo, quando já venceu
+        long tick = Math.max(prazo / tickMillis + 1, proximoTick);
+        posicoes.get((int) (tick % posicoes.size())).add(new Item(id, prazo));
+    }
+
+    /**
+     * Interrompe a thread da roda. Itens pendentes não são disparados.
+     */
+    public void encerrar() {
+        relogio.shutdownNow();
+    }
+
+    /**
+     * Processa todos os intervalos vencidos desde a última execução.
+     */
+    private void avancar() {
+        List<Item> vencidos = new ArrayList<>();
+        synchronized (this) {
+            long agora = System.currentTimeMillis();
+            long tickAtual = agora / tickMillis;
+            for (; proximoTick <= tickAtual; proximoTick++) {
+                List<Item> posicao = posicoes.get((int) (proximoTick % posicoes.size()));
+                for (Iterator<Item> it = posicao.iterator(); it.hasNext();) {
+                    Item item = it.next();
+                    if (item.prazo <= agora) {
+                        vencidos.add(item);
+                        it.remove();
+                    }
+                }
+            }
+        }
+
+        for (Item item : vencidos) {
+            try {
+                aoExpirar.accept(item.id);
+            } catch (RuntimeException e) {
+                System.err.println("Erro ao expirar item " + item.id + ": " + e.getMessage());
+            }
+        }
+    }
+}
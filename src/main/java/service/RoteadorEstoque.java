@@ -0,0 +1,750 @@
+package service;
+
+import config.Configuracao;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import modelo.AlteracaoProduto;
+import modelo.ArquivoExportacao;
+import modelo.Categoria;
+import modelo.ConsultaLenta;
+import modelo.EstatisticaSql;
+import modelo.MovimentacoesColunar;
+import modelo.NiveisEstoque;
+import modelo.NomesProdutos;
+import modelo.Produto;
+import modelo.ProdutosColunar;
+import modelo.RegistroMovimentacao;
+import modelo.RelatorioCategoria;
+import modelo.ResultadoImportacao;
+import modelo.SugestaoReposicao;
+
+/**
+ * Roteador do cluster de servidores de estoque.
+ *
+ * Publicado no registro RMI com o nome "EstoqueService", o roteador oferece
+ * aos clientes os mesmos serviços de um servidor único e encaminha cada
+ * chamada ao nó responsável. As operações sobre um produto específico vão
+ * para o nó dono do ID segundo o {@link AnelHashConsistente}, de modo que o
+ * cache, as reservas e a deduplicação de cada produto ficam sempre no mesmo
+ * nó. Listagens e operações que não dependem de um produto são distribuídas
+ * entre os nós em rodízio, já que todos compartilham o mesmo banco de dados.
+ *
+ * Ao incluir um nó, as faixas que mudam de dono são transferidas com as
+ * chamadas bloqueadas, para que nenhuma requisição chegue a um nó que ainda
+ * não carregou o estado correspondente.
+ *
+ * @author Hector
+ * @version 1.0
+ * @see NoEstoqueService
+ */
+public class RoteadorEstoque extends UnicastRemoteObject
+        implements ProdutoService, CategoriaService, MovimentacaoService, ReservaService, RelatorioService, ExportacaoService,
+        DiagnosticoService, ClusterService {
+
+    /**
+     * Quantidade de pontos virtuais de cada nó no anel.
+     */
+    private static final int PONTOS_POR_NO = 128;
+    /**
+     * Fábricas de socket usadas na exportação (TCP_NODELAY, buffers e
+     * compressão das mensagens grandes).
+     */
+    private static final FabricaSocketCliente FABRICA_CLIENTE = FabricaSocketCliente.daConfiguracao();
+    private static final FabricaSocketServidor FABRICA_SERVIDOR = new FabricaSocketServidor(FABRICA_CLIENTE);
+
+    /**
+     * Chamada encaminhada a um nó do cluster.
+     */
+    private interface Chamada<R> {
+
+        R executar(NoEstoqueService no) throws RemoteException;
+    }
+
+    /**
+     * Importação ou arquivo de exportação mantido por um nó, com o
+     * identificador usado pelo nó.
+     */
+    private static final class SessaoNo {
+
+        final NoEstoqueService no;
+        final int id;
+
+        SessaoNo(NoEstoqueService no, int id) {
+            this.no = no;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Anel que define o nó dono de cada produto.
+     */
+    private final AnelHashConsistente<NoEstoqueService> anel = new AnelHashConsistente<>(PONTOS_POR_NO);
+    /**
+     * Bloqueio que impede chamadas durante a transferência de faixas.
+     */
+    private final ReentrantReadWriteLock bloqueio = new ReentrantReadWriteLock();
+    /**
+     * Contador usado no rodízio entre os nós.
+     */
+    private final AtomicInteger rodizio = new AtomicInteger();
+    /**
+     * Cota por cliente. Os limites de concorrência ficam nos nós, junto das
+     * conexões com o banco que eles protegem.
+     */
+    private final ControleAdmissao admissao = new ControleAdmissao(true, false);
+    /**
+     * Importações em andamento, pelo identificador devolvido ao cliente. Cada
+     * importação fica presa ao nó em que foi aberta.
+     */
+    private final Map<Integer, SessaoNo> importacoes = new ConcurrentHashMap<>();
+    /**
+     * Gerador dos identificadores de importação do roteador.
+     */
+    private final AtomicInteger proximaImportacao = new AtomicInteger();
+    /**
+     * Arquivos de exportação, pelo identificador devolvido ao cliente. Cada
+     * arquivo fica no disco do nó que o gerou.
+     */
+    private final Map<Integer, SessaoNo> exportacoes = new ConcurrentHashMap<>();
+    /**
+     * Gerador dos identificadores de exportação do roteador.
+     */
+    private final AtomicInteger proximaExportacao = new AtomicInteger();
+
+    /**
+     * Construtor padrão que exporta o roteador como objeto remoto.
+     *
+     * @throws RemoteException se ocorrer um erro ao exportar o objeto remoto.
+     */
+    public RoteadorEstoque() throws RemoteException {
+        super(Configuracao.obter().getInt("estoque.rmi.porta.servico"), FABRICA_CLIENTE, FABRICA_SERVIDOR);
+    }
+
+    /**
+     * Inclui um nó no cluster a partir de sua referência, transferindo para
+     * ele as faixas de produtos que passa a possuir.
+     *
+     * @param nome nome único do nó
+     * @param no referência (local ou remota) ao nó
+     * @throws RemoteException se a transferência de faixas falhar
+     */
+    public void adicionarNo(String nome, NoEstoqueService no) throws RemoteException {
+        bloqueio.writeLock().lock();
+        try {
+            List<AnelHashConsistente.Faixa> faixas = anel.adicionar(nome, no);
+            for (AnelHashConsistente.Faixa faixa : faixas) {
+                if (faixa.doador != null) {
+                    anel.no(faixa.doador).liberarFaixa(faixa.inicio, faixa.fim);
+                }
+                no.assumirFaixa(faixa.inicio, faixa.fim);
+            }
+            System.out.println("Nó incluído no cluster: " + nome + " (" + faixas.size() + " faixas transferidas)");
+        } finally {
+            bloqueio.writeLock().unlock();
+        }
+    }
+
+// ==================== IMPLEMENTAÇÃO DE ClusterService ====================
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void adicionarNo(String host, int porta, String nome) throws RemoteException {
+        NoEstoqueService no;
+        try {
+            no = (NoEstoqueService) LocateRegistry.getRegistry(host, porta).lookup(nome);
+        } catch (NotBoundException e) {
+            throw new RemoteException("Nó não encontrado: " + nome, e);
+        }
+        adicionarNo(host + ":" + porta + "/" + nome, no);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> listarNos() throws RemoteException {
+        bloqueio.readLock().lock();
+        try {
+            return new ArrayList<>(anel.nomes());
+        } finally {
+            bloqueio.readLock().unlock();
+        }
+    }
+
+// ==================== IMPLEMENTAÇÃO DE ProdutoService ====================
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void salvarProduto(Produto produto) throws RemoteException {
+        admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            qualquerNo(no -> {
+                no.salvarProduto(produto);
+                return null;
+            });
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean DeletarProdutoID(int id) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> noDono(id, no -> no.DeletarProdutoID(id)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Produto atualizarProduto(AlteracaoProduto alteracao) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> noDono(alteracao.getId(), no -> no.atualizarProduto(alteracao)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Produto> listarProdutos() throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> qualquerNo(no -> no.listarProdutos()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ProdutosColunar listarProdutosColunar() throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> qualquerNo(no -> no.listarProdutosColunar()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NiveisEstoque listarNiveisEstoque() throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> qualquerNo(no -> no.listarNiveisEstoque()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public NomesProdutos listarNomesProdutos(String filtro) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> qualquerNo(no -> no.listarNomesProdutos(filtro)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Produto buscarProdutoPorId(int id) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> noDono(id, no -> no.buscarProdutoPorId(id)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, Produto> buscarProdutosPorIds(int[] ids) throws RemoteException {
+        if (ids == null || ids.length == 0) {
+            return new HashMap<>();
+        }
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            bloqueio.readLock().lock();
+            try {
+                // Agrupa os IDs por nó dono e faz uma única chamada para cada nó
+                NoEstoqueService[] donos = new NoEstoqueService[ids.length];
+                Map<NoEstoqueService, Integer> quantidades = new LinkedHashMap<>();
+                for (int i = 0; i < ids.length; i++) {
+                    donos[i] = dono(ids[i]);
+                    quantidades.merge(donos[i], 1, Integer::sum);
+                }
+
+                Map<Integer, Produto> resultado = new HashMap<>(Math.max(16, ids.length * 4 / 3 + 1));
+                for (Map.Entry<NoEstoqueService, Integer> entrada : quantidades.entrySet()) {
+                    int[] lote = new int[entrada.getValue()];
+                    int total = 0;
+                    for (int i = 0; i < ids.length; i++) {
+                        if (donos[i].equals(entrada.getKey())) {
+                            lote[total++] = ids[i];
+                        }
+                    }
+                    resultado.putAll(entrada.getKey().buscarProdutosPorIds(lote));
+                }
+                return resultado;
+            } finally {
+                bloqueio.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Produto buscarProdutoPorNome(String nome) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> qualquerNo(no -> no.buscarProdutoPorNome(nome)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean registrarEntradaProduto(int idProduto, int quantidade) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> noDono(idProduto, no -> no.registrarEntradaProduto(idProduto, quantidade)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean registrarEntradaProduto(int idProduto, int quantidade, String requestId) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> noDono(idProduto, no -> no.registrarEntradaProduto(idProduto, quantidade, requestId)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean registrarSaidaProduto(int idProduto, int quantidade) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> noDono(idProduto, no -> no.registrarSaidaProduto(idProduto, quantidade)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean registrarSaidaProduto(int idProduto, int quantidade, String requestId) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> noDono(idProduto, no -> no.registrarSaidaProduto(idProduto, quantidade, requestId)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * A importação é aberta em um dos nós, que recebe todos os blocos dela.
+     */
+    @Override
+    public int iniciarImportacaoProdutos() throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            SessaoNo sessao = qualquerNo(no -> new SessaoNo(no, no.iniciarImportacaoProdutos()));
+            int id = proximaImportacao.incrementAndGet();
+            importacoes.put(id, sessao);
+            return id;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void enviarBlocoImportacao(int idImportacao, byte[] bloco) throws RemoteException {
+        admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            SessaoNo sessao = sessaoImportacao(idImportacao);
+            sessao.no.enviarBlocoImportacao(sessao.id, bloco);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Como os produtos foram gravados por um único nó, o cache de produtos
+     * dos demais é descartado quando algum produto existente foi atualizado.
+     */
+    @Override
+    public ResultadoImportacao concluirImportacao(int idImportacao) throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            SessaoNo sessao = sessaoImportacao(idImportacao);
+            ResultadoImportacao resultado = sessao.no.concluirImportacao(sessao.id);
+            importacoes.remove(idImportacao);
+            if (resultado.getAtualizados() > 0) {
+                bloqueio.readLock().lock();
+                try {
+                    for (NoEstoqueService no : anel.nos()) {
+                        if (no != sessao.no) {
+                            no.descartarCacheProdutos();
+                        }
+                    }
+                } finally {
+                    bloqueio.readLock().unlock();
+                }
+            }
+            return resultado;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ResultadoImportacao consultarImportacao(int idImportacao) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            SessaoNo sessao = sessaoImportacao(idImportacao);
+            return sessao.no.consultarImportacao(sessao.id);
+        });
+    }
+
+    private SessaoNo sessaoImportacao(int idImportacao) throws RemoteException {
+        SessaoNo sessao = importacoes.get(idImportacao);
+        if (sessao == null) {
+            throw new RemoteException("Importação não encontrada: " + idImportacao);
+        }
+        return sessao;
+    }
+
+// ==================== IMPLEMENTAÇÃO DE CategoriaService ====================
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void salvarCategoria(Categoria categoria) throws RemoteException {
+        admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            qualquerNo(no -> {
+                no.salvarCategoria(categoria);
+                return null;
+            });
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Categoria> listarCategorias() throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> qualquerNo(no -> no.listarCategorias()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void excluirCategoria(int id) throws RemoteException {
+        admissao.executar(ClasseOperacao.ESCRITA, () -> {
+            qualquerNo(no -> {
+                no.excluirCategoria(id);
+                return null;
+            });
+        });
+    }
+
+// ==================== IMPLEMENTAÇÃO DE MovimentacaoService ====================
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RegistroMovimentacao> listarMovimentacoes() throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> qualquerNo(no -> no.listarMovimentacoes()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public MovimentacoesColunar listarMovimentacoesColunar() throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> qualquerNo(no -> no.listarMovimentacoesColunar()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean registrarMovimentacao(RegistroMovimentacao registro) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> noDono(registro.getProdutoId(), no -> no.registrarMovimentacao(registro)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<RegistroMovimentacao> listarMovimentacoesPorProduto(int produtoId) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> noDono(produtoId, no -> no.listarMovimentacoesPorProduto(produtoId)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int consultarEstoqueEm(int produtoId, String data) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> noDono(produtoId, no -> no.consultarEstoqueEm(produtoId, data)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, Integer> consultarEstoqueEm(String categoria, String data) throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> qualquerNo(no -> no.consultarEstoqueEm(categoria, data)));
+    }
+
+// ==================== IMPLEMENTAÇÃO DE ReservaService ====================
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int reservarProduto(int idProduto, int quantidade, int ttlSegundos) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> noDono(idProduto, no -> no.reservarProduto(idProduto, quantidade, ttlSegundos)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * O ID da reserva não indica o produto, então cada nó é consultado até
+     * que o dono da reserva a confirme; os demais nós não a possuem em
+     * memória e respondem {@code false} sem efeito colateral.
+     */
+    @Override
+    public boolean confirmarReserva(int idReserva) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> emTodosAteSucesso(no -> no.confirmarReserva(idReserva)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean liberarReserva(int idReserva) throws RemoteException {
+        return admissao.executar(ClasseOperacao.ESCRITA, () -> emTodosAteSucesso(no -> no.liberarReserva(idReserva)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int consultarDisponivel(int idProduto) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> noDono(idProduto, no -> no.consultarDisponivel(idProduto)));
+    }
+
+// ==================== IMPLEMENTAÇÃO DE RelatorioService ====================
+    /**
+     * {@inheritDoc}
+     *
+     * Os relatórios são lidos do banco compartilhado, então qualquer nó
+     * responde pelo cluster inteiro.
+     */
+    @Override
+    public List<RelatorioCategoria> gerarRelatorioCategorias(String dataInicio, String dataFim) throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> qualquerNo(no -> no.gerarRelatorioCategorias(dataInicio, dataFim)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Cada nó conhece a demanda só dos produtos da sua faixa e sugere os
+     * demais como se não tivessem demanda. Para cada produto vale a sugestão
+     * com a maior média diária, que é a do nó dono.
+     */
+    @Override
+    public List<SugestaoReposicao> listarSugestoesReposicao(int limite) throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> {
+            Map<Integer, SugestaoReposicao> porProduto = new HashMap<>();
+            bloqueio.readLock().lock();
+            try {
+                for (NoEstoqueService no : anel.nos()) {
+                    for (SugestaoReposicao sugestao : no.listarSugestoesReposicao(0)) {
+                        porProduto.merge(sugestao.getProdutoId(), sugestao,
+                                (a, b) -> a.getMediaDiaria() >= b.getMediaDiaria() ? a : b);
+                    }
+                }
+            } finally {
+                bloqueio.readLock().unlock();
+            }
+            List<SugestaoReposicao> resultado = new ArrayList<>(porProduto.values());
+            resultado.sort(DemandaProdutos.ORDEM);
+            return limite > 0 && resultado.size() > limite ? new ArrayList<>(resultado.subList(0, limite)) : resultado;
+        });
+    }
+
+// ==================== IMPLEMENTAÇÃO DE ExportacaoService ====================
+    /**
+     * {@inheritDoc}
+     *
+     * O arquivo é gerado por um dos nós, que atende também o download.
+     */
+    @Override
+    public ArquivoExportacao exportarProdutos(boolean binario) throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> exportarEmQualquerNo(no -> no.exportarProdutos(binario)));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * O arquivo é gerado por um dos nós, que atende também o download.
+     */
+    @Override
+    public ArquivoExportacao exportarMovimentacoes(String dataInicio, String dataFim, boolean binario) throws RemoteException {
+        return admissao.executar(ClasseOperacao.PESADA, () -> exportarEmQualquerNo(no -> no.exportarMovimentacoes(dataInicio, dataFim, binario)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] baixarBlocoExportacao(int idArquivo, long posicao, int tamanho) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            SessaoNo sessao = exportacoes.get(idArquivo);
+            if (sessao == null) {
+                throw new RemoteException("Arquivo de exportação não encontrado: " + idArquivo);
+            }
+            return sessao.no.baixarBlocoExportacao(sessao.id, posicao, tamanho);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void descartarExportacao(int idArquivo) throws RemoteException {
+        SessaoNo sessao = exportacoes.remove(idArquivo);
+        if (sessao != null) {
+            sessao.no.descartarExportacao(sessao.id);
+        }
+    }
+
+    /**
+     * Gera o arquivo em um dos nós, guarda o nó que o gerou e devolve a
+     * descrição com o identificador do roteador.
+     */
+    private ArquivoExportacao exportarEmQualquerNo(Chamada<ArquivoExportacao> chamada) throws RemoteException {
+        return qualquerNo(no -> {
+            ArquivoExportacao arquivo = chamada.executar(no);
+            int id = proximaExportacao.incrementAndGet();
+            exportacoes.put(id, new SessaoNo(no, arquivo.getId()));
+            return new ArquivoExportacao(id, arquivo.getNome(), arquivo.getTamanho(), arquivo.getRegistros(),
+                    arquivo.getDuracaoMillis());
+        });
+    }
+
+// ==================== IMPLEMENTAÇÃO DE DiagnosticoService ====================
+    /**
+     * {@inheritDoc}
+     *
+     * Soma as estatísticas de todos os nós. Os percentis de cada comando são
+     * os maiores entre os nós, uma aproximação por cima dos percentis do
+     * cluster.
+     */
+    @Override
+    public List<EstatisticaSql> listarEstatisticasSql(int limite) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            Map<String, EstatisticaSql> somadas = new HashMap<>();
+            for (List<EstatisticaSql> doNo : emCadaProcesso(no -> no.listarEstatisticasSql(0))) {
+                for (EstatisticaSql e : doNo) {
+                    somadas.merge(e.getImpressao(), e, (a, b) -> new EstatisticaSql(a.getImpressao(),
+                            a.getExecucoes() + b.getExecucoes(), a.getLinhas() + b.getLinhas(),
+                            a.getTotalMillis() + b.getTotalMillis(), Math.max(a.getP50Millis(), b.getP50Millis()),
+                            Math.max(a.getP95Millis(), b.getP95Millis()), Math.max(a.getP99Millis(), b.getP99Millis()),
+                            Math.max(a.getMaximoMillis(), b.getMaximoMillis())));
+                }
+            }
+            List<EstatisticaSql> resultado = new ArrayList<>(somadas.values());
+            resultado.sort(Comparator.comparingDouble(EstatisticaSql::getTotalMillis).reversed());
+            return limite > 0 && resultado.size() > limite ? new ArrayList<>(resultado.subList(0, limite)) : resultado;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Junta as consultas lentas de todos os nós.
+     */
+    @Override
+    public List<ConsultaLenta> listarConsultasLentas(int limite) throws RemoteException {
+        return admissao.executar(ClasseOperacao.CONSULTA, () -> {
+            List<ConsultaLenta> resultado = new ArrayList<>();
+            for (List<ConsultaLenta> doNo : emCadaProcesso(no -> no.listarConsultasLentas(limite))) {
+                resultado.addAll(doNo);
+            }
+            resultado.sort(Comparator.comparingLong(ConsultaLenta::getInstante).reversed());
+            return limite > 0 && resultado.size() > limite ? new ArrayList<>(resultado.subList(0, limite)) : resultado;
+        });
+    }
+
+    /**
+     * Executa a chamada em cada processo do cluster. Os nós criados neste
+     * processo compartilham o mesmo monitor e são consultados uma vez só.
+     */
+    private <R> List<R> emCadaProcesso(Chamada<R> chamada) throws RemoteException {
+        bloqueio.readLock().lock();
+        try {
+            List<R> resultados = new ArrayList<>();
+            boolean localConsultado = false;
+            for (NoEstoqueService no : anel.nos()) {
+                if (no instanceof EstoqueServiceImpl) {
+                    if (localConsultado) {
+                        continue;
+                    }
+                    localConsultado = true;
+                }
+                resultados.add(chamada.executar(no));
+            }
+            return resultados;
+        } finally {
+            bloqueio.readLock().unlock();
+        }
+    }
+
+    /**
+     * Executa a chamada no nó dono do produto.
+     */
+    private <R> R noDono(int produtoId, Chamada<R> chamada) throws RemoteException {
+        bloqueio.readLock().lock();
+        try {
+            return chamada.executar(dono(produtoId));
+        } finally {
+            bloqueio.readLock().unlock();
+        }
+    }
+
+    /**
+     * Executa a chamada em um dos nós, escolhido em rodízio.
+     */
+    private <R> R qualquerNo(Chamada<R> chamada) throws RemoteException {
+        bloqueio.readLock().lock();
+        try {
+            List<NoEstoqueService> nos = new ArrayList<>(anel.nos());
+            if (nos.isEmpty()) {
+                throw new RemoteException("Nenhum nó disponível no cluster.");
+            }
+            return chamada.executar(nos.get(Math.floorMod(rodizio.getAndIncrement(), nos.size())));
+        } finally {
+            bloqueio.readLock().unlock();
+        }
+    }
+
+    /**
+     * Executa a chamada em cada nó até que algum devolva {@code true}.
+     */
+    private boolean emTodosAteSucesso(Chamada<Boolean> chamada) throws RemoteException {
+        bloqueio.readLock().lock();
+        try {
+            for (NoEstoqueService no : anel.nos()) {
+                if (chamada.executar(no)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            bloqueio.readLock().unlock();
+        }
+    }
+
+    /**
+     * Retorna o nó dono do produto. Deve ser chamado com o bloqueio de leitura.
+     */
+    private NoEstoqueService dono(int produtoId) throws RemoteException {
+        NoEstoqueService no = anel.donoDe(produtoId);
+        if (no == null) {
+            throw new RemoteException("Nenhum nó disponível no cluster.");
+        }
+        return no;
+    }
+}
@@ -1,13 +1,24 @@
 package service;
 
+import config.Configuracao;
+import dao.CheckpointEstoque;
+import dao.DiarioMovimentacoes;
+import dao.EstoqueFracionado;
+import dao.SnapshotCatalogo;
+import java.nio.file.Paths;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import util.ContadorIntLong;
 
 /**
  * Classe responsável por inicializar e publicar o servidor RMI do sistema de
  * estoque.
  *
- * Esta classe cria um registro RMI na porta 1099 e vincula uma instância de
+ * Esta classe cria um registro RMI na porta configurada (1099 por padrão,
+ * chave {@code estoque.rmi.porta.registro}) e vincula uma instância de
  * {@link EstoqueServiceImpl} ao nome "EstoqueService", tornando os métodos
  * remotos disponíveis para os clientes que se conectarem.
  *
@@ -16,33 +27,185 @@ import java.rmi.registry.Registry;
  *
  * Exemplo de execução java service.Servidor
  *
- * Detalhes técnicos Porta utilizada: 1099 (padrão do RMI Registry) Serviço
+ * Detalhes técnicos Porta utilizada: {@code estoque.rmi.porta.registro}
+ * (padrão 1099); objetos exportados em {@code estoque.rmi.porta.servico}
+ * (padrão 0, porta anônima). Demais parâmetros em {@link Configuracao}. Serviço
  * registrado: "EstoqueService" Implementação: {@link EstoqueServiceImpl}
  *
+ * Modos de cluster (argumentos da linha de comando):
+ * {@code cluster <quantidade>} inicia, na mesma JVM, a quantidade informada de
+ * nós ("EstoqueNo-1", "EstoqueNo-2", ...) e um {@link RoteadorEstoque}
+ * publicado como "EstoqueService".
+ * {@code no <porta> <nome>} inicia apenas um nó, publicado com o nome
+ * informado em um registro na porta informada.
+ * {@code roteador <porta> <host:porta/nome>...} inicia o roteador em um
+ * registro na porta informada e inclui os nós já em execução.
+ *
+ * O servidor único e os nós geram os checkpoints diários de estoque
+ * ({@link CheckpointEstoque}) e reconciliam o {@link EstoqueFracionado}; as
+ * duas tarefas podem rodar em vários nós ao mesmo tempo.
+ *
+ * Recuperação pelo {@link DiarioMovimentacoes} (sem publicar o serviço):
+ * {@code diario quantidades <desde> [ate]} exibe a variação de quantidade por
+ * produto no intervalo e {@code diario reenviar <desde> [ate]} grava no banco
+ * as movimentações do intervalo que estiverem faltando. As datas usam o
+ * formato {@code 2025-06-10T15:00:00}, no fuso local.
+ *
  * @author Hector
  * @version 1.0
  * @see EstoqueServiceImpl
+ * @see RoteadorEstoque
  */
 public class Servidor {
 
     /**
      * Método principal que inicializa o servidor RMI.
      *
-     * Cria o registro RMI na porta 1099 e vincula o serviço
-     * {@link EstoqueServiceImpl} ao nome "EstoqueService". Caso ocorra algum
-     * erro, a exceção será exibida no console.
+     * Aplica os tempos limite de socket configurados e inicia o monitoramento
+     * do arquivo de configuração. Cada serviço é aquecido ({@link Aquecimento})
+     * antes de ser vinculado ao registro. Sem argumentos, cria o registro RMI na porta
+     * configurada e vincula o serviço
+     * {@link EstoqueServiceImpl} ao nome "EstoqueService". Com argumentos,
+     * inicia um dos modos de cluster descritos na documentação da classe.
+     * Caso ocorra algum erro, a exceção será exibida no console.
      *
-     * @param args argumentos da linha de comando (não utilizados)
+     * @param args argumentos da linha de comando
      */
     public static void main(String[] args) {
         try {
-            // Cria o registro RMI na porta 1099
-            Registry registro = LocateRegistry.createRegistry(1099);
-            // Publica o serviço de estoque para acesso remoto
-            registro.rebind("EstoqueService", new EstoqueServiceImpl());
-            System.out.println("Servidor RMI ativo na porta 1099...");
+            Configuracao config = Configuracao.obter();
+            config.aplicarPropriedadesRmi();
+            config.iniciarMonitoramento();
+            int portaRegistro = config.getInt("estoque.rmi.porta.registro");
+
+            String modo = args.length > 0 ? args[0] : "";
+            switch (modo) {
+                case "cluster":
+                    iniciarClusterLocal(portaRegistro, Integer.parseInt(args[1]));
+                    break;
+                case "no":
+                    iniciarNo(Integer.parseInt(args[1]), args[2]);
+                    break;
+                case "roteador":
+                    iniciarRoteador(Integer.parseInt(args[1]), Arrays.copyOfRange(args, 2, args.length));
+                    break;
+                case "diario":
+                    recuperarDoDiario(args[1], instante(args[2]),
+                            args.length > 3 ? instante(args[3]) : System.currentTimeMillis());
+                    break;
+                default:
+                    // Cria o registro RMI na porta configurada
+                    Registry registro = LocateRegistry.createRegistry(portaRegistro);
+                    // Aquece o serviço antes de publicá-lo para acesso remoto
+                    EstoqueServiceImpl servico = new EstoqueServiceImpl();
+                    servico.aquecer();
+                    registro.rebind("EstoqueService", servico);
+                    // Mantém o snapshot do catálogo atualizado para a próxima inicialização
+                    new SnapshotCatalogo().iniciarGravacaoPeriodica();
+                    new CheckpointEstoque().iniciarGeracaoPeriodica();
+                    EstoqueFracionado.obter().iniciarReconciliacaoPeriodica();
+                    System.out.println("Servidor RMI ativo na porta " + portaRegistro + "...");
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
+
+    /**
+     * Inicia vários nós e o roteador na mesma JVM, todos no mesmo registro. Os
+     * nós são incluídos um a um, transferindo faixas a cada inclusão.
+     *
+     * @param porta porta do registro RMI
+     * @param quantidade quantidade de nós
+     * @throws Exception se ocorrer erro ao publicar os serviços
+     */
+    private static void iniciarClusterLocal(int porta, int quantidade) throws Exception {
+        Registry registro = LocateRegistry.createRegistry(porta);
+        RoteadorEstoque roteador = new RoteadorEstoque();
+        for (int i = 1; i <= quantidade; i++) {
+            String nome = "EstoqueNo-" + i;
+            EstoqueServiceImpl no = new EstoqueServiceImpl(true);
+            if (i == 1) {
+                // Pools, comandos e JIT são compartilhados pelos nós da JVM
+                no.aquecer();
+            }
+            registro.rebind(nome, no);
+            roteador.adicionarNo(nome, no);
+        }
+        new CheckpointEstoque().iniciarGeracaoPeriodica();
+        EstoqueFracionado.obter().iniciarReconciliacaoPeriodica();
+        registro.rebind("EstoqueService", roteador);
+        System.out.println("Cluster local com " + quantidade + " nós ativo na porta " + porta + "...");
+    }
+
+    /**
+     * Inicia um nó do cluster em seu próprio registro RMI.
+     *
+     * @param porta porta do registro RMI
+     * @param nome nome com que o nó é publicado
+     * @throws Exception se ocorrer erro ao publicar o serviço
+     */
+    private static void iniciarNo(int porta, String nome) throws Exception {
+        Registry registro = LocateRegistry.createRegistry(porta);
+        EstoqueServiceImpl no = new EstoqueServiceImpl(true);
+        no.aquecer();
+        registro.rebind(nome, no);
+        new CheckpointEstoque().iniciarGeracaoPeriodica();
+        EstoqueFracionado.obter().iniciarReconciliacaoPeriodica();
+        System.out.println("Nó " + nome + " ativo na porta " + porta + "...");
+    }
+
+    /**
+     * Executa uma operação de recuperação sobre o diário de movimentações,
+     * sem abri-lo para gravação.
+     *
+     * @param operacao {@code quantidades} ou {@code reenviar}
+     * @param desde início do intervalo, em milissegundos
+     * @param ate fim do intervalo, em milissegundos
+     * @throws Exception se ocorrer erro na leitura do diário ou no banco
+     */
+    private static void recuperarDoDiario(String operacao, long desde, long ate) throws Exception {
+        Configuracao config = Configuracao.obter();
+        DiarioMovimentacoes diario = new DiarioMovimentacoes(Paths.get(config.getString("estoque.diario.diretorio")),
+                config.getInt("estoque.diario.segmento.bytes"));
+        long inicio = System.nanoTime();
+        switch (operacao) {
+            case "quantidades":
+                ContadorIntLong variacoes = diario.somarQuantidades(desde, ate);
+                variacoes.paraCada((produtoId, variacao) -> System.out.println("Produto " + produtoId + ": " + (variacao > 0 ? "+" : "") + variacao));
+                System.out.println(variacoes.size() + " produtos alterados");
+                break;
+            case "reenviar":
+                diario.reenviar(desde, ate);
+                break;
+            default:
+                throw new IllegalArgumentException("Operação do diário desconhecida: " + operacao);
+        }
+        System.out.println("Diário processado em " + (System.nanoTime() - inicio) / 1_000_000 + " ms");
+    }
+
+    private static long instante(String data) {
+        return LocalDateTime.parse(data).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Inicia o roteador do cluster e inclui os nós informados.
+     *
+     * @param porta porta do registro RMI do roteador
+     * @param nos endereços dos nós no formato {@code host:porta/nome}
+     * @throws Exception se ocorrer erro ao publicar o roteador ou incluir um nó
+     */
+    private static void iniciarRoteador(int porta, String[] nos) throws Exception {
+        Registry registro = LocateRegistry.createRegistry(porta);
+        RoteadorEstoque roteador = new RoteadorEstoque();
+        for (String endereco : nos) {
+            int doisPontos = endereco.indexOf(':');
+            int barra = endereco.indexOf('/');
+            roteador.adicionarNo(endereco.substring(0, doisPontos),
+                    Integer.parseInt(endereco.substring(doisPontos + 1, barra)),
+                    endereco.substring(barra + 1));
+        }
+        registro.rebind("EstoqueService", roteador);
+        System.out.println("Roteador do cluster ativo na porta " + porta + " com " + nos.length + " nós...");
+    }
 }
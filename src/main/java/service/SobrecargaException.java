@@ -0,0 +1,38 @@
+package service;
+
+import java.rmi.RemoteException;
+
+/**
+ * Indica que o servidor recusou a chamada por excesso de carga, sem
+ * executá-la. A chamada pode ser repetida depois do tempo sugerido.
+ *
+ * @author Hector
+ * @version 1.0
+ * @see ControleAdmissao
+ */
+public class SobrecargaException extends RemoteException {
+
+    private static final long serialVersionUID = 1L;
+    /**
+     * Tempo sugerido antes de repetir a chamada, em milissegundos.
+     */
+    private final long esperaMillis;
+
+    /**
+     * Cria a exceção com a mensagem e o tempo sugerido de espera.
+     *
+     * @param mensagem descrição do limite atingido
+     * @param esperaMillis tempo sugerido antes de repetir, em milissegundos
+     */
+    public SobrecargaException(String mensagem, long esperaMillis) {
+        super(mensagem);
+        this.esperaMillis = esperaMillis;
+    }
+
+    /**
+     * @return o tempo sugerido antes de repetir a chamada, em milissegundos
+     */
+    public long getEsperaMillis() {
+        return esperaMillis;
+    }
+}
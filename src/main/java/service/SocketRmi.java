@@ -0,0 +1,296 @@
+package service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Socket usado pelas fábricas de socket do RMI.
+ *
+ * Aplica as opções de TCP configuradas e, quando a compressão está ativa,
+ * troca os dados em quadros: tudo o que é escrito até um {@code flush()} (o
+ * RMI esvazia o fluxo ao fim de cada mensagem) forma um quadro, compactado com
+ * Deflate se tiver pelo menos {@code limiteCompressao} bytes e enviado sem
+ * compressão caso contrário. Os dois lados da conexão precisam usar o mesmo
+ * formato, por isso cliente e servidor são criados a partir dos mesmos
+ * parâmetros ({@link FabricaSocketCliente}).
+ *
+ * Formato do quadro: um byte de tipo ({@code 0} = original, {@code 1} =
+ * compactado), o tamanho original (int), o tamanho transmitido (int, apenas
+ * para quadros compactados) e os dados.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+class SocketRmi extends Socket {
+
+    /**
+     * Tamanho máximo de um quadro; escritas maiores são divididas.
+     */
+    private static final int QUADRO_MAXIMO = 1 << 20;
+
+    private static final int ORIGINAL = 0;
+    private static final int COMPACTADO = 1;
+
+    /**
+     * Parâmetros da conexão.
+     */
+    private final FabricaSocketCliente parametros;
+    private InputStream entrada;
+    private OutputStream saida;
+
+    /**
+     * Cria um socket ainda não conectado. As opções de TCP são aplicadas pelas
+     * fábricas, antes da conexão no cliente e após a aceitação no servidor.
+     *
+     * @param parametros opções de TCP e de compressão
+     */
+    SocketRmi(FabricaSocketCliente parametros) {
+        this.parametros = parametros;
+    }
+
+    @Override
+    public synchronized InputStream getInputStream() throws IOException {
+        if (!parametros.isCompressao()) {
+            return super.getInputStream();
+        }
+        if (entrada == null) {
+            entrada = new EntradaQuadros(super.getInputStream());
+        }
+        return entrada;
+    }
+
+    @Override
+    public synchronized OutputStream getOutputStream() throws IOException {
+        if (!parametros.isCompressao()) {
+            return super.getOutputStream();
+        }
+        if (saida == null) {
+            saida = new SaidaQuadros(super.getOutputStream(), parametros.getLimiteCompressao(),
+                    parametros.getNivelCompressao());
+        }
+        return saida;
+    }
+
+    /**
+     * Acumula os bytes escritos e os envia como um quadro a cada
+     * {@code flush()}.
+     */
+    private static final class SaidaQuadros extends FilterOutputStream {
+
+        private final int limite;
+        private final Deflater compactador;
+        private byte[] pendentes = new byte[8192];
+        private int tamanho;
+        private byte[] compactados = new byte[0];
+
+        SaidaQuadros(OutputStream destino, int limite, int nivel) {
+            super(new BufferedOutputStream(destino, 8192));
+            this.limite = limite;
+            this.compactador = new Deflater(nivel);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            garantirEspaco(1);
+            pendentes[tamanho++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (tamanho == QUADRO_MAXIMO) {
+                    enviarQuadro();
+                }
+                int parte = Math.min(len, QUADRO_MAXIMO - tamanho);
+                garantirEspaco(parte);
+                System.arraycopy(b, off, pendentes, tamanho, parte);
+                tamanho += parte;
+                off += parte;
+                len -= parte;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            enviarQuadro();
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                compactador.end();
+                out.close();
+            }
+        }
+
+        private void garantirEspaco(int quantidade) throws IOException {
+            if (tamanho + quantidade > QUADRO_MAXIMO) {
+                enviarQuadro();
+            }
+            if (tamanho + quantidade > pendentes.length) {
+                pendentes = Arrays.copyOf(pendentes, Math.min(QUADRO_MAXIMO, Math.max(pendentes.length * 2, tamanho + quantidade)));
+            }
+        }
+
+        private void enviarQuadro() throws IOException {
+            if (tamanho == 0) {
+                return;
+            }
+            if (tamanho >= limite) {
+                compactador.reset();
+                compactador.setInput(pendentes, 0, tamanho);
+                compactador.finish();
+                if (compactados.length < tamanho) {
+                    compactados = new byte[tamanho];
+                }
+                int total = 0;
+                while (!compactador.finished() && total < compactados.length) {
+                    total += compactador.deflate(compactados, total, compactados.length - total);
+                }
+                // Dados que não diminuem com a compressão vão no formato original
+                if (compactador.finished() && total < tamanho) {
+                    out.write(COMPACTADO);
+                    escreverInt(tamanho);
+                    escreverInt(total);
+                    out.write(compactados, 0, total);
+                    tamanho = 0;
+                    return;
+                }
+            }
+            out.write(ORIGINAL);
+            escreverInt(tamanho);
+            out.write(pendentes, 0, tamanho);
+            tamanho = 0;
+        }
+
+        private void escreverInt(int valor) throws IOException {
+            out.write(valor >>> 24);
+            out.write(valor >>> 16);
+            out.write(valor >>> 8);
+            out.write(valor);
+        }
+    }
+
+    /**
+     * Lê os quadros enviados por {@link SaidaQuadros}, devolvendo os bytes
+     * originais.
+     */
+    private static final class EntradaQuadros extends InputStream {
+
+        private final DataInputStream origem;
+        private final Inflater descompactador = new Inflater();
+        private byte[] quadro = new byte[8192];
+        private byte[] compactados = new byte[0];
+        private int posicao;
+        private int tamanho;
+
+        EntradaQuadros(InputStream origem) {
+            this.origem = new DataInputStream(origem);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!garantirDados()) {
+                return -1;
+            }
+            return quadro[posicao++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!garantirDados()) {
+                return -1;
+            }
+            int parte = Math.min(len, tamanho - posicao);
+            System.arraycopy(quadro, posicao, b, off, parte);
+            posicao += parte;
+            return parte;
+        }
+
+        @Override
+        public int available() {
+            return tamanho - posicao;
+        }
+
+        @Override
+        public void close() throws IOException {
+            descompactador.end();
+            origem.close();
+        }
+
+        /**
+         * Lê o próximo quadro se o atual já foi consumido.
+         *
+         * @return {@code false} se a conexão foi encerrada
+         */
+        private boolean garantirDados() throws IOException {
+            while (posicao == tamanho) {
+                int tipo = origem.read();
+                if (tipo < 0) {
+                    return false;
+                }
+                int original = origem.readInt();
+                if (original < 0 || original > QUADRO_MAXIMO) {
+                    throw new IOException("Quadro RMI inválido: " + original + " bytes");
+                }
+                if (quadro.length < original) {
+                    quadro = new byte[Math.max(original, quadro.length * 2)];
+                }
+                if (tipo == ORIGINAL) {
+                    origem.readFully(quadro, 0, original);
+                } else if (tipo == COMPACTADO) {
+                    descompactar(original);
+                } else {
+                    throw new IOException("Tipo de quadro RMI desconhecido: " + tipo);
+                }
+                posicao = 0;
+                tamanho = original;
+            }
+            return true;
+        }
+
+        private void descompactar(int original) throws IOException {
+            int transmitido = origem.readInt();
+            if (transmitido < 0 || transmitido > original) {
+                throw new IOException("Quadro RMI compactado inválido: " + transmitido + " bytes");
+            }
+            if (compactados.length < transmitido) {
+                compactados = new byte[transmitido];
+            }
+            origem.readFully(compactados, 0, transmitido);
+            descompactador.reset();
+            descompactador.setInput(compactados, 0, transmitido);
+            try {
+                int total = 0;
+                while (total < original && !descompactador.finished()) {
+                    int lidos = descompactador.inflate(quadro, total, original - total);
+                    if (lidos == 0 && (descompactador.needsInput() || descompactador.needsDictionary())) {
+                        break;
+                    }
+                    total += lidos;
+                }
+                if (total != original) {
+                    throw new EOFException("Quadro RMI compactado incompleto");
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Quadro RMI compactado corrompido", e);
+            }
+        }
+    }
+}
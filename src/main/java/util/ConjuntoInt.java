@@ -0,0 +1,189 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de valores {@code int} com endereçamento aberto e sondagem linear,
+ * sem criar um {@link Integer} por elemento como o {@code HashSet<Integer>}.
+ * A classe não é sincronizada.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class ConjuntoInt {
+
+    private int[] elementos;
+    /**
+     * Se o valor 0, que marca posição vazia, pertence ao conjunto.
+     */
+    private boolean contemZero;
+    private int tamanho;
+    private int limite;
+
+    /**
+     * Cria um conjunto vazio.
+     */
+    public ConjuntoInt() {
+        this(8);
+    }
+
+    /**
+     * Cria um conjunto com espaço para a quantidade informada de elementos
+     * sem redimensionar.
+     *
+     * @param capacidade quantidade esperada de elementos
+     */
+    public ConjuntoInt(int capacidade) {
+        alocar(Espalhamento.tamanhoTabela(capacidade));
+    }
+
+    /**
+     * Adiciona um elemento.
+     *
+     * @param valor elemento
+     * @return {@code true} se o elemento ainda não estava no conjunto
+     */
+    public boolean adicionar(int valor) {
+        if (valor == 0) {
+            if (contemZero) {
+                return false;
+            }
+            contemZero = true;
+            tamanho++;
+            return true;
+        }
+        int mascara = elementos.length - 1;
+        int i = Espalhamento.espalhar(valor) & mascara;
+        while (elementos[i] != 0) {
+            if (elementos[i] == valor) {
+                return false;
+            }
+            i = (i + 1) & mascara;
+        }
+        elementos[i] = valor;
+        if (++tamanho > limite) {
+            redimensionar(elementos.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * @param valor elemento
+     * @return {@code true} se o elemento pertence ao conjunto
+     */
+    public boolean contem(int valor) {
+        if (valor == 0) {
+            return contemZero;
+        }
+        return posicao(valor) >= 0;
+    }
+
+    /**
+     * Remove um elemento.
+     *
+     * @param valor elemento
+     * @return {@code true} se o elemento estava no conjunto
+     */
+    public boolean remover(int valor) {
+        if (valor == 0) {
+            if (!contemZero) {
+                return false;
+            }
+            contemZero = false;
+            tamanho--;
+            return true;
+        }
+        int i = posicao(valor);
+        if (i < 0) {
+            return false;
+        }
+        int mascara = elementos.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mascara;
+            if (elementos[j] == 0) {
+                break;
+            }
+            int ideal = Espalhamento.espalhar(elementos[j]) & mascara;
+            if (Espalhamento.podeMover(i, j, ideal)) {
+                elementos[i] = elementos[j];
+                i = j;
+            }
+        }
+        elementos[i] = 0;
+        tamanho--;
+        return true;
+    }
+
+    /**
+     * @return os elementos do conjunto, em ordem arbitrária
+     */
+    public int[] paraVetor() {
+        int[] vetor = new int[tamanho];
+        int n = 0;
+        if (contemZero) {
+            vetor[n++] = 0;
+        }
+        for (int elemento : elementos) {
+            if (elemento != 0) {
+                vetor[n++] = elemento;
+            }
+        }
+        return vetor;
+    }
+
+    /**
+     * Remove todos os elementos, mantendo a capacidade.
+     */
+    public void clear() {
+        Arrays.fill(elementos, 0);
+        contemZero = false;
+        tamanho = 0;
+    }
+
+    /**
+     * @return quantidade de elementos
+     */
+    public int size() {
+        return tamanho;
+    }
+
+    /**
+     * @return {@code true} se o conjunto estiver vazio
+     */
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    private int posicao(int valor) {
+        int mascara = elementos.length - 1;
+        int i = Espalhamento.espalhar(valor) & mascara;
+        while (elementos[i] != valor) {
+            if (elementos[i] == 0) {
+                return -1;
+            }
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private void redimensionar(int novoTamanho) {
+        int[] antigos = elementos;
+        alocar(novoTamanho);
+        int mascara = novoTamanho - 1;
+        for (int valor : antigos) {
+            if (valor != 0) {
+                int j = Espalhamento.espalhar(valor) & mascara;
+                while (elementos[j] != 0) {
+                    j = (j + 1) & mascara;
+                }
+                elementos[j] = valor;
+            }
+        }
+    }
+
+    private void alocar(int tamanhoTabela) {
+        elementos = new int[tamanhoTabela];
+        limite = (int) (tamanhoTabela * Espalhamento.OCUPACAO_MAXIMA);
+    }
+}
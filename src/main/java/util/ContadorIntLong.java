@@ -0,0 +1,227 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Contadores {@code long} indexados por chaves {@code int}, com endereçamento
+ * aberto e sondagem linear, sem criar {@link Integer} nem {@link Long} por
+ * operação como um {@code Map<Integer, Long>} com {@code merge}.
+ *
+ * Um contador ausente vale zero e um contador que volta a zero é removido, de
+ * modo que o tamanho é sempre a quantidade de chaves com valor diferente de
+ * zero. A classe não é sincronizada.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+public class ContadorIntLong {
+
+    /**
+     * Ação executada para cada contador.
+     */
+    public interface Consumidor {
+
+        void aceitar(int chave, long valor);
+    }
+
+    private int[] chaves;
+    private long[] valores;
+    /**
+     * Valor da chave 0, guardado à parte porque 0 marca posição vazia.
+     */
+    private long valorZero;
+    private int tamanho;
+    private int limite;
+
+    /**
+     * Cria um contador vazio.
+     */
+    public ContadorIntLong() {
+        this(8);
+    }
+
+    /**
+     * Cria um contador com espaço para a quantidade informada de chaves sem
+     * redimensionar.
+     *
+     * @param capacidade quantidade esperada de chaves
+     */
+    public ContadorIntLong(int capacidade) {
+        alocar(Espalhamento.tamanhoTabela(capacidade));
+    }
+
+    /**
+     * @param chave chave
+     * @return o valor do contador, ou zero se ausente
+     */
+    public long get(int chave) {
+        if (chave == 0) {
+            return valorZero;
+        }
+        int i = posicao(chave);
+        return i < 0 ? 0 : valores[i];
+    }
+
+    /**
+     * Soma um valor ao contador da chave, criando-o se necessário e
+     * removendo-o se o resultado for zero.
+     *
+     * @param chave chave
+     * @param delta valor somado (pode ser negativo)
+     * @return o novo valor do contador
+     */
+    public long somar(int chave, long delta) {
+        if (chave == 0) {
+            long novo = valorZero + delta;
+            if (valorZero == 0 && novo != 0) {
+                tamanho++;
+            } else if (valorZero != 0 && novo == 0) {
+                tamanho--;
+            }
+            valorZero = novo;
+            return novo;
+        }
+        int mascara = chaves.length - 1;
+        int i = Espalhamento.espalhar(chave) & mascara;
+        while (chaves[i] != 0) {
+            if (chaves[i] == chave) {
+                long novo = valores[i] + delta;
+                if (novo == 0) {
+                    removerPosicao(i);
+                } else {
+                    valores[i] = novo;
+                }
+                return novo;
+            }
+            i = (i + 1) & mascara;
+        }
+        if (delta != 0) {
+            chaves[i] = chave;
+            valores[i] = delta;
+            if (++tamanho > limite) {
+                redimensionar(chaves.length * 2);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Remove o contador da chave.
+     *
+     * @param chave chave
+     * @return o valor que o contador tinha, ou zero se ausente
+     */
+    public long remove(int chave) {
+        if (chave == 0) {
+            long anterior = valorZero;
+            if (anterior != 0) {
+                valorZero = 0;
+                tamanho--;
+            }
+            return anterior;
+        }
+        int i = posicao(chave);
+        if (i < 0) {
+            return 0;
+        }
+        long anterior = valores[i];
+        removerPosicao(i);
+        return anterior;
+    }
+
+    /**
+     * Executa a ação para cada contador diferente de zero.
+     *
+     * @param acao ação executada
+     */
+    public void paraCada(Consumidor acao) {
+        if (valorZero != 0) {
+            acao.aceitar(0, valorZero);
+        }
+        for (int i = 0; i < chaves.length; i++) {
+            if (chaves[i] != 0) {
+                acao.aceitar(chaves[i], valores[i]);
+            }
+        }
+    }
+
+    /**
+     * Remove todos os contadores, mantendo a capacidade.
+     */
+    public void clear() {
+        Arrays.fill(chaves, 0);
+        Arrays.fill(valores, 0);
+        valorZero = 0;
+        tamanho = 0;
+    }
+
+    /**
+     * @return quantidade de contadores diferentes de zero
+     */
+    public int size() {
+        return tamanho;
+    }
+
+    /**
+     * @return {@code true} se não houver contadores diferentes de zero
+     */
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    private int posicao(int chave) {
+        int mascara = chaves.length - 1;
+        int i = Espalhamento.espalhar(chave) & mascara;
+        while (chaves[i] != chave) {
+            if (chaves[i] == 0) {
+                return -1;
+            }
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private void removerPosicao(int i) {
+        int mascara = chaves.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mascara;
+            if (chaves[j] == 0) {
+                break;
+            }
+            int ideal = Espalhamento.espalhar(chaves[j]) & mascara;
+            if (Espalhamento.podeMover(i, j, ideal)) {
+                chaves[i] = chaves[j];
+                valores[i] = valores[j];
+                i = j;
+            }
+        }
+        chaves[i] = 0;
+        valores[i] = 0;
+        tamanho--;
+    }
+
+    private void redimensionar(int novoTamanho) {
+        int[] antigasChaves = chaves;
+        long[] antigosValores = valores;
+        alocar(novoTamanho);
+        int mascara = novoTamanho - 1;
+        for (int i = 0; i < antigasChaves.length; i++) {
+            int chave = antigasChaves[i];
+            if (chave != 0) {
+                int j = Espalhamento.espalhar(chave) & mascara;
+                while (chaves[j] != 0) {
+                    j = (j + 1) & mascara;
+                }
+                chaves[j] = chave;
+                valores[j] = antigosValores[i];
+            }
+        }
+    }
+
+    private void alocar(int tamanhoTabela) {
+        chaves = new int[tamanhoTabela];
+        valores = new long[tamanhoTabela];
+        limite = (int) (tamanhoTabela * Espalhamento.OCUPACAO_MAXIMA);
+    }
+}
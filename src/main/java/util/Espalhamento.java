@@ -0,0 +1,58 @@
+package util;
+
+/**
+ * Funções de espalhamento e dimensionamento compartilhadas pelas coleções de
+ * tipos primitivos.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+final class Espalhamento {
+
+    /**
+     * Ocupação máxima das tabelas antes de dobrar de tamanho.
+     */
+    static final float OCUPACAO_MAXIMA = 0.6f;
+
+    private Espalhamento() {
+    }
+
+    /**
+     * Espalha os bits da chave (finalizador do MurmurHash3) para que chaves
+     * sequenciais não formem sequências longas na sondagem linear.
+     *
+     * @param chave chave original
+     * @return chave espalhada
+     */
+    static int espalhar(int chave) {
+        int h = chave;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * @param elementos quantidade esperada de elementos
+     * @return tamanho da tabela (potência de dois) para os elementos sem
+     * ultrapassar a ocupação máxima
+     */
+    static int tamanhoTabela(int elementos) {
+        long necessario = (long) Math.ceil(Math.max(1, elementos) / OCUPACAO_MAXIMA);
+        if (necessario > 1 << 30) {
+            throw new IllegalArgumentException("Capacidade muito grande: " + elementos);
+        }
+        return Math.max(8, Integer.highestOneBit((int) necessario - 1) << 1);
+    }
+
+    /**
+     * Indica se o elemento da posição {@code j}, cuja posição ideal é
+     * {@code ideal}, pode ser movido para a posição vaga {@code i} na remoção
+     * com deslocamento para trás.
+     */
+    static boolean podeMover(int i, int j, int ideal) {
+        return i <= j ? (ideal <= i || ideal > j) : (ideal <= i && ideal > j);
+    }
+}
@@ -0,0 +1,323 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Mapa de chaves {@code int} para objetos, com endereçamento aberto e
+ * sondagem linear, sem criar um {@link Integer} por chave nem um nó por
+ * entrada como o {@link java.util.HashMap}.
+ *
+ * As remoções deslocam os elementos seguintes para trás, sem marcas de
+ * remoção. A classe não é sincronizada. {@link #get(int)} nunca lança
+ * exceção mesmo se executado durante uma alteração concorrente (o resultado
+ * só é confiável se validado por quem controla o acesso, por exemplo com
+ * {@link java.util.concurrent.locks.StampedLock#validate(long)}). Valores
+ * {@code null} não são permitidos.
+ *
+ * @param <V> tipo dos valores
+ * @author Hector
+ * @version 1.0
+ */
+public class MapaIntObjeto<V> {
+
+    /**
+     * Ação executada para cada entrada do mapa.
+     *
+     * @param <V> tipo dos valores
+     */
+    public interface Consumidor<V> {
+
+        void aceitar(int chave, V valor);
+    }
+
+    private int[] chaves;
+    private Object[] valores;
+    /**
+     * Valor da chave 0, guardado à parte porque 0 marca posição vazia.
+     */
+    private Object valorZero;
+    private int tamanho;
+    private int limite;
+    /**
+     * Posição onde {@link #removerQualquer()} continua a procura.
+     */
+    private int cursor;
+
+    /**
+     * Cria um mapa vazio.
+     */
+    public MapaIntObjeto() {
+        this(8);
+    }
+
+    /**
+     * Cria um mapa com espaço para a quantidade informada de entradas sem
+     * redimensionar.
+     *
+     * @param capacidade quantidade esperada de entradas
+     */
+    public MapaIntObjeto(int capacidade) {
+        alocar(Espalhamento.tamanhoTabela(capacidade));
+    }
+
+    /**
+     * @param chave chave procurada
+     * @return o valor associado, ou {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int chave) {
+        if (chave == 0) {
+            return (V) valorZero;
+        }
+        int[] ks = chaves;
+        Object[] vs = valores;
+        if (ks.length != vs.length) {
+            return null; // redimensionamento em andamento
+        }
+        int mascara = ks.length - 1;
+        int i = Espalhamento.espalhar(chave) & mascara;
+        for (int passos = 0; passos <= mascara; passos++) {
+            int k = ks[i];
+            if (k == chave) {
+                return (V) vs[i];
+            }
+            if (k == 0) {
+                return null;
+            }
+            i = (i + 1) & mascara;
+        }
+        return null;
+    }
+
+    /**
+     * @param chave chave procurada
+     * @return {@code true} se a chave estiver no mapa
+     */
+    public boolean containsKey(int chave) {
+        return get(chave) != null;
+    }
+
+    /**
+     * Associa um valor à chave.
+     *
+     * @param chave chave
+     * @param valor valor (não nulo)
+     * @return o valor anterior, ou {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int chave, V valor) {
+        if (valor == null) {
+            throw new NullPointerException("Valores nulos não são permitidos");
+        }
+        if (chave == 0) {
+            V anterior = (V) valorZero;
+            valorZero = valor;
+            if (anterior == null) {
+                tamanho++;
+            }
+            return anterior;
+        }
+        int mascara = chaves.length - 1;
+        int i = Espalhamento.espalhar(chave) & mascara;
+        while (chaves[i] != 0) {
+            if (chaves[i] == chave) {
+                V anterior = (V) valores[i];
+                valores[i] = valor;
+                return anterior;
+            }
+            i = (i + 1) & mascara;
+        }
+        // Valor gravado antes da chave: quem lê sem bloqueio nunca vê a chave sem valor
+        valores[i] = valor;
+        chaves[i] = chave;
+        if (++tamanho > limite) {
+            redimensionar(chaves.length * 2);
+        }
+        return null;
+    }
+
+    /**
+     * Remove a chave do mapa.
+     *
+     * @param chave chave
+     * @return o valor removido, ou {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int chave) {
+        if (chave == 0) {
+            V anterior = (V) valorZero;
+            if (anterior != null) {
+                valorZero = null;
+                tamanho--;
+            }
+            return anterior;
+        }
+        int mascara = chaves.length - 1;
+        int i = Espalhamento.espalhar(chave) & mascara;
+        while (chaves[i] != chave) {
+            if (chaves[i] == 0) {
+                return null;
+            }
+            i = (i + 1) & mascara;
+        }
+        V anterior = (V) valores[i];
+        removerPosicao(i);
+        return anterior;
+    }
+
+    /**
+     * Remove as entradas cujas chaves satisfazem o critério.
+     *
+     * @param criterio critério aplicado a cada chave
+     * @return quantidade de entradas removidas
+     */
+    public int removerSe(IntPredicate criterio) {
+        int[] selecionadas = new int[8];
+        int total = 0;
+        for (int i = 0; i < chaves.length; i++) {
+            if (chaves[i] != 0 && criterio.test(chaves[i])) {
+                if (total == selecionadas.length) {
+                    selecionadas = Arrays.copyOf(selecionadas, total * 2);
+                }
+                selecionadas[total++] = chaves[i];
+            }
+        }
+        int removidas = 0;
+        for (int i = 0; i < total; i++) {
+            if (remove(selecionadas[i]) != null) {
+                removidas++;
+            }
+        }
+        if (valorZero != null && criterio.test(0)) {
+            remove(0);
+            removidas++;
+        }
+        return removidas;
+    }
+
+    /**
+     * Remove uma entrada qualquer, usado para limitar o tamanho de caches. As
+     * chamadas sucessivas percorrem a tabela em vez de sempre removerem a
+     * mesma região.
+     *
+     * @return {@code false} se o mapa estiver vazio
+     */
+    public boolean removerQualquer() {
+        if (tamanho == 0) {
+            return false;
+        }
+        int mascara = chaves.length - 1;
+        for (int passos = 0; passos <= mascara; passos++) {
+            int i = cursor;
+            cursor = (cursor + 1) & mascara;
+            if (chaves[i] != 0) {
+                removerPosicao(i);
+                return true;
+            }
+        }
+        remove(0);
+        return true;
+    }
+
+    /**
+     * Executa a ação para cada entrada.
+     *
+     * @param acao ação executada
+     */
+    @SuppressWarnings("unchecked")
+    public void paraCada(Consumidor<? super V> acao) {
+        if (valorZero != null) {
+            acao.aceitar(0, (V) valorZero);
+        }
+        for (int i = 0; i < chaves.length; i++) {
+            if (chaves[i] != 0) {
+                acao.aceitar(chaves[i], (V) valores[i]);
+            }
+        }
+    }
+
+    /**
+     * @return cópia dos valores do mapa
+     */
+    public List<V> valores() {
+        List<V> copia = new ArrayList<>(tamanho);
+        paraCada((chave, valor) -> copia.add(valor));
+        return copia;
+    }
+
+    /**
+     * Remove todas as entradas, mantendo a capacidade.
+     */
+    public void clear() {
+        Arrays.fill(chaves, 0);
+        Arrays.fill(valores, null);
+        valorZero = null;
+        tamanho = 0;
+    }
+
+    /**
+     * @return quantidade de entradas
+     */
+    public int size() {
+        return tamanho;
+    }
+
+    /**
+     * @return {@code true} se o mapa estiver vazio
+     */
+    public boolean isEmpty() {
+        return tamanho == 0;
+    }
+
+    private void removerPosicao(int i) {
+        int mascara = chaves.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mascara;
+            if (chaves[j] == 0) {
+                break;
+            }
+            int ideal = Espalhamento.espalhar(chaves[j]) & mascara;
+            if (Espalhamento.podeMover(i, j, ideal)) {
+                valores[i] = valores[j];
+                chaves[i] = chaves[j];
+                i = j;
+            }
+        }
+        chaves[i] = 0;
+        valores[i] = null;
+        tamanho--;
+    }
+
+    private void redimensionar(int novoTamanho) {
+        int[] antigasChaves = chaves;
+        Object[] antigosValores = valores;
+        int[] novasChaves = new int[novoTamanho];
+        Object[] novosValores = new Object[novoTamanho];
+        int mascara = novoTamanho - 1;
+        for (int i = 0; i < antigasChaves.length; i++) {
+            int chave = antigasChaves[i];
+            if (chave != 0) {
+                int j = Espalhamento.espalhar(chave) & mascara;
+                while (novasChaves[j] != 0) {
+                    j = (j + 1) & mascara;
+                }
+                novasChaves[j] = chave;
+                novosValores[j] = antigosValores[i];
+            }
+        }
+        valores = novosValores;
+        chaves = novasChaves;
+        limite = (int) (novoTamanho * Espalhamento.OCUPACAO_MAXIMA);
+        cursor = 0;
+    }
+
+    private void alocar(int tamanhoTabela) {
+        chaves = new int[tamanhoTabela];
+        valores = new Object[tamanhoTabela];
+        limite = (int) (tamanhoTabela * Espalhamento.OCUPACAO_MAXIMA);
+    }
+}
@@ -0,0 +1,123 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.h2.api.Trigger;
+
+/**
+ * Tabelas do estoque ({@code db/estoque.sql}) no banco H2 que faz o papel da
+ * primária nos testes. O banco é compartilhado por todas as classes de teste
+ * da execução; cada teste que o usa começa com {@link #limpar()}, que também
+ * tira as réplicas de uso para que as leituras vejam o que foi gravado.
+ */
+final class BancoTeste {
+
+    private static final String[] TABELAS = {
+        "CREATE TABLE IF NOT EXISTS produto ("
+        + " id int NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+        + " nome varchar(100) NOT NULL,"
+        + " unidade varchar(10) DEFAULT NULL,"
+        + " preco decimal(10,2) NOT NULL,"
+        + " quantidade int DEFAULT NULL,"
+        + " min int NOT NULL,"
+        + " max int NOT NULL,"
+        + " categoria varchar(100) NOT NULL,"
+        + " ultima_alteracao timestamp(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),"
+        + " versao int NOT NULL DEFAULT 0)",
+        "CREATE TABLE IF NOT EXISTS registro_movimentacao ("
+        + " id int NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+        + " produto_id int NOT NULL REFERENCES produto (id),"
+        + " tipo_movimentacao varchar(10) NOT NULL,"
+        + " quantidade int NOT NULL,"
+        + " observacao varchar(255) DEFAULT NULL,"
+        + " data_movimentacao date DEFAULT NULL,"
+        + " request_id varchar(64) DEFAULT NULL UNIQUE,"
+        + " altera_estoque tinyint NOT NULL DEFAULT 0)",
+        "CREATE TABLE IF NOT EXISTS reserva_estoque ("
+        + " id int NOT NULL AUTO_INCREMENT PRIMARY KEY,"
+        + " produto_id int NOT NULL REFERENCES produto (id) ON DELETE CASCADE,"
+        + " quantidade int NOT NULL,"
+        + " expira_em datetime(3) NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS checkpoint_estoque ("
+        + " produto_id int NOT NULL REFERENCES produto (id) ON DELETE CASCADE,"
+        + " data date NOT NULL,"
+        + " saldo int NOT NULL,"
+        + " PRIMARY KEY (produto_id, data))",
+        "CREATE TABLE IF NOT EXISTS estoque_fracao ("
+        + " produto_id int NOT NULL REFERENCES produto (id) ON DELETE CASCADE,"
+        + " fracao int NOT NULL,"
+        + " saldo int NOT NULL,"
+        + " consumido int NOT NULL DEFAULT 0,"
+        + " PRIMARY KEY (produto_id, fracao))",
+        "CREATE TRIGGER IF NOT EXISTS movimentacao_checkpoint AFTER INSERT ON registro_movimentacao"
+        + " FOR EACH ROW CALL 'dao.BancoTeste$GatilhoCheckpoint'"
+    };
+
+    /**
+     * O gatilho {@code movimentacao_checkpoint}: aplica as movimentações de
+     * estoque com data retroativa aos checkpoints já gerados.
+     */
+    public static final class GatilhoCheckpoint implements Trigger {
+
+        @Override
+        public void fire(Connection conn, Object[] antiga, Object[] nova) throws SQLException {
+            if (((Number) nova[7]).intValue() != 1) {
+                return;
+            }
+            int quantidade = ((Number) nova[3]).intValue();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE checkpoint_estoque SET saldo = saldo + ? WHERE produto_id = ? AND data >= ?")) {
+                stmt.setInt(1, "Entrada".equals(nova[2]) ? quantidade : -quantidade);
+                stmt.setInt(2, ((Number) nova[1]).intValue());
+                stmt.setObject(3, nova[5]);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private BancoTeste() {
+    }
+
+    /**
+     * Cria as tabelas que ainda não existirem e apaga as linhas de todas.
+     */
+    static void limpar() throws SQLException {
+        try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement()) {
+            for (String tabela : TABELAS) {
+                stmt.execute(tabela);
+            }
+            stmt.execute("DELETE FROM estoque_fracao");
+            stmt.execute("DELETE FROM checkpoint_estoque");
+            stmt.execute("DELETE FROM reserva_estoque");
+            stmt.execute("DELETE FROM registro_movimentacao");
+            stmt.execute("DELETE FROM produto");
+        }
+        for (FonteDados replica : Conexao.replicas()) {
+            replica.atualizarEstado(false, 0);
+        }
+    }
+
+    /**
+     * Insere um produto com a quantidade informada.
+     */
+    static void inserirProduto(int id, int quantidade) throws SQLException {
+        try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO produto (id, nome, unidade, preco, quantidade, min, max, categoria) VALUES ("
+                    + id + ", 'Produto " + id + "', 'uni', 1.00, " + quantidade + ", 0, 1000000, 'Teste')");
+        }
+    }
+
+    /**
+     * @return a quantidade do produto gravada no banco
+     */
+    static int quantidade(int id) throws SQLException {
+        try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT quantidade FROM produto WHERE id = " + id)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
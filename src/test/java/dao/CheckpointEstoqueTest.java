@@ -0,0 +1,150 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Confere os checkpoints e o estoque em uma data com a soma simples das
+ * movimentações de estoque até a data.
+ */
+class CheckpointEstoqueTest {
+
+    private static final LocalDate INICIO = LocalDate.of(2025, 3, 1);
+    private static final int DIAS = 20;
+    private static final int PRODUTOS = 3;
+
+    /**
+     * Movimentação gravada no banco.
+     */
+    private record Movimentacao(int produto, LocalDate dia, boolean entrada, int quantidade, boolean alteraEstoque) {
+
+        int variacao() {
+            return alteraEstoque ? (entrada ? quantidade : -quantidade) : 0;
+        }
+    }
+
+    private final Map<Integer, Integer> iniciais = new HashMap<>();
+    private final List<Movimentacao> movimentacoes = new ArrayList<>();
+
+    @BeforeEach
+    void preparar() throws SQLException {
+        BancoTeste.limpar();
+        Random aleatorio = new Random(47);
+        for (int produto = 1; produto <= PRODUTOS; produto++) {
+            iniciais.put(produto, 100 * produto);
+        }
+        for (int dia = 0; dia < DIAS; dia++) {
+            // Alguns dias ficam sem movimentação
+            int quantidade = aleatorio.nextInt(4);
+            for (int i = 0; i < quantidade; i++) {
+                movimentacoes.add(new Movimentacao(1 + aleatorio.nextInt(PRODUTOS), INICIO.plusDays(dia),
+                        aleatorio.nextBoolean(), 1 + aleatorio.nextInt(20), aleatorio.nextInt(5) > 0));
+            }
+        }
+        for (int produto = 1; produto <= PRODUTOS; produto++) {
+            BancoTeste.inserirProduto(produto, esperado(produto, LocalDate.MAX));
+        }
+        for (Movimentacao movimentacao : movimentacoes) {
+            gravar(movimentacao);
+        }
+    }
+
+    @Test
+    void checkpointsConferemComASomaDasMovimentacoes() throws SQLException {
+        assertTrue(new CheckpointEstoque().gerarAte(INICIO.plusDays(DIAS - 1)) > 0);
+        conferir();
+    }
+
+    @Test
+    void geracaoEmEtapasIgualAGeracaoDeUmaVez() throws SQLException {
+        new CheckpointEstoque().gerarAte(INICIO.plusDays(DIAS / 2));
+        CheckpointEstoque checkpoints = new CheckpointEstoque();
+        assertTrue(checkpoints.gerarAte(INICIO.plusDays(DIAS - 1)) > 0);
+        assertEquals(0, checkpoints.gerarAte(INICIO.plusDays(DIAS - 1)));
+        assertEquals(0, new CheckpointEstoque().gerarAte(INICIO.plusDays(DIAS - 1)));
+        conferir();
+    }
+
+    @Test
+    void movimentacaoRetroativaCorrigeOsCheckpointsSeguintes() throws SQLException {
+        new CheckpointEstoque().gerarAte(INICIO.plusDays(DIAS - 1));
+        registrar(new Movimentacao(1, INICIO.plusDays(3), false, 30, true));
+        registrar(new Movimentacao(2, INICIO.plusDays(5), true, 12, true));
+        conferir();
+
+        // O checkpoint do dia seguinte parte do anterior, já corrigido
+        registrar(new Movimentacao(1, INICIO.plusDays(DIAS), true, 5, true));
+        registrar(new Movimentacao(2, INICIO.plusDays(DIAS), false, 1, true));
+        assertEquals(2, new CheckpointEstoque().gerarAte(INICIO.plusDays(DIAS)));
+        conferir();
+    }
+
+    /**
+     * Grava uma movimentação de estoque com a quantidade do produto, como o
+     * {@link ProdutoDAO}.
+     */
+    private void registrar(Movimentacao movimentacao) throws SQLException {
+        movimentacoes.add(movimentacao);
+        try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE produto SET quantidade = quantidade + " + movimentacao.variacao() + " WHERE id = " + movimentacao.produto());
+        }
+        gravar(movimentacao);
+    }
+
+    private static void gravar(Movimentacao movimentacao) throws SQLException {
+        try (Connection conn = new Conexao().conectar();
+                PreparedStatement stmt = conn.prepareStatement("INSERT INTO registro_movimentacao"
+                        + " (produto_id, tipo_movimentacao, quantidade, data_movimentacao, altera_estoque) VALUES (?, ?, ?, ?, ?)")) {
+            stmt.setInt(1, movimentacao.produto());
+            stmt.setString(2, movimentacao.entrada() ? "Entrada" : "Saída");
+            stmt.setInt(3, movimentacao.quantidade());
+            stmt.setDate(4, java.sql.Date.valueOf(movimentacao.dia()));
+            stmt.setBoolean(5, movimentacao.alteraEstoque());
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * @return a quantidade inicial do produto mais as movimentações de
+     * estoque até o fim do dia
+     */
+    private int esperado(int produto, LocalDate dia) {
+        int saldo = iniciais.get(produto);
+        for (Movimentacao movimentacao : movimentacoes) {
+            if (movimentacao.produto() == produto && !movimentacao.dia().isAfter(dia)) {
+                saldo += movimentacao.variacao();
+            }
+        }
+        return saldo;
+    }
+
+    private void conferir() throws SQLException {
+        try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT produto_id, data, saldo FROM checkpoint_estoque")) {
+            while (rs.next()) {
+                LocalDate dia = rs.getDate(2).toLocalDate();
+                assertEquals(esperado(rs.getInt(1), dia), rs.getInt(3), "checkpoint do produto " + rs.getInt(1) + " em " + dia);
+            }
+        }
+        RegistroMovimentacaoDAO dao = new RegistroMovimentacaoDAO();
+        for (int produto = 1; produto <= PRODUTOS; produto++) {
+            for (LocalDate dia = INICIO.minusDays(1); !dia.isAfter(INICIO.plusDays(DIAS + 1)); dia = dia.plusDays(1)) {
+                assertEquals(esperado(produto, dia), dao.consultarEstoqueEm(produto, dia), "produto " + produto + " em " + dia);
+            }
+        }
+    }
+}
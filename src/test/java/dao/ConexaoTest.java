@@ -0,0 +1,229 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import config.Configuracao;
+import java.rmi.NoSuchObjectException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Roteamento entre primária e réplicas, com bancos H2 em memória no papel de
+ * cada uma (ver {@code estoque-teste.properties}): primária, duas réplicas e
+ * uma terceira réplica inacessível.
+ */
+class ConexaoTest {
+
+    private static final String PRIMARIA = "jdbc:h2:mem:primaria";
+    private static final String REPLICA_1 = "jdbc:h2:mem:replica1";
+    private static final String REPLICA_2 = "jdbc:h2:mem:replica2";
+
+    /**
+     * Objeto remoto usado para que as chamadas tenham um cliente RMI, como as
+     * do serviço de estoque.
+     */
+    public interface Sonda extends Remote {
+
+        String ler() throws RemoteException;
+
+        String lerPrimario() throws RemoteException;
+
+        String lerPelaConexaoDeEscrita() throws RemoteException;
+
+        void gravar(boolean confirmar) throws RemoteException;
+
+        void gravarSemTransacao() throws RemoteException;
+    }
+
+    private static final class SondaServidor implements Sonda {
+
+        @Override
+        public String ler() throws RemoteException {
+            return banco(new Conexao().conectarLeitura());
+        }
+
+        @Override
+        public String lerPrimario() throws RemoteException {
+            return banco(new Conexao().conectarPrimario());
+        }
+
+        @Override
+        public String lerPelaConexaoDeEscrita() throws RemoteException {
+            try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement()) {
+                stmt.executeQuery("SELECT COUNT(*) FROM marca").close();
+                return url(conn);
+            } catch (SQLException e) {
+                throw new RemoteException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void gravar(boolean confirmar) throws RemoteException {
+            try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement()) {
+                conn.setAutoCommit(false);
+                stmt.executeUpdate("INSERT INTO marca VALUES (1)");
+                if (confirmar) {
+                    conn.commit();
+                } else {
+                    conn.rollback();
+                }
+            } catch (SQLException e) {
+                throw new RemoteException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void gravarSemTransacao() throws RemoteException {
+            try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO marca VALUES (2)");
+            } catch (SQLException e) {
+                throw new RemoteException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @BeforeAll
+    static void criarTabela() throws SQLException {
+        try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS marca (valor int)");
+        }
+    }
+
+    @BeforeEach
+    void replicasSaudaveis() {
+        List<FonteDados> replicas = Conexao.replicas();
+        assertEquals(3, replicas.size());
+        replicas.get(0).atualizarEstado(true, 0);
+        replicas.get(1).atualizarEstado(true, 0);
+        replicas.get(2).atualizarEstado(false, 0);
+    }
+
+    @Test
+    void primeiraVerificacaoMarcaAsReplicasSemStatusComoIndisponiveis() {
+        // Feita na inicialização: os bancos H2 não respondem SHOW REPLICA STATUS
+        // e a terceira réplica nem aceita conexões
+        assertFalse(Conexao.replicas().get(2).isSaudavel());
+    }
+
+    @Test
+    void escritasVaoParaAPrimariaELeiturasParaUmaReplica() throws SQLException {
+        assertEquals(PRIMARIA, banco(new Conexao().conectar()));
+        assertEquals(PRIMARIA, banco(new Conexao().conectarPrimario()));
+        String leitura = banco(new Conexao().conectarLeitura());
+        assertTrue(leitura.equals(REPLICA_1) || leitura.equals(REPLICA_2), leitura);
+    }
+
+    @Test
+    void leituraVaiParaAReplicaMenosOcupada() throws SQLException {
+        try (Connection ocupada = new Conexao().conectarLeitura()) {
+            String primeira = url(ocupada);
+            String outra = primeira.equals(REPLICA_1) ? REPLICA_2 : REPLICA_1;
+            assertEquals(outra, banco(new Conexao().conectarLeitura()));
+            try (Connection tambemOcupada = new Conexao().conectarLeitura()) {
+                assertEquals(outra, url(tambemOcupada));
+                // Empate: as duas com uma conexão emprestada
+                String empate = banco(new Conexao().conectarLeitura());
+                assertTrue(empate.equals(REPLICA_1) || empate.equals(REPLICA_2), empate);
+            }
+        }
+    }
+
+    @Test
+    void replicaAtrasadaOuIndisponivelNaoRecebeLeituras() throws SQLException {
+        List<FonteDados> replicas = Conexao.replicas();
+        replicas.get(0).atualizarEstado(true, 60);
+        assertEquals(REPLICA_2, banco(new Conexao().conectarLeitura()));
+
+        replicas.get(1).atualizarEstado(false, 0);
+        assertEquals(PRIMARIA, banco(new Conexao().conectarLeitura()));
+
+        // Dentro do atraso máximo, vence a de menor atraso
+        replicas.get(0).atualizarEstado(true, 3);
+        replicas.get(1).atualizarEstado(true, 1);
+        assertEquals(REPLICA_2, banco(new Conexao().conectarLeitura()));
+    }
+
+    @Test
+    void replicaQueRecusaConexaoCaiParaAPrimaria() throws SQLException {
+        List<FonteDados> replicas = Conexao.replicas();
+        replicas.get(0).atualizarEstado(false, 0);
+        replicas.get(1).atualizarEstado(false, 0);
+        replicas.get(2).atualizarEstado(true, 0);
+
+        assertEquals(PRIMARIA, banco(new Conexao().conectarLeitura()));
+        assertFalse(replicas.get(2).isSaudavel());
+    }
+
+    @Test
+    void clienteLeNaPrimariaAsPropriasEscritasConfirmadas() throws Exception {
+        SondaServidor servidor = new SondaServidor();
+        Sonda sonda = (Sonda) UnicastRemoteObject.exportObject(servidor, 0);
+        try {
+            assertNotEquals(PRIMARIA, sonda.ler());
+
+            // Leituras, inclusive pela conexão de escrita, e uma transação
+            // desfeita não desviam as leituras seguintes
+            assertEquals(PRIMARIA, sonda.lerPrimario());
+            assertEquals(PRIMARIA, sonda.lerPelaConexaoDeEscrita());
+            sonda.gravar(false);
+            assertNotEquals(PRIMARIA, sonda.ler());
+
+            sonda.gravar(true);
+            assertEquals(PRIMARIA, sonda.ler());
+            // Outros clientes (aqui, chamadas locais) continuam nas réplicas
+            assertNotEquals(PRIMARIA, banco(new Conexao().conectarLeitura()));
+            esperarFimDaLeituraPropria();
+            assertNotEquals(PRIMARIA, sonda.ler());
+
+            sonda.gravarSemTransacao();
+            assertEquals(PRIMARIA, sonda.ler());
+            esperarFimDaLeituraPropria();
+            assertNotEquals(PRIMARIA, sonda.ler());
+        } finally {
+            desexportar(servidor);
+        }
+    }
+
+    private static void esperarFimDaLeituraPropria() throws InterruptedException {
+        Thread.sleep(Configuracao.obter().getLong("estoque.db.leitura.propria.ms") + 200);
+    }
+
+    private static void desexportar(Remote servidor) {
+        try {
+            UnicastRemoteObject.unexportObject(servidor, true);
+        } catch (NoSuchObjectException e) {
+            // já desexportado
+        }
+    }
+
+    /**
+     * Fecha a conexão e devolve a URL do banco em que ela estava.
+     */
+    private static String banco(Connection conn) {
+        try (conn) {
+            return url(conn);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return a URL do banco da conexão, sem os parâmetros
+     */
+    private static String url(Connection conn) throws SQLException {
+        String url = conn.getMetaData().getURL();
+        int fim = url.indexOf(';');
+        return fim < 0 ? url : url.substring(0, fim);
+    }
+}
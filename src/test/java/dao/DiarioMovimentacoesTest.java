@@ -0,0 +1,179 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import modelo.RegistroMovimentacao;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import util.ContadorIntLong;
+
+class DiarioMovimentacoesTest {
+
+    private static final int SEGMENTO = 64 * 1024;
+    private static final LocalDate DIA = LocalDate.of(2025, 6, 10);
+
+    @TempDir
+    Path diretorio;
+
+    @Test
+    void reproduzAsMovimentacoesGravadas() throws IOException {
+        DiarioMovimentacoes diario = new DiarioMovimentacoes(diretorio, SEGMENTO);
+        diario.abrir();
+        diario.registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, 1, "Entrada", 10, "Compra nº 7 — café", DIA, "req-1");
+        diario.registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, 1, "Saída", 4, null, DIA, null);
+        diario.registrar(DiarioMovimentacoes.ORIGEM_AVULSA, 2, "Saída", 99, "avulsa", DIA.plusDays(1), "req-3");
+        diario.registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, 2, "Entrada", 5, "", DIA, "req-4");
+
+        List<DiarioMovimentacoes.Lancamento> lidos = reproduzir(diario);
+        assertEquals(4, lidos.size());
+        for (int i = 0; i < lidos.size(); i++) {
+            assertEquals(i + 1, lidos.get(i).getSequencia());
+        }
+        RegistroMovimentacao primeiro = lidos.get(0).getRegistro();
+        assertEquals(DiarioMovimentacoes.ORIGEM_ESTOQUE, lidos.get(0).getOrigem());
+        assertEquals(1, primeiro.getProdutoId());
+        assertEquals("Entrada", primeiro.getTipoMovimentacao());
+        assertEquals(10, primeiro.getQuantidade());
+        assertEquals("Compra nº 7 — café", primeiro.getObservacao());
+        assertEquals(DIA.toString(), primeiro.getDataMovimentacao());
+        assertEquals("req-1", primeiro.getRequestId());
+
+        RegistroMovimentacao segundo = lidos.get(1).getRegistro();
+        assertNull(segundo.getObservacao());
+        assertNull(segundo.getRequestId());
+        assertEquals(DiarioMovimentacoes.ORIGEM_AVULSA, lidos.get(2).getOrigem());
+        assertEquals(DIA.plusDays(1).toString(), lidos.get(2).getRegistro().getDataMovimentacao());
+        assertEquals("", lidos.get(3).getRegistro().getObservacao());
+
+        // Só as movimentações de estoque entram na soma; saídas subtraem
+        ContadorIntLong variacoes = diario.somarQuantidades(0, Long.MAX_VALUE);
+        assertEquals(6, variacoes.get(1));
+        assertEquals(5, variacoes.get(2));
+
+        assertEquals(0, diario.reproduzir(0, lidos.get(0).getInstante(), l -> {
+        }));
+    }
+
+    @Test
+    void rolaSegmentosMantendoASequencia() throws IOException {
+        DiarioMovimentacoes diario = new DiarioMovimentacoes(diretorio, SEGMENTO);
+        diario.abrir();
+        String observacao = "x".repeat(200);
+        int total = 1_000;
+        for (int i = 0; i < total; i++) {
+            diario.registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, i, "Entrada", 1, observacao, DIA, "req-" + i);
+        }
+        assertTrue(segmentos(diretorio).size() > 1);
+        List<DiarioMovimentacoes.Lancamento> lidos = reproduzir(diario);
+        assertEquals(total, lidos.size());
+        for (int i = 0; i < total; i++) {
+            assertEquals(i + 1, lidos.get(i).getSequencia());
+            assertEquals(i, lidos.get(i).getRegistro().getProdutoId());
+        }
+    }
+
+    @Test
+    void descartaRegistroIncompletoAoReabrir(@TempDir Path copia) throws IOException {
+        DiarioMovimentacoes original = new DiarioMovimentacoes(diretorio, SEGMENTO);
+        original.abrir();
+        for (int i = 1; i <= 3; i++) {
+            original.registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, i, "Entrada", i, "obs", DIA, "req-" + i);
+        }
+        original.sincronizar();
+
+        // Simula uma falha durante a gravação do terceiro registro: os dados
+        // ficaram pela metade e o CRC não confere
+        Path segmento = segmentos(diretorio).get(0);
+        byte[] bytes = Files.readAllBytes(segmento);
+        int terceiro = inicioRegistro(bytes, 2);
+        bytes[terceiro + 8 + 20] ^= 0x5A;
+        Files.write(copia.resolve(segmento.getFileName()), bytes);
+
+        DiarioMovimentacoes recuperado = new DiarioMovimentacoes(copia, SEGMENTO);
+        assertEquals(2, reproduzir(recuperado).size());
+
+        recuperado.abrir();
+        recuperado.registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, 9, "Saída", 1, null, DIA, "req-9");
+        List<DiarioMovimentacoes.Lancamento> lidos = reproduzir(recuperado);
+        assertEquals(3, lidos.size());
+        assertEquals(3, lidos.get(2).getSequencia());
+        assertEquals(9, lidos.get(2).getRegistro().getProdutoId());
+
+        // O restante do registro incompleto foi apagado
+        byte[] depois = Files.readAllBytes(copia.resolve(segmento.getFileName()));
+        int fim = inicioRegistro(depois, 3);
+        for (int i = fim; i < depois.length; i++) {
+            assertEquals(0, depois[i]);
+        }
+    }
+
+    @Test
+    void reenvioNaoDeixaEstoqueNegativo() throws IOException, SQLException {
+        BancoTeste.limpar();
+        BancoTeste.inserirProduto(1, 5);
+        try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO registro_movimentacao (produto_id, tipo_movimentacao, quantidade, data_movimentacao, request_id, altera_estoque)"
+                    + " VALUES (1, 'Entrada', 7, DATE '2025-06-10', 'req-gravada', 1)");
+        }
+        DiarioMovimentacoes diario = new DiarioMovimentacoes(diretorio, SEGMENTO);
+        diario.abrir();
+        diario.registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, 1, "Saída", 3, null, DIA, "req-1");
+        // Depois da primeira saída só restam 2
+        diario.registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, 1, "Saída", 4, null, DIA, "req-2");
+        diario.registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, 1, "Entrada", 10, null, DIA, "req-3");
+        diario.registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, 99, "Entrada", 1, null, DIA, "req-4");
+        diario.registrar(DiarioMovimentacoes.ORIGEM_AVULSA, 1, "Saída", 50, null, DIA, "req-5");
+        diario.registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, 1, "Entrada", 7, null, DIA, "req-gravada");
+        diario.registrar(DiarioMovimentacoes.ORIGEM_ESTOQUE, 1, "Entrada", 100, null, DIA, null);
+
+        assertEquals(3, diario.reenviar(0, Long.MAX_VALUE));
+        assertEquals(12, BancoTeste.quantidade(1));
+        List<String> gravadas = new ArrayList<>();
+        try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT request_id FROM registro_movimentacao ORDER BY request_id")) {
+            while (rs.next()) {
+                gravadas.add(rs.getString(1));
+            }
+        }
+        assertEquals(List.of("req-1", "req-3", "req-5", "req-gravada"), gravadas);
+    }
+
+    private static List<DiarioMovimentacoes.Lancamento> reproduzir(DiarioMovimentacoes diario) throws IOException {
+        List<DiarioMovimentacoes.Lancamento> lidos = new ArrayList<>();
+        diario.reproduzir(0, Long.MAX_VALUE, lidos::add);
+        return lidos;
+    }
+
+    private static List<Path> segmentos(Path diretorio) throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.filter(p -> p.getFileName().toString().endsWith(".diario")).sorted().toList();
+        }
+    }
+
+    /**
+     * Posição do registro de índice informado, seguindo os tamanhos gravados
+     * a partir do fim do cabeçalho (32 bytes).
+     */
+    private static int inicioRegistro(byte[] segmento, int indice) {
+        ByteBuffer dados = ByteBuffer.wrap(segmento);
+        int posicao = 32;
+        for (int i = 0; i < indice; i++) {
+            posicao += 8 + dados.getInt(posicao);
+        }
+        return posicao;
+    }
+}
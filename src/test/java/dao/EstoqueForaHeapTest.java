@@ -0,0 +1,110 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class EstoqueForaHeapTest {
+
+    @Test
+    void armazenaELeTodosOsCampos() {
+        EstoqueForaHeap estoque = new EstoqueForaHeap(4);
+        assertTrue(estoque.armazenar(10, 5, 1, 20, 9.5, "Bebidas"));
+        assertEquals(5, estoque.quantidade(10));
+        assertEquals(1, estoque.minimo(10));
+        assertEquals(20, estoque.maximo(10));
+        assertEquals(9.5, estoque.preco(10));
+        assertEquals("Bebidas", estoque.categoria(10));
+        assertEquals(1, estoque.tamanho());
+
+        assertTrue(estoque.armazenar(10, 8, 2, 30, 10.0, "Limpeza"));
+        assertEquals(8, estoque.quantidade(10));
+        assertEquals("Limpeza", estoque.categoria(10));
+        assertEquals(1, estoque.tamanho());
+    }
+
+    @Test
+    void produtoAusente() {
+        EstoqueForaHeap estoque = new EstoqueForaHeap(2);
+        assertEquals(EstoqueForaHeap.AUSENTE, estoque.quantidade(1));
+        assertEquals(EstoqueForaHeap.AUSENTE, estoque.minimo(1));
+        assertTrue(Double.isNaN(estoque.preco(1)));
+        assertNull(estoque.categoria(1));
+        assertFalse(estoque.ajustarQuantidade(1, 3));
+        assertFalse(estoque.compararEAtualizarQuantidade(1, 0, 3));
+    }
+
+    @Test
+    void ajustaEComparaQuantidade() {
+        EstoqueForaHeap estoque = new EstoqueForaHeap(2);
+        estoque.armazenar(3, 10, 0, 100, 1.0, "A");
+        assertTrue(estoque.ajustarQuantidade(3, -4));
+        assertEquals(6, estoque.quantidade(3));
+        assertFalse(estoque.compararEAtualizarQuantidade(3, 10, 0));
+        assertTrue(estoque.compararEAtualizarQuantidade(3, 6, 0));
+        assertEquals(0, estoque.quantidade(3));
+    }
+
+    @Test
+    void recusaQuandoCheioEReaproveitaRegistrosRemovidos() {
+        EstoqueForaHeap estoque = new EstoqueForaHeap(3);
+        for (int id = 1; id <= 3; id++) {
+            assertTrue(estoque.armazenar(id, id, 0, 0, 0, "A"));
+        }
+        assertFalse(estoque.armazenar(4, 4, 0, 0, 0, "A"));
+        estoque.remover(2);
+        assertEquals(EstoqueForaHeap.AUSENTE, estoque.quantidade(2));
+        assertTrue(estoque.armazenar(4, 4, 0, 0, 0, "A"));
+        assertEquals(4, estoque.quantidade(4));
+        assertEquals(1, estoque.quantidade(1));
+        assertEquals(3, estoque.quantidade(3));
+        assertEquals(3, estoque.tamanho());
+    }
+
+    @Test
+    void muitasRemocoesReconstroemOIndiceSemPerderProdutos() {
+        EstoqueForaHeap estoque = new EstoqueForaHeap(1_000);
+        for (int rodada = 0; rodada < 20; rodada++) {
+            for (int id = 1; id <= 1_000; id++) {
+                assertTrue(estoque.armazenar(id + rodada * 1_000, id, 0, 0, 0, "C" + (id % 5)));
+            }
+            for (int id = 1; id <= 1_000; id++) {
+                assertEquals(id, estoque.quantidade(id + rodada * 1_000));
+                estoque.remover(id + rodada * 1_000);
+            }
+            assertEquals(0, estoque.tamanho());
+        }
+    }
+
+    @Test
+    void removerSeELimpar() {
+        EstoqueForaHeap estoque = new EstoqueForaHeap(100);
+        for (int id = 1; id <= 100; id++) {
+            estoque.armazenar(id, id, 0, 0, 0, "A");
+        }
+        estoque.removerSe(id -> id > 50);
+        assertEquals(50, estoque.tamanho());
+        List<Integer> restantes = new ArrayList<>();
+        for (int id = 1; id <= 100; id++) {
+            if (estoque.quantidade(id) != EstoqueForaHeap.AUSENTE) {
+                restantes.add(id);
+            }
+        }
+        assertEquals(50, restantes.size());
+        assertEquals(50, restantes.get(restantes.size() - 1));
+        estoque.limpar();
+        assertEquals(0, estoque.tamanho());
+        assertEquals(EstoqueForaHeap.AUSENTE, estoque.quantidade(1));
+    }
+
+    @Test
+    void recusaCapacidadeInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> new EstoqueForaHeap(0));
+    }
+}
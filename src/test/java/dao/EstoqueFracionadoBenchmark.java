@@ -0,0 +1,116 @@
+package dao;
+
+import config.Configuracao;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Vazão de saídas simultâneas de um mesmo produto: pela linha única de
+ * {@code produto} ({@code linhaUnica}, fora de
+ * {@code estoque.fracionado.produtos}) e pelas frações do
+ * {@link EstoqueFracionado} ({@code fracionado}, que deve estar na lista).
+ * As duas passam por {@link ProdutoDAO#RegistrarSaidaProduto}, com a
+ * reconciliação periódica ligada.
+ *
+ * O banco é o de {@code benchmark.config}: com os bancos H2 dos testes, as
+ * tabelas são criadas aqui; em um MySQL com {@code db/estoque.sql} aplicado,
+ * só os dois produtos são gravados (com quantidade de sobra). Os resultados
+ * só valem como comparação no MySQL, onde os bloqueios de linha são os da
+ * produção:
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark="EstoqueFracionadoBenchmark -t 32" -Dbenchmark.config=/caminho/estoque.properties
+ * </pre>
+ *
+ * O pool de conexões é aumentado para {@value #CONEXOES}, para que o número
+ * de threads, e não o pool, limite as saídas simultâneas.
+ *
+ * @author Hector
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(value = 1, jvmArgsAppend = "-Destoque.db.pool.tamanho=" + EstoqueFracionadoBenchmark.CONEXOES)
+public class EstoqueFracionadoBenchmark {
+
+    static final int CONEXOES = 64;
+    private static final int QUANTIDADE = 1_000_000_000;
+
+    @Param("901")
+    int linhaUnica;
+
+    @Param("900")
+    int fracionado;
+
+    private ProdutoDAO dao;
+    private PrintStream console;
+
+    @Setup
+    public void preparar() throws SQLException {
+        if (!EstoqueFracionado.obter().ativo(fracionado)) {
+            throw new IllegalStateException("Produto " + fracionado + " fora de estoque.fracionado.produtos");
+        }
+        if (EstoqueFracionado.obter().ativo(linhaUnica)) {
+            throw new IllegalStateException("Produto " + linhaUnica + " em estoque.fracionado.produtos");
+        }
+        if (Configuracao.obter().getString("estoque.db.url").startsWith("jdbc:h2:")) {
+            BancoTeste.limpar();
+        }
+        try (Connection conn = new Conexao().conectar();
+                PreparedStatement stmt = conn.prepareStatement("INSERT INTO produto (id, nome, unidade, preco, quantidade, min, max, categoria)"
+                        + " VALUES (?, ?, 'uni', 1.00, ?, 0, ?, 'Benchmark') ON DUPLICATE KEY UPDATE quantidade = VALUES(quantidade)")) {
+            for (int id : new int[]{linhaUnica, fracionado}) {
+                stmt.setInt(1, id);
+                stmt.setString(2, "Benchmark " + id);
+                stmt.setInt(3, QUANTIDADE);
+                stmt.setInt(4, QUANTIDADE);
+                stmt.executeUpdate();
+            }
+        }
+        EstoqueFracionado.obter().reconciliarTodos();
+        EstoqueFracionado.obter().iniciarReconciliacaoPeriodica();
+        dao = new ProdutoDAO();
+
+        // A mensagem de cada saída iria para o console do JMH e pesaria mais
+        // que a própria saída
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void encerrar() {
+        System.setOut(console);
+        System.out.println("Estoque fracionado: " + EstoqueFracionado.obter().estatisticas());
+    }
+
+    @Benchmark
+    public boolean saidaLinhaUnica() {
+        return dao.RegistrarSaidaProduto(linhaUnica, 1, null);
+    }
+
+    @Benchmark
+    public boolean saidaFracionada() {
+        return dao.RegistrarSaidaProduto(fracionado, 1, null);
+    }
+}
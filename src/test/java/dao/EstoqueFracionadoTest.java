@@ -0,0 +1,205 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import service.ReservaEstoque;
+import util.ConjuntoInt;
+
+/**
+ * Leitura da lista de produtos e, no banco de testes, as saídas pelas
+ * frações e a reconciliação. O produto {@value #FRACIONADO} está em
+ * {@code estoque.fracionado.produtos}, com {@value #FRACOES} frações (ver
+ * {@code estoque-teste.properties}).
+ */
+class EstoqueFracionadoTest {
+
+    private static final int FRACIONADO = 900;
+    private static final int FORA_DA_LISTA = 901;
+    private static final int FRACOES = 4;
+
+    @Test
+    void aceitaOsSeparadoresDaConfiguracao() {
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5}, ordenados(EstoqueFracionado.lerLista("1,2;3 4\t, 5")));
+        assertArrayEquals(new int[]{7, 42}, ordenados(EstoqueFracionado.lerLista("  7 ,, 42 ; ")));
+    }
+
+    @Test
+    void listaVaziaNaoAtivaNenhumProduto() {
+        assertTrue(EstoqueFracionado.lerLista("").isEmpty());
+        assertTrue(EstoqueFracionado.lerLista(" ,; ").isEmpty());
+    }
+
+    @Test
+    void ignoraIdsInvalidosSemDescartarOsDemais() {
+        assertArrayEquals(new int[]{3, 10}, ordenados(EstoqueFracionado.lerLista("3,abc,10,99999999999,1.5")));
+    }
+
+    @Test
+    void ignoraIdsRepetidos() {
+        assertArrayEquals(new int[]{8}, ordenados(EstoqueFracionado.lerLista("8,8;8")));
+    }
+
+    @Test
+    void leiturasDescontamOQueAsFracoesEntregaram() throws SQLException {
+        BancoTeste.limpar();
+        BancoTeste.inserirProduto(FRACIONADO, 100);
+        EstoqueFracionado.obter().reconciliarTodos();
+        assertEquals(100, somarFracoes(FRACIONADO, "saldo"));
+
+        ProdutoDAO dao = new ProdutoDAO();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(dao.RegistrarSaidaProduto(FRACIONADO, 10, "promoção", "fracao-" + i));
+        }
+        // A linha do produto só muda na reconciliação
+        assertEquals(100, BancoTeste.quantidade(FRACIONADO));
+        assertEquals(70, new ProdutoDAO().ProcurarProdutoID(FRACIONADO).getQuantidade());
+        assertEquals(70, new ProdutoDAO().consultarQuantidade(FRACIONADO));
+        assertEquals(70, new ProdutoDAO().ProcurarProdutosIDs(new int[]{FRACIONADO}).get(FRACIONADO).getQuantidade());
+        assertEquals(70, new ProdutoDAO().getMinhaListaProdutos().get(0).getQuantidade());
+        assertEquals(70, dao.consultarQuantidade(FRACIONADO));
+
+        EstoqueFracionado.obter().reconciliarTodos();
+        assertEquals(70, BancoTeste.quantidade(FRACIONADO));
+        assertEquals(70, new ProdutoDAO().consultarQuantidade(FRACIONADO));
+        assertEquals(70, somarFracoes(FRACIONADO, "saldo"));
+        assertEquals(0, somarFracoes(FRACIONADO, "consumido"));
+    }
+
+    @Test
+    void reservaUsaAQuantidadeDescontadaDasFracoes() throws SQLException {
+        BancoTeste.limpar();
+        BancoTeste.inserirProduto(FRACIONADO, 40);
+        EstoqueFracionado.obter().reconciliarTodos();
+        ProdutoDAO dao = new ProdutoDAO();
+        assertTrue(dao.RegistrarSaidaProduto(FRACIONADO, 10, null, "fracao-1"));
+        assertTrue(dao.RegistrarSaidaProduto(FRACIONADO, 10, null, "fracao-2"));
+
+        ReservaEstoque reservas = new ReservaEstoque(new ProdutoDAO());
+        assertEquals(20, reservas.consultarDisponivel(FRACIONADO));
+        assertEquals(0, reservas.reservar(FRACIONADO, 21, 60));
+        assertNotEquals(0, reservas.reservar(FRACIONADO, 20, 60));
+        assertEquals(0, reservas.consultarDisponivel(FRACIONADO));
+    }
+
+    @Test
+    void saidaMaiorQueAsFracoesEFeitaNaReconciliacao() throws SQLException {
+        BancoTeste.limpar();
+        BancoTeste.inserirProduto(FRACIONADO, 20);
+        EstoqueFracionado fracionado = EstoqueFracionado.obter();
+        fracionado.reconciliarTodos();
+
+        // Cada fração tem 5 unidades
+        assertEquals(EstoqueFracionado.Resultado.REGISTRADA, fracionado.registrarSaida(FRACIONADO, 3, null, "pequena"));
+        assertEquals(EstoqueFracionado.Resultado.REGISTRADA, fracionado.registrarSaida(FRACIONADO, 12, null, "grande"));
+        assertEquals(5, BancoTeste.quantidade(FRACIONADO));
+        assertEquals(5, somarFracoes(FRACIONADO, "saldo"));
+        assertEquals(0, somarFracoes(FRACIONADO, "consumido"));
+        assertEquals(EstoqueFracionado.Resultado.INSUFICIENTE, fracionado.registrarSaida(FRACIONADO, 6, null, "demais"));
+        assertEquals(EstoqueFracionado.Resultado.REPETIDA, fracionado.registrarSaida(FRACIONADO, 1, null, "pequena"));
+        assertEquals(5, new ProdutoDAO().consultarQuantidade(FRACIONADO));
+    }
+
+    @Test
+    void saidaComumNaoUsaAQuantidadeRepartidaEntreAsFracoes() throws SQLException {
+        BancoTeste.limpar();
+        // Produto que saiu da lista: 30 unidades ainda repartidas, das quais
+        // 10 já entregues, e 20 livres
+        BancoTeste.inserirProduto(FORA_DA_LISTA, 50);
+        executar("INSERT INTO estoque_fracao (produto_id, fracao, saldo, consumido) VALUES (" + FORA_DA_LISTA + ", 0, 20, 10)");
+
+        ProdutoDAO dao = new ProdutoDAO();
+        assertEquals(40, dao.consultarQuantidade(FORA_DA_LISTA));
+        assertFalse(dao.RegistrarSaidaProduto(FORA_DA_LISTA, 21, null, "comum-1"));
+        assertTrue(dao.RegistrarSaidaProduto(FORA_DA_LISTA, 20, null, "comum-2"));
+        assertEquals(30, BancoTeste.quantidade(FORA_DA_LISTA));
+
+        long excedentes = EstoqueFracionado.obter().excedentes();
+        EstoqueFracionado.obter().reconciliarTodos();
+        assertEquals(20, BancoTeste.quantidade(FORA_DA_LISTA));
+        assertEquals(0, somarFracoes(FORA_DA_LISTA, "saldo"));
+        assertEquals(excedentes, EstoqueFracionado.obter().excedentes());
+    }
+
+    @Test
+    void excedenteDaReconciliacaoApareceNasEstatisticas() throws SQLException {
+        BancoTeste.limpar();
+        BancoTeste.inserirProduto(FRACIONADO, 20);
+        EstoqueFracionado fracionado = EstoqueFracionado.obter();
+        fracionado.reconciliarTodos();
+        assertEquals(EstoqueFracionado.Resultado.REGISTRADA, fracionado.registrarSaida(FRACIONADO, 4, null, "fracao-1"));
+        assertEquals(EstoqueFracionado.Resultado.REGISTRADA, fracionado.registrarSaida(FRACIONADO, 4, null, "fracao-2"));
+
+        // Quantidade reduzida direto no banco, fora do sistema
+        executar("UPDATE produto SET quantidade = 5 WHERE id = " + FRACIONADO);
+        long excedentes = fracionado.excedentes();
+        fracionado.reconciliarTodos();
+        assertEquals(0, BancoTeste.quantidade(FRACIONADO));
+        assertEquals(excedentes + 3, fracionado.excedentes());
+        assertTrue(fracionado.estatisticas().endsWith(fracionado.excedentes() + " unidades entregues além do estoque"),
+                fracionado.estatisticas());
+    }
+
+    @Test
+    void saidasSimultaneasNaoPassamDaQuantidade() throws Exception {
+        BancoTeste.limpar();
+        BancoTeste.inserirProduto(FRACIONADO, 100);
+        EstoqueFracionado fracionado = EstoqueFracionado.obter();
+        fracionado.reconciliarTodos();
+
+        ExecutorService threads = Executors.newFixedThreadPool(FRACOES);
+        List<Future<EstoqueFracionado.Resultado>> resultados = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            String requestId = "simultanea-" + i;
+            resultados.add(threads.submit(() -> fracionado.registrarSaida(FRACIONADO, 1, null, requestId)));
+        }
+        threads.shutdown();
+        assertTrue(threads.awaitTermination(30, TimeUnit.SECONDS));
+        int registradas = 0;
+        for (Future<EstoqueFracionado.Resultado> resultado : resultados) {
+            if (resultado.get() == EstoqueFracionado.Resultado.REGISTRADA) {
+                registradas++;
+            }
+        }
+
+        assertEquals(100, registradas);
+        assertEquals(0, new ProdutoDAO().consultarQuantidade(FRACIONADO));
+        fracionado.reconciliarTodos();
+        assertEquals(0, BancoTeste.quantidade(FRACIONADO));
+    }
+
+    private static long somarFracoes(int produtoId, String coluna) throws SQLException {
+        try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT COALESCE(SUM(" + coluna + "), 0) FROM estoque_fracao WHERE produto_id = " + produtoId)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void executar(String sql) throws SQLException {
+        try (Connection conn = new Conexao().conectar(); Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(sql);
+        }
+    }
+
+    private static int[] ordenados(ConjuntoInt ids) {
+        int[] valores = ids.paraVetor();
+        Arrays.sort(valores);
+        return valores;
+    }
+}
@@ -0,0 +1,84 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import modelo.EstatisticaSql;
+import org.junit.jupiter.api.Test;
+
+class MonitorSqlTest {
+
+    @Test
+    void trocaLiteraisPorMarcadores() {
+        assertEquals("SELECT * FROM produto WHERE id = ? AND preco > ?",
+                MonitorSql.impressao("SELECT * FROM produto WHERE id = 42 AND preco > 3.75"));
+        assertEquals("SELECT id FROM produto WHERE nome = ? AND categoria = ?",
+                MonitorSql.impressao("SELECT id FROM produto WHERE nome = 'O''Brien' AND categoria = \"a\\\"b\""));
+    }
+
+    @Test
+    void preservaNomesComDigitos() {
+        assertEquals("SELECT col1, t2.x FROM tabela2 t2", MonitorSql.impressao("SELECT col1, t2.x FROM tabela2 t2"));
+    }
+
+    @Test
+    void removeComentariosEEspacos() {
+        assertEquals("SELECT a FROM t WHERE b = ?",
+                MonitorSql.impressao("SELECT   a -- comentário\n  FROM /* bloco */ t\n\tWHERE b = 1 # fim"));
+    }
+
+    @Test
+    void resumeListasInEValues() {
+        assertEquals("SELECT * FROM produto WHERE id IN (...)",
+                MonitorSql.impressao("SELECT * FROM produto WHERE id IN (1, 2, 3)"));
+        assertEquals(MonitorSql.impressao("SELECT * FROM produto WHERE id IN (?)"),
+                MonitorSql.impressao("SELECT * FROM produto WHERE id IN (?,?,?,?)"));
+        assertEquals("INSERT INTO t (a, b) VALUES (?, ?), ...",
+                MonitorSql.impressao("INSERT INTO t (a, b) VALUES (1, 'x'), (2, 'y'), (3, 'z')"));
+        assertEquals(MonitorSql.impressao("INSERT INTO t (a, b) VALUES (?, ?), (?, ?)"),
+                MonitorSql.impressao("INSERT INTO t (a, b) VALUES (?, ?), (?, ?), (?, ?)"));
+    }
+
+    @Test
+    void percentisAproximadosPeloHistograma() {
+        String sql = "SELECT percentis_teste FROM t WHERE id = 1";
+        for (int ms = 1; ms <= 100; ms++) {
+            MonitorSql.registrar("teste", sql, ms * 1_000_000L, ms);
+        }
+        EstatisticaSql estatistica = buscar(MonitorSql.impressao(sql));
+        assertEquals(100, estatistica.getExecucoes());
+        assertEquals(5_050, estatistica.getLinhas());
+        assertEquals(5_050, estatistica.getTotalMillis(), 1e-6);
+        assertEquals(100, estatistica.getMaximoMillis(), 1e-6);
+        // Cada faixa cobre um quarto de potência de 2: erro de no máximo 25% para cima
+        assertEntre(50, estatistica.getP50Millis());
+        assertEntre(95, estatistica.getP95Millis());
+        assertEntre(99, estatistica.getP99Millis());
+    }
+
+    @Test
+    void percentilNaoPassaDoMaximo() {
+        String sql = "SELECT percentil_maximo FROM t";
+        for (int i = 0; i < 10; i++) {
+            MonitorSql.registrar("teste", sql, 1_100_000L, 1);
+        }
+        EstatisticaSql estatistica = buscar(MonitorSql.impressao(sql));
+        assertEquals(1.1, estatistica.getP99Millis(), 1e-9);
+        assertEquals(1.1, estatistica.getMaximoMillis(), 1e-9);
+    }
+
+    private static void assertEntre(double exato, double aproximado) {
+        assertTrue(aproximado >= exato && aproximado <= exato * 1.25, "esperado ~" + exato + ", obtido " + aproximado);
+    }
+
+    private static EstatisticaSql buscar(String impressao) {
+        List<EstatisticaSql> estatisticas = MonitorSql.estatisticas(0);
+        for (EstatisticaSql estatistica : estatisticas) {
+            if (estatistica.getImpressao().equals(impressao)) {
+                return estatistica;
+            }
+        }
+        throw new AssertionError("impressão não encontrada: " + impressao);
+    }
+}
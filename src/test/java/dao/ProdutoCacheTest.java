@@ -0,0 +1,60 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import modelo.Produto;
+import org.junit.jupiter.api.Test;
+
+class ProdutoCacheTest {
+
+    private static Produto produto(int id, int quantidade) {
+        Produto produto = new Produto(id, "Produto " + id, "uni", 2.5, quantidade, 1, 100, "Geral");
+        produto.setVersao(3);
+        return produto;
+    }
+
+    @Test
+    void alterarOProdutoDevolvidoNaoMudaOCache() {
+        ProdutoCache cache = new ProdutoCache();
+        cache.armazenar(produto(7, 10));
+
+        Produto lido = cache.buscar(7);
+        lido.setQuantidade(0);
+        lido.setNome("alterado");
+        lido.setVersao(99);
+
+        Produto deNovo = cache.buscar(7);
+        assertNotSame(lido, deNovo);
+        assertEquals(10, deNovo.getQuantidade());
+        assertEquals("Produto 7", deNovo.getNome());
+        assertEquals(3, deNovo.getVersao());
+        assertEquals(10, cache.quantidade(7));
+    }
+
+    @Test
+    void alterarOProdutoArmazenadoNaoMudaOCache() {
+        ProdutoCache cache = new ProdutoCache();
+        Produto original = produto(8, 5);
+        cache.armazenar(original);
+        original.setQuantidade(500);
+
+        assertEquals(5, cache.buscar(8).getQuantidade());
+        assertEquals(5, cache.quantidade(8));
+    }
+
+    @Test
+    void leituraAnteriorAUmaAlteracaoNaoEArmazenada() {
+        ProdutoCache cache = new ProdutoCache();
+        long geracao = cache.geracao(9);
+        cache.ajustarQuantidade(9, -1);
+
+        assertFalse(cache.armazenar(produto(9, 4), geracao));
+        assertNull(cache.buscar(9));
+        assertTrue(cache.armazenar(produto(9, 3), cache.geracao(9)));
+        assertEquals(3, cache.buscar(9).getQuantidade());
+    }
+}
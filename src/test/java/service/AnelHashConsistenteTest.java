@@ -0,0 +1,85 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class AnelHashConsistenteTest {
+
+    private static final int PRODUTOS = 50_000;
+
+    @Test
+    void primeiroNoRecebeOAnelInteiro() {
+        AnelHashConsistente<String> anel = new AnelHashConsistente<>(64);
+        assertNull(anel.donoDe(1));
+        List<AnelHashConsistente.Faixa> faixas = anel.adicionar("a", "a");
+        assertEquals(1, faixas.size());
+        assertEquals(faixas.get(0).inicio, faixas.get(0).fim);
+        assertNull(faixas.get(0).doador);
+        assertEquals("a", anel.donoDe(123));
+    }
+
+    @Test
+    void naFaixaComVoltaNoAnel() {
+        assertTrue(AnelHashConsistente.naFaixa(5, 0, 10));
+        assertFalse(AnelHashConsistente.naFaixa(0, 0, 10));
+        assertTrue(AnelHashConsistente.naFaixa(10, 0, 10));
+        assertTrue(AnelHashConsistente.naFaixa(Integer.MAX_VALUE, 100, -100));
+        assertTrue(AnelHashConsistente.naFaixa(-200, 100, -100));
+        assertFalse(AnelHashConsistente.naFaixa(0, 100, -100));
+        assertTrue(AnelHashConsistente.naFaixa(42, 7, 7));
+    }
+
+    @Test
+    void faixasTransferidasSaoExatamenteOsProdutosQueMudamDeDono() {
+        AnelHashConsistente<String> anel = new AnelHashConsistente<>(64);
+        anel.adicionar("a", "a");
+        anel.adicionar("b", "b");
+        for (String novo : new String[]{"c", "d", "e"}) {
+            String[] antes = new String[PRODUTOS];
+            for (int id = 0; id < PRODUTOS; id++) {
+                antes[id] = anel.donoDe(id);
+            }
+            List<AnelHashConsistente.Faixa> faixas = anel.adicionar(novo, novo);
+            assertFalse(faixas.isEmpty());
+            int movidos = 0;
+            for (int id = 0; id < PRODUTOS; id++) {
+                String depois = anel.donoDe(id);
+                AnelHashConsistente.Faixa faixa = faixaDe(faixas, AnelHashConsistente.hashProduto(id));
+                if (!depois.equals(antes[id])) {
+                    movidos++;
+                    assertEquals(novo, depois);
+                    assertTrue(faixa != null, "produto " + id + " mudou de dono fora das faixas transferidas");
+                    assertEquals(antes[id], faixa.doador);
+                } else {
+                    assertNull(faixa, "produto " + id + " está em uma faixa transferida sem mudar de dono");
+                }
+            }
+            // Só uma parte dos produtos muda de dono ao incluir um nó
+            assertTrue(movidos > 0 && movidos < PRODUTOS / 2, "movidos: " + movidos);
+        }
+    }
+
+    @Test
+    void recusaNomeRepetido() {
+        AnelHashConsistente<String> anel = new AnelHashConsistente<>(8);
+        anel.adicionar("a", "a");
+        assertThrows(IllegalArgumentException.class, () -> anel.adicionar("a", "outro"));
+    }
+
+    private static AnelHashConsistente.Faixa faixaDe(List<AnelHashConsistente.Faixa> faixas, int hash) {
+        AnelHashConsistente.Faixa encontrada = null;
+        for (AnelHashConsistente.Faixa faixa : faixas) {
+            if (AnelHashConsistente.naFaixa(hash, faixa.inicio, faixa.fim)) {
+                assertNull(encontrada, "faixas transferidas sobrepostas");
+                encontrada = faixa;
+            }
+        }
+        return encontrada;
+    }
+}
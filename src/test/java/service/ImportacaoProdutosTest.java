@@ -0,0 +1,109 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dao.ProdutoDAO;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+import modelo.Produto;
+import modelo.ResultadoImportacao;
+import org.junit.jupiter.api.Test;
+
+class ImportacaoProdutosTest {
+
+    /**
+     * DAO que só guarda os produtos recebidos, sem acessar o banco.
+     */
+    private static final class GravacaoEmMemoria extends ProdutoDAO {
+
+        final List<Produto> gravados = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public int gravarLote(List<Produto> produtos, ObjIntConsumer<String> falha) {
+            gravados.addAll(produtos);
+            return produtos.size();
+        }
+    }
+
+    @Test
+    void lePontoEVirgulaComCabecalhoAspasEQuebrasDeLinha() throws InterruptedException {
+        String csv = "id;nome;unidade;quantidade;preco;min;max;categoria\r\n"
+                + ";Café;kg;10;12,50;1;20;Bebidas\r\n"
+                + "7;\"Sabão \"\"neutro\"\"; 1L\";un;3;4.75;0;5;Limpeza\n"
+                + "\n"
+                + ";\"Caixa\ncom duas linhas\";cx;0;1;0;0;Diversos\n";
+        GravacaoEmMemoria dao = new GravacaoEmMemoria();
+        ResultadoImportacao resultado = importar(dao, csv, 7);
+
+        assertNull(resultado.getFalha());
+        assertEquals(3, resultado.getLinhasLidas());
+        assertEquals(3, resultado.getGravados());
+        assertEquals(1, resultado.getAtualizados());
+        assertEquals(0, resultado.getRejeitadas());
+        assertEquals(3, dao.gravados.size());
+
+        Produto cafe = dao.gravados.get(0);
+        assertEquals(0, cafe.getId());
+        assertEquals("Café", cafe.getNome());
+        assertEquals("kg", cafe.getUnidade());
+        assertEquals(10, cafe.getQuantidade());
+        assertEquals(12.5, cafe.getPreco());
+        assertEquals("Bebidas", cafe.getCategoria());
+
+        Produto sabao = dao.gravados.get(1);
+        assertEquals(7, sabao.getId());
+        assertEquals("Sabão \"neutro\"; 1L", sabao.getNome());
+
+        assertEquals("Caixa\ncom duas linhas", dao.gravados.get(2).getNome());
+    }
+
+    @Test
+    void detectaVirgulaComoSeparador() throws InterruptedException {
+        GravacaoEmMemoria dao = new GravacaoEmMemoria();
+        ResultadoImportacao resultado = importar(dao, ",Arroz,kg,5,3.2,0,10,Grãos\n", 1_000);
+        assertEquals(1, resultado.getGravados());
+        assertEquals("Grãos", dao.gravados.get(0).getCategoria());
+    }
+
+    @Test
+    void rejeitaLinhasInvalidasComONumeroDaLinha() throws InterruptedException {
+        String csv = ";Válido;un;1;1;0;1;A\n"
+                + ";Poucas colunas;un;1\n"
+                + "abc;Id inválido;un;1;1;0;1;A\n"
+                + ";Max menor;un;1;1;5;2;A\n"
+                + ";;un;1;1;0;1;A\n"
+                + ";Preço negativo;un;1;-1;0;1;A\n";
+        GravacaoEmMemoria dao = new GravacaoEmMemoria();
+        ResultadoImportacao resultado = importar(dao, csv, 1_000);
+
+        assertEquals(6, resultado.getLinhasLidas());
+        assertEquals(1, resultado.getGravados());
+        assertEquals(5, resultado.getRejeitadas());
+        List<String> erros = resultado.getErros();
+        assertTrue(erros.get(0).startsWith("Linha 2: esperadas 8 colunas"), erros.get(0));
+        assertTrue(erros.get(1).startsWith("Linha 3: id inválido"), erros.get(1));
+        assertEquals("Linha 4: max menor que min", erros.get(2));
+        assertEquals("Linha 5: nome obrigatório", erros.get(3));
+        assertEquals("Linha 6: preco deve ser positivo", erros.get(4));
+    }
+
+    /**
+     * Envia o arquivo em blocos do tamanho informado, que podem cortar
+     * caracteres UTF-8 e linhas ao meio.
+     */
+    private static ResultadoImportacao importar(ProdutoDAO dao, String csv, int tamanhoBloco) throws InterruptedException {
+        ImportacaoProdutos importacao = new ImportacaoProdutos(1, dao);
+        byte[] bytes = csv.getBytes(StandardCharsets.UTF_8);
+        for (int inicio = 0; inicio < bytes.length; inicio += tamanhoBloco) {
+            byte[] bloco = new byte[Math.min(tamanhoBloco, bytes.length - inicio)];
+            System.arraycopy(bytes, inicio, bloco, 0, bloco.length);
+            importacao.enviar(bloco);
+        }
+        return importacao.concluir();
+    }
+}
@@ -0,0 +1,99 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import dao.ProdutoDAO;
+import dao.RegistroMovimentacaoDAO;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import modelo.ProdutosColunar;
+import modelo.RelatorioCategoria;
+import org.junit.jupiter.api.Test;
+
+class MotorRelatoriosTest {
+
+    private static final LocalDate DESDE = LocalDate.of(2025, 6, 1);
+    private static final LocalDate ATE = LocalDate.of(2025, 6, 30);
+
+    /**
+     * Produtos das categorias "Bebidas" e "Limpeza" e um sem categoria.
+     */
+    private static final class Produtos extends ProdutoDAO {
+
+        final int[] ids;
+
+        Produtos(int... ids) {
+            this.ids = ids;
+        }
+
+        @Override
+        public ProdutosColunar listarProdutosColunar() {
+            return new ProdutosColunar(ids, new String[]{"Água", "Sabão", "Avulso"},
+                    new int[]{10, 3, 7}, new double[]{2.0, 5.0, 1.0}, new int[]{5, 5, 0}, new int[]{100, 100, 100},
+                    new String[]{"uni"}, new int[]{0, 0, 0},
+                    new String[]{"Bebidas", "Limpeza"}, new int[]{0, 1, -1});
+        }
+    }
+
+    /**
+     * Totais por produto já somados, como o banco os entrega.
+     */
+    private static final class Movimentacoes extends RegistroMovimentacaoDAO {
+
+        final long[][] totais;
+
+        Movimentacoes(long[]... totais) {
+            this.totais = totais;
+        }
+
+        @Override
+        public int somarVariacoes(LocalDate desde, LocalDate ate, ConsumidorVariacoes consumidor) {
+            assertEquals(DESDE, desde);
+            assertEquals(ATE, ate);
+            for (long[] total : totais) {
+                consumidor.aceitar((int) total[0], total[1], total[2]);
+            }
+            return totais.length;
+        }
+    }
+
+    @Test
+    void somaOsTotaisDosProdutosNaCategoriaAtual() throws SQLException {
+        verificar(1, 2, 3);
+    }
+
+    @Test
+    void idsEsparsosUsamBuscaBinaria() throws SQLException {
+        verificar(1, 50_000, 9_000_000);
+    }
+
+    private static void verificar(int... ids) throws SQLException {
+        Movimentacoes movimentacoes = new Movimentacoes(
+                new long[]{ids[0], 10, 4},
+                new long[]{ids[1], 0, 6},
+                new long[]{ids[2], 3_000_000_000L, 1},
+                // Produto excluído: fica fora do relatório
+                new long[]{ids[2] + 1, 100, 100});
+        List<RelatorioCategoria> relatorio = new MotorRelatorios(new Produtos(ids), movimentacoes).gerarPorCategoria(DESDE, ATE);
+
+        assertEquals(3, relatorio.size());
+        RelatorioCategoria bebidas = relatorio.get(0);
+        assertEquals("Bebidas", bebidas.getCategoria());
+        assertEquals(20.0, bebidas.getValorEstoque());
+        assertEquals(10, bebidas.getEntradas());
+        assertEquals(4, bebidas.getSaidas());
+
+        RelatorioCategoria limpeza = relatorio.get(1);
+        assertEquals("Limpeza", limpeza.getCategoria());
+        assertEquals(1, limpeza.getAbaixoMinimo());
+        assertEquals(0, limpeza.getEntradas());
+        assertEquals(6, limpeza.getSaidas());
+
+        RelatorioCategoria semCategoria = relatorio.get(2);
+        assertNull(semCategoria.getCategoria());
+        assertEquals(3_000_000_000L, semCategoria.getEntradas());
+        assertEquals(1, semCategoria.getSaidas());
+    }
+}
@@ -0,0 +1,262 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import dao.EstoqueForaHeap;
+import dao.ProdutoDAO;
+import dao.ReservaDAO;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import modelo.Reserva;
+import org.junit.jupiter.api.Test;
+
+class ReservaEstoqueTest {
+
+    private static final int PRODUTO = 1;
+
+    /**
+     * Estoque de um único produto em memória. As saídas podem ser retidas
+     * antes de serem "gravadas", para simular uma transação em andamento.
+     */
+    private static final class EstoqueEmMemoria extends ProdutoDAO {
+
+        final AtomicInteger quantidade;
+        final List<String> requisicoes = new ArrayList<>();
+        volatile CountDownLatch liberarSaidas = new CountDownLatch(0);
+        volatile Runnable aoConsultar = () -> {
+        };
+
+        EstoqueEmMemoria(int quantidade) {
+            this.quantidade = new AtomicInteger(quantidade);
+        }
+
+        @Override
+        public int consultarQuantidade(int id) {
+            if (id != PRODUTO) {
+                return EstoqueForaHeap.AUSENTE;
+            }
+            int lida = quantidade.get();
+            aoConsultar.run();
+            return lida;
+        }
+
+        @Override
+        public boolean RegistrarSaidaProduto(int produtoId, int quantidadeSaida, String observacao, String requestId) {
+            try {
+                liberarSaidas.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            synchronized (requisicoes) {
+                if (requestId != null && requisicoes.contains(requestId)) {
+                    return true;
+                }
+                if (quantidade.get() < quantidadeSaida) {
+                    return false;
+                }
+                quantidade.addAndGet(-quantidadeSaida);
+                requisicoes.add(requestId);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Tabela de reservas em memória.
+     */
+    private static final class ReservasEmMemoria extends ReservaDAO {
+
+        final Map<Integer, Reserva> gravadas = new ConcurrentHashMap<>();
+        final List<Integer> confirmadas = new ArrayList<>();
+        final AtomicInteger proximoId = new AtomicInteger(1);
+        volatile CountDownLatch liberarInsercoes = new CountDownLatch(0);
+        volatile boolean falhar;
+
+        @Override
+        public int inserir(int produtoId, int quantidade, long expiraEm) throws SQLException {
+            try {
+                liberarInsercoes.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException(e);
+            }
+            if (falhar) {
+                throw new SQLException("falha simulada");
+            }
+            int id = proximoId.getAndIncrement();
+            gravadas.put(id, new Reserva(id, produtoId, quantidade, expiraEm));
+            return id;
+        }
+
+        @Override
+        public boolean remover(int id) {
+            return gravadas.remove(id) != null;
+        }
+
+        @Override
+        public int removerConfirmadas() {
+            int removidas = 0;
+            for (int id : confirmadas) {
+                if (gravadas.remove(id) != null) {
+                    removidas++;
+                }
+            }
+            return removidas;
+        }
+
+        @Override
+        public List<Reserva> listarReservas() {
+            return new ArrayList<>(gravadas.values());
+        }
+    }
+
+    @Test
+    void reservaSeparaQuantidadeAteSerLiberada() throws SQLException {
+        EstoqueEmMemoria estoque = new EstoqueEmMemoria(10);
+        ReservaEstoque reservas = new ReservaEstoque(estoque, new ReservasEmMemoria(), id -> true);
+
+        int id = reservas.reservar(PRODUTO, 6, 60);
+        assertTrue(id > 0);
+        assertEquals(4, reservas.consultarDisponivel(PRODUTO));
+        assertEquals(0, reservas.reservar(PRODUTO, 5, 60));
+        assertFalse(reservas.registrarSaida(PRODUTO, 5, "saída", null));
+        assertEquals(0, reservas.reservar(2, 1, 60));
+
+        assertTrue(reservas.liberar(id));
+        assertFalse(reservas.liberar(id));
+        assertEquals(10, reservas.consultarDisponivel(PRODUTO));
+    }
+
+    @Test
+    void confirmacaoRegistraASaidaComOIdDaReserva() throws SQLException {
+        EstoqueEmMemoria estoque = new EstoqueEmMemoria(10);
+        ReservasEmMemoria banco = new ReservasEmMemoria();
+        ReservaEstoque reservas = new ReservaEstoque(estoque, banco, id -> true);
+
+        int id = reservas.reservar(PRODUTO, 6, 60);
+        assertTrue(reservas.confirmar(id));
+        assertFalse(reservas.confirmar(id));
+        assertEquals(List.of("reserva-" + id), estoque.requisicoes);
+        assertEquals(4, estoque.quantidade.get());
+        assertEquals(4, reservas.consultarDisponivel(PRODUTO));
+        assertTrue(banco.gravadas.isEmpty());
+    }
+
+    @Test
+    void saidaQueTerminaDuranteAVerificacaoNaoLiberaQuantidade() throws Exception {
+        EstoqueEmMemoria estoque = new EstoqueEmMemoria(10);
+        ReservaEstoque reservas = new ReservaEstoque(estoque, new ReservasEmMemoria(), id -> true);
+        estoque.liberarSaidas = new CountDownLatch(1);
+
+        Thread saida = new Thread(() -> reservas.registrarSaida(PRODUTO, 10, "saída", null));
+        saida.start();
+        while (saida.getState() != Thread.State.WAITING) {
+            Thread.sleep(1);
+        }
+        // A reserva lê a quantidade antes de a saída ser gravada; a saída
+        // termina em seguida, antes da verificação
+        estoque.aoConsultar = () -> {
+            estoque.aoConsultar = () -> {
+            };
+            estoque.liberarSaidas.countDown();
+            try {
+                saida.join(300);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        assertEquals(0, reservas.reservar(PRODUTO, 5, 60));
+        saida.join(5_000);
+        assertEquals(0, estoque.quantidade.get());
+        assertEquals(0, reservas.consultarDisponivel(PRODUTO));
+    }
+
+    @Test
+    void gravacaoDaReservaNaoBloqueiaOProduto() throws Exception {
+        EstoqueEmMemoria estoque = new EstoqueEmMemoria(10);
+        ReservasEmMemoria banco = new ReservasEmMemoria();
+        ReservaEstoque reservas = new ReservaEstoque(estoque, banco, id -> true);
+        banco.liberarInsercoes = new CountDownLatch(1);
+
+        AtomicInteger lenta = new AtomicInteger();
+        Thread gravando = new Thread(() -> {
+            try {
+                lenta.set(reservas.reservar(PRODUTO, 6, 60));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        gravando.start();
+        while (reservas.quantidadeReservada(PRODUTO) == 0) {
+            Thread.sleep(1);
+        }
+
+        // A quantidade da reserva em gravação já está separada
+        assertEquals(4, reservas.consultarDisponivel(PRODUTO));
+        assertEquals(0, reservas.reservar(PRODUTO, 5, 60));
+        assertTrue(reservas.registrarSaida(PRODUTO, 3, "saída", null));
+        assertTrue(gravando.isAlive());
+
+        banco.liberarInsercoes.countDown();
+        banco.liberarInsercoes = new CountDownLatch(0);
+        gravando.join(5_000);
+        assertTrue(lenta.get() > 0);
+        assertEquals(1, reservas.consultarDisponivel(PRODUTO));
+    }
+
+    @Test
+    void falhaAoGravarDevolveAQuantidade() {
+        EstoqueEmMemoria estoque = new EstoqueEmMemoria(10);
+        ReservasEmMemoria banco = new ReservasEmMemoria();
+        ReservaEstoque reservas = new ReservaEstoque(estoque, banco, id -> true);
+        banco.falhar = true;
+
+        assertThrows(SQLException.class, () -> reservas.reservar(PRODUTO, 6, 60));
+        assertEquals(0, reservas.quantidadeReservada(PRODUTO));
+        assertEquals(10, reservas.consultarDisponivel(PRODUTO));
+    }
+
+    @Test
+    void recargaIgnoraReservasJaConfirmadasEVencidas() throws SQLException {
+        EstoqueEmMemoria estoque = new EstoqueEmMemoria(10);
+        ReservasEmMemoria banco = new ReservasEmMemoria();
+        int confirmada = banco.inserir(PRODUTO, 3, System.currentTimeMillis() + 60_000);
+        int ativa = banco.inserir(PRODUTO, 2, System.currentTimeMillis() + 60_000);
+        int vencida = banco.inserir(PRODUTO, 4, System.currentTimeMillis() - 1);
+        // O servidor parou depois da saída da primeira, antes de apagá-la
+        banco.confirmadas.add(confirmada);
+
+        ReservaEstoque reservas = new ReservaEstoque(estoque, banco, id -> true);
+        assertEquals(2, reservas.quantidadeReservada(PRODUTO));
+        assertEquals(List.of(ativa), List.copyOf(banco.gravadas.keySet()));
+        assertFalse(banco.gravadas.containsKey(vencida));
+    }
+
+    @Test
+    void reservaVencidaDeixaDeSepararQuantidade() throws Exception {
+        EstoqueEmMemoria estoque = new EstoqueEmMemoria(10);
+        ReservasEmMemoria banco = new ReservasEmMemoria();
+        ReservaEstoque reservas = new ReservaEstoque(estoque, banco, id -> true);
+
+        int id = reservas.reservar(PRODUTO, 7, 1);
+        assertEquals(3, reservas.consultarDisponivel(PRODUTO));
+        long limite = System.currentTimeMillis() + 5_000;
+        while (reservas.quantidadeReservada(PRODUTO) > 0 && System.currentTimeMillis() < limite) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        assertEquals(10, reservas.consultarDisponivel(PRODUTO));
+        assertFalse(reservas.confirmar(id));
+        assertTrue(banco.gravadas.isEmpty());
+    }
+}
@@ -0,0 +1,74 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class RodaTemporizacaoTest {
+
+    @Test
+    void disparaCadaItemUmaVezSomenteDepoisDoPrazo() throws InterruptedException {
+        Map<Integer, Long> disparos = new ConcurrentHashMap<>();
+        Map<Integer, Integer> vezes = new ConcurrentHashMap<>();
+        CountDownLatch todos = new CountDownLatch(4);
+        // 8 posições de 10 ms: os prazos de 150 e 400 ms dão mais de uma volta
+        RodaTemporizacao roda = new RodaTemporizacao(10, 8, id -> {
+            disparos.put(id, System.currentTimeMillis());
+            vezes.merge(id, 1, Integer::sum);
+            todos.countDown();
+        });
+        try {
+            long agora = System.currentTimeMillis();
+            long[] prazos = {agora - 1_000, agora + 30, agora + 150, agora + 400};
+            for (int id = 0; id < prazos.length; id++) {
+                roda.agendar(id, prazos[id]);
+            }
+            assertTrue(todos.await(5, TimeUnit.SECONDS), "itens não disparados: " + todos.getCount());
+            for (int id = 0; id < prazos.length; id++) {
+                long disparo = disparos.get(id);
+                assertTrue(disparo >= prazos[id], "item " + id + " disparou antes do prazo");
+                assertTrue(disparo - Math.max(prazos[id], agora) < 1_000, "item " + id + " disparou com atraso excessivo");
+            }
+            Thread.sleep(100);
+            for (int id = 0; id < prazos.length; id++) {
+                assertEquals(1, vezes.get(id));
+            }
+        } finally {
+            roda.encerrar();
+        }
+    }
+
+    @Test
+    void erroNoAvisoNaoInterrompeARoda() throws InterruptedException {
+        CountDownLatch segundo = new CountDownLatch(1);
+        RodaTemporizacao roda = new RodaTemporizacao(10, 4, id -> {
+            if (id == 1) {
+                throw new IllegalStateException("falha simulada");
+            }
+            segundo.countDown();
+        });
+        try {
+            long agora = System.currentTimeMillis();
+            roda.agendar(1, agora + 10);
+            roda.agendar(2, agora + 60);
+            assertTrue(segundo.await(5, TimeUnit.SECONDS));
+        } finally {
+            roda.encerrar();
+        }
+    }
+
+    @Test
+    void encerrarDescartaPendentes() throws InterruptedException {
+        CountDownLatch disparo = new CountDownLatch(1);
+        RodaTemporizacao roda = new RodaTemporizacao(10, 4, id -> disparo.countDown());
+        roda.agendar(1, System.currentTimeMillis() + 200);
+        roda.encerrar();
+        assertFalse(disparo.await(400, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,163 @@
+package service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
+import org.junit.jupiter.api.Test;
+
+class SocketRmiTest {
+
+    private static final int LIMITE = 512;
+    private static final FabricaSocketCliente PARAMETROS = new FabricaSocketCliente(true, 0, 0, LIMITE, 6, 5_000);
+
+    @Test
+    void entregaOsBytesOriginaisEntreDoisSocketsCompactados() throws Exception {
+        byte[][] mensagens = {
+            new byte[]{42},
+            texto(300),
+            texto(200_000),
+            aleatorios(300_000, 1),
+            // Maior que o quadro máximo: dividida em vários quadros
+            texto(3 << 20)
+        };
+        try (ServerSocket servidor = new FabricaSocketServidor(PARAMETROS).createServerSocket(0)) {
+            CompletableFuture<Void> envio = CompletableFuture.runAsync(() -> {
+                try (Socket cliente = PARAMETROS.createSocket(InetAddress.getLoopbackAddress().getHostAddress(), servidor.getLocalPort())) {
+                    OutputStream saida = cliente.getOutputStream();
+                    for (byte[] mensagem : mensagens) {
+                        saida.write(mensagem);
+                        saida.flush();
+                    }
+                    // Escritas byte a byte também formam um único quadro
+                    for (byte b : texto(1_000)) {
+                        saida.write(b);
+                    }
+                    saida.flush();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            try (Socket aceito = servidor.accept()) {
+                DataInputStream entrada = new DataInputStream(aceito.getInputStream());
+                for (byte[] mensagem : mensagens) {
+                    byte[] lida = new byte[mensagem.length];
+                    entrada.readFully(lida);
+                    assertArrayEquals(mensagem, lida);
+                }
+                byte[] lida = new byte[1_000];
+                entrada.readFully(lida);
+                assertArrayEquals(texto(1_000), lida);
+                assertEquals(-1, entrada.read());
+            }
+            envio.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void formatoDosQuadrosNoFio() throws Exception {
+        byte[] pequena = texto(100);
+        byte[] compactavel = texto(4_096);
+        byte[] incompactavel = aleatorios(4_096, 2);
+        try (ServerSocket servidor = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+                Socket cliente = PARAMETROS.createSocket(InetAddress.getLoopbackAddress().getHostAddress(), servidor.getLocalPort());
+                Socket aceito = servidor.accept()) {
+            OutputStream saida = cliente.getOutputStream();
+            for (byte[] mensagem : new byte[][]{pequena, compactavel, incompactavel}) {
+                saida.write(mensagem);
+                saida.flush();
+            }
+            DataInputStream fio = new DataInputStream(aceito.getInputStream());
+
+            // Abaixo do limite: enviada sem compressão
+            assertEquals(0, fio.read());
+            assertEquals(pequena.length, fio.readInt());
+            assertArrayEquals(pequena, lerBytes(fio, pequena.length));
+
+            // Compactável: tamanho original, tamanho transmitido e dados Deflate
+            assertEquals(1, fio.read());
+            assertEquals(compactavel.length, fio.readInt());
+            int transmitido = fio.readInt();
+            assertTrue(transmitido < compactavel.length);
+            Inflater descompactador = new Inflater();
+            descompactador.setInput(lerBytes(fio, transmitido));
+            byte[] original = new byte[compactavel.length];
+            assertEquals(compactavel.length, descompactador.inflate(original));
+            descompactador.end();
+            assertArrayEquals(compactavel, original);
+
+            // Dados que não diminuem com a compressão seguem no formato original
+            assertEquals(0, fio.read());
+            assertEquals(incompactavel.length, fio.readInt());
+            assertArrayEquals(incompactavel, lerBytes(fio, incompactavel.length));
+        }
+    }
+
+    @Test
+    void recusaQuadrosInvalidos() throws Exception {
+        assertThrows(IOException.class, () -> lerQuadro(new byte[]{7, 0, 0, 0, 1, 0}));
+        ByteArrayOutputStream grande = new ByteArrayOutputStream();
+        DataOutputStream dados = new DataOutputStream(grande);
+        dados.write(0);
+        dados.writeInt((1 << 20) + 1);
+        assertThrows(IOException.class, () -> lerQuadro(grande.toByteArray()));
+        ByteArrayOutputStream corrompido = new ByteArrayOutputStream();
+        dados = new DataOutputStream(corrompido);
+        dados.write(1);
+        dados.writeInt(100);
+        dados.writeInt(4);
+        dados.write(new byte[]{1, 2, 3, 4});
+        assertThrows(IOException.class, () -> lerQuadro(corrompido.toByteArray()));
+    }
+
+    /**
+     * Envia os bytes crus a um socket compactado e tenta ler um byte dele.
+     */
+    private static void lerQuadro(byte[] bruto) throws IOException {
+        try (ServerSocket servidor = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+                Socket cliente = PARAMETROS.createSocket(InetAddress.getLoopbackAddress().getHostAddress(), servidor.getLocalPort());
+                Socket aceito = servidor.accept()) {
+            aceito.getOutputStream().write(bruto);
+            aceito.getOutputStream().flush();
+            aceito.shutdownOutput();
+            InputStream entrada = cliente.getInputStream();
+            entrada.read();
+        }
+    }
+
+    private static byte[] lerBytes(DataInputStream entrada, int quantidade) throws IOException {
+        byte[] bytes = new byte[quantidade];
+        entrada.readFully(bytes);
+        return bytes;
+    }
+
+    private static byte[] texto(int tamanho) {
+        byte[] base = "produto;unidade;quantidade;preco;categoria\n".getBytes(StandardCharsets.UTF_8);
+        byte[] texto = new byte[tamanho];
+        for (int i = 0; i < tamanho; i++) {
+            texto[i] = base[i % base.length];
+        }
+        return texto;
+    }
+
+    private static byte[] aleatorios(int tamanho, long semente) {
+        byte[] bytes = new byte[tamanho];
+        new Random(semente).nextBytes(bytes);
+        return bytes;
+    }
+}
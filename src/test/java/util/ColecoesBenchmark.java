@@ -0,0 +1,156 @@
+package util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compara as coleções de chaves primitivas com as equivalentes do JDK nos
+ * usos que têm no sistema: busca por id no cache de produtos
+ * ({@link MapaIntObjeto}), soma de variações por produto
+ * ({@link ContadorIntLong}) e remoção de ids repetidos de uma consulta em lote
+ * ({@link ConjuntoInt}).
+ *
+ * Cada invocação processa um lote de {@value #LOTE} ids sorteados entre os
+ * {@code produtos} cadastrados; os tempos são por id. Para ver também a
+ * alocação por operação, rode com {@code -prof gc}:
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Dbenchmark="ColecoesBenchmark -prof gc"
+ * </pre>
+ *
+ * @author Hector
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColecoesBenchmark {
+
+    static final int LOTE = 1024;
+
+    @Param({"10000", "1000000"})
+    int produtos;
+
+    private int[] ids;
+    private int posicao;
+
+    private MapaIntObjeto<Object> mapa;
+    private Map<Integer, Object> mapaJdk;
+    private ContadorIntLong contador;
+    private Map<Integer, Long> contadorJdk;
+
+    @Setup
+    public void preparar() {
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        // Vários lotes diferentes, para que as buscas não fiquem só no cache do processador
+        ids = new int[LOTE * 64];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = 1 + aleatorio.nextInt(produtos);
+        }
+        mapa = new MapaIntObjeto<>();
+        mapaJdk = new HashMap<>();
+        contador = new ContadorIntLong();
+        contadorJdk = new HashMap<>();
+        for (int id = 1; id <= produtos; id++) {
+            Object produto = new Object();
+            mapa.put(id, produto);
+            mapaJdk.put(id, produto);
+            contador.somar(id, 1);
+            contadorJdk.put(id, 1L);
+        }
+    }
+
+    private int proximoLote() {
+        int inicio = posicao;
+        posicao = (posicao + LOTE) % ids.length;
+        return inicio;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public void buscarMapaIntObjeto(Blackhole bh) {
+        int inicio = proximoLote();
+        for (int i = inicio; i < inicio + LOTE; i++) {
+            bh.consume(mapa.get(ids[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public void buscarHashMap(Blackhole bh) {
+        int inicio = proximoLote();
+        for (int i = inicio; i < inicio + LOTE; i++) {
+            bh.consume(mapaJdk.get(ids[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public long somarContadorIntLong() {
+        int inicio = proximoLote();
+        long total = 0;
+        for (int i = inicio; i < inicio + LOTE; i++) {
+            // Os contadores começam em 1 e sobem de 2 em 2: nenhum zera e é removido
+            total += contador.somar(ids[i], 2);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public long somarHashMap() {
+        int inicio = proximoLote();
+        long total = 0;
+        for (int i = inicio; i < inicio + LOTE; i++) {
+            total += contadorJdk.merge(ids[i], 2L, Long::sum);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public int[] deduplicarConjuntoInt() {
+        int inicio = proximoLote();
+        ConjuntoInt vistos = new ConjuntoInt(LOTE);
+        for (int i = inicio; i < inicio + LOTE; i++) {
+            vistos.adicionar(ids[i]);
+        }
+        return vistos.paraVetor();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOTE)
+    public int[] deduplicarHashSet() {
+        int inicio = proximoLote();
+        Set<Integer> vistos = new HashSet<>(LOTE * 2);
+        for (int i = inicio; i < inicio + LOTE; i++) {
+            vistos.add(ids[i]);
+        }
+        int[] resultado = new int[vistos.size()];
+        int j = 0;
+        for (int id : vistos) {
+            resultado[j++] = id;
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,57 @@
+package util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+class ConjuntoIntTest {
+
+    @Test
+    void adicionaUmaVezERemove() {
+        ConjuntoInt conjunto = new ConjuntoInt();
+        assertTrue(conjunto.adicionar(0));
+        assertFalse(conjunto.adicionar(0));
+        assertTrue(conjunto.adicionar(-5));
+        assertTrue(conjunto.adicionar(12));
+        assertEquals(3, conjunto.size());
+        int[] elementos = conjunto.paraVetor();
+        Arrays.sort(elementos);
+        assertArrayEquals(new int[]{-5, 0, 12}, elementos);
+        assertTrue(conjunto.remover(0));
+        assertFalse(conjunto.contem(0));
+        assertFalse(conjunto.remover(99));
+        conjunto.clear();
+        assertTrue(conjunto.isEmpty());
+    }
+
+    @Test
+    void equivaleAoHashSetEmOperacoesAleatorias() {
+        Random aleatorio = new Random(11);
+        ConjuntoInt conjunto = new ConjuntoInt(1);
+        Set<Integer> esperado = new HashSet<>();
+        for (int i = 0; i < 200_000; i++) {
+            int valor = aleatorio.nextInt(1_500) - 750;
+            if (aleatorio.nextBoolean()) {
+                assertEquals(esperado.add(valor), conjunto.adicionar(valor));
+            } else {
+                assertEquals(esperado.remove(valor), conjunto.remover(valor));
+            }
+        }
+        assertEquals(esperado.size(), conjunto.size());
+        for (int valor = -750; valor < 750; valor++) {
+            assertEquals(esperado.contains(valor), conjunto.contem(valor));
+        }
+        Set<Integer> percorrido = new HashSet<>();
+        for (int valor : conjunto.paraVetor()) {
+            percorrido.add(valor);
+        }
+        assertEquals(esperado, percorrido);
+    }
+}
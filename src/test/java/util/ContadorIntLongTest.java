@@ -0,0 +1,67 @@
+package util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class ContadorIntLongTest {
+
+    @Test
+    void somaERemoveAoZerar() {
+        ContadorIntLong contador = new ContadorIntLong();
+        assertEquals(5, contador.somar(3, 5));
+        assertEquals(2, contador.somar(3, -3));
+        assertEquals(1, contador.size());
+        assertEquals(0, contador.somar(3, -2));
+        assertEquals(0, contador.get(3));
+        assertTrue(contador.isEmpty());
+    }
+
+    @Test
+    void somarZeroNaoCriaContador() {
+        ContadorIntLong contador = new ContadorIntLong();
+        assertEquals(0, contador.somar(9, 0));
+        assertTrue(contador.isEmpty());
+    }
+
+    @Test
+    void chaveZero() {
+        ContadorIntLong contador = new ContadorIntLong();
+        contador.somar(0, 10);
+        assertEquals(1, contador.size());
+        assertEquals(10, contador.remove(0));
+        assertEquals(0, contador.get(0));
+        assertTrue(contador.isEmpty());
+    }
+
+    @Test
+    void equivaleAoHashMapEmOperacoesAleatorias() {
+        Random aleatorio = new Random(7);
+        ContadorIntLong contador = new ContadorIntLong(2);
+        Map<Integer, Long> esperado = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            int chave = aleatorio.nextInt(1_000) - 500;
+            if (aleatorio.nextInt(10) == 0) {
+                Long anterior = esperado.remove(chave);
+                assertEquals(anterior == null ? 0 : anterior, contador.remove(chave));
+            } else {
+                long delta = aleatorio.nextInt(7) - 3;
+                long novo = esperado.getOrDefault(chave, 0L) + delta;
+                if (novo == 0) {
+                    esperado.remove(chave);
+                } else {
+                    esperado.put(chave, novo);
+                }
+                assertEquals(novo, contador.somar(chave, delta));
+            }
+        }
+        assertEquals(esperado.size(), contador.size());
+        Map<Integer, Long> percorrido = new HashMap<>();
+        contador.paraCada(percorrido::put);
+        assertEquals(esperado, percorrido);
+    }
+}
@@ -0,0 +1,87 @@
+package util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class MapaIntObjetoTest {
+
+    @Test
+    void guardaSubstituiERemove() {
+        MapaIntObjeto<String> mapa = new MapaIntObjeto<>();
+        assertNull(mapa.put(7, "a"));
+        assertEquals("a", mapa.put(7, "b"));
+        assertEquals("b", mapa.get(7));
+        assertEquals(1, mapa.size());
+        assertEquals("b", mapa.remove(7));
+        assertNull(mapa.get(7));
+        assertTrue(mapa.isEmpty());
+    }
+
+    @Test
+    void chaveZeroENegativas() {
+        MapaIntObjeto<String> mapa = new MapaIntObjeto<>();
+        mapa.put(0, "zero");
+        mapa.put(-1, "menos um");
+        mapa.put(Integer.MIN_VALUE, "mínimo");
+        assertEquals("zero", mapa.get(0));
+        assertEquals("menos um", mapa.get(-1));
+        assertEquals("mínimo", mapa.get(Integer.MIN_VALUE));
+        assertEquals(3, mapa.size());
+        assertEquals("zero", mapa.remove(0));
+        assertFalse(mapa.containsKey(0));
+        assertEquals(2, mapa.size());
+    }
+
+    @Test
+    void recusaValorNulo() {
+        assertThrows(NullPointerException.class, () -> new MapaIntObjeto<String>().put(1, null));
+    }
+
+    @Test
+    void removerSeERemoverQualquer() {
+        MapaIntObjeto<Integer> mapa = new MapaIntObjeto<>(4);
+        for (int i = 0; i < 100; i++) {
+            mapa.put(i, i);
+        }
+        assertEquals(50, mapa.removerSe(chave -> chave % 2 == 0));
+        assertEquals(50, mapa.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i % 2 == 0 ? null : Integer.valueOf(i), mapa.get(i));
+        }
+        while (mapa.removerQualquer()) {
+            // esvazia o mapa
+        }
+        assertTrue(mapa.isEmpty());
+    }
+
+    @Test
+    void equivaleAoHashMapEmOperacoesAleatorias() {
+        Random aleatorio = new Random(42);
+        MapaIntObjeto<Integer> mapa = new MapaIntObjeto<>();
+        Map<Integer, Integer> esperado = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // Poucas chaves distintas para forçar colisões e remoções no meio das sequências
+            int chave = aleatorio.nextInt(2_000) - 1_000;
+            if (aleatorio.nextInt(3) == 0) {
+                assertEquals(esperado.remove(chave), mapa.remove(chave));
+            } else {
+                assertEquals(esperado.put(chave, i), mapa.put(chave, i));
+            }
+        }
+        assertEquals(esperado.size(), mapa.size());
+        for (int chave = -1_000; chave < 1_000; chave++) {
+            assertEquals(esperado.get(chave), mapa.get(chave));
+        }
+        Map<Integer, Integer> percorrido = new HashMap<>();
+        mapa.paraCada(percorrido::put);
+        assertEquals(esperado, percorrido);
+    }
+}